@@ -52,6 +52,7 @@ class LetterIT extends AbstractMessagingAppTest {
 	 * PRE:
 	 * - one partyId and no address
 	 * - a single attachment with delivery type set to DIGITAL_MAIL
+	 * - a reachable digital mailbox, according to digital-mail-sender
 	 * - successful response from digital-mail-sender
 	 *
 	 * POST:
@@ -176,6 +177,7 @@ class LetterIT extends AbstractMessagingAppTest {
 	 * PRE:
 	 * - one partyId and no address
 	 * - a single attachment with delivery type set to ANY
+	 * - a reachable digital mailbox, according to digital-mail-sender
 	 * - successful response from digital-mail-sender
 	 *
 	 * POST:
@@ -362,6 +364,7 @@ class LetterIT extends AbstractMessagingAppTest {
 	 * PRE:
 	 * - one partyId and one address
 	 * - a single attachment with delivery type set to ANY
+	 * - a reachable digital mailbox, according to digital-mail-sender
 	 *
 	 * POST:
 	 * - one DIGITAL_MAIL delivery with status SENT
@@ -431,6 +434,7 @@ class LetterIT extends AbstractMessagingAppTest {
 	 * PRE:
 	 * - one partyId and one address
 	 * - a single attachment with delivery type set to ANY
+	 * - a reachable digital mailbox, according to digital-mail-sender
 	 * - FAILURE response from digital-mail-sender
 	 *
 	 * POST:
@@ -6,6 +6,10 @@ public final class Constants {
 
 	public static final String CONVERSATION_HISTORY_PATH = "/{municipalityId}/conversation-history/{partyId}";
 
+	public static final String HISTORY_EXPORT_PATH = "/{municipalityId}/history/export";
+
+	public static final String STATISTICS_EXPORT_PATH = STATISTICS_PATH + "/export";
+
 	public static final String STATISTICS_FOR_DEPARTMENTS_PATH = STATISTICS_PATH + "/departments";
 
 	public static final String STATISTICS_FOR_SPECIFIC_DEPARTMENT_PATH = STATISTICS_FOR_DEPARTMENTS_PATH + "/{department}";
@@ -30,12 +34,16 @@ public final class Constants {
 
 	public static final String MESSAGES_ATTACHMENT_BY_REQUEST_PARAMETER_PATH = "/{municipalityId}/messages/{messageId}/attachments";
 
+	public static final String CONTACT_SETTINGS_CACHE_PATH = "/{municipalityId}/contact-settings/cache";
+
 	public static final String X_ISSUER_HEADER_KEY = "x-issuer";
 
 	public static final String X_ORIGIN_HEADER_KEY = "x-origin";
 
 	public static final String X_SENT_BY_HEADER_KEY = "X-Sent-By";
 
+	public static final String X_CONTINUATION_TOKEN_HEADER_KEY = "X-Continuation-Token";
+
 	public static final String OEP_INSTANCE_EXTERNAL = "EXTERNAL";
 
 	public static final String OEP_INSTANCE_INTERNAL = "INTERNAL";
@@ -1,15 +1,16 @@
 package se.sundsvall.messaging;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.configuration.DeliveryQueueProperties;
 import se.sundsvall.messaging.integration.db.DbIntegration;
 import se.sundsvall.messaging.service.event.IncomingMessageEvent;
 
-import static se.sundsvall.messaging.model.MessageStatus.PENDING;
-
 @Component
 class StartupHandler implements CommandLineRunner {
 
@@ -19,27 +20,80 @@ class StartupHandler implements CommandLineRunner {
 
 	private final DbIntegration dbIntegration;
 
-	StartupHandler(final ApplicationEventPublisher eventPublisher, final DbIntegration dbIntegration) {
+	private final DeliveryQueueProperties.Recovery recovery;
+
+	StartupHandler(final ApplicationEventPublisher eventPublisher, final DbIntegration dbIntegration, final DeliveryQueueProperties deliveryQueueProperties) {
 		this.eventPublisher = eventPublisher;
 		this.dbIntegration = dbIntegration;
+		this.recovery = deliveryQueueProperties.recovery();
 	}
 
 	@Override
 	public void run(final String... args) {
-		final var pendingMessages = dbIntegration.getLatestMessagesWithStatus(PENDING);
-
-		if (pendingMessages.isEmpty()) {
-			LOG.info("No pending messages to process");
-		} else {
-			pendingMessages.stream()
-				.map(message -> {
-					LOG.info("Processing {} with id {} and delivery id {}", message.getType(),
-						message.getMessageId(), message.getDeliveryId());
-
-					return new IncomingMessageEvent(this, message.getMunicipalityId(), message.getType(), message.getDeliveryId(), message.getOrigin());
-				})
-				.forEach(eventPublisher::publishEvent);
+		if (!recovery.enabled()) {
+			LOG.info("Recovery of pending messages is disabled");
+			return;
+		}
+
+		// Recover in the background, so that the application doesn't have to wait for it to become ready
+		Thread.ofPlatform()
+			.name("pending-message-recovery")
+			.daemon()
+			.start(this::recoverPendingMessages);
+	}
+
+	/**
+	 * Claims pending messages that are unclaimed or whose claim has expired, a page at a time, and hands them over for
+	 * delivery at a limited rate. Messages still claimed by an instance that has died, e.g. the previous process of this
+	 * instance, are left to the delivery queue poller, which picks them up once their claims have expired.
+	 */
+	void recoverPendingMessages() {
+		try {
+			LOG.info("Recovering pending messages at a rate of at most {} per second", recovery.ratePerSecond());
+
+			final var intervalInNanos = TimeUnit.SECONDS.toNanos(1) / recovery.ratePerSecond();
+			var nextPublishAt = System.nanoTime();
+			var recovered = 0L;
+
+			while (!Thread.currentThread().isInterrupted()) {
+				// Claimed messages are no longer claimable, so each page starts where the previous one ended
+				final var pendingMessages = dbIntegration.claimPendingMessages(recovery.pageSize());
+
+				for (final var message : pendingMessages) {
+					nextPublishAt = awaitTurn(nextPublishAt, intervalInNanos);
+
+					eventPublisher.publishEvent(new IncomingMessageEvent(this, message.getMunicipalityId(), message.getType(), message.getDeliveryId(), message.getOrigin()));
+				}
+
+				recovered += pendingMessages.size();
+
+				if (pendingMessages.size() < recovery.pageSize()) {
+					break;
+				}
+
+				LOG.info("Recovered {} pending message(s) so far", recovered);
+			}
+
+			if (recovered == 0) {
+				LOG.info("No pending messages to process");
+			} else {
+				LOG.info("Recovery of pending messages done, {} message(s) recovered", recovered);
+			}
+		} catch (final RuntimeException e) {
+			LOG.error("Recovery of pending messages failed", e);
 		}
 	}
 
+	/**
+	 * Waits until the given point in time, and returns the point in time for the next turn.
+	 */
+	private static long awaitTurn(final long turnAt, final long intervalInNanos) {
+		final var delay = turnAt - System.nanoTime();
+
+		if (delay > 0) {
+			LockSupport.parkNanos(delay);
+		}
+
+		return Math.max(turnAt, System.nanoTime()) + intervalInNanos;
+	}
 }
@@ -0,0 +1,63 @@
+package se.sundsvall.messaging.api;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import se.sundsvall.dept44.common.validators.annotation.ValidMunicipalityId;
+import se.sundsvall.dept44.common.validators.annotation.ValidUuid;
+import se.sundsvall.dept44.problem.Problem;
+import se.sundsvall.dept44.problem.violations.ConstraintViolationProblem;
+import se.sundsvall.messaging.service.MessageService;
+
+import static org.springframework.http.MediaType.APPLICATION_PROBLEM_JSON_VALUE;
+import static org.springframework.http.ResponseEntity.noContent;
+import static se.sundsvall.messaging.Constants.CONTACT_SETTINGS_CACHE_PATH;
+
+@Tag(name = "Contact Settings Cache Resources")
+@Validated
+@RestController
+@ApiResponse(responseCode = "400",
+	description = "Bad Request",
+	content = @Content(
+		mediaType = APPLICATION_PROBLEM_JSON_VALUE,
+		schema = @Schema(oneOf = {
+			Problem.class, ConstraintViolationProblem.class
+		})))
+@ApiResponse(responseCode = "500",
+	description = "Internal Server Error",
+	content = @Content(
+		mediaType = APPLICATION_PROBLEM_JSON_VALUE,
+		schema = @Schema(implementation = Problem.class)))
+class ContactSettingsCacheResource {
+
+	private final MessageService messageService;
+
+	ContactSettingsCacheResource(final MessageService messageService) {
+		this.messageService = messageService;
+	}
+
+	@Operation(summary = "Invalidate cached contact settings",
+		description = "Invalidates the cached contact settings of all parties within the municipality, or of a single party if given. "
+			+ "Only the cache of the instance handling the request is invalidated, the contact settings cached by other instances expire "
+			+ "within the configured time to live",
+		responses = {
+			@ApiResponse(responseCode = "204", description = "Successful Operation", useReturnTypeSchema = true)
+		})
+	@DeleteMapping(value = CONTACT_SETTINGS_CACHE_PATH)
+	ResponseEntity<Void> invalidateContactSettings(
+		@Parameter(name = "municipalityId", description = "Municipality id", example = "2281") @ValidMunicipalityId @PathVariable final String municipalityId,
+		@Parameter(name = "partyId", description = "Party id", schema = @Schema(format = "uuid"), example = "46f9bf9f-09f2-45ac-8c8b-6cad847541ed") @ValidUuid(nullable = true) @RequestParam(name = "partyId", required = false) final String partyId) {
+
+		messageService.invalidateContactSettings(municipalityId, partyId);
+		return noContent().build();
+	}
+}
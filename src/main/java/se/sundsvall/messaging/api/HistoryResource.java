@@ -2,6 +2,7 @@ package se.sundsvall.messaging.api;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -17,6 +18,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import se.sundsvall.dept44.common.validators.annotation.ValidMunicipalityId;
@@ -31,8 +33,11 @@ import se.sundsvall.messaging.api.model.response.MessageResult;
 import se.sundsvall.messaging.api.model.response.UserBatches;
 import se.sundsvall.messaging.api.model.response.UserMessage;
 import se.sundsvall.messaging.api.model.response.UserMessages;
+import se.sundsvall.messaging.model.ExportFormat;
 import se.sundsvall.messaging.service.HistoryService;
 
+import static java.util.Optional.ofNullable;
+import static org.springframework.http.HttpHeaders.RANGE;
 import static org.springframework.http.MediaType.ALL_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_PROBLEM_JSON_VALUE;
@@ -41,6 +46,7 @@ import static org.springframework.http.ResponseEntity.ok;
 import static se.sundsvall.messaging.Constants.BATCH_STATUS_PATH;
 import static se.sundsvall.messaging.Constants.CONVERSATION_HISTORY_PATH;
 import static se.sundsvall.messaging.Constants.DELIVERY_STATUS_PATH;
+import static se.sundsvall.messaging.Constants.HISTORY_EXPORT_PATH;
 import static se.sundsvall.messaging.Constants.MESSAGES_AND_DELIVERY_METADATA_PATH;
 import static se.sundsvall.messaging.Constants.MESSAGES_AND_DELIVERY_PATH;
 import static se.sundsvall.messaging.Constants.MESSAGES_ATTACHMENT_BY_REQUEST_PARAMETER_PATH;
@@ -49,6 +55,7 @@ import static se.sundsvall.messaging.Constants.MESSAGES_STATUS_PATH;
 import static se.sundsvall.messaging.Constants.USER_BATCHES_PATH;
 import static se.sundsvall.messaging.Constants.USER_MESSAGES_PATH;
 import static se.sundsvall.messaging.Constants.USER_MESSAGE_PATH;
+import static se.sundsvall.messaging.Constants.X_CONTINUATION_TOKEN_HEADER_KEY;
 import static se.sundsvall.messaging.api.model.ApiMapper.toMessageBatchResult;
 import static se.sundsvall.messaging.api.model.ApiMapper.toMessageResult;
 
@@ -76,19 +83,48 @@ class HistoryResource {
 		this.historyService = historyService;
 	}
 
-	@Operation(summary = "Get the entire conversation history for a given party")
+	@Operation(summary = "Get the entire conversation history for a given party",
+		description = "The history is returned latest first. If a limit is given, the history is returned a page at a time, and the token to fetch the next page with is returned in the "
+			+ X_CONTINUATION_TOKEN_HEADER_KEY + " header as long as there might be more history.",
+		responses = {
+			@ApiResponse(responseCode = "200", description = "Successful Operation", useReturnTypeSchema = true, headers = @Header(name = X_CONTINUATION_TOKEN_HEADER_KEY, schema = @Schema(type = "string")))
+		})
 	@GetMapping(value = CONVERSATION_HISTORY_PATH, produces = APPLICATION_JSON_VALUE)
 	ResponseEntity<List<HistoryResponse>> getConversationHistory(
 		@Parameter(name = "municipalityId", description = "Municipality id", example = "2281") @ValidMunicipalityId @PathVariable final String municipalityId,
 		@Parameter(name = "partyId", schema = @Schema(format = "uuid"), example = "46f9bf9f-09f2-45ac-8c8b-6cad847541ed") @PathVariable @ValidUuid final String partyId,
 		@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "From-date (inclusive). Format: yyyy-MM-dd (ISO8601)") final LocalDate from,
-		@RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "To-date (inclusive). Format: yyyy-MM-dd (ISO8601)") final LocalDate to) {
+		@RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "To-date (inclusive). Format: yyyy-MM-dd (ISO8601)") final LocalDate to,
+		@Parameter(name = "limit", description = "Sets the maximum amount of entries to return, all entries are returned if not set", example = "100") @RequestParam(required = false) @Min(value = 1,
+			message = "must be greater than or equal to 1 and less than or equal to 2147483647") final Integer limit,
+		@Parameter(name = "continuationToken", description = "Token returned with the previous page, to fetch the next page with") @RequestParam(required = false) final String continuationToken) {
+
+		final var historyPage = historyService.getConversationHistory(municipalityId, partyId, from, to, limit, continuationToken);
+		final var response = ok();
+		ofNullable(historyPage.continuationToken()).ifPresent(token -> response.header(X_CONTINUATION_TOKEN_HEADER_KEY, token));
 
-		return ok(historyService.getConversationHistory(municipalityId, partyId, from, to).stream()
+		return response.body(historyPage.history().stream()
 			.map(ApiMapper::toHistoryResponse)
 			.toList());
 	}
 
+	@Operation(summary = "Export history",
+		description = "Streams the history as NDJSON or CSV, one entry per line or row, in the order it was saved. Meant for reporting over long periods, "
+			+ "since the entries are written as they are read rather than collected first. The content is left out unless requested.")
+	@GetMapping(value = HISTORY_EXPORT_PATH, produces = ALL_VALUE)
+	void exportHistory(
+		@Parameter(name = "municipalityId", description = "Municipality id", example = "2281") @ValidMunicipalityId @PathVariable final String municipalityId,
+		@Parameter(name = "partyId", description = "Party id, all parties are exported if not set", schema = @Schema(format = "uuid"), example = "46f9bf9f-09f2-45ac-8c8b-6cad847541ed") @RequestParam(required = false) @ValidUuid(
+			nullable = true) final String partyId,
+		@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "From-date (inclusive). Format: yyyy-MM-dd (ISO8601)") final LocalDate from,
+		@RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "To-date (inclusive). Format: yyyy-MM-dd (ISO8601)") final LocalDate to,
+		@Parameter(name = "format", description = "Format of the export") @RequestParam(defaultValue = "NDJSON") final ExportFormat format,
+		@Parameter(name = "includeContent", description = "Whether to include the content of the entries, or only their metadata", example = "false") @RequestParam(defaultValue = "false") final boolean includeContent,
+		final HttpServletResponse response) throws IOException {
+
+		historyService.exportHistory(municipalityId, partyId, from, to, format, includeContent, response);
+	}
+
 	@Operation(summary = "Get the status for a message batch, its messages and their deliveries",
 		responses = {
 			@ApiResponse(responseCode = "404",
@@ -196,9 +232,11 @@ class HistoryResource {
 		@Parameter(name = "userId", description = "User id", example = "joe01doe") @PathVariable final String userId,
 		@Parameter(name = "page", description = "Which page to fetch", example = "1") @RequestParam(defaultValue = "1") @Min(value = 1, message = "must be greater than or equal to 1 and less than or equal to 2147483647") final Integer page,
 		@Parameter(name = "limit", description = "Sets the amount of entries per page", example = "1") @RequestParam(defaultValue = "15") @Min(value = 1,
-			message = "must be greater than or equal to 1 and less than or equal to 2147483647") final Integer limit) {
+			message = "must be greater than or equal to 1 and less than or equal to 2147483647") final Integer limit,
+		@Parameter(name = "continuationToken", description = "Token returned with the previous page, to fetch the next page with. Takes precedence over page") @RequestParam(required = false) final String continuationToken,
+		@Parameter(name = "count", description = "Whether to count the total amount of entries and pages", example = "true") @RequestParam(defaultValue = "true") final boolean count) {
 
-		return ok(historyService.getUserBatches(municipalityId, userId, page, limit));
+		return ok(historyService.getUserBatches(municipalityId, userId, page, limit, continuationToken, count));
 	}
 
 	@Operation(summary = "Get historical messages sent by a user, optionally filtered by batch id")
@@ -209,9 +247,11 @@ class HistoryResource {
 		@Parameter(name = "batchId", schema = @Schema(format = "uuid"), description = "Batch id", example = "118e05b3-4321-4f46-9a33-b9f43faa58a6") @RequestParam(required = false) @ValidUuid(nullable = true) final String batchId,
 		@Parameter(name = "page", description = "Which page to fetch", example = "1") @RequestParam(defaultValue = "1") @Min(value = 1, message = "must be greater than or equal to 1 and less than or equal to 2147483647") final Integer page,
 		@Parameter(name = "limit", description = "Sets the amount of entries per page", example = "1") @RequestParam(defaultValue = "15") @Min(value = 1,
-			message = "must be greater than or equal to 1 and less than or equal to 2147483647") final Integer limit) {
+			message = "must be greater than or equal to 1 and less than or equal to 2147483647") final Integer limit,
+		@Parameter(name = "continuationToken", description = "Token returned with the previous page, to fetch the next page with. Takes precedence over page") @RequestParam(required = false) final String continuationToken,
+		@Parameter(name = "count", description = "Whether to count the total amount of entries and pages", example = "true") @RequestParam(defaultValue = "true") final boolean count) {
 
-		return ok(historyService.getUserMessages(municipalityId, userId, batchId, page, limit));
+		return ok(historyService.getUserMessages(municipalityId, userId, batchId, page, limit, continuationToken, count));
 	}
 
 	@Operation(summary = "Get a historical message sent by a user")
@@ -226,7 +266,7 @@ class HistoryResource {
 
 	/**
 	 * @deprecated since 2025-010-23, will be removed in a future version. Use
-	 *             {@link #readAttachmentByRequestParameter(String, String, String, HttpServletResponse)} instead.
+	 *             {@link #readAttachmentByRequestParameter(String, String, String, String, HttpServletResponse)} instead.
 	 */
 	@Deprecated(since = "2025-10-23", forRemoval = true)
 	@Operation(summary = "Stream attachment by messageId and fileName",
@@ -240,9 +280,10 @@ class HistoryResource {
 		@Parameter(name = "municipalityId", description = "Municipality id", example = "2281") @ValidMunicipalityId @PathVariable final String municipalityId,
 		@Parameter(name = "messageId", schema = @Schema(format = "uuid"), example = "d1e07d2c-2e75-44e0-b978-de7e19d7edad") @PathVariable @ValidUuid final String messageId,
 		@Parameter(name = "fileName", example = "some-filename.txt") @PathVariable final String fileName,
+		@Parameter(name = RANGE, description = "Single byte range of the attachment to read, e.g. bytes=0-1023") @RequestHeader(name = RANGE, required = false) final String range,
 		final HttpServletResponse response) throws IOException {
 
-		historyService.streamAttachment(municipalityId, messageId, fileName, response);
+		historyService.streamAttachment(municipalityId, messageId, fileName, range, response);
 	}
 
 	@Operation(summary = "Stream attachment by messageId and fileName")
@@ -251,8 +292,9 @@ class HistoryResource {
 		@Parameter(name = "municipalityId", description = "Municipality id", example = "2281") @ValidMunicipalityId @PathVariable final String municipalityId,
 		@Parameter(name = "messageId", schema = @Schema(format = "uuid"), example = "d1e07d2c-2e75-44e0-b978-de7e19d7edad") @PathVariable @ValidUuid final String messageId,
 		@Parameter(name = "fileName", example = "some-filename.txt") @RequestParam @NotBlank final String fileName,
+		@Parameter(name = RANGE, description = "Single byte range of the attachment to read, e.g. bytes=0-1023") @RequestHeader(name = RANGE, required = false) final String range,
 		final HttpServletResponse response) throws IOException {
 
-		historyService.streamAttachment(municipalityId, messageId, fileName, response);
+		historyService.streamAttachment(municipalityId, messageId, fileName, range, response);
 	}
 }
@@ -6,6 +6,8 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -21,13 +23,16 @@ import se.sundsvall.dept44.problem.violations.ConstraintViolationProblem;
 import se.sundsvall.messaging.api.model.response.DepartmentStats;
 import se.sundsvall.messaging.api.validation.ValidNullOrNotEmpty;
 import se.sundsvall.messaging.model.DepartmentStatistics;
+import se.sundsvall.messaging.model.ExportFormat;
 import se.sundsvall.messaging.model.MessageType;
 import se.sundsvall.messaging.model.Statistics;
 import se.sundsvall.messaging.service.StatisticsService;
 
+import static org.springframework.http.MediaType.ALL_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_PROBLEM_JSON_VALUE;
 import static org.springframework.http.ResponseEntity.ok;
+import static se.sundsvall.messaging.Constants.STATISTICS_EXPORT_PATH;
 import static se.sundsvall.messaging.Constants.STATISTICS_FOR_DEPARTMENTS_PATH;
 import static se.sundsvall.messaging.Constants.STATISTICS_FOR_SPECIFIC_DEPARTMENT_PATH;
 import static se.sundsvall.messaging.Constants.STATISTICS_PATH;
@@ -98,4 +103,20 @@ class StatisticsResource {
 		return ok(statisticsService.getStatisticsByDepartment(municipalityId, department, origin, from, to));
 	}
 
+	@Operation(summary = "Export delivery statistics per day",
+		description = "Streams the number of deliveries per day, message type, original message type, status, origin and department as NDJSON or CSV, one combination per line or row, ordered by day. "
+			+ "Meant for reporting over long periods, since the rows are written as they are read rather than collected first.",
+		responses = {
+			@ApiResponse(responseCode = "200", description = "Successful Operation")
+		})
+	@GetMapping(value = STATISTICS_EXPORT_PATH, produces = ALL_VALUE)
+	void exportStatistics(
+		@Parameter(name = "municipalityId", description = "Municipality id", example = "2281") @ValidMunicipalityId @PathVariable final String municipalityId,
+		@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "From-date (inclusive). Format: yyyy-MM-dd (ISO8601)") final LocalDate from,
+		@RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "To-date (inclusive). Format: yyyy-MM-dd (ISO8601)") final LocalDate to,
+		@Parameter(name = "format", description = "Format of the export") @RequestParam(defaultValue = "NDJSON") final ExportFormat format,
+		final HttpServletResponse response) throws IOException {
+
+		statisticsService.exportStatistics(municipalityId, from, to, format, response);
+	}
 }
@@ -15,7 +15,9 @@ public record UserBatches(
 
 	@JsonProperty("_meta") @Schema(implementation = PagingMetaData.class, accessMode = READ_ONLY) PagingMetaData metaData,
 
-	@ArraySchema(schema = @Schema(implementation = Batch.class, accessMode = READ_ONLY)) List<Batch> batches
+	@ArraySchema(schema = @Schema(implementation = Batch.class, accessMode = READ_ONLY)) List<Batch> batches,
+
+	@Schema(description = "Token to fetch the next page with, absent when there is no next page", example = "MjAyNC0wNS0xN1QxMzozNzo0Mnw0NzEx", accessMode = READ_ONLY) String continuationToken
 
 ) {
 }
@@ -0,0 +1,26 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the removal of attachment contents that are no longer referenced by any message content.
+ *
+ * @param enabled   whether unreferenced attachment contents should be removed
+ * @param batchSize the number of attachment contents to remove at a time
+ * @param minAge    the minimum time since an attachment content was last stored, so that content stored ahead of the
+ *                  message content referencing it is left alone
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.attachment-cleanup")
+public record AttachmentCleanupProperties(
+
+	@DefaultValue("true") boolean enabled,
+
+	@Min(1) @DefaultValue("500") int batchSize,
+
+	@NotNull @DefaultValue("P1D") Duration minAge) {}
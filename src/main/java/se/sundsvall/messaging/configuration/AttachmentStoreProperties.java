@@ -0,0 +1,27 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.NotNull;
+import java.nio.file.Path;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the store holding attachment contents, extracted from the stored messages and history.
+ *
+ * @param type the type of store to use
+ * @param path the root directory of the store, when using the file system
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.attachment-store")
+public record AttachmentStoreProperties(
+
+	@NotNull @DefaultValue("DATABASE") Type type,
+
+	@NotNull @DefaultValue("attachments") Path path) {
+
+	public enum Type {
+		DATABASE,
+		FILE_SYSTEM
+	}
+}
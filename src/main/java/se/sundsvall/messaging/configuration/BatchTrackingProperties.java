@@ -0,0 +1,28 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the fallback triggering of asynchronous letter batches, and the removal of their tracking.
+ *
+ * @param enabled    whether stale batches should be triggered and old tracking removed
+ * @param batchSize  the number of stale batches to look at per run
+ * @param staleAfter the time a batch is left untriggered before it is considered stale
+ * @param retention  the time the tracking of a batch is kept, triggered or not
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.batch-tracking")
+public record BatchTrackingProperties(
+
+	@DefaultValue("true") boolean enabled,
+
+	@Min(1) @DefaultValue("100") int batchSize,
+
+	@NotNull @DefaultValue("PT1H") Duration staleAfter,
+
+	@NotNull @DefaultValue("P7D") Duration retention) {}
@@ -0,0 +1,25 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the cache of citizen addresses.
+ *
+ * @param maximumSize        the maximum number of cached addresses
+ * @param timeToLive         the time an address is cached
+ * @param negativeTimeToLive the time a citizen without data, or without a population registration address, is cached
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.citizen-cache")
+public record CitizenCacheProperties(
+
+	@Min(1) @DefaultValue("10000") long maximumSize,
+
+	@NotNull @DefaultValue("PT10M") Duration timeToLive,
+
+	@NotNull @DefaultValue("PT1M") Duration negativeTimeToLive) {}
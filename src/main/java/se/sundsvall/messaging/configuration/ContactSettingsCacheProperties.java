@@ -0,0 +1,28 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the cache of contact settings, used when routing messages of type MESSAGE.
+ *
+ * @param maximumSize    the maximum number of cached contact settings lookups
+ * @param timeToLive     the time the contact settings of a party, or the absence of them, are cached. Since the cache
+ *                       is only invalidated on the instance asked to, it is also the time other instances may use
+ *                       changed contact settings
+ * @param maximumOrigins the maximum number of distinct origins the cache lookups are counted per, lookups of further
+ *                       origins are counted as origin "other"
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.contact-settings-cache")
+public record ContactSettingsCacheProperties(
+
+	@Min(1) @DefaultValue("10000") long maximumSize,
+
+	@NotNull @DefaultValue("PT5M") Duration timeToLive,
+
+	@Min(1) @DefaultValue("100") int maximumOrigins) {}
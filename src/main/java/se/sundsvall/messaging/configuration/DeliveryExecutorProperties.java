@@ -0,0 +1,57 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+import se.sundsvall.messaging.model.MessageType;
+
+import static java.util.Optional.ofNullable;
+
+@Validated
+@ConfigurationProperties(prefix = "messaging.delivery-executor")
+public record DeliveryExecutorProperties(
+
+	@Valid @NotNull @DefaultValue Pool defaults,
+
+	Map<MessageType, @Valid Pool> pools) {
+
+	/**
+	 * Returns the pool settings for the given message type, falling back to the defaults when no
+	 * type-specific settings exist.
+	 *
+	 * @param  messageType the message type
+	 * @return             the pool settings to use
+	 */
+	public Pool poolFor(final MessageType messageType) {
+		return ofNullable(pools)
+			.map(pools -> pools.get(messageType))
+			.orElse(defaults);
+	}
+
+	public record Pool(
+
+		@Min(1) @DefaultValue("5") int concurrency,
+
+		@Min(1) @DefaultValue("1000") int queueCapacity,
+
+		@NotNull @DefaultValue("ABORT") RejectionPolicy rejectionPolicy,
+
+		@NotNull @DefaultValue("PT1S") Duration blockTimeout) {}
+
+	public enum RejectionPolicy {
+		/**
+		 * Let the publishing thread wait, at most the block timeout, for room in the queue. The publishing
+		 * thread is usually the request thread, so this adds up to the block timeout to the response time.
+		 */
+		BLOCK,
+		/** Let the publishing thread run the delivery itself. */
+		CALLER_RUNS,
+		/** Reject the delivery, leaving it as PENDING in the database. */
+		ABORT
+	}
+}
@@ -0,0 +1,12 @@
+package se.sundsvall.messaging.configuration;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(DeliveryQueueProperties.class)
+class DeliveryQueueConfiguration {
+
+}
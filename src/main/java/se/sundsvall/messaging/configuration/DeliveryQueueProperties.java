@@ -0,0 +1,51 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.UUID;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+@Validated
+@ConfigurationProperties(prefix = "messaging.delivery-queue")
+public record DeliveryQueueProperties(
+
+	String instanceId,
+
+	@NotNull @DefaultValue("PT5M") Duration claimDuration,
+
+	@DefaultValue("true") boolean pollingEnabled,
+
+	@Min(1) @DefaultValue("100") int pollBatchSize,
+
+	@Valid @NotNull @DefaultValue Recovery recovery) {
+
+	public DeliveryQueueProperties {
+		// Each running instance must have its own id, otherwise claims would survive restarts
+		if (isBlank(instanceId)) {
+			instanceId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+		}
+	}
+
+	/**
+	 * Settings for the recovery of pending messages at startup.
+	 *
+	 * @param enabled       whether pending messages should be recovered at startup
+	 * @param pageSize      the number of pending messages to claim per query. A page should be handed over well within the
+	 *                      claim duration, i.e. pageSize / ratePerSecond seconds
+	 * @param ratePerSecond the maximum number of recovered messages to hand over for delivery per second
+	 */
+	public record Recovery(
+
+		@DefaultValue("true") boolean enabled,
+
+		@Min(1) @DefaultValue("500") int pageSize,
+
+		@Min(1) @DefaultValue("50") int ratePerSecond) {}
+}
@@ -0,0 +1,17 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the parallel fan-out of multi-recipient requests on the synchronous path.
+ *
+ * @param parallelism the maximum number of deliveries performed in parallel for a single request
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.fan-out")
+public record FanOutProperties(
+
+	@Min(1) @DefaultValue("10") int parallelism) {}
@@ -0,0 +1,34 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the write-behind archiving of completed deliveries to the history.
+ *
+ * @param enabled       whether completed deliveries should be archived in the background, rather than by the
+ *                      delivering thread
+ * @param queueCapacity the maximum number of completed deliveries waiting to be archived, before delivering threads
+ *                      have to wait for room
+ * @param batchSize     the maximum number of completed deliveries archived per transaction
+ * @param flushInterval the maximum time to wait for a batch to fill up before archiving it
+ * @param maxAttempts   the maximum number of attempts to archive a completed delivery, before its outcome is recorded
+ *                      on its message, which keeps its claim and is archived once the claim has expired
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.history-archiver")
+public record HistoryArchiverProperties(
+
+	@DefaultValue("false") boolean enabled,
+
+	@Min(1) @DefaultValue("10000") int queueCapacity,
+
+	@Min(1) @DefaultValue("200") int batchSize,
+
+	@NotNull @DefaultValue("PT1S") Duration flushInterval,
+
+	@Min(1) @DefaultValue("3") int maxAttempts) {}
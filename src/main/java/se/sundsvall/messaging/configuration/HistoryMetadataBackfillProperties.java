@@ -0,0 +1,20 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the extraction of metadata from history saved before the metadata was extracted when saving it.
+ *
+ * @param enabled   whether the metadata of such history should be extracted
+ * @param batchSize the number of history entries to extract per transaction
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.history-metadata-backfill")
+public record HistoryMetadataBackfillProperties(
+
+	@DefaultValue("true") boolean enabled,
+
+	@Min(1) @DefaultValue("500") int batchSize) {}
@@ -0,0 +1,28 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the lookup of digital mailboxes.
+ *
+ * @param chunkSize   the maximum number of party ids looked up per call to DigitalMailSender
+ * @param parallelism the maximum number of chunks looked up in parallel for a single lookup
+ * @param maximumSize the maximum number of cached mailboxes
+ * @param timeToLive  the time a mailbox is cached
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.mailbox-lookup")
+public record MailboxLookupProperties(
+
+	@Min(1) @DefaultValue("100") int chunkSize,
+
+	@Min(1) @DefaultValue("4") int parallelism,
+
+	@Min(1) @DefaultValue("100000") long maximumSize,
+
+	@NotNull @DefaultValue("PT5M") Duration timeToLive) {}
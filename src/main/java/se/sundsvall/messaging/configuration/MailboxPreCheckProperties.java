@@ -0,0 +1,17 @@
+package se.sundsvall.messaging.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the check of digital mailboxes made before the recipients of a letter batch are routed to digital mail
+ * or snail-mail.
+ *
+ * @param enabled whether the mailboxes should be checked up front
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.mailbox-pre-check")
+public record MailboxPreCheckProperties(
+
+	@DefaultValue("true") boolean enabled) {}
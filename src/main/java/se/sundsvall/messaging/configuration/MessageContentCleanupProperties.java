@@ -0,0 +1,25 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the removal of message content that is no longer referenced by any message or history entry.
+ *
+ * @param enabled   whether unreferenced content should be removed
+ * @param batchSize the number of content rows to remove per transaction
+ * @param minAge    the minimum age of content to remove, so that content saved ahead of its messages is left alone
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.message-content-cleanup")
+public record MessageContentCleanupProperties(
+
+	@DefaultValue("true") boolean enabled,
+
+	@Min(1) @DefaultValue("500") int batchSize,
+
+	@NotNull @DefaultValue("P1D") Duration minAge) {}
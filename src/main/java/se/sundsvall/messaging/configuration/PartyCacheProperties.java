@@ -0,0 +1,26 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the cache of legal ids resolved from party ids.
+ *
+ * @param maximumSize  the maximum number of cached legal ids
+ * @param refreshAfter the age after which a cached legal id is resolved again, on its next use, starting with the party
+ *                     type it was found for
+ * @param timeToLive   the age after which a cached legal id is evicted
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.party-cache")
+public record PartyCacheProperties(
+
+	@Min(1) @DefaultValue("10000") long maximumSize,
+
+	@NotNull @DefaultValue("PT1H") Duration refreshAfter,
+
+	@NotNull @DefaultValue("PT24H") Duration timeToLive) {}
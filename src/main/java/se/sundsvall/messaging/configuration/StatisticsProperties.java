@@ -0,0 +1,25 @@
+package se.sundsvall.messaging.configuration;
+
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings for the message statistics.
+ *
+ * @param source where the statistics are read from
+ */
+@Validated
+@ConfigurationProperties(prefix = "messaging.statistics")
+public record StatisticsProperties(
+
+	@NotNull @DefaultValue("ROLLUP") Source source) {
+
+	public enum Source {
+		/** The daily statistics, maintained as history is saved */
+		ROLLUP,
+		/** The history itself, aggregated in the database on each request */
+		HISTORY
+	}
+}
@@ -0,0 +1,244 @@
+package se.sundsvall.messaging.integration.attachmentstore;
+
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+import se.sundsvall.dept44.problem.Problem;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentStore.requireValidHash;
+import static se.sundsvall.messaging.util.JsonUtils.fromJson;
+import static se.sundsvall.messaging.util.JsonUtils.toJson;
+
+/**
+ * Moves base64 encoded attachment contents in stored message content to the attachment store, leaving references in
+ * their place, and resolves the references back to the contents.
+ */
+@Component
+public class AttachmentExtractor {
+
+	/**
+	 * Prefix of attachment content references. Since ':' isn't part of the base64 alphabet, a reference can't be mistaken
+	 * for content.
+	 */
+	public static final String REFERENCE_PREFIX = "sha256:";
+
+	private static final List<String> ATTACHMENT_FIELDS = List.of("attachments", "files");
+	private static final List<String> ATTACHMENT_CONTENT_FIELDS = List.of("content", "base64Data");
+
+	private final AttachmentStore attachmentStore;
+
+	public AttachmentExtractor(final AttachmentStore attachmentStore) {
+		this.attachmentStore = attachmentStore;
+	}
+
+	public static boolean isReference(final String value) {
+		return value != null && value.startsWith(REFERENCE_PREFIX);
+	}
+
+	/**
+	 * Calculates the size of base64 encoded content when decoded, without decoding it. Characters outside the base64
+	 * alphabet, such as line breaks and padding, are ignored when decoding and hence not counted.
+	 */
+	public static long decodedSize(final String content) {
+		final var characters = content.chars()
+			.filter(AttachmentExtractor::isBase64Character)
+			.count();
+		return characters * 3 / 4;
+	}
+
+	/**
+	 * Tells whether the given character is part of the base64 alphabet, i.e. carries content when decoding.
+	 */
+	public static boolean isBase64Character(final int c) {
+		return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/';
+	}
+
+	/**
+	 * Moves the attachment contents in the given message content to the attachment store. The content comes from a
+	 * request, and a reference in it is rejected, since it would give access to content stored by someone else.
+	 *
+	 * @param  json the message content
+	 * @return      the message content with references in place of the attachment contents, or the given content as is
+	 *              if it doesn't have any attachment contents
+	 */
+	public String extract(final String json) {
+		final var root = parse(json);
+		var modified = false;
+
+		for (final var attachment : attachments(root)) {
+			for (final var field : ATTACHMENT_CONTENT_FIELDS) {
+				final var value = textValue(attachment, field);
+				if (isReference(value)) {
+					throw Problem.valueOf(BAD_REQUEST, "Attachment content must be base64 encoded");
+				}
+				if (value == null || value.isEmpty()) {
+					continue;
+				}
+
+				final var content = decode(value);
+				if (content != null) {
+					final var hash = sha256(content);
+					attachmentStore.store(hash, content);
+					attachment.put(field, REFERENCE_PREFIX + hash);
+					modified = true;
+				}
+			}
+		}
+
+		return modified ? toJson(root) : json;
+	}
+
+	/**
+	 * Replaces the attachment content references in the given message content with the contents.
+	 *
+	 * @param  json the message content
+	 * @return      the message content with the attachment contents in place, or the given content as is if it doesn't
+	 *              have any references
+	 */
+	public String resolve(final String json) {
+		if (json == null || !json.contains(REFERENCE_PREFIX)) {
+			return json;
+		}
+
+		final var root = parse(json);
+		var modified = false;
+
+		for (final var attachment : attachments(root)) {
+			for (final var field : ATTACHMENT_CONTENT_FIELDS) {
+				final var value = textValue(attachment, field);
+				if (isReference(value)) {
+					attachment.put(field, Base64.getEncoder().encodeToString(read(value)));
+					modified = true;
+				}
+			}
+		}
+
+		return modified ? toJson(root) : json;
+	}
+
+	/**
+	 * Returns the hashes of the attachment contents the references in the given message content refer to.
+	 *
+	 * @param  json the message content, with references in place of the attachment contents
+	 * @return      the hashes, empty if the content doesn't have any references
+	 */
+	public Set<String> references(final String json) {
+		final var hashes = new LinkedHashSet<String>();
+		if (json == null || !json.contains(REFERENCE_PREFIX)) {
+			return hashes;
+		}
+
+		for (final var attachment : attachments(parse(json))) {
+			for (final var field : ATTACHMENT_CONTENT_FIELDS) {
+				final var value = textValue(attachment, field);
+				if (isReference(value)) {
+					hashes.add(toHash(value));
+				}
+			}
+		}
+
+		return hashes;
+	}
+
+	/**
+	 * Reads the attachment content the given reference refers to.
+	 *
+	 * @param  reference the reference
+	 * @return           the content
+	 */
+	public byte[] read(final String reference) {
+		return attachmentStore.read(toHash(reference));
+	}
+
+	/**
+	 * Returns the size of the attachment content the given reference refers to.
+	 *
+	 * @param  reference the reference
+	 * @return           the size of the content, in bytes
+	 */
+	public long size(final String reference) {
+		return attachmentStore.size(toHash(reference));
+	}
+
+	/**
+	 * Opens a stream over the attachment content the given reference refers to.
+	 *
+	 * @param  reference the reference
+	 * @param  offset    the position in the content to start the stream at
+	 * @return           a stream over the content from the offset, to be closed by the caller
+	 */
+	public InputStream open(final String reference, final long offset) {
+		return attachmentStore.open(toHash(reference), offset);
+	}
+
+	private static String toHash(final String reference) {
+		return requireValidHash(reference.substring(REFERENCE_PREFIX.length()));
+	}
+
+	private static JsonNode parse(final String json) {
+		if (isBlank(json)) {
+			return null;
+		}
+
+		try {
+			return fromJson(json, JsonNode.class);
+		} catch (final JacksonException e) {
+			// Not JSON, hence no attachments
+			return null;
+		}
+	}
+
+	private static List<ObjectNode> attachments(final JsonNode root) {
+		final var attachments = new ArrayList<ObjectNode>();
+		if (root == null || !root.isObject()) {
+			return attachments;
+		}
+
+		ATTACHMENT_FIELDS.stream()
+			.map(root::get)
+			.filter(node -> node != null && node.isArray())
+			.forEach(node -> node.forEach(attachment -> {
+				if (attachment instanceof final ObjectNode objectNode) {
+					attachments.add(objectNode);
+				}
+			}));
+
+		return attachments;
+	}
+
+	private static String textValue(final JsonNode attachment, final String field) {
+		final var value = attachment.get(field);
+
+		return value != null && value.isValueNode() && !value.isNull() ? value.asText() : null;
+	}
+
+	private static byte[] decode(final String value) {
+		try {
+			return Base64.getDecoder().decode(value);
+		} catch (final IllegalArgumentException e) {
+			// Not valid base64, keep it as is
+			return null;
+		}
+	}
+
+	static String sha256(final byte[] content) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+		} catch (final NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package se.sundsvall.messaging.integration.attachmentstore;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.regex.Pattern;
+import se.sundsvall.dept44.problem.Problem;
+
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+
+/**
+ * Content-addressed store for attachment contents, keyed by the hex encoded SHA-256 hash of the content.
+ */
+public interface AttachmentStore {
+
+	Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+	/**
+	 * Verifies that the given hash is a hex encoded SHA-256 hash, i.e. exactly 64 lowercase hex characters, before it is
+	 * used to look up content, so that e.g. a path can never be passed as a hash.
+	 *
+	 * @param  hash the hash
+	 * @return      the given hash
+	 */
+	static String requireValidHash(final String hash) {
+		if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+			throw Problem.valueOf(INTERNAL_SERVER_ERROR, "Invalid attachment content hash");
+		}
+		return hash;
+	}
+
+	/**
+	 * Stores the content under the given hash, unless content already is stored under it.
+	 *
+	 * @param hash    the SHA-256 hash of the content
+	 * @param content the content
+	 */
+	void store(String hash, byte[] content);
+
+	/**
+	 * Reads the content stored under the given hash.
+	 *
+	 * @param  hash the SHA-256 hash of the content
+	 * @return      the content
+	 */
+	byte[] read(String hash);
+
+	/**
+	 * Returns the size of the content stored under the given hash.
+	 *
+	 * @param  hash the SHA-256 hash of the content
+	 * @return      the size of the content, in bytes
+	 */
+	long size(String hash);
+
+	/**
+	 * Opens a stream over the content stored under the given hash, without reading the whole content into memory.
+	 *
+	 * @param  hash   the SHA-256 hash of the content
+	 * @param  offset the position in the content to start the stream at
+	 * @return        a stream over the content from the offset, to be closed by the caller
+	 */
+	InputStream open(String hash, long offset);
+
+	/**
+	 * Removes content that no stored message content references, and that hasn't been stored for at least the given
+	 * minimum age, so that content stored ahead of the message content referencing it is left alone.
+	 *
+	 * @param  minAge the minimum time since the content was last stored
+	 * @param  limit  the maximum number of contents to remove
+	 * @return        the number of removed contents
+	 */
+	int deleteUnreferenced(Duration minAge, int limit);
+}
@@ -0,0 +1,22 @@
+package se.sundsvall.messaging.integration.attachmentstore;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import se.sundsvall.messaging.configuration.AttachmentStoreProperties;
+import se.sundsvall.messaging.integration.db.AttachmentReferenceRepository;
+import se.sundsvall.messaging.integration.db.AttachmentRepository;
+
+@Configuration
+@EnableConfigurationProperties(AttachmentStoreProperties.class)
+class AttachmentStoreConfiguration {
+
+	@Bean
+	AttachmentStore attachmentStore(final AttachmentStoreProperties properties, final AttachmentRepository attachmentRepository,
+		final AttachmentReferenceRepository attachmentReferenceRepository) {
+		return switch (properties.type()) {
+			case DATABASE -> new DatabaseAttachmentStore(attachmentRepository);
+			case FILE_SYSTEM -> new FileSystemAttachmentStore(properties.path(), attachmentReferenceRepository);
+		};
+	}
+}
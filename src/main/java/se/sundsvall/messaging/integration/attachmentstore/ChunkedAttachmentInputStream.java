@@ -0,0 +1,91 @@
+package se.sundsvall.messaging.integration.attachmentstore;
+
+import java.io.InputStream;
+import java.util.Objects;
+import se.sundsvall.messaging.integration.db.AttachmentRepository;
+
+/**
+ * Stream over attachment content in the attachment table, reading one chunk of the content at a time.
+ */
+class ChunkedAttachmentInputStream extends InputStream {
+
+	static final int CHUNK_SIZE = 1024 * 1024;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final AttachmentRepository attachmentRepository;
+	private final String hash;
+
+	private long position;
+	private byte[] chunk = EMPTY;
+	private int index;
+	private boolean exhausted;
+
+	ChunkedAttachmentInputStream(final AttachmentRepository attachmentRepository, final String hash, final long offset) {
+		this.attachmentRepository = attachmentRepository;
+		this.hash = hash;
+		this.position = offset;
+	}
+
+	@Override
+	public int read() {
+		if (!fill()) {
+			return -1;
+		}
+
+		return chunk[index++] & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] buffer, final int offset, final int length) {
+		Objects.checkFromIndexSize(offset, length, buffer.length);
+		if (length == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+
+		final var count = Math.min(length, chunk.length - index);
+		System.arraycopy(chunk, index, buffer, offset, count);
+		index += count;
+
+		return count;
+	}
+
+	@Override
+	public long skip(final long count) {
+		if (count <= 0) {
+			return 0;
+		}
+
+		// Skip within the current chunk, and move the position past the rest without reading it
+		final var inChunk = Math.min(count, chunk.length - index);
+		index += (int) inChunk;
+		position += count - inChunk;
+
+		return count;
+	}
+
+	private boolean fill() {
+		if (index < chunk.length) {
+			return true;
+		}
+		if (exhausted) {
+			return false;
+		}
+
+		final var next = attachmentRepository.findContentChunkByHash(hash, position + 1, CHUNK_SIZE);
+		if (next == null || next.length == 0) {
+			exhausted = true;
+			return false;
+		}
+
+		chunk = next;
+		index = 0;
+		position += next.length;
+		exhausted = next.length < CHUNK_SIZE;
+
+		return true;
+	}
+}
@@ -0,0 +1,52 @@
+package se.sundsvall.messaging.integration.attachmentstore;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import se.sundsvall.dept44.problem.Problem;
+import se.sundsvall.messaging.integration.db.AttachmentRepository;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+/**
+ * Attachment store keeping the contents in the attachment table. Streams read the content in chunks, since the driver
+ * otherwise materializes the whole blob.
+ */
+class DatabaseAttachmentStore implements AttachmentStore {
+
+	private final AttachmentRepository attachmentRepository;
+
+	DatabaseAttachmentStore(final AttachmentRepository attachmentRepository) {
+		this.attachmentRepository = attachmentRepository;
+	}
+
+	@Override
+	public void store(final String hash, final byte[] content) {
+		// Avoid sending the content to the database when it already is stored
+		if (attachmentRepository.refreshCreatedAt(hash, LocalDateTime.now()) == 0) {
+			attachmentRepository.insertIfAbsent(hash, content);
+		}
+	}
+
+	@Override
+	public byte[] read(final String hash) {
+		return attachmentRepository.findContentByHash(hash)
+			.orElseThrow(() -> Problem.valueOf(NOT_FOUND, "No attachment content found for hash " + hash));
+	}
+
+	@Override
+	public long size(final String hash) {
+		return attachmentRepository.findContentLengthByHash(hash)
+			.orElseThrow(() -> Problem.valueOf(NOT_FOUND, "No attachment content found for hash " + hash));
+	}
+
+	@Override
+	public InputStream open(final String hash, final long offset) {
+		return new ChunkedAttachmentInputStream(attachmentRepository, hash, offset);
+	}
+
+	@Override
+	public int deleteUnreferenced(final Duration minAge, final int limit) {
+		return attachmentRepository.deleteUnreferenced(LocalDateTime.now().minus(minAge), limit);
+	}
+}
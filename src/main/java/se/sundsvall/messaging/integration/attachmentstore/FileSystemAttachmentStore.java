@@ -0,0 +1,147 @@
+package se.sundsvall.messaging.integration.attachmentstore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import se.sundsvall.dept44.problem.Problem;
+import se.sundsvall.messaging.integration.db.AttachmentReferenceRepository;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentStore.requireValidHash;
+
+/**
+ * Attachment store keeping the contents as files below a root directory. Files are spread over sub-directories named
+ * by the first two characters of the hash, to keep the number of files per directory down. The modification time of a
+ * file is when its content was last stored, and the references to the contents are looked up in the database.
+ */
+class FileSystemAttachmentStore implements AttachmentStore {
+
+	private final Path root;
+
+	private final AttachmentReferenceRepository attachmentReferenceRepository;
+
+	FileSystemAttachmentStore(final Path root, final AttachmentReferenceRepository attachmentReferenceRepository) {
+		this.root = root;
+		this.attachmentReferenceRepository = attachmentReferenceRepository;
+	}
+
+	@Override
+	public void store(final String hash, final byte[] content) {
+		final var file = resolve(hash);
+
+		try {
+			if (Files.exists(file)) {
+				// Refresh the modification time, so that content about to be referenced again isn't removed as unreferenced
+				Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+				return;
+			}
+
+			Files.createDirectories(file.getParent());
+
+			// Write to a temporary file first, so that a partially written file never is visible under the hash
+			final var temporaryFile = Files.createTempFile(file.getParent(), hash, ".tmp");
+			try {
+				Files.write(temporaryFile, content);
+				Files.move(temporaryFile, file, ATOMIC_MOVE);
+			} catch (final FileAlreadyExistsException e) {
+				// Stored concurrently, e.g. by another delivery of the same attachment
+			} finally {
+				Files.deleteIfExists(temporaryFile);
+			}
+		} catch (final IOException e) {
+			throw Problem.valueOf(INTERNAL_SERVER_ERROR, "Unable to store attachment content with hash " + hash + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public byte[] read(final String hash) {
+		try {
+			return Files.readAllBytes(resolve(hash));
+		} catch (final NoSuchFileException e) {
+			throw Problem.valueOf(NOT_FOUND, "No attachment content found for hash " + hash);
+		} catch (final IOException e) {
+			throw Problem.valueOf(INTERNAL_SERVER_ERROR, "Unable to read attachment content with hash " + hash + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public long size(final String hash) {
+		try {
+			return Files.size(resolve(hash));
+		} catch (final NoSuchFileException e) {
+			throw Problem.valueOf(NOT_FOUND, "No attachment content found for hash " + hash);
+		} catch (final IOException e) {
+			throw Problem.valueOf(INTERNAL_SERVER_ERROR, "Unable to read attachment content with hash " + hash + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public InputStream open(final String hash, final long offset) {
+		try {
+			final var channel = Files.newByteChannel(resolve(hash));
+			try {
+				return Channels.newInputStream(channel.position(offset));
+			} catch (final IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		} catch (final NoSuchFileException e) {
+			throw Problem.valueOf(NOT_FOUND, "No attachment content found for hash " + hash);
+		} catch (final IOException e) {
+			throw Problem.valueOf(INTERNAL_SERVER_ERROR, "Unable to read attachment content with hash " + hash + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public int deleteUnreferenced(final Duration minAge, final int limit) {
+		final var storedBefore = Instant.now().minus(minAge);
+
+		try (final var files = Files.walk(root, 2)) {
+			return (int) files
+				.filter(file -> HASH_PATTERN.matcher(file.getFileName().toString()).matches())
+				.filter(file -> isStoredBefore(file, storedBefore))
+				.filter(file -> !attachmentReferenceRepository.existsByHash(file.getFileName().toString()))
+				.limit(limit)
+				// Check the modification time again, in case the content was stored again while its references were looked up
+				.filter(file -> isStoredBefore(file, storedBefore) && delete(file))
+				.count();
+		} catch (final NoSuchFileException e) {
+			// Nothing stored yet
+			return 0;
+		} catch (final IOException e) {
+			throw Problem.valueOf(INTERNAL_SERVER_ERROR, "Unable to remove unreferenced attachment contents: " + e.getMessage());
+		}
+	}
+
+	private static boolean isStoredBefore(final Path file, final Instant storedBefore) {
+		try {
+			return Files.getLastModifiedTime(file).toInstant().isBefore(storedBefore);
+		} catch (final IOException e) {
+			// Removed concurrently
+			return false;
+		}
+	}
+
+	private static boolean delete(final Path file) {
+		try {
+			return Files.deleteIfExists(file);
+		} catch (final IOException e) {
+			return false;
+		}
+	}
+
+	Path resolve(final String hash) {
+		requireValidHash(hash);
+
+		return root.resolve(hash.substring(0, 2)).resolve(hash);
+	}
+}
@@ -1,10 +1,20 @@
 package se.sundsvall.messaging.integration.citizen;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import generated.se.sundsvall.citizen.CitizenExtended;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Component;
 import se.sundsvall.dept44.problem.Problem;
+import se.sundsvall.messaging.configuration.CitizenCacheProperties;
 import se.sundsvall.messaging.model.Address;
 
 import static java.util.Collections.emptyList;
@@ -13,28 +23,96 @@ import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.joining;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 
+/**
+ * Fetches citizen addresses. Addresses are cached for a short time, and so is the absence of citizen data or of a
+ * population registration address. Concurrent requests for the same citizen share a single call to Citizen.
+ */
 @Component
-@EnableConfigurationProperties(CitizenIntegrationProperties.class)
+@EnableConfigurationProperties({
+	CitizenIntegrationProperties.class, CitizenCacheProperties.class
+})
 public class CitizenIntegration {
 
 	static final String INTEGRATION_NAME = "Citizen";
 
+	static final String CACHE_NAME = "citizen.address";
+
 	static final String POPULATION_REGISTRATION_ADDRESS = "POPULATION_REGISTRATION_ADDRESS";
 
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
 	private final CitizenClient client;
 
-	CitizenIntegration(final CitizenClient client) {
+	private final AsyncCache<CacheKey, CitizenLookup> addresses;
+
+	CitizenIntegration(final CitizenClient client, final CitizenCacheProperties cacheProperties, final MeterRegistry meterRegistry) {
 		this.client = client;
+		this.addresses = Caffeine.newBuilder()
+			.maximumSize(cacheProperties.maximumSize())
+			.expireAfter(Expiry.<CacheKey, CitizenLookup>creating((key, lookup) -> lookup.hasAddress()
+				? cacheProperties.timeToLive()
+				: cacheProperties.negativeTimeToLive()))
+			.recordStats()
+			.buildAsync();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, addresses.synchronous(), CACHE_NAME);
 	}
 
 	public Address getCitizenAddress(final String partyId, final String municipalityId) {
-		final var citizen = client.getCitizen(municipalityId, partyId)
-			.orElseThrow(() -> Problem.builder()
+		final var lookup = lookup(new CacheKey(municipalityId, partyId));
+
+		if (!lookup.citizenFound()) {
+			throw Problem.builder()
 				.withTitle("No citizen data found")
 				.withStatus(INTERNAL_SERVER_ERROR)
 				.withDetail("Failed to fetch data from Citizen API")
+				.build();
+		}
+
+		return ofNullable(lookup.address())
+			.orElseThrow(() -> Problem.builder()
+				.withTitle("No citizen address data found")
+				.withStatus(INTERNAL_SERVER_ERROR)
+				.withDetail("Unable to extract address data from Citizen API")
 				.build());
+	}
+
+	private CitizenLookup lookup(final CacheKey key) {
+		final var pending = new CompletableFuture<CitizenLookup>();
+		final var lookup = addresses.get(key, (ignoredKey, ignoredExecutor) -> pending);
+
+		// The caller whose future got cached does the call, in its own thread since the request id is thread-bound.
+		// Whatever the call throws completes the future, so that no caller waits for it forever, and a failed call is
+		// removed from the cache, and is thereby not cached
+		if (lookup == pending) {
+			try {
+				pending.complete(fetch(key));
+			} catch (final Throwable e) {
+				pending.completeExceptionally(e);
+				addresses.asMap().remove(key, pending);
+			}
+		}
 
+		try {
+			return lookup.join();
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof final RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof final Error cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	private CitizenLookup fetch(final CacheKey key) {
+		return client.getCitizen(key.municipalityId(), key.partyId())
+			.map(citizen -> new CitizenLookup(true, toAddress(citizen)))
+			.orElseGet(() -> new CitizenLookup(false, null));
+	}
+
+	private Address toAddress(final CitizenExtended citizen) {
 		return ofNullable(citizen.getAddresses())
 			.orElse(emptyList())
 			.stream()
@@ -50,11 +128,7 @@ public class CitizenIntegration {
 				.withCity(capitalize(address.getCity()))
 				.withCountry(capitalize(address.getCountry()))
 				.build())
-			.orElseThrow(() -> Problem.builder()
-				.withTitle("No citizen address data found")
-				.withStatus(INTERNAL_SERVER_ERROR)
-				.withDetail("Unable to extract address data from Citizen API")
-				.build());
+			.orElse(null);
 	}
 
 	String capitalize(final String string) {
@@ -62,9 +136,22 @@ public class CitizenIntegration {
 			return null;
 		}
 
-		return Arrays.stream(string.split("\\s+"))
+		return Arrays.stream(WHITESPACE.split(string))
 			.map(String::toLowerCase)
 			.map(StringUtils::capitalize)
 			.collect(joining(" "));
 	}
+
+	private record CacheKey(String municipalityId, String partyId) {}
+
+	/**
+	 * The outcome of a citizen lookup, where the address is {@code null} if the citizen was not found or has no population
+	 * registration address.
+	 */
+	private record CitizenLookup(boolean citizenFound, Address address) {
+
+		boolean hasAddress() {
+			return address != null;
+		}
+	}
 }
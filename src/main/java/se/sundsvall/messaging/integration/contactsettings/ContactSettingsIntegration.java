@@ -1,27 +1,117 @@
 package se.sundsvall.messaging.integration.contactsettings;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import generated.se.sundsvall.contactsettings.ContactSetting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Component;
 import org.springframework.util.MultiValueMap;
+import se.sundsvall.messaging.configuration.ContactSettingsCacheProperties;
 
 import static java.util.Collections.emptyList;
+import static java.util.Optional.ofNullable;
 
+/**
+ * Fetches contact settings. The contact settings of a party, for a given set of filters, are cached - also when there
+ * are none - and can be invalidated explicitly. The cache is kept per instance, and is only invalidated on the instance
+ * asked to, hence the contact settings cached by other instances are only refreshed once expired.
+ */
 @Component
-@EnableConfigurationProperties(ContactSettingsIntegrationProperties.class)
+@EnableConfigurationProperties({
+	ContactSettingsIntegrationProperties.class, ContactSettingsCacheProperties.class
+})
 public class ContactSettingsIntegration {
 
 	static final String INTEGRATION_NAME = "ContactSettings";
 
+	static final String CACHE_NAME = "contact-settings";
+
+	static final String ORIGIN_GETS_METRIC_NAME = "messaging.contact-settings.cache.gets";
+
+	static final String UNKNOWN_ORIGIN = "unknown";
+
+	static final String OTHER_ORIGIN = "other";
+
+	// The origin is given by the client, and is only used as tag value if it looks like an origin
+	private static final Pattern ORIGIN_TAG_PATTERN = Pattern.compile("[\\w.-]{1,64}");
+
 	private final ContactSettingsClient client;
 
-	ContactSettingsIntegration(final ContactSettingsClient client) {
+	private final MeterRegistry meterRegistry;
+
+	private final Cache<CacheKey, List<ContactDto>> contactSettings;
+
+	private final int maximumOrigins;
+
+	private final Set<String> origins = ConcurrentHashMap.newKeySet();
+
+	private final Map<OriginResult, Counter> originGets = new ConcurrentHashMap<>();
+
+	ContactSettingsIntegration(final ContactSettingsClient client, final ContactSettingsCacheProperties cacheProperties, final MeterRegistry meterRegistry) {
 		this.client = client;
+		this.meterRegistry = meterRegistry;
+		this.maximumOrigins = cacheProperties.maximumOrigins();
+		this.contactSettings = Caffeine.newBuilder()
+			.maximumSize(cacheProperties.maximumSize())
+			.expireAfterWrite(cacheProperties.timeToLive())
+			.recordStats()
+			.build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, contactSettings, CACHE_NAME);
 	}
 
-	public List<ContactDto> getContactSettings(final String municipalityId, final String partyId, final MultiValueMap<String, String> filters) {
+	/**
+	 * Gets the contact settings of a party, from the cache if present. Cache hits and misses are counted per origin, for
+	 * a bounded number of distinct origins.
+	 *
+	 * @param  municipalityId the municipality id
+	 * @param  origin         the origin of the message the contact settings are needed for
+	 * @param  partyId        the party id
+	 * @param  filters        the contact settings filters
+	 * @return                the contact settings, possibly empty
+	 */
+	public List<ContactDto> getContactSettings(final String municipalityId, final String origin, final String partyId, final MultiValueMap<String, String> filters) {
+		final var fetched = new AtomicBoolean();
+		final var result = contactSettings.get(new CacheKey(municipalityId, partyId, toCacheKeyFilters(filters)), key -> {
+			fetched.set(true);
+			return fetch(municipalityId, partyId, filters);
+		});
+
+		originGets.computeIfAbsent(new OriginResult(toOriginTag(origin), fetched.get() ? "miss" : "hit"), key -> Counter.builder(ORIGIN_GETS_METRIC_NAME)
+			.description("The number of contact settings cache lookups, per origin")
+			.tag("origin", key.origin())
+			.tag("result", key.result())
+			.register(meterRegistry))
+			.increment();
+
+		return result;
+	}
+
+	/**
+	 * Invalidates the cached contact settings of a municipality, or of a single party within it, on this instance only.
+	 *
+	 * @param municipalityId the municipality id
+	 * @param partyId        the party id, or {@code null} to invalidate the contact settings of all parties
+	 */
+	public void invalidateContactSettings(final String municipalityId, final String partyId) {
+		contactSettings.asMap().keySet()
+			.removeIf(key -> key.municipalityId().equals(municipalityId) && (partyId == null || Objects.equals(key.partyId(), partyId)));
+	}
+
+	private List<ContactDto> fetch(final String municipalityId, final String partyId, final MultiValueMap<String, String> filters) {
 		final var responseList = client.getSettings(municipalityId, partyId, filters).orElse(emptyList());
 
 		return responseList.stream()
@@ -38,4 +128,34 @@ public class ContactSettingsIntegration {
 				.build())
 			.toList();
 	}
+
+	private String toOriginTag(final String origin) {
+		if (origin == null) {
+			return UNKNOWN_ORIGIN;
+		}
+		if (!ORIGIN_TAG_PATTERN.matcher(origin).matches()) {
+			return OTHER_ORIGIN;
+		}
+		if (origins.contains(origin)) {
+			return origin;
+		}
+		synchronized (origins) {
+			if (origins.size() < maximumOrigins) {
+				origins.add(origin);
+				return origin;
+			}
+		}
+		return OTHER_ORIGIN;
+	}
+
+	private static Map<String, List<String>> toCacheKeyFilters(final MultiValueMap<String, String> filters) {
+		// The order of the filters doesn't matter, and the key must not change if the given filters do
+		final var cacheKeyFilters = new TreeMap<String, List<String>>();
+		ofNullable(filters).ifPresent(present -> present.forEach((name, values) -> cacheKeyFilters.put(name, ofNullable(values).map(ArrayList::new).orElseGet(ArrayList::new))));
+		return cacheKeyFilters;
+	}
+
+	private record CacheKey(String municipalityId, String partyId, Map<String, List<String>> filters) {}
+
+	private record OriginResult(String origin, String result) {}
 }
@@ -0,0 +1,28 @@
+package se.sundsvall.messaging.integration.db;
+
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import java.util.Collection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import se.sundsvall.messaging.integration.db.entity.AttachmentReferenceEntity;
+
+@Repository
+@CircuitBreaker(name = "attachmentReferenceRepository")
+public interface AttachmentReferenceRepository extends JpaRepository<AttachmentReferenceEntity, Long> {
+
+	boolean existsByHash(String hash);
+
+	/**
+	 * Deletes the references of the content with the given ids that no longer exists, i.e. has been removed.
+	 */
+	@Modifying
+	@Query(value = """
+		DELETE FROM attachment_reference
+		WHERE content_id IN (:contentIds)
+		AND NOT EXISTS (SELECT 1 FROM message_content c WHERE c.id = attachment_reference.content_id)
+		""", nativeQuery = true)
+	int deleteByRemovedContent(@Param("contentIds") Collection<Long> contentIds);
+}
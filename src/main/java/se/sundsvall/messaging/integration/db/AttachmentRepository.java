@@ -0,0 +1,70 @@
+package se.sundsvall.messaging.integration.db;
+
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import se.sundsvall.messaging.integration.db.entity.AttachmentEntity;
+
+@CircuitBreaker(name = "attachmentRepository")
+public interface AttachmentRepository extends JpaRepository<AttachmentEntity, String> {
+
+	/**
+	 * Inserts the attachment content, unless content already is stored under the hash, e.g. by a concurrent delivery of
+	 * the same attachment.
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "INSERT IGNORE INTO attachment (hash, content, created_at) VALUES (:hash, :content, NOW(6))", nativeQuery = true)
+	void insertIfAbsent(@Param("hash") String hash, @Param("content") byte[] content);
+
+	/**
+	 * Refreshes the creation time of the attachment content, when it is stored again, so that content about to be
+	 * referenced again isn't removed as unreferenced. The row stays locked until the referencing content is saved.
+	 *
+	 * @return 1 if content is stored under the hash, otherwise 0
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE AttachmentEntity a SET a.createdAt = :createdAt WHERE a.hash = :hash")
+	int refreshCreatedAt(@Param("hash") String hash, @Param("createdAt") LocalDateTime createdAt);
+
+	/**
+	 * Deletes attachment content created, or stored again, before the given time that no existing message content
+	 * references. Content without a creation time predates it being recorded, and is treated as old enough.
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = """
+		DELETE FROM attachment
+		WHERE (created_at IS NULL OR created_at < :createdBefore)
+		AND NOT EXISTS (SELECT 1 FROM attachment_reference r WHERE r.hash = attachment.hash)
+		ORDER BY hash
+		LIMIT :limit
+		""", nativeQuery = true)
+	int deleteUnreferenced(@Param("createdBefore") LocalDateTime createdBefore, @Param("limit") int limit);
+
+	/**
+	 * Reads the attachment content as is, rather than as an entity, so that it isn't kept in the persistence context.
+	 */
+	@Query(value = "SELECT content FROM attachment WHERE hash = :hash", nativeQuery = true)
+	Optional<byte[]> findContentByHash(@Param("hash") String hash);
+
+	@Query(value = "SELECT LENGTH(content) FROM attachment WHERE hash = :hash", nativeQuery = true)
+	Optional<Long> findContentLengthByHash(@Param("hash") String hash);
+
+	/**
+	 * Reads a chunk of the attachment content, without reading the rest of it.
+	 *
+	 * @param  hash     the hash of the content
+	 * @param  position the 1-based position of the first byte of the chunk
+	 * @param  length   the maximum length of the chunk
+	 * @return          the chunk, empty when the position is past the end of the content
+	 */
+	@Query(value = "SELECT SUBSTRING(content, :position, :length) FROM attachment WHERE hash = :hash", nativeQuery = true)
+	byte[] findContentChunkByHash(@Param("hash") String hash, @Param("position") long position, @Param("length") int length);
+}
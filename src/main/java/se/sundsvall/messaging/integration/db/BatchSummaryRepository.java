@@ -0,0 +1,55 @@
+package se.sundsvall.messaging.integration.db;
+
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import se.sundsvall.messaging.integration.db.entity.BatchSummaryEntity;
+
+@Repository
+@CircuitBreaker(name = "batchSummaryRepository")
+public interface BatchSummaryRepository extends JpaRepository<BatchSummaryEntity, Long> {
+
+	/**
+	 * Creates the summary of the batch if it doesn't exist. An existing summary keeps its issuer, original message type
+	 * and creation time, but gets the subject and attachment count if it lacks them, since not every message in a batch
+	 * carries them. The original message type is given by name.
+	 */
+	@Modifying
+	@Query(value = """
+		INSERT INTO batch_summary (municipality_id, batch_id, issuer, original_message_type, subject, attachment_count, created_at)
+		VALUES (:municipalityId, :batchId, :issuer, :originalMessageType, :subject, :attachmentCount, :createdAt)
+		ON DUPLICATE KEY UPDATE subject = COALESCE(subject, VALUES(subject)), attachment_count = GREATEST(attachment_count, VALUES(attachment_count))
+		""", nativeQuery = true)
+	void register(@Param("municipalityId") String municipalityId,
+		@Param("batchId") String batchId,
+		@Param("issuer") String issuer,
+		@Param("originalMessageType") String originalMessageType,
+		@Param("subject") String subject,
+		@Param("attachmentCount") int attachmentCount,
+		@Param("createdAt") LocalDateTime createdAt);
+
+	/**
+	 * Returns the summaries of the batches sent by the issuer after the given time, latest first. If a cursor is given,
+	 * the summaries following it are returned.
+	 */
+	@Query("""
+		SELECT b FROM BatchSummaryEntity b
+		WHERE b.municipalityId = :municipalityId AND b.issuer = :issuer AND b.createdAt > :createdAt
+			AND (:cursorCreatedAt IS NULL OR b.createdAt < :cursorCreatedAt OR (b.createdAt = :cursorCreatedAt AND b.id < :cursorId))
+		ORDER BY b.createdAt DESC, b.id DESC
+		""")
+	List<BatchSummaryEntity> findSummaries(@Param("municipalityId") String municipalityId,
+		@Param("issuer") String issuer,
+		@Param("createdAt") LocalDateTime createdAt,
+		@Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+		@Param("cursorId") Long cursorId,
+		Pageable pageable);
+
+	long countByMunicipalityIdAndIssuerAndCreatedAtIsAfter(String municipalityId, String issuer, LocalDateTime createdAt);
+}
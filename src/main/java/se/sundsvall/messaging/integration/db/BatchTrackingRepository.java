@@ -0,0 +1,56 @@
+package se.sundsvall.messaging.integration.db;
+
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import se.sundsvall.messaging.integration.db.entity.BatchTrackingEntity;
+
+@Repository
+@CircuitBreaker(name = "batchTrackingRepository")
+public interface BatchTrackingRepository extends JpaRepository<BatchTrackingEntity, String> {
+
+	/**
+	 * Counts down the messages left to deliver in the batch by one, adding the snail-mail deliveries sent for the
+	 * delivered message, in a single atomic statement.
+	 *
+	 * @return the number of batches counted down, i.e. 0 if the batch isn't tracked or has no messages left
+	 */
+	@Modifying
+	@Query("""
+		UPDATE BatchTrackingEntity b SET b.remaining = b.remaining - 1, b.sentSnailMailCount = b.sentSnailMailCount + :sentSnailMailCount
+		WHERE b.batchId = :batchId AND b.remaining > 0
+		""")
+	int countDown(@Param("batchId") String batchId, @Param("sentSnailMailCount") int sentSnailMailCount);
+
+	/**
+	 * Marks the batch as triggered, if it has no messages left to deliver and isn't already triggered. Since the row is
+	 * locked by the update, only one caller can succeed.
+	 *
+	 * @return 1 if the batch was marked as triggered by this call, otherwise 0
+	 */
+	@Modifying
+	@Query("UPDATE BatchTrackingEntity b SET b.triggered = true WHERE b.batchId = :batchId AND b.remaining = 0 AND b.triggered = false")
+	int markTriggered(@Param("batchId") String batchId);
+
+	List<BatchTrackingEntity> findByTriggeredFalseAndCreatedAtBeforeOrderByCreatedAtAsc(LocalDateTime createdAt, Limit limit);
+
+	/**
+	 * Marks the batch as triggered, whatever its messages left to deliver, if it isn't already triggered. Since the row
+	 * is locked by the update, only one caller can succeed, whether through this or {@link #markTriggered(String)}.
+	 *
+	 * @return 1 if the batch was marked as triggered by this call, otherwise 0
+	 */
+	@Modifying
+	@Query("UPDATE BatchTrackingEntity b SET b.triggered = true WHERE b.batchId = :batchId AND b.triggered = false")
+	int markStaleTriggered(@Param("batchId") String batchId);
+
+	@Modifying
+	@Query("DELETE FROM BatchTrackingEntity b WHERE b.createdAt < :createdAt")
+	int deleteByCreatedAtBefore(@Param("createdAt") LocalDateTime createdAt);
+}
@@ -0,0 +1,73 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.io.Reader;
+import java.util.Objects;
+
+/**
+ * Reader over the content of a history entry, reading one chunk of the content at a time.
+ */
+class ChunkedHistoryContentReader extends Reader {
+
+	static final int CHUNK_SIZE = 1024 * 1024;
+
+	private final HistoryRepository historyRepository;
+	private final Long id;
+
+	// The position is counted in characters as stored, i.e. code points, which is how the database counts them
+	private long position;
+	private String chunk = "";
+	private int index;
+	private boolean exhausted;
+
+	ChunkedHistoryContentReader(final HistoryRepository historyRepository, final Long id) {
+		this.historyRepository = historyRepository;
+		this.id = id;
+	}
+
+	@Override
+	public int read(final char[] buffer, final int offset, final int length) {
+		Objects.checkFromIndexSize(offset, length, buffer.length);
+		if (length == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+
+		final var count = Math.min(length, chunk.length() - index);
+		chunk.getChars(index, index + count, buffer, offset);
+		index += count;
+
+		return count;
+	}
+
+	@Override
+	public void close() {
+		chunk = "";
+		index = 0;
+		exhausted = true;
+	}
+
+	private boolean fill() {
+		if (index < chunk.length()) {
+			return true;
+		}
+		if (exhausted) {
+			return false;
+		}
+
+		final var next = historyRepository.findContentChunkById(id, position + 1, CHUNK_SIZE);
+		if (next == null || next.isEmpty()) {
+			exhausted = true;
+			return false;
+		}
+
+		final var count = next.codePointCount(0, next.length());
+		chunk = next;
+		index = 0;
+		position += count;
+		exhausted = count < CHUNK_SIZE;
+
+		return true;
+	}
+}
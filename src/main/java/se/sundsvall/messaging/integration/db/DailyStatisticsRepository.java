@@ -0,0 +1,105 @@
+package se.sundsvall.messaging.integration.db;
+
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import se.sundsvall.messaging.integration.db.entity.DailyStatisticEntity;
+import se.sundsvall.messaging.model.DailyStatsEntry;
+import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.model.StatsEntry;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+@Repository
+@CircuitBreaker(name = "dailyStatisticsRepository")
+public interface DailyStatisticsRepository extends JpaRepository<DailyStatisticEntity, Long> {
+
+	/**
+	 * Adds the given count to the count for the given day and dimensions, creating the row if it doesn't exist. The
+	 * message types and status are given by name.
+	 */
+	@Modifying
+	@Query(value = """
+		INSERT INTO daily_statistics (municipality_id, day, origin, department, original_message_type, message_type, status, message_count)
+		VALUES (:municipalityId, :day, COALESCE(:origin, ''), COALESCE(:department, ''), :originalMessageType, :messageType, :status, :count)
+		ON DUPLICATE KEY UPDATE message_count = message_count + :count
+		""", nativeQuery = true)
+	void increment(@Param("municipalityId") String municipalityId,
+		@Param("day") LocalDate day,
+		@Param("origin") String origin,
+		@Param("department") String department,
+		@Param("originalMessageType") String originalMessageType,
+		@Param("messageType") String messageType,
+		@Param("status") String status,
+		@Param("count") int count);
+
+	/**
+	 * Sums the counts per original message type, message type, status, origin and department within the given days.
+	 * Null parameters, and an empty list of original message types, don't restrict the result.
+	 */
+	default List<StatsEntry> sumByParameters(final String municipalityId, final String origin, final String department, final List<MessageType> originalMessageTypes, final LocalDate from, final LocalDate to) {
+		return originalMessageTypes.isEmpty()
+			? sumForAllTypes(municipalityId, origin, department, from, to)
+			: sumForOriginalMessageTypes(municipalityId, origin, department, originalMessageTypes, from, to);
+	}
+
+	@Query("""
+		SELECT new se.sundsvall.messaging.model.StatsEntry(d.originalMessageType, d.messageType, d.status, NULLIF(d.origin, ''), NULLIF(d.department, ''), SUM(d.messageCount))
+		FROM DailyStatisticEntity d
+		WHERE (:municipalityId IS NULL OR d.municipalityId = :municipalityId)
+		AND (:origin IS NULL OR d.origin = :origin)
+		AND (:department IS NULL OR d.department = :department)
+		AND (:from IS NULL OR d.day >= :from)
+		AND (:to IS NULL OR d.day <= :to)
+		GROUP BY d.originalMessageType, d.messageType, d.status, d.origin, d.department
+		""")
+	List<StatsEntry> sumForAllTypes(@Param("municipalityId") String municipalityId,
+		@Param("origin") String origin,
+		@Param("department") String department,
+		@Param("from") LocalDate from,
+		@Param("to") LocalDate to);
+
+	@Query("""
+		SELECT new se.sundsvall.messaging.model.StatsEntry(d.originalMessageType, d.messageType, d.status, NULLIF(d.origin, ''), NULLIF(d.department, ''), SUM(d.messageCount))
+		FROM DailyStatisticEntity d
+		WHERE (:municipalityId IS NULL OR d.municipalityId = :municipalityId)
+		AND (:origin IS NULL OR d.origin = :origin)
+		AND (:department IS NULL OR d.department = :department)
+		AND d.originalMessageType IN :originalMessageTypes
+		AND (:from IS NULL OR d.day >= :from)
+		AND (:to IS NULL OR d.day <= :to)
+		GROUP BY d.originalMessageType, d.messageType, d.status, d.origin, d.department
+		""")
+	List<StatsEntry> sumForOriginalMessageTypes(@Param("municipalityId") String municipalityId,
+		@Param("origin") String origin,
+		@Param("department") String department,
+		@Param("originalMessageTypes") List<MessageType> originalMessageTypes,
+		@Param("from") LocalDate from,
+		@Param("to") LocalDate to);
+
+	/**
+	 * Streams the counts of the municipality within the given days, per day. Rows are fetched from a forward-only cursor
+	 * in chunks of the fetch size and aren't managed, so the stream may be arbitrarily long. The stream must be consumed
+	 * within a transaction and closed.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	@Query("""
+		SELECT new se.sundsvall.messaging.model.DailyStatsEntry(d.day, d.originalMessageType, d.messageType, d.status, NULLIF(d.origin, ''), NULLIF(d.department, ''), d.messageCount)
+		FROM DailyStatisticEntity d
+		WHERE d.municipalityId = :municipalityId
+		AND (:from IS NULL OR d.day >= :from)
+		AND (:to IS NULL OR d.day <= :to)
+		ORDER BY d.day, d.id
+		""")
+	Stream<DailyStatsEntry> streamByDay(@Param("municipalityId") String municipalityId,
+		@Param("from") LocalDate from,
+		@Param("to") LocalDate to);
+}
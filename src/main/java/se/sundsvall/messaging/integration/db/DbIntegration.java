@@ -1,97 +1,423 @@
 package se.sundsvall.messaging.integration.db;
 
+import java.io.Reader;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import org.springframework.data.domain.Page;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import se.sundsvall.dept44.problem.Problem;
+import se.sundsvall.messaging.configuration.DeliveryQueueProperties;
+import se.sundsvall.messaging.configuration.StatisticsProperties;
+import se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor;
+import se.sundsvall.messaging.integration.db.entity.AttachmentReferenceEntity;
+import se.sundsvall.messaging.integration.db.entity.BatchSummaryEntity;
+import se.sundsvall.messaging.integration.db.entity.BatchTrackingEntity;
 import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
+import se.sundsvall.messaging.integration.db.entity.MessageContentEntity;
 import se.sundsvall.messaging.integration.db.entity.MessageEntity;
-import se.sundsvall.messaging.integration.db.entity.StatisticEntity;
 import se.sundsvall.messaging.integration.db.mapper.HistoryMapper;
 import se.sundsvall.messaging.integration.db.mapper.MessageMapper;
 import se.sundsvall.messaging.integration.db.projection.BatchHistoryProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryContentProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryIdProjection;
 import se.sundsvall.messaging.integration.db.projection.MessageIdProjection;
+import se.sundsvall.messaging.integration.db.projection.PendingMessageProjection;
+import se.sundsvall.messaging.integration.db.projection.UserMessageHistoryProjection;
+import se.sundsvall.messaging.model.DailyStatsEntry;
+import se.sundsvall.messaging.model.DailyStatsKey;
 import se.sundsvall.messaging.model.History;
+import se.sundsvall.messaging.model.HistoryExportEntry;
+import se.sundsvall.messaging.model.HistoryMetadata;
+import se.sundsvall.messaging.model.HistoryPage;
 import se.sundsvall.messaging.model.Message;
-import se.sundsvall.messaging.model.MessageStatus;
 import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.model.StatsEntry;
+import se.sundsvall.messaging.model.UserMessageHistory;
+import se.sundsvall.messaging.util.ContinuationToken;
 
+import static java.util.Collections.emptyList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toMap;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
-import static se.sundsvall.messaging.integration.db.mapper.HistoryMapper.mapToHistory;
+import static org.springframework.transaction.TransactionDefinition.PROPAGATION_REQUIRES_NEW;
+import static se.sundsvall.messaging.configuration.StatisticsProperties.Source.HISTORY;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor.REFERENCE_PREFIX;
+import static se.sundsvall.messaging.integration.db.mapper.BatchSummaryMapper.toBatchSummaryEntity;
 import static se.sundsvall.messaging.integration.db.mapper.HistoryMapper.mapToHistoryEntity;
+import static se.sundsvall.messaging.integration.db.mapper.HistoryMapper.toHistoryExportEntry;
+import static se.sundsvall.messaging.integration.db.mapper.HistoryMapper.toUserMessageHistory;
+import static se.sundsvall.messaging.integration.db.mapper.HistoryMetadataMapper.toHistoryMetadata;
 import static se.sundsvall.messaging.integration.db.mapper.MessageMapper.mapToMessage;
 import static se.sundsvall.messaging.integration.db.mapper.MessageMapper.mapToMessageEntity;
 import static se.sundsvall.messaging.integration.db.specification.HistorySpecification.orderByCreatedAtDesc;
 import static se.sundsvall.messaging.integration.db.specification.HistorySpecification.withCreatedAtAfter;
 import static se.sundsvall.messaging.integration.db.specification.HistorySpecification.withCreatedAtBefore;
+import static se.sundsvall.messaging.integration.db.specification.HistorySpecification.withCursor;
 import static se.sundsvall.messaging.integration.db.specification.HistorySpecification.withMunicipalityId;
 import static se.sundsvall.messaging.integration.db.specification.HistorySpecification.withPartyId;
+import static se.sundsvall.messaging.model.MessageStatus.PENDING;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.util.JsonUtils.toJson;
 
 @Component
 @Transactional
+@EnableConfigurationProperties(StatisticsProperties.class)
 public class DbIntegration {
 
 	private final MessageRepository messageRepository;
 
+	private final MessageContentRepository messageContentRepository;
+
 	private final HistoryRepository historyRepository;
 
+	private final DailyStatisticsRepository dailyStatisticsRepository;
+
 	private final StatisticsRepository statisticsRepository;
 
+	private final BatchSummaryRepository batchSummaryRepository;
+
+	private final BatchTrackingRepository batchTrackingRepository;
+
+	private final AttachmentReferenceRepository attachmentReferenceRepository;
+
+	private final DeliveryQueueProperties deliveryQueueProperties;
+
+	private final AttachmentExtractor attachmentExtractor;
+
+	private final StatisticsProperties statisticsProperties;
+
+	private final TransactionTemplate detachedReadTransaction;
+
 	public DbIntegration(final MessageRepository messageRepository,
+		final MessageContentRepository messageContentRepository,
 		final HistoryRepository historyRepository,
-		final StatisticsRepository statisticsRepository) {
+		final DailyStatisticsRepository dailyStatisticsRepository,
+		final StatisticsRepository statisticsRepository,
+		final BatchSummaryRepository batchSummaryRepository,
+		final BatchTrackingRepository batchTrackingRepository,
+		final AttachmentReferenceRepository attachmentReferenceRepository,
+		final DeliveryQueueProperties deliveryQueueProperties,
+		final AttachmentExtractor attachmentExtractor,
+		final StatisticsProperties statisticsProperties,
+		final PlatformTransactionManager transactionManager) {
 		this.messageRepository = messageRepository;
+		this.messageContentRepository = messageContentRepository;
 		this.historyRepository = historyRepository;
+		this.dailyStatisticsRepository = dailyStatisticsRepository;
 		this.statisticsRepository = statisticsRepository;
+		this.batchSummaryRepository = batchSummaryRepository;
+		this.batchTrackingRepository = batchTrackingRepository;
+		this.attachmentReferenceRepository = attachmentReferenceRepository;
+		this.deliveryQueueProperties = deliveryQueueProperties;
+		this.attachmentExtractor = attachmentExtractor;
+		this.statisticsProperties = statisticsProperties;
+		this.detachedReadTransaction = new TransactionTemplate(transactionManager);
+		this.detachedReadTransaction.setPropagationBehavior(PROPAGATION_REQUIRES_NEW);
+		this.detachedReadTransaction.setReadOnly(true);
 	}
 
+	/**
+	 * Returns whether any letter of the batch is left to deliver. The deliveries of the letters aren't counted, since they
+	 * may still be waiting to be archived after being delivered.
+	 */
 	@Transactional(readOnly = true)
 	public boolean existsByBatchId(final String batchId) {
-		return messageRepository.existsByBatchId(batchId);
+		return messageRepository.existsByBatchIdAndType(batchId, LETTER);
 	}
 
 	@Transactional(readOnly = true)
 	public Optional<Message> getMessageByDeliveryId(final String deliveryId) {
 		return messageRepository.findByDeliveryId(deliveryId)
-			.map(MessageMapper::mapToMessage);
-	}
-
-	@Transactional(readOnly = true)
-	public List<MessageEntity> getLatestMessagesWithStatus(final MessageStatus status) {
-		return messageRepository.findByStatusOrderByCreatedAtAsc(status);
+			.map(MessageMapper::mapToMessage)
+			.map(this::withResolvedAttachments);
 	}
 
+	/**
+	 * Saves the message, claimed by this instance. The content is stored apart from the message, unless already stored,
+	 * with attachment contents moved to the attachment store.
+	 */
 	public Message saveMessage(final Message message) {
-		return mapToMessage(messageRepository.save(mapToMessageEntity(message)));
+		final var content = ofNullable(message.contentId())
+			.map(messageContentRepository::getReferenceById)
+			.orElseGet(() -> ofNullable(message.content())
+				.map(this::storeContent)
+				.orElse(null));
+
+		return withContent(mapToMessage(messageRepository.save(claimed(mapToMessageEntity(message).withContent(content)))), message.content());
 	}
 
+	/**
+	 * Saves the messages, claimed by this instance. The contents are stored apart from the messages, with attachment
+	 * contents moved to the attachment store, and content that is identical for several of the messages, e.g. when the
+	 * same letter is sent to multiple recipients, is stored once and shared between them. Both contents and messages are
+	 * inserted in JDBC batches rather than one by one.
+	 */
 	public List<Message> saveMessages(final List<Message> messages) {
-		return messages.stream()
-			.map(MessageMapper::mapToMessageEntity)
-			.map(messageRepository::save)
-			.map(MessageMapper::mapToMessage)
+		final var distinctContents = messages.stream()
+			.map(Message::content)
+			.filter(Objects::nonNull)
+			.distinct()
+			.toList();
+		final var storedContents = messageContentRepository.insertAll(distinctContents.stream().map(attachmentExtractor::extract).toList());
+		saveAttachmentReferences(storedContents);
+		final var contents = new HashMap<String, MessageContentEntity>();
+		for (var i = 0; i < distinctContents.size(); i++) {
+			contents.put(distinctContents.get(i), storedContents.get(i));
+		}
+
+		final var messageEntities = messages.stream()
+			.map(message -> mapToMessageEntity(message).withContent(contents.get(message.content())))
+			.map(this::claimed)
 			.toList();
+		messageRepository.insertAll(messageEntities);
+
+		return IntStream.range(0, messages.size())
+			.mapToObj(i -> withContent(mapToMessage(messageEntities.get(i)), messages.get(i).content()))
+			.toList();
+	}
+
+	/**
+	 * Claims pending messages that are either unclaimed or whose claim has expired, e.g. since the instance holding the
+	 * claim has died.
+	 *
+	 * @param  limit the maximum number of messages to claim
+	 * @return       the claimed messages
+	 */
+	public List<PendingMessageProjection> claimPendingMessages(final int limit) {
+		final var now = LocalDateTime.now();
+
+		return claim(messageRepository.findClaimablePendingMessages(now, limit), now);
+	}
+
+	/**
+	 * Claims pending messages of the given type that are either unclaimed or whose claim has expired.
+	 *
+	 * @param  messageType the message type
+	 * @param  limit       the maximum number of messages to claim
+	 * @return             the claimed messages
+	 */
+	public List<PendingMessageProjection> claimPendingMessages(final MessageType messageType, final int limit) {
+		final var now = LocalDateTime.now();
+
+		return claim(messageRepository.findClaimablePendingMessagesByType(messageType.name(), now, limit), now);
+	}
+
+	private List<PendingMessageProjection> claim(final List<PendingMessageProjection> pendingMessages, final LocalDateTime now) {
+		if (!pendingMessages.isEmpty()) {
+			messageRepository.claimByIds(pendingMessages.stream().map(PendingMessageProjection::getId).toList(),
+				deliveryQueueProperties.instanceId(), now.plus(deliveryQueueProperties.claimDuration()));
+		}
+
+		return pendingMessages;
+	}
+
+	/**
+	 * Claims the pending message with the given delivery id for this instance.
+	 *
+	 * @param  deliveryId the delivery id
+	 * @return            true if the message was claimed, false if it is claimed by another instance or no longer pending
+	 */
+	public boolean claimMessage(final String deliveryId) {
+		final var now = LocalDateTime.now();
+
+		return messageRepository.claimByDeliveryIdAndStatus(deliveryId, PENDING,
+			deliveryQueueProperties.instanceId(), now.plus(deliveryQueueProperties.claimDuration()), now) > 0;
+	}
+
+	/**
+	 * Extends the claims held by this instance on the messages with the given delivery ids.
+	 *
+	 * @param  deliveryIds the delivery ids of the messages in flight on this instance
+	 * @return             the number of renewed claims
+	 */
+	public int renewClaims(final Collection<String> deliveryIds) {
+		return messageRepository.renewClaims(deliveryIds, deliveryQueueProperties.instanceId(),
+			LocalDateTime.now().plus(deliveryQueueProperties.claimDuration()));
+	}
+
+	/**
+	 * Records the outcome of the delivery on its stored message, keeping the claim on it, so that the message is archived
+	 * with the outcome once the claim has expired rather than delivered again. A letter sharing the delivery id is left as
+	 * is, since it is deleted once all its deliveries are done.
+	 *
+	 * @param  message      the completed delivery
+	 * @param  statusDetail the status detail, may be null
+	 * @return              true if the outcome was recorded, false if there is no stored message to record it on
+	 */
+	public boolean recordOutcome(final Message message, final String statusDetail) {
+		return messageRepository.updateOutcomeByDeliveryIdAndTypeNot(message.deliveryId(), LETTER, message.status(), statusDetail,
+			message.digitalMailTransactionId()) > 0;
+	}
+
+	/**
+	 * Claims messages with a recorded outcome that are either unclaimed or whose claim has expired, to be archived.
+	 *
+	 * @param  limit the maximum number of messages to claim
+	 * @return       the ids of the claimed messages
+	 */
+	public List<Long> claimCompletedMessages(final int limit) {
+		final var now = LocalDateTime.now();
+		final var ids = messageRepository.findClaimableCompletedMessageIds(now, limit);
+
+		if (!ids.isEmpty()) {
+			messageRepository.claimByIds(ids, deliveryQueueProperties.instanceId(), now.plus(deliveryQueueProperties.claimDuration()));
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Archives the message with the given id with its recorded outcome, and counts it in the daily statistics, unless it
+	 * is no longer claimed by this instance.
+	 *
+	 * @param  id the id of the message
+	 * @return    true if the message was archived
+	 */
+	public boolean archiveCompletedMessage(final Long id) {
+		return messageRepository.findById(id)
+			.filter(entity -> deliveryQueueProperties.instanceId().equals(entity.getClaimedBy()))
+			.map(entity -> {
+				archiveAndCountMessage(mapToMessage(entity), entity.getStatusDetail());
+				return true;
+			})
+			.orElse(false);
 	}
 
 	public void deleteMessageByDeliveryId(final String deliveryId) {
 		messageRepository.deleteByDeliveryId(deliveryId);
 	}
 
+	/**
+	 * Deletes the letters of the batch, once all deliveries of them are done.
+	 */
+	public void deleteLetters(final String batchId) {
+		messageRepository.deleteByBatchIdAndType(batchId, LETTER);
+	}
+
+	/**
+	 * Deletes message content that is referenced by neither a message nor a history entry, and that is older than the
+	 * given minimum age.
+	 *
+	 * @param  minAge the minimum age of the content to delete
+	 * @param  limit  the maximum number of content rows to delete
+	 * @return        the number of deleted content rows
+	 */
+	public int deleteUnreferencedMessageContent(final Duration minAge, final int limit) {
+		final var ids = messageContentRepository.findUnreferencedIds(LocalDateTime.now().minus(minAge), limit);
+		if (ids.isEmpty()) {
+			return 0;
+		}
+
+		final var deleted = messageContentRepository.deleteUnreferencedByIdIn(ids);
+		// Only the references of the content actually deleted, leaving the attachment contents they refer to unreferenced
+		attachmentReferenceRepository.deleteByRemovedContent(ids);
+
+		return deleted;
+	}
+
+	/**
+	 * Starts tracking the batch, with the given number of messages left to deliver.
+	 */
+	public void trackBatch(final String batchId, final String municipalityId, final int messageCount) {
+		batchTrackingRepository.save(BatchTrackingEntity.builder()
+			.withBatchId(batchId)
+			.withMunicipalityId(municipalityId)
+			.withRemaining(messageCount)
+			.withCreatedAt(LocalDateTime.now())
+			.build());
+	}
+
+	/**
+	 * Deletes the letter with the given delivery id, once all deliveries of it are done, and counts it down in its batch
+	 * in the same transaction. Since only the caller actually deleting the letter counts it down, each letter is counted
+	 * down exactly once, however many times its delivery is retried. The deliveries themselves are deleted as they are
+	 * archived.
+	 *
+	 * @param  batchId            the batch id
+	 * @param  deliveryId         the delivery id of the letter
+	 * @param  sentSnailMailCount the number of snail-mail deliveries sent for the letter
+	 * @return                    true if the batch is tracked, false if it isn't, e.g. since it was saved before batches
+	 *                            were tracked
+	 */
+	public boolean completeLetter(final String batchId, final String deliveryId, final int sentSnailMailCount) {
+		return (messageRepository.deleteByDeliveryIdAndType(deliveryId, LETTER) > 0 && batchTrackingRepository.countDown(batchId, sentSnailMailCount) > 0)
+			|| batchTrackingRepository.existsById(batchId);
+	}
+
+	/**
+	 * Marks the batch as triggered, once it has no messages left to deliver. However many callers try concurrently, only
+	 * one succeeds.
+	 *
+	 * @return true if the caller is the one to trigger the batch
+	 */
+	public boolean markBatchTriggered(final String batchId) {
+		return batchTrackingRepository.markTriggered(batchId) > 0;
+	}
+
+	/**
+	 * Gets the untriggered batches tracked for longer than the given duration, oldest first.
+	 */
+	@Transactional(readOnly = true)
+	public List<BatchTrackingEntity> getStaleBatches(final Duration staleAfter, final int limit) {
+		return batchTrackingRepository.findByTriggeredFalseAndCreatedAtBeforeOrderByCreatedAtAsc(LocalDateTime.now().minus(staleAfter), Limit.of(limit));
+	}
+
+	/**
+	 * Marks a stale batch as triggered, whatever its messages left to deliver, e.g. since a letter of it was deleted
+	 * without being counted down. However many callers try concurrently, only one succeeds.
+	 *
+	 * @return true if the caller is the one to trigger the batch
+	 */
+	public boolean markStaleBatchTriggered(final String batchId) {
+		return batchTrackingRepository.markStaleTriggered(batchId) > 0;
+	}
+
+	/**
+	 * Deletes the tracking of batches older than the given retention, triggered or not.
+	 *
+	 * @return the number of deleted batch tracking rows
+	 */
+	public int deleteBatchTracking(final Duration retention) {
+		return batchTrackingRepository.deleteByCreatedAtBefore(LocalDateTime.now().minus(retention));
+	}
+
+	@Transactional(readOnly = true)
+	public int getSentSnailMailCount(final String batchId) {
+		return batchTrackingRepository.findById(batchId)
+			.map(BatchTrackingEntity::getSentSnailMailCount)
+			.orElse(0);
+	}
+
 	@Transactional(readOnly = true)
 	public Optional<History> getHistoryByMunicipalityIdAndDeliveryId(String municipalityId, final String deliveryId) {
 		return historyRepository.findByMunicipalityIdAndDeliveryId(municipalityId, deliveryId)
-			.map(HistoryMapper::mapToHistory);
+			.map(HistoryMapper::mapToHistory)
+			.map(this::withResolvedHistoryAttachments);
 	}
 
 	@Transactional(readOnly = true)
 	public List<History> getHistoryByMunicipalityIdAndMessageId(String municipalityId, final String messageId) {
 		return historyRepository.findByMunicipalityIdAndMessageId(municipalityId, messageId).stream()
 			.map(HistoryMapper::mapToHistory)
+			.map(this::withResolvedHistoryAttachments)
 			.toList();
 	}
 
@@ -99,52 +425,304 @@ public class DbIntegration {
 	public List<History> getHistoryByMunicipalityIdAndBatchId(String municipalityId, final String batchId) {
 		return historyRepository.findByMunicipalityIdAndBatchId(municipalityId, batchId).stream()
 			.map(HistoryMapper::mapToHistory)
+			.map(this::withResolvedHistoryAttachments)
 			.toList();
 	}
 
+	/**
+	 * Returns the history of the party, latest first. If a limit is given, at most that many entries are returned,
+	 * together with a token to fetch the following entries with if the page is full. Otherwise all entries are returned.
+	 *
+	 * @param  municipalityId the municipality id
+	 * @param  partyId        the party id
+	 * @param  from           the first date to include, or null
+	 * @param  to             the last date to include, or null
+	 * @param  cursor         the position to continue after, or null to start with the latest entry
+	 * @param  limit          the maximum number of entries to return, or null for all
+	 * @return                the page of history
+	 */
 	@Transactional(readOnly = true)
-	public List<History> getHistory(final String municipalityId, final String partyId, final LocalDate from, final LocalDate to) {
+	public HistoryPage getHistory(final String municipalityId, final String partyId, final LocalDate from, final LocalDate to, final ContinuationToken cursor, final Integer limit) {
 		final var specifications = orderByCreatedAtDesc(
 			withPartyId(partyId)
 				.and(withMunicipalityId(municipalityId))
 				.and(withCreatedAtAfter(from))
-				.and(withCreatedAtBefore(to)));
+				.and(withCreatedAtBefore(to))
+				.and(withCursor(cursor)));
 
-		return historyRepository.findAll(specifications).stream()
-			.map(HistoryMapper::mapToHistory)
-			.toList();
+		final List<HistoryEntity> entities = isNull(limit) ? historyRepository.findAll(specifications)
+			: historyRepository.findBy(specifications, query -> query.limit(limit).all());
+
+		return HistoryPage.builder()
+			.withHistory(entities.stream()
+				.map(HistoryMapper::mapToHistory)
+				.map(this::withResolvedHistoryAttachments)
+				.toList())
+			.withContinuationToken(nonNull(limit) && entities.size() == limit ? ContinuationToken.encode(entities.getLast().getCreatedAt(), entities.getLast().getId()) : null)
+			.build();
 	}
 
-	public History saveHistory(final Message message, final String failureDetail) {
-		return mapToHistory(historyRepository.save(mapToHistoryEntity(message, failureDetail)));
+	/**
+	 * Hands the history of the municipality created within the given days, optionally limited to a party, to the
+	 * consumer one entry at a time, in the order it was saved. The history is read from a forward-only cursor, so memory
+	 * use doesn't depend on the number of entries. The content, with any attachments in place, is only read if requested.
+	 * The attachment contents are read in a transaction of their own, i.e. on another connection and outside the
+	 * persistence context of the export, since a statement run on the connection of the cursor makes the driver buffer
+	 * the rest of the result set.
+	 *
+	 * @param municipalityId the municipality ID
+	 * @param partyId        the party ID, or null for all parties
+	 * @param from           the first day (inclusive), or null for no lower bound
+	 * @param to             the last day (inclusive), or null for no upper bound
+	 * @param includeContent whether to include the content of the entries
+	 * @param consumer       the consumer of the entries
+	 */
+	@Transactional(readOnly = true)
+	public void exportHistory(final String municipalityId, final String partyId, final LocalDate from, final LocalDate to, final boolean includeContent,
+		final Consumer<HistoryExportEntry> consumer) {
+		final var fromDateTime = ofNullable(from).map(LocalDate::atStartOfDay).orElse(null);
+		final var toDateTime = ofNullable(to).map(day -> day.plusDays(1).atStartOfDay()).orElse(null);
+
+		if (!includeContent) {
+			try (final var rows = historyRepository.streamHistory(municipalityId, partyId, fromDateTime, toDateTime)) {
+				rows.map(HistoryMapper::toHistoryExportEntry).forEach(consumer);
+			}
+			return;
+		}
+
+		try (final var rows = historyRepository.streamHistoryWithContent(municipalityId, partyId, fromDateTime, toDateTime)) {
+			rows.map(row -> toHistoryExportEntry(row).withContent(resolveDetached(row.getContent()))).forEach(consumer);
+		}
+	}
+
+	private String resolveDetached(final String content) {
+		if (content == null || !content.contains(REFERENCE_PREFIX)) {
+			return content;
+		}
+		return detachedReadTransaction.execute(ignored -> attachmentExtractor.resolve(content));
+	}
+
+	/**
+	 * Saves the message as history. Shared content is referenced rather than copied, content not yet stored is stored
+	 * apart like the content of messages, with attachment contents moved to the attachment store, and the saved entry
+	 * isn't read back since that would load the shared content again. The metadata listed in user messages is extracted
+	 * from the content and stored with the entry, so that listing doesn't have to read the content.
+	 *
+	 * @return the key the entry is to be counted under in the daily statistics, left to the caller to count along with
+	 *         other entries
+	 */
+	public DailyStatsKey saveHistory(final Message message, final String failureDetail) {
+		final var metadata = toHistoryMetadata(message.type(), message.content(), attachmentExtractor::size);
+		final var historyEntity = ofNullable(message.contentId())
+			.map(messageContentRepository::getReferenceById)
+			.or(() -> ofNullable(message.content()).map(this::storeContent))
+			.map(sharedContent -> mapToHistoryEntity(message.withContentId(sharedContent.getId()), failureDetail, metadata).withSharedContent(sharedContent))
+			.orElseGet(() -> mapToHistoryEntity(message, failureDetail, metadata));
+
+		historyRepository.save(historyEntity);
+
+		return toDailyStatsKey(message, metadata, LocalDate.now());
+	}
+
+	/**
+	 * Moves the message to the history. The stored message is copied to the history and deleted with one statement each,
+	 * so that its content never has to be written again, and only the type, status, transaction id and metadata of the
+	 * given message are passed along. A message that isn't stored, e.g. when it failed before being saved, is saved as
+	 * history as is.
+	 *
+	 * @return the key the entry is to be counted under in the daily statistics, left to the caller to count along with
+	 *         other entries
+	 */
+	public DailyStatsKey archiveMessage(final Message message, final String statusDetail) {
+		final var metadata = toHistoryMetadata(message.type(), message.content(), attachmentExtractor::size);
+		final var createdAt = LocalDateTime.now();
+		final var archived = historyRepository.insertFromMessage(message.deliveryId(), nameOf(message.type()), nameOf(message.status()), statusDetail,
+			message.digitalMailTransactionId(), createdAt, metadata.subject(), metadata.body(), metadata.destination(), metadata.attachmentCount(),
+			metadata.attachments().isEmpty() ? null : toJson(metadata.attachments()));
+
+		if (archived == 0) {
+			return saveHistory(message, statusDetail);
+		}
+
+		// A letter sharing the delivery id is deleted once all its deliveries are done, rather than by the first of them
+		messageRepository.deleteByDeliveryIdAndTypeNot(message.deliveryId(), LETTER);
+
+		return toDailyStatsKey(message, metadata, createdAt.toLocalDate());
+	}
+
+	/**
+	 * Moves the message to the history and counts the entry in the daily statistics, in the same transaction.
+	 */
+	public void archiveAndCountMessage(final Message message, final String statusDetail) {
+		incrementDailyStats(Map.of(archiveMessage(message, statusDetail), 1));
+	}
+
+	/**
+	 * Adds the given counts to the daily statistics, one upsert per key, in key order. Counting the entries of many
+	 * deliveries at once, in the same order on every instance, keeps the few rows of a busy day from being locked once per
+	 * delivery, and from being locked in different orders by concurrent transactions.
+	 *
+	 * @param counts the number of history entries per key
+	 */
+	public void incrementDailyStats(final Map<DailyStatsKey, Integer> counts) {
+		new TreeMap<>(counts).forEach((key, count) -> dailyStatisticsRepository.increment(key.municipalityId(), key.day(), key.origin(), key.department(),
+			nameOf(key.originalMessageType()), nameOf(key.messageType()), nameOf(key.status()), count));
 	}
 
+	/**
+	 * Returns the number of history entries per original message type, message type, status, origin and department,
+	 * read from the daily statistics or counted in the history, depending on the configured source.
+	 */
 	@Transactional(readOnly = true)
-	public List<StatisticEntity> getStatsByParameters(final String municipalityId, final String origin, final String department, final List<MessageType> messageTypes, final LocalDate from, final LocalDate to) {
-		return statisticsRepository.findAllByParameters(municipalityId, origin, department, messageTypes, from, to);
+	public List<StatsEntry> getStatsByParameters(final String municipalityId, final String origin, final String department, final List<MessageType> messageTypes, final LocalDate from, final LocalDate to) {
+		if (statisticsProperties.source() == HISTORY) {
+			return statisticsRepository.findAllByParameters(municipalityId, origin, department, messageTypes, from, to);
+		}
+		return dailyStatisticsRepository.sumByParameters(municipalityId, origin, department, messageTypes, from, to);
 	}
 
-	public List<BatchHistoryProjection> getBatchHistoryMessagesForUser(final String municipalityId, final String issuer, final LocalDateTime dateTime) {
-		return historyRepository.findByMunicipalityIdAndIssuerAndCreatedAtIsAfter(municipalityId, issuer, dateTime);
+	/**
+	 * Hands the daily statistics of the municipality within the given days to the consumer one row at a time, ordered by
+	 * day. The rows are read from a forward-only cursor, so memory use doesn't depend on the number of rows. They are
+	 * always read from the daily statistics, regardless of the configured source, since the history would have to be
+	 * grouped per day in its entirety before the first row could be returned.
+	 *
+	 * @param municipalityId the municipality ID
+	 * @param from           the first day (inclusive), or null for no lower bound
+	 * @param to             the last day (inclusive), or null for no upper bound
+	 * @param consumer       the consumer of the rows
+	 */
+	@Transactional(readOnly = true)
+	public void exportDailyStats(final String municipalityId, final LocalDate from, final LocalDate to, final Consumer<DailyStatsEntry> consumer) {
+		try (final var rows = dailyStatisticsRepository.streamByDay(municipalityId, from, to)) {
+			rows.forEach(consumer);
+		}
 	}
 
-	public Page<MessageIdProjection> getUniqueMessageIds(final String municipalityId, final String issuer, final LocalDateTime dateTime, final PageRequest pageRequest) {
-		return historyRepository.findDistinctMessageIdsByMunicipalityIdAndIssuerAndCreatedAtIsAfter(municipalityId, issuer, dateTime, pageRequest);
+	/**
+	 * Registers the summary of the batch the given messages make up, once, as the batch is received rather than as each
+	 * of its deliveries is archived. The subject and attachment count are extracted from the content of the first
+	 * message, which the rest of the batch shares them with.
+	 *
+	 * @param batch the messages of the batch
+	 */
+	public void registerBatch(final List<Message> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		final var message = batch.getFirst();
+		ofNullable(toBatchSummaryEntity(message, toHistoryMetadata(message.type(), message.content())))
+			.ifPresent(summary -> batchSummaryRepository.register(summary.getMunicipalityId(), summary.getBatchId(), summary.getIssuer(),
+				nameOf(summary.getOriginalMessageType()), summary.getSubject(), summary.getAttachmentCount(), summary.getCreatedAt()));
 	}
 
-	public Page<MessageIdProjection> getUniqueMessageIds(final String municipalityId, final String batchId, final String issuer, final LocalDateTime dateTime, final PageRequest pageRequest) {
-		return historyRepository.findDistinctMessageIdsByMunicipalityIdAndBatchIdAndIssuerAndCreatedAtIsAfter(municipalityId, batchId, issuer, dateTime, pageRequest);
+	/**
+	 * Returns the summaries of the batches sent by the issuer after the given time, latest first, continuing after the
+	 * cursor if given.
+	 */
+	@Transactional(readOnly = true)
+	public List<BatchSummaryEntity> getBatchSummaries(final String municipalityId, final String issuer, final LocalDateTime dateTime, final ContinuationToken cursor, final Pageable pageable) {
+		return batchSummaryRepository.findSummaries(municipalityId, issuer, dateTime, cursorCreatedAt(cursor), cursorId(cursor), pageable);
 	}
 
-	public List<HistoryEntity> getHistoryEntityByMunicipalityIdAndMessageId(final String municipalityId, final String messageId) {
-		return historyRepository.findByMunicipalityIdAndMessageId(municipalityId, messageId);
+	@Transactional(readOnly = true)
+	public long countBatchSummaries(final String municipalityId, final String issuer, final LocalDateTime dateTime) {
+		return batchSummaryRepository.countByMunicipalityIdAndIssuerAndCreatedAtIsAfter(municipalityId, issuer, dateTime);
 	}
 
-	public HistoryEntity getFirstHistoryEntityByMunicipalityIdAndMessageId(final String municipalityId, final String messageId) {
-		return historyRepository.findFirstByMunicipalityIdAndMessageId(municipalityId, messageId)
+	@Transactional(readOnly = true)
+	public List<BatchHistoryProjection> getBatchHistoryMessages(final String municipalityId, final String issuer, final List<String> batchIds, final LocalDateTime dateTime) {
+		if (batchIds.isEmpty()) {
+			return emptyList();
+		}
+		return historyRepository.findByMunicipalityIdAndIssuerAndBatchIdInAndCreatedAtIsAfter(municipalityId, issuer, batchIds, dateTime);
+	}
+
+	/**
+	 * Returns the ids of the messages sent by the issuer after the given time, optionally limited to a batch, latest
+	 * first, continuing after the cursor if given.
+	 */
+	@Transactional(readOnly = true)
+	public List<MessageIdProjection> getUniqueMessageIds(final String municipalityId, final String batchId, final String issuer, final LocalDateTime dateTime, final ContinuationToken cursor,
+		final Pageable pageable) {
+		if (isNull(batchId)) {
+			return historyRepository.findMessageIds(municipalityId, issuer, dateTime, cursorCreatedAt(cursor), cursorId(cursor), pageable);
+		}
+		return historyRepository.findMessageIdsInBatch(municipalityId, batchId, issuer, dateTime, cursorCreatedAt(cursor), cursorId(cursor), pageable);
+	}
+
+	@Transactional(readOnly = true)
+	public long countUniqueMessageIds(final String municipalityId, final String batchId, final String issuer, final LocalDateTime dateTime) {
+		if (isNull(batchId)) {
+			return historyRepository.countMessageIds(municipalityId, issuer, dateTime);
+		}
+		return historyRepository.countMessageIdsInBatch(municipalityId, batchId, issuer, dateTime);
+	}
+
+	private static LocalDateTime cursorCreatedAt(final ContinuationToken cursor) {
+		return ofNullable(cursor).map(ContinuationToken::createdAt).orElse(null);
+	}
+
+	private static Long cursorId(final ContinuationToken cursor) {
+		return ofNullable(cursor).map(ContinuationToken::id).orElse(null);
+	}
+
+	/**
+	 * Returns the history of the message as listed in user messages, without reading the content. The metadata of history
+	 * not yet extracted by the backfill is extracted from the content, read in one query for all such entries without
+	 * loading the entries themselves.
+	 */
+	@Transactional(readOnly = true)
+	public List<UserMessageHistory> getUserMessageHistory(final String municipalityId, final String messageId) {
+		final var projections = historyRepository.findUserMessageHistoryByMunicipalityIdAndMessageId(municipalityId, messageId);
+		final var extractedMetadata = extractHistoryMetadata(projections.stream()
+			.filter(projection -> !Boolean.TRUE.equals(projection.getMetadataExtracted()))
+			.map(UserMessageHistoryProjection::getId)
+			.toList());
+
+		return projections.stream()
+			.map(projection -> toUserMessageHistory(projection, ofNullable(toHistoryMetadata(projection))
+				.orElseGet(() -> extractedMetadata.getOrDefault(projection.getId(), HistoryMetadata.builder().build()))))
+			.toList();
+	}
+
+	/**
+	 * Extracts and stores the metadata of history saved before the metadata was extracted when saving it.
+	 *
+	 * @param  limit the maximum number of history entries to extract
+	 * @return       the number of extracted history entries
+	 */
+	public int backfillHistoryMetadata(final int limit) {
+		// The content is only read, and the metadata written column by column, so the content isn't written back
+		final var historyContents = historyRepository.findContentByMetadataExtractedFalse(PageRequest.of(0, limit));
+		historyContents.forEach(historyContent -> {
+			final var metadata = toHistoryMetadata(historyContent.getMessageType(), historyContent.getContent(), attachmentExtractor::size);
+			historyRepository.updateMetadata(historyContent.getId(), metadata.subject(), metadata.body(), metadata.destination(), metadata.attachmentCount(),
+				metadata.attachments().isEmpty() ? null : toJson(metadata.attachments()));
+		});
+
+		return historyContents.size();
+	}
+
+	@Transactional(readOnly = true)
+	public HistoryIdProjection getFirstHistoryIdByMunicipalityIdAndMessageId(final String municipalityId, final String messageId) {
+		return historyRepository.findIdByMunicipalityIdAndMessageId(municipalityId, messageId, PageRequest.of(0, 1)).stream()
+			.findFirst()
 			.orElseThrow(() -> Problem.valueOf(NOT_FOUND, "No history found for message id " + messageId));
 	}
 
+	/**
+	 * Opens a reader over the content of the history entry, reading the content one chunk at a time when read, so that the
+	 * content never has to be held in memory as a whole.
+	 *
+	 * @param  historyId the id of the history entry
+	 * @return           a reader over the content, empty if the entry doesn't exist
+	 */
+	public Reader openHistoryContent(final Long historyId) {
+		return new ChunkedHistoryContentReader(historyRepository, historyId);
+	}
+
 	public HistoryEntity getFirstHistoryEntityByMunicipalityIdAndMessageIdAndTypeIn(final String municipalityId, final String messageId, final List<MessageType> types) {
 		return historyRepository.findFirstByMunicipalityIdAndMessageIdAndMessageTypeIn(municipalityId, messageId, types);
 	}
@@ -152,4 +730,74 @@ public class DbIntegration {
 	public boolean existsByMunicipalityIdAndMessageIdAndIssuer(String municipalityId, final String messageId, final String issuer) {
 		return historyRepository.existsByMunicipalityIdAndMessageIdAndIssuer(municipalityId, messageId, issuer);
 	}
+
+	private Map<Long, HistoryMetadata> extractHistoryMetadata(final List<Long> historyIds) {
+		if (historyIds.isEmpty()) {
+			return Map.of();
+		}
+
+		return historyRepository.findContentByIdIn(historyIds).stream()
+			.collect(toMap(HistoryContentProjection::getId, historyContent -> toHistoryMetadata(historyContent.getMessageType(), historyContent.getContent())));
+	}
+
+	private Message withResolvedAttachments(final Message message) {
+		return withContent(message, attachmentExtractor.resolve(message.content()));
+	}
+
+	private History withResolvedHistoryAttachments(final History history) {
+		return history.withContent(attachmentExtractor.resolve(history.content()));
+	}
+
+	private static DailyStatsKey toDailyStatsKey(final Message message, final HistoryMetadata metadata, final LocalDate day) {
+		return DailyStatsKey.builder()
+			.withMunicipalityId(message.municipalityId())
+			.withDay(day)
+			.withOrigin(message.origin())
+			.withDepartment(metadata.department())
+			.withOriginalMessageType(message.originalType())
+			.withMessageType(message.type())
+			.withStatus(message.status())
+			.build();
+	}
+
+	private static String nameOf(final Enum<?> value) {
+		return ofNullable(value).map(Enum::name).orElse(null);
+	}
+
+	/**
+	 * Replaces the content of the message, keeping the reference to the stored content.
+	 */
+	private static Message withContent(final Message message, final String content) {
+		return message.withContent(content).withContentId(message.contentId());
+	}
+
+	private MessageEntity claimed(final MessageEntity messageEntity) {
+		return messageEntity
+			.withClaimedBy(deliveryQueueProperties.instanceId())
+			.withClaimExpiresAt(LocalDateTime.now().plus(deliveryQueueProperties.claimDuration()));
+	}
+
+	private MessageContentEntity storeContent(final String content) {
+		final var storedContent = messageContentRepository.save(MessageContentEntity.builder().withContent(attachmentExtractor.extract(content)).build());
+		saveAttachmentReferences(List.of(storedContent));
+
+		return storedContent;
+	}
+
+	/**
+	 * Saves the references from the stored contents to the attachment contents in them, so that the attachment contents
+	 * aren't removed while referenced.
+	 */
+	private void saveAttachmentReferences(final List<MessageContentEntity> storedContents) {
+		final var references = storedContents.stream()
+			.flatMap(storedContent -> attachmentExtractor.references(storedContent.getContent()).stream()
+				.map(hash -> AttachmentReferenceEntity.builder()
+					.withContentId(storedContent.getId())
+					.withHash(hash)
+					.build()))
+			.toList();
+		if (!references.isEmpty()) {
+			attachmentReferenceRepository.saveAll(references);
+		}
+	}
 }
@@ -1,20 +1,33 @@
 package se.sundsvall.messaging.integration.db;
 
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
 import se.sundsvall.messaging.integration.db.projection.BatchHistoryProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryContentProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryExportProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryIdProjection;
 import se.sundsvall.messaging.integration.db.projection.MessageIdProjection;
+import se.sundsvall.messaging.integration.db.projection.UserMessageHistoryProjection;
 import se.sundsvall.messaging.model.MessageType;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 @CircuitBreaker(name = "historyRepository")
 public interface HistoryRepository extends JpaRepository<HistoryEntity, Long>, PagingAndSortingRepository<HistoryEntity, Long>, JpaSpecificationExecutor<HistoryEntity> {
@@ -23,19 +36,215 @@ public interface HistoryRepository extends JpaRepository<HistoryEntity, Long>, P
 
 	List<HistoryEntity> findByMunicipalityIdAndMessageId(String municipalityId, String messageId);
 
+	List<UserMessageHistoryProjection> findUserMessageHistoryByMunicipalityIdAndMessageId(String municipalityId, String messageId);
+
+	/**
+	 * Returns the content of the history entries whose metadata hasn't been extracted yet, without loading the entries
+	 * themselves, first entry first.
+	 */
+	@Query("""
+		SELECT h.id AS id, h.messageType AS messageType, COALESCE(c.content, h.content) AS content
+		FROM HistoryEntity h LEFT JOIN h.sharedContent c
+		WHERE h.metadataExtracted = false
+		ORDER BY h.id
+		""")
+	List<HistoryContentProjection> findContentByMetadataExtractedFalse(Pageable pageable);
+
+	/**
+	 * Returns the content of the history entries with the given ids, without loading the entries themselves.
+	 */
+	@Query("""
+		SELECT h.id AS id, h.messageType AS messageType, COALESCE(c.content, h.content) AS content
+		FROM HistoryEntity h LEFT JOIN h.sharedContent c
+		WHERE h.id IN :ids
+		""")
+	List<HistoryContentProjection> findContentByIdIn(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Stores the metadata extracted from the content of a history entry, marking it as extracted. Only the metadata columns
+	 * are written, leaving the content as is.
+	 *
+	 * @return the number of updated history entries
+	 */
+	@Modifying
+	@Query("""
+		UPDATE HistoryEntity h
+		SET h.subject = :subject, h.body = :body, h.destination = :destination, h.attachmentCount = :attachmentCount,
+			h.attachmentsJson = :attachments, h.metadataExtracted = true
+		WHERE h.id = :id
+		""")
+	int updateMetadata(@Param("id") Long id,
+		@Param("subject") String subject,
+		@Param("body") String body,
+		@Param("destination") String destination,
+		@Param("attachmentCount") Integer attachmentCount,
+		@Param("attachments") String attachments);
+
 	List<HistoryEntity> findByMunicipalityIdAndBatchId(String municipalityId, String batchId);
 
-	List<BatchHistoryProjection> findByMunicipalityIdAndIssuerAndCreatedAtIsAfter(String municipalityId, String issuer, LocalDateTime createdAt);
+	List<BatchHistoryProjection> findByMunicipalityIdAndIssuerAndBatchIdInAndCreatedAtIsAfter(String municipalityId, String issuer, Collection<String> batchIds, LocalDateTime createdAt);
 
 	Page<HistoryEntity> findByMunicipalityIdAndIssuer(String municipalityId, String issuer, Pageable pageable);
 
-	Page<MessageIdProjection> findDistinctMessageIdsByMunicipalityIdAndIssuerAndCreatedAtIsAfter(String municipalityId, String issuer, LocalDateTime createdAt, Pageable pageable);
+	/**
+	 * Returns the ids of the messages sent by the issuer after the given time, latest first by the creation time and id of
+	 * their first history entry. If a cursor is given, the messages following it are returned. Entries created after the
+	 * cursor are filtered out before grouping, so the index range scan stops at the cursor.
+	 */
+	@Query("""
+		SELECT h.messageId AS messageId, MIN(h.createdAt) AS createdAt, MIN(h.id) AS id
+		FROM HistoryEntity h
+		WHERE h.municipalityId = :municipalityId AND h.issuer = :issuer AND h.createdAt > :createdAt
+			AND (:cursorCreatedAt IS NULL OR h.createdAt <= :cursorCreatedAt)
+		GROUP BY h.messageId
+		HAVING :cursorCreatedAt IS NULL OR MIN(h.createdAt) < :cursorCreatedAt OR (MIN(h.createdAt) = :cursorCreatedAt AND MIN(h.id) < :cursorId)
+		ORDER BY MIN(h.createdAt) DESC, MIN(h.id) DESC
+		""")
+	List<MessageIdProjection> findMessageIds(@Param("municipalityId") String municipalityId,
+		@Param("issuer") String issuer,
+		@Param("createdAt") LocalDateTime createdAt,
+		@Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+		@Param("cursorId") Long cursorId,
+		Pageable pageable);
+
+	/**
+	 * Same as {@link #findMessageIds(String, String, LocalDateTime, LocalDateTime, Long, Pageable)}, limited to the
+	 * messages of a batch.
+	 */
+	@Query("""
+		SELECT h.messageId AS messageId, MIN(h.createdAt) AS createdAt, MIN(h.id) AS id
+		FROM HistoryEntity h
+		WHERE h.municipalityId = :municipalityId AND h.batchId = :batchId AND h.issuer = :issuer AND h.createdAt > :createdAt
+			AND (:cursorCreatedAt IS NULL OR h.createdAt <= :cursorCreatedAt)
+		GROUP BY h.messageId
+		HAVING :cursorCreatedAt IS NULL OR MIN(h.createdAt) < :cursorCreatedAt OR (MIN(h.createdAt) = :cursorCreatedAt AND MIN(h.id) < :cursorId)
+		ORDER BY MIN(h.createdAt) DESC, MIN(h.id) DESC
+		""")
+	List<MessageIdProjection> findMessageIdsInBatch(@Param("municipalityId") String municipalityId,
+		@Param("batchId") String batchId,
+		@Param("issuer") String issuer,
+		@Param("createdAt") LocalDateTime createdAt,
+		@Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+		@Param("cursorId") Long cursorId,
+		Pageable pageable);
 
-	Page<MessageIdProjection> findDistinctMessageIdsByMunicipalityIdAndBatchIdAndIssuerAndCreatedAtIsAfter(String municipalityId, String batchId, String issuer, LocalDateTime createdAt, Pageable pageable);
+	@Query("SELECT COUNT(DISTINCT h.messageId) FROM HistoryEntity h WHERE h.municipalityId = :municipalityId AND h.issuer = :issuer AND h.createdAt > :createdAt")
+	long countMessageIds(@Param("municipalityId") String municipalityId, @Param("issuer") String issuer, @Param("createdAt") LocalDateTime createdAt);
 
-	Optional<HistoryEntity> findFirstByMunicipalityIdAndMessageId(String municipalityId, String messageId);
+	@Query("SELECT COUNT(DISTINCT h.messageId) FROM HistoryEntity h WHERE h.municipalityId = :municipalityId AND h.batchId = :batchId AND h.issuer = :issuer AND h.createdAt > :createdAt")
+	long countMessageIdsInBatch(@Param("municipalityId") String municipalityId, @Param("batchId") String batchId, @Param("issuer") String issuer, @Param("createdAt") LocalDateTime createdAt);
+
+	/**
+	 * Returns the ids, message types and attachment manifests of the history entries of the message, without reading their
+	 * content, first entry first.
+	 */
+	@Query("""
+		SELECT h.id AS id, h.messageType AS messageType, h.attachmentsJson AS attachmentsJson
+		FROM HistoryEntity h
+		WHERE h.municipalityId = :municipalityId AND h.messageId = :messageId
+		ORDER BY h.id
+		""")
+	List<HistoryIdProjection> findIdByMunicipalityIdAndMessageId(@Param("municipalityId") String municipalityId,
+		@Param("messageId") String messageId,
+		Pageable pageable);
+
+	/**
+	 * Returns a chunk of the content of the history entry, either its own or the content shared with other entries.
+	 *
+	 * @param  id       the id of the history entry
+	 * @param  position the 1-based position of the first character of the chunk
+	 * @param  length   the maximum number of characters of the chunk
+	 * @return          the chunk, empty when the position is past the end of the content
+	 */
+	@Query(value = """
+		SELECT SUBSTRING(COALESCE(c.content, h.content), :position, :length)
+		FROM history h LEFT JOIN message_content c ON c.id = h.content_id
+		WHERE h.id = :id
+		""", nativeQuery = true)
+	String findContentChunkById(@Param("id") Long id, @Param("position") long position, @Param("length") int length);
 
 	HistoryEntity findFirstByMunicipalityIdAndMessageIdAndMessageTypeIn(String municipalityId, String messageId, List<MessageType> messageTypes);
 
 	boolean existsByMunicipalityIdAndMessageIdAndIssuer(String municipalityId, String messageId, String issuer);
+
+	/**
+	 * Streams the history of the municipality created within the given period, optionally limited to a party, in the
+	 * order it was saved. Rows are fetched from a forward-only cursor in chunks of the fetch size and aren't managed, so
+	 * the stream may be arbitrarily long. The stream must be consumed within a transaction and closed.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	@Query("""
+		SELECT h.batchId AS batchId, h.messageId AS messageId, h.deliveryId AS deliveryId, h.partyId AS partyId,
+			h.messageType AS messageType, h.originalMessageType AS originalMessageType, h.status AS status, h.origin AS origin,
+			h.issuer AS issuer, h.department AS department, h.createdAt AS createdAt, h.organizationNumber AS organizationNumber,
+			h.subject AS subject, h.destination AS destination, h.attachmentCount AS attachmentCount
+		FROM HistoryEntity h
+		WHERE h.municipalityId = :municipalityId
+			AND (:partyId IS NULL OR h.partyId = :partyId)
+			AND (:from IS NULL OR h.createdAt >= :from)
+			AND (:to IS NULL OR h.createdAt < :to)
+		ORDER BY h.id
+		""")
+	Stream<HistoryExportProjection> streamHistory(@Param("municipalityId") String municipalityId,
+		@Param("partyId") String partyId,
+		@Param("from") LocalDateTime from,
+		@Param("to") LocalDateTime to);
+
+	/**
+	 * Same as {@link #streamHistory(String, String, LocalDateTime, LocalDateTime)}, with the content of each entry.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	@Query("""
+		SELECT h.batchId AS batchId, h.messageId AS messageId, h.deliveryId AS deliveryId, h.partyId AS partyId,
+			h.messageType AS messageType, h.originalMessageType AS originalMessageType, h.status AS status, h.origin AS origin,
+			h.issuer AS issuer, h.department AS department, h.createdAt AS createdAt, h.organizationNumber AS organizationNumber,
+			h.subject AS subject, h.destination AS destination, h.attachmentCount AS attachmentCount,
+			COALESCE(c.content, h.content) AS content
+		FROM HistoryEntity h LEFT JOIN h.sharedContent c
+		WHERE h.municipalityId = :municipalityId
+			AND (:partyId IS NULL OR h.partyId = :partyId)
+			AND (:from IS NULL OR h.createdAt >= :from)
+			AND (:to IS NULL OR h.createdAt < :to)
+		ORDER BY h.id
+		""")
+	Stream<HistoryExportProjection> streamHistoryWithContent(@Param("municipalityId") String municipalityId,
+		@Param("partyId") String partyId,
+		@Param("from") LocalDateTime from,
+		@Param("to") LocalDateTime to);
+
+	/**
+	 * Moves the most recently saved message with the given delivery id to the history, referring to its stored content and
+	 * copying the department given in it within the database rather than reading the content back and writing it again. What may
+	 * have changed since the message was saved, i.e. the message type, status and transaction id, and the metadata
+	 * extracted from the content, is given as parameters. The message type and status are given by name. The message
+	 * itself is left for the caller to delete.
+	 *
+	 * @return the number of history entries inserted, i.e. 0 if there is no message with the given delivery id
+	 */
+	@Modifying
+	@Query(value = """
+		INSERT INTO history (batch_id, message_id, delivery_id, party_id, message_type, original_message_type, status, status_detail,
+			content_id, origin, issuer, department, created_at, municipality_id, destination_address, organization_number,
+			digital_mail_transaction_id, subject, body, destination, attachment_count, attachments, metadata_extracted)
+		SELECT m.batch_id, m.message_id, m.delivery_id, m.party_id, :messageType, m.original_message_type, :status, :statusDetail,
+			m.content_id, m.origin, m.issuer, JSON_VALUE(c.content, '$.department'), :createdAt,
+			m.municipality_id, m.destination_address, m.organization_number,
+			:transactionId, :subject, :body, :destination, :attachmentCount, :attachments, 1
+		FROM messages m
+		LEFT JOIN message_content c ON c.id = m.content_id
+		WHERE m.delivery_id = :deliveryId
+		ORDER BY m.id DESC
+		LIMIT 1
+		""", nativeQuery = true)
+	int insertFromMessage(@Param("deliveryId") String deliveryId,
+		@Param("messageType") String messageType,
+		@Param("status") String status,
+		@Param("statusDetail") String statusDetail,
+		@Param("transactionId") String transactionId,
+		@Param("createdAt") LocalDateTime createdAt,
+		@Param("subject") String subject,
+		@Param("body") String body,
+		@Param("destination") String destination,
+		@Param("attachmentCount") Integer attachmentCount,
+		@Param("attachments") String attachments);
 }
@@ -0,0 +1,18 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.util.List;
+import se.sundsvall.messaging.integration.db.entity.MessageEntity;
+
+/**
+ * Bulk insertion of messages, rather than one insert per message.
+ */
+public interface MessageBulkInsert {
+
+	/**
+	 * Inserts the given messages in JDBC batches. The messages are neither managed by nor returned from the persistence
+	 * context, and their ids are left unset, so this is meant for messages that are only read back by delivery id.
+	 *
+	 * @param messages must not be {@literal null}.
+	 */
+	void insertAll(List<MessageEntity> messages);
+}
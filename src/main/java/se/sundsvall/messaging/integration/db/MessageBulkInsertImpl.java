@@ -0,0 +1,59 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.sundsvall.messaging.integration.db.entity.MessageEntity;
+
+import static java.util.Optional.ofNullable;
+import static se.sundsvall.messaging.util.JsonUtils.toJson;
+
+class MessageBulkInsertImpl implements MessageBulkInsert {
+
+	private static final int BATCH_SIZE = 500;
+
+	private static final String INSERT_MESSAGE = """
+		INSERT INTO messages (message_id, batch_id, delivery_id, party_id, message_type, original_message_type, status, content_id,
+			origin, issuer, created_at, municipality_id, destination_address, organization_number, claimed_by, claim_expires_at,
+			status_detail, digital_mail_transaction_id)
+		VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+		""";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	MessageBulkInsertImpl(final JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public void insertAll(final List<MessageEntity> messages) {
+		// Same values as set by the entity when persisted
+		final var createdAt = Timestamp.valueOf(LocalDateTime.now());
+
+		jdbcTemplate.batchUpdate(INSERT_MESSAGE, messages, BATCH_SIZE, (statement, message) -> {
+			statement.setString(1, message.getMessageId());
+			statement.setString(2, message.getBatchId());
+			statement.setString(3, message.getDeliveryId());
+			statement.setString(4, message.getPartyId());
+			statement.setString(5, nameOf(message.getType()));
+			statement.setString(6, nameOf(message.getOriginalMessageType()));
+			statement.setString(7, nameOf(message.getStatus()));
+			statement.setObject(8, message.getContentId());
+			statement.setString(9, message.getOrigin());
+			statement.setString(10, message.getIssuer());
+			statement.setTimestamp(11, createdAt);
+			statement.setString(12, message.getMunicipalityId());
+			statement.setString(13, toJson(message.getDestinationAddress()));
+			statement.setString(14, message.getOrganizationNumber());
+			statement.setString(15, message.getClaimedBy());
+			statement.setTimestamp(16, ofNullable(message.getClaimExpiresAt()).map(Timestamp::valueOf).orElse(null));
+			statement.setString(17, message.getStatusDetail());
+			statement.setString(18, message.getDigitalMailTransactionId());
+		});
+	}
+
+	private static String nameOf(final Enum<?> value) {
+		return ofNullable(value).map(Enum::name).orElse(null);
+	}
+}
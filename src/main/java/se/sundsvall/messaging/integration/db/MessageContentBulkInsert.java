@@ -0,0 +1,19 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.util.List;
+import se.sundsvall.messaging.integration.db.entity.MessageContentEntity;
+
+/**
+ * Bulk insertion of message contents, rather than one insert per content.
+ */
+public interface MessageContentBulkInsert {
+
+	/**
+	 * Inserts the given contents in JDBC batches. The returned contents are neither managed by the persistence context
+	 * nor read back, but carry the generated ids so that messages can refer to them.
+	 *
+	 * @param  contents must not be {@literal null}.
+	 * @return          the inserted contents, in the same order as given
+	 */
+	List<MessageContentEntity> insertAll(List<String> contents);
+}
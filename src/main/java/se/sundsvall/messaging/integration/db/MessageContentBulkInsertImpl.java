@@ -0,0 +1,64 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.sundsvall.messaging.integration.db.entity.MessageContentEntity;
+
+import static java.sql.Statement.RETURN_GENERATED_KEYS;
+
+class MessageContentBulkInsertImpl implements MessageContentBulkInsert {
+
+	private static final int BATCH_SIZE = 500;
+
+	private static final String INSERT_CONTENT = "INSERT INTO message_content (content, created_at) VALUES (?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	MessageContentBulkInsertImpl(final JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public List<MessageContentEntity> insertAll(final List<String> contents) {
+		if (contents.isEmpty()) {
+			return List.of();
+		}
+
+		// Same value as set by the entity when persisted
+		final var createdAt = LocalDateTime.now();
+
+		final List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+			final var generatedIds = new ArrayList<Long>(contents.size());
+			try (final var statement = connection.prepareStatement(INSERT_CONTENT, RETURN_GENERATED_KEYS)) {
+				for (var i = 0; i < contents.size(); i++) {
+					statement.setString(1, contents.get(i));
+					statement.setTimestamp(2, Timestamp.valueOf(createdAt));
+					statement.addBatch();
+
+					if ((i + 1) % BATCH_SIZE == 0 || i == contents.size() - 1) {
+						statement.executeBatch();
+						try (final var keys = statement.getGeneratedKeys()) {
+							while (keys.next()) {
+								generatedIds.add(keys.getLong(1));
+							}
+						}
+					}
+				}
+			}
+			return generatedIds;
+		});
+
+		return IntStream.range(0, contents.size())
+			.mapToObj(i -> MessageContentEntity.builder()
+				.withId(ids.get(i))
+				.withContent(contents.get(i))
+				.withCreatedAt(createdAt)
+				.build())
+			.toList();
+	}
+}
@@ -0,0 +1,44 @@
+package se.sundsvall.messaging.integration.db;
+
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import se.sundsvall.messaging.integration.db.entity.MessageContentEntity;
+
+@Repository
+@CircuitBreaker(name = "messageContentRepository")
+public interface MessageContentRepository extends JpaRepository<MessageContentEntity, Long>, MessageContentBulkInsert {
+
+	/**
+	 * Finds the ids of content created before the given time that is referenced by neither a message nor a history entry.
+	 * Content without a creation time predates it being recorded, and is treated as old enough.
+	 */
+	@Query(value = """
+		SELECT id FROM message_content
+		WHERE (created_at IS NULL OR created_at < :createdBefore)
+		AND NOT EXISTS (SELECT 1 FROM messages m WHERE m.content_id = message_content.id)
+		AND NOT EXISTS (SELECT 1 FROM history h WHERE h.content_id = message_content.id)
+		ORDER BY id
+		LIMIT :limit
+		""", nativeQuery = true)
+	List<Long> findUnreferencedIds(@Param("createdBefore") LocalDateTime createdBefore, @Param("limit") int limit);
+
+	/**
+	 * Deletes the content with the given ids, unless it has been referenced by a message or a history entry since it was
+	 * found to be unreferenced, e.g. by a rerouted message.
+	 */
+	@Modifying
+	@Query(value = """
+		DELETE FROM message_content
+		WHERE id IN (:ids)
+		AND NOT EXISTS (SELECT 1 FROM messages m WHERE m.content_id = message_content.id)
+		AND NOT EXISTS (SELECT 1 FROM history h WHERE h.content_id = message_content.id)
+		""", nativeQuery = true)
+	int deleteUnreferencedByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -1,24 +1,139 @@
 package se.sundsvall.messaging.integration.db;
 
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 import se.sundsvall.messaging.integration.db.entity.MessageEntity;
+import se.sundsvall.messaging.integration.db.projection.PendingMessageProjection;
 import se.sundsvall.messaging.model.MessageStatus;
+import se.sundsvall.messaging.model.MessageType;
 
 @CircuitBreaker(name = "messageRepository")
-public interface MessageRepository extends JpaRepository<MessageEntity, Long> {
+public interface MessageRepository extends JpaRepository<MessageEntity, Long>, MessageBulkInsert {
 
-	boolean existsByBatchId(String batchId);
+	boolean existsByBatchIdAndType(String batchId, MessageType type);
 
 	Optional<MessageEntity> findByDeliveryId(String deliveryId);
 
 	boolean existsByMessageId(String messageId);
 
+	/**
+	 * Deletes the message(s) with the given delivery id in a single statement, rather than loading and deleting them one
+	 * by one.
+	 */
 	@Transactional
-	void deleteByDeliveryId(String deliveryId);
+	@Modifying
+	@Query("DELETE FROM MessageEntity m WHERE m.deliveryId = :deliveryId")
+	void deleteByDeliveryId(@Param("deliveryId") String deliveryId);
 
-	List<MessageEntity> findByStatusOrderByCreatedAtAsc(MessageStatus status);
+	/**
+	 * Deletes the message(s) with the given delivery id, except those of the given type, in a single statement.
+	 *
+	 * @return the number of deleted messages
+	 */
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM MessageEntity m WHERE m.deliveryId = :deliveryId AND m.type <> :type")
+	int deleteByDeliveryIdAndTypeNot(@Param("deliveryId") String deliveryId, @Param("type") MessageType type);
+
+	/**
+	 * Deletes the message(s) with the given delivery id and type in a single statement.
+	 *
+	 * @return the number of deleted messages
+	 */
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM MessageEntity m WHERE m.deliveryId = :deliveryId AND m.type = :type")
+	int deleteByDeliveryIdAndType(@Param("deliveryId") String deliveryId, @Param("type") MessageType type);
+
+	/**
+	 * Deletes the messages of the batch with the given type in a single statement.
+	 *
+	 * @return the number of deleted messages
+	 */
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM MessageEntity m WHERE m.batchId = :batchId AND m.type = :type")
+	int deleteByBatchIdAndType(@Param("batchId") String batchId, @Param("type") MessageType type);
+
+	/**
+	 * Locks and returns pending messages that are either unclaimed or whose claim has expired. Rows locked by other
+	 * transactions are skipped, so that concurrent callers never get the same rows. Must be called within a transaction.
+	 */
+	@Query(value = """
+		SELECT id, delivery_id AS deliveryId, message_type AS type, municipality_id AS municipalityId, origin
+		FROM messages
+		WHERE status = 'PENDING' AND (claim_expires_at IS NULL OR claim_expires_at < :now)
+		ORDER BY id
+		LIMIT :limit
+		FOR UPDATE SKIP LOCKED
+		""", nativeQuery = true)
+	List<PendingMessageProjection> findClaimablePendingMessages(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+	@Query(value = """
+		SELECT id, delivery_id AS deliveryId, message_type AS type, municipality_id AS municipalityId, origin
+		FROM messages
+		WHERE status = 'PENDING' AND message_type = :type AND (claim_expires_at IS NULL OR claim_expires_at < :now)
+		ORDER BY id
+		LIMIT :limit
+		FOR UPDATE SKIP LOCKED
+		""", nativeQuery = true)
+	List<PendingMessageProjection> findClaimablePendingMessagesByType(@Param("type") String type, @Param("now") LocalDateTime now, @Param("limit") int limit);
+
+	@Modifying
+	@Query("UPDATE MessageEntity m SET m.claimedBy = :claimedBy, m.claimExpiresAt = :claimExpiresAt WHERE m.id IN :ids")
+	int claimByIds(@Param("ids") Collection<Long> ids, @Param("claimedBy") String claimedBy, @Param("claimExpiresAt") LocalDateTime claimExpiresAt);
+
+	/**
+	 * Claims the pending message(s) with the given delivery id, unless claimed by someone else and the claim has not yet
+	 * expired.
+	 */
+	@Modifying
+	@Query("""
+		UPDATE MessageEntity m SET m.claimedBy = :claimedBy, m.claimExpiresAt = :claimExpiresAt
+		WHERE m.deliveryId = :deliveryId AND m.status = :status
+		AND (m.claimedBy = :claimedBy OR m.claimExpiresAt IS NULL OR m.claimExpiresAt < :now)
+		""")
+	int claimByDeliveryIdAndStatus(@Param("deliveryId") String deliveryId, @Param("status") MessageStatus status,
+		@Param("claimedBy") String claimedBy, @Param("claimExpiresAt") LocalDateTime claimExpiresAt, @Param("now") LocalDateTime now);
+
+	@Modifying
+	@Query("UPDATE MessageEntity m SET m.claimExpiresAt = :claimExpiresAt WHERE m.deliveryId IN :deliveryIds AND m.claimedBy = :claimedBy")
+	int renewClaims(@Param("deliveryIds") Collection<String> deliveryIds, @Param("claimedBy") String claimedBy, @Param("claimExpiresAt") LocalDateTime claimExpiresAt);
+
+	/**
+	 * Records the outcome of the delivery on the message(s) with the given delivery id, except those of the given type, in
+	 * a single statement, leaving their claims as they are.
+	 *
+	 * @return the number of updated messages
+	 */
+	@Modifying
+	@Query("""
+		UPDATE MessageEntity m SET m.status = :status, m.statusDetail = :statusDetail, m.digitalMailTransactionId = :transactionId
+		WHERE m.deliveryId = :deliveryId AND m.type <> :type
+		""")
+	int updateOutcomeByDeliveryIdAndTypeNot(@Param("deliveryId") String deliveryId, @Param("type") MessageType type, @Param("status") MessageStatus status,
+		@Param("statusDetail") String statusDetail, @Param("transactionId") String transactionId);
+
+	/**
+	 * Locks and returns the ids of messages with a recorded outcome, i.e. no longer pending, that are either unclaimed or
+	 * whose claim has expired. Rows locked by other transactions are skipped, so that concurrent callers never get the
+	 * same rows. Must be called within a transaction.
+	 */
+	@Query(value = """
+		SELECT id
+		FROM messages
+		WHERE status <> 'PENDING' AND (claim_expires_at IS NULL OR claim_expires_at < :now)
+		ORDER BY id
+		LIMIT :limit
+		FOR UPDATE SKIP LOCKED
+		""", nativeQuery = true)
+	List<Long> findClaimableCompletedMessageIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
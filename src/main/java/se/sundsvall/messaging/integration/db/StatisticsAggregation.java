@@ -0,0 +1,21 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.util.List;
+import org.springframework.data.jpa.domain.Specification;
+import se.sundsvall.messaging.integration.db.entity.StatisticEntity;
+import se.sundsvall.messaging.model.StatsEntry;
+
+/**
+ * Aggregation of the statistics in the database, rather than loading one entity per history entry.
+ */
+public interface StatisticsAggregation {
+
+	/**
+	 * Counts the entries matching the given {@link Specification} per original message type, message type, status,
+	 * origin and department. Empty origins and departments are counted as missing.
+	 *
+	 * @param  specification must not be {@literal null}.
+	 * @return               one entry per distinct combination, never {@literal null}.
+	 */
+	List<StatsEntry> countBySpecification(Specification<StatisticEntity> specification);
+}
@@ -0,0 +1,41 @@
+package se.sundsvall.messaging.integration.db;
+
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import org.springframework.data.jpa.domain.Specification;
+import se.sundsvall.messaging.integration.db.entity.StatisticEntity;
+import se.sundsvall.messaging.model.StatsEntry;
+
+import static se.sundsvall.messaging.integration.db.specification.StatisticsSpecification.DEPARTMENT;
+import static se.sundsvall.messaging.integration.db.specification.StatisticsSpecification.MESSAGE_TYPE;
+import static se.sundsvall.messaging.integration.db.specification.StatisticsSpecification.ORIGIN;
+import static se.sundsvall.messaging.integration.db.specification.StatisticsSpecification.ORIGINAL_MESSAGE_TYPE;
+import static se.sundsvall.messaging.integration.db.specification.StatisticsSpecification.STATUS;
+
+class StatisticsAggregationImpl implements StatisticsAggregation {
+
+	private final EntityManager entityManager;
+
+	StatisticsAggregationImpl(final EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	@Override
+	public List<StatsEntry> countBySpecification(final Specification<StatisticEntity> specification) {
+		final var cb = entityManager.getCriteriaBuilder();
+		final var query = cb.createQuery(StatsEntry.class);
+		final var root = query.from(StatisticEntity.class);
+
+		final var originalMessageType = root.get(ORIGINAL_MESSAGE_TYPE);
+		final var messageType = root.get(MESSAGE_TYPE);
+		final var status = root.get(STATUS);
+		final var origin = cb.nullif(root.<String>get(ORIGIN), "");
+		final var department = cb.nullif(root.<String>get(DEPARTMENT), "");
+
+		query.select(cb.construct(StatsEntry.class, originalMessageType, messageType, status, origin, department, cb.count(root)))
+			.where(specification.toPredicate(root, query, cb))
+			.groupBy(originalMessageType, messageType, status, origin, department);
+
+		return entityManager.createQuery(query).getResultList();
+	}
+}
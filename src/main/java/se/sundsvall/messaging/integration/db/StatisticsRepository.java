@@ -9,6 +9,7 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Repository;
 import se.sundsvall.messaging.integration.db.entity.StatisticEntity;
 import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.model.StatsEntry;
 
 import static se.sundsvall.messaging.integration.db.specification.StatisticsSpecification.withCreatedAtAfter;
 import static se.sundsvall.messaging.integration.db.specification.StatisticsSpecification.withCreatedAtBefore;
@@ -19,9 +20,13 @@ import static se.sundsvall.messaging.integration.db.specification.StatisticsSpec
 
 @Repository
 @CircuitBreaker(name = "statisticsRepository")
-public interface StatisticsRepository extends ReadOnlyJpaSpecificationExecutor<StatisticEntity, Long> {
+public interface StatisticsRepository extends ReadOnlyJpaSpecificationExecutor<StatisticEntity, Long>, StatisticsAggregation {
 
-	default List<StatisticEntity> findAllByParameters(final String municipalityId, final String origin, final String department, final List<MessageType> messageTypes, final LocalDate from, final LocalDate to) {
+	/**
+	 * Counts the history entries per original message type, message type, status, origin and department. The counting
+	 * is done in the database, so one row per distinct combination is read rather than one per history entry.
+	 */
+	default List<StatsEntry> findAllByParameters(final String municipalityId, final String origin, final String department, final List<MessageType> messageTypes, final LocalDate from, final LocalDate to) {
 		final var specification = Specification
 			.where(withMunicipalityId(municipalityId))
 			.and(withOrigin(origin))
@@ -30,7 +35,7 @@ public interface StatisticsRepository extends ReadOnlyJpaSpecificationExecutor<S
 			.and(withCreatedAtAfter(startOfDay(from)))
 			.and(withCreatedAtBefore(endOfDay(to)));
 
-		return findAll(specification);
+		return countBySpecification(specification);
 	}
 
 	default LocalDateTime startOfDay(LocalDate date) {
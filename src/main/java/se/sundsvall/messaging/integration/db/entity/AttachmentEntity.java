@@ -0,0 +1,37 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Attachment content, keyed by the hex encoded SHA-256 hash of the content.
+ */
+@Entity
+@Table(name = "attachment")
+@Getter
+@NoArgsConstructor
+public class AttachmentEntity {
+
+	@Id
+	@Column(name = "hash", length = 64)
+	private String hash;
+
+	@Column(name = "content", columnDefinition = "LONGBLOB NOT NULL")
+	private byte[] content;
+
+	@Column(name = "created_at")
+	private LocalDateTime createdAt;
+
+	@Builder(setterPrefix = "with")
+	private AttachmentEntity(final String hash, final byte[] content, final LocalDateTime createdAt) {
+		this.hash = hash;
+		this.content = content;
+		this.createdAt = createdAt;
+	}
+}
@@ -0,0 +1,46 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Reference from stored message content to attachment content in the attachment store, so that attachment content no
+ * longer referenced by any message content can be removed.
+ */
+@Entity
+@Table(name = "attachment_reference", indexes = {
+	// Index for query: deleteByRemovedContent
+	@Index(name = "idx_attachment_reference_content_id", columnList = "content_id"),
+	// Index for queries: existsByHash and deleteUnreferenced (attachment)
+	@Index(name = "idx_attachment_reference_hash", columnList = "hash")
+})
+@Getter
+@NoArgsConstructor
+public class AttachmentReferenceEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "content_id", nullable = false)
+	private Long contentId;
+
+	@Column(name = "hash", length = 64, nullable = false)
+	private String hash;
+
+	@Builder(setterPrefix = "with")
+	private AttachmentReferenceEntity(final Long id, final Long contentId, final String hash) {
+		this.id = id;
+		this.contentId = contentId;
+		this.hash = hash;
+	}
+}
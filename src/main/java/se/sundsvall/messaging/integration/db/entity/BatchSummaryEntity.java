@@ -0,0 +1,63 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import se.sundsvall.messaging.model.MessageType;
+
+/**
+ * Summary of a batch, with the properties shared by all messages in it. Maintained when history is saved, so that
+ * listing the batches of an issuer doesn't have to read the content of the history.
+ */
+@Entity
+@Table(name = "batch_summary",
+	indexes = {
+		@Index(name = "uq_batch_summary_municipality_batch", columnList = "municipality_id, batch_id", unique = true),
+		// Index for queries: findSummaries and countByMunicipalityIdAndIssuerAndCreatedAtIsAfter
+		@Index(name = "idx_batch_summary_municipality_issuer_created", columnList = "municipality_id, issuer, created_at")
+	})
+@Getter
+@Builder(setterPrefix = "with")
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BatchSummaryEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "municipality_id", length = 12, nullable = false)
+	private String municipalityId;
+
+	@Column(name = "batch_id", length = 36, nullable = false)
+	private String batchId;
+
+	@Column(name = "issuer")
+	private String issuer;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "original_message_type")
+	private MessageType originalMessageType;
+
+	@Column(name = "subject", length = 1000)
+	private String subject;
+
+	@Column(name = "attachment_count", nullable = false)
+	private int attachmentCount;
+
+	@Column(name = "created_at", nullable = false)
+	private LocalDateTime createdAt;
+}
@@ -0,0 +1,49 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tracking of an asynchronously delivered letter batch, counting down the messages left to deliver so that the
+ * snail-mail batch is triggered once, when the last of them has been delivered.
+ */
+@Entity
+@Table(name = "batch_tracking",
+	indexes = {
+		// Index for queries: findByTriggeredFalseAndCreatedAtBeforeOrderByCreatedAtAsc and deleteByCreatedAtBefore
+		@Index(name = "idx_batch_tracking_created_at", columnList = "created_at")
+	})
+@Getter
+@Builder(setterPrefix = "with")
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BatchTrackingEntity {
+
+	@Id
+	@Column(name = "batch_id", length = 36)
+	private String batchId;
+
+	@Column(name = "municipality_id", length = 12, nullable = false)
+	private String municipalityId;
+
+	@Column(name = "remaining", nullable = false)
+	private int remaining;
+
+	@Column(name = "sent_snail_mail_count", nullable = false)
+	private int sentSnailMailCount;
+
+	@Column(name = "triggered", nullable = false)
+	private boolean triggered;
+
+	@Column(name = "created_at", nullable = false)
+	private LocalDateTime createdAt;
+}
@@ -0,0 +1,69 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDate;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import se.sundsvall.messaging.model.MessageStatus;
+import se.sundsvall.messaging.model.MessageType;
+
+/**
+ * Number of history entries per day and municipality, origin, department, message type, original message type and
+ * status. Maintained when history is saved, so that statistics don't have to count the history itself. A missing
+ * origin or department is stored as an empty string, since the columns are part of a unique key.
+ */
+@Entity
+@Table(name = "daily_statistics",
+	indexes = {
+		@Index(name = "uq_daily_statistics_dimensions",
+			columnList = "municipality_id, day, origin, department, original_message_type, message_type, status", unique = true)
+	})
+@Getter
+@Builder(setterPrefix = "with")
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class DailyStatisticEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "municipality_id", length = 12, nullable = false)
+	private String municipalityId;
+
+	@Column(name = "day", nullable = false)
+	private LocalDate day;
+
+	@Column(name = "origin", nullable = false)
+	private String origin;
+
+	@Column(name = "department", nullable = false)
+	private String department;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "original_message_type")
+	private MessageType originalMessageType;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "message_type")
+	private MessageType messageType;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "status")
+	private MessageStatus status;
+
+	@Column(name = "message_count", nullable = false)
+	private long messageCount;
+}
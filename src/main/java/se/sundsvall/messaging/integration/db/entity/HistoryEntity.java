@@ -1,34 +1,45 @@
 package se.sundsvall.messaging.integration.db.entity;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.ConstraintMode;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PostLoad;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.With;
+import org.hibernate.annotations.ColumnDefault;
 import se.sundsvall.messaging.model.Address;
+import se.sundsvall.messaging.model.HistoryMetadata;
 import se.sundsvall.messaging.model.MessageStatus;
 import se.sundsvall.messaging.model.MessageType;
+import tools.jackson.core.type.TypeReference;
 
 import static se.sundsvall.messaging.util.JsonUtils.fromJson;
 import static se.sundsvall.messaging.util.JsonUtils.toJson;
 
 @Entity
 @Table(name = "history", indexes = {
-	// Index for query: findByMunicipalityIdAndIssuerAndCreatedAtIsAfter and
-	// findDistinctMessageIdsByMunicipalityIdAndIssuerAndCreatedAtIsAfter
+	// Index for query: findByMunicipalityIdAndIssuerAndCreatedAtIsAfter, findMessageIds and
+	// countMessageIds
 	@Index(name = "idx_history_municipality_issuer_created", columnList = "municipality_id, issuer, created_at"),
-	// Index for query: getHistory(municipalityId, partyId, from, to)
+	// Index for query: getHistory(municipalityId, partyId, from, to, cursor, limit) and streamHistory for a party
 	@Index(name = "idx_history_municipality_party_created", columnList = "municipality_id, party_id, created_at"),
 	// Index for query: findByMunicipalityIdAndMessageId
 	@Index(name = "idx_history_municipality_message", columnList = "municipality_id, message_id"),
@@ -36,20 +47,25 @@ import static se.sundsvall.messaging.util.JsonUtils.toJson;
 	@Index(name = "idx_history_municipality_batch", columnList = "municipality_id, batch_id"),
 	// Index for query: findByMunicipalityIdAndDeliveryId
 	@Index(name = "idx_history_municipality_delivery", columnList = "municipality_id, delivery_id"),
-	// Index for query: findDistinctMessageIdsByMunicipalityIdAndBatchIdAndIssuerAndCreatedAtIsAfter
+	// Index for query: findMessageIdsInBatch and countMessageIdsInBatch
 	@Index(name = "idx_history_municipality_batch_issuer_created", columnList = "municipality_id, batch_id, issuer, created_at"),
 	// Index for query: findFirstByMunicipalityIdAndMessageIdAndMessageTypeIn
 	@Index(name = "idx_history_municipality_message_type", columnList = "municipality_id, message_id, message_type"),
 	// Index for query: existsByMunicipalityIdAndMessageIdAndIssuer
 	@Index(name = "idx_history_municipality_message_issuer", columnList = "municipality_id, message_id, issuer"),
-	// Additional indexes
+	// Additional indexes, created_at also for query: streamHistory for all parties
 	@Index(name = "idx_history_created_at", columnList = "created_at"),
 	@Index(name = "idx_history_origin", columnList = "origin"),
 	@Index(name = "idx_history_department", columnList = "department"),
-	@Index(name = "idx_history_organization_number", columnList = "organization_number")
+	@Index(name = "idx_history_organization_number", columnList = "organization_number"),
+	// Index for query: findContentByMetadataExtractedFalse
+	@Index(name = "idx_history_metadata_extracted", columnList = "metadata_extracted, id"),
+	// Index for queries: findUnreferencedIds and deleteUnreferencedByIdIn (message content)
+	@Index(name = "idx_history_content_id", columnList = "content_id")
 })
 @Getter
 @NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class HistoryEntity {
 
 	@Id
@@ -87,6 +103,11 @@ public class HistoryEntity {
 	@Column(name = "content", columnDefinition = "LONGTEXT")
 	private String content;
 
+	@With
+	@ManyToOne
+	@JoinColumn(name = "content_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+	private MessageContentEntity sharedContent;
+
 	@Column(name = "origin")
 	private String origin;
 
@@ -114,11 +135,31 @@ public class HistoryEntity {
 	@Column(name = "digital_mail_transaction_id", length = 36)
 	private String digitalMailTransactionId;
 
+	@Column(name = "subject", length = 1000)
+	private String subject;
+
+	@Column(name = "body", columnDefinition = "MEDIUMTEXT")
+	private String body;
+
+	@Column(name = "destination")
+	private String destination;
+
+	@Column(name = "attachment_count")
+	private Integer attachmentCount;
+
+	@Column(name = "attachments", columnDefinition = "TEXT")
+	private String attachmentsJson;
+
+	@ColumnDefault("0")
+	@Column(name = "metadata_extracted", nullable = false)
+	private boolean metadataExtracted;
+
 	@Builder(setterPrefix = "with")
 	private HistoryEntity(final Long id, final String batchId, final String messageId, final String deliveryId, final String partyId,
 		final MessageType messageType, final MessageType originalMessageType, final MessageStatus status, final String statusDetail,
-		final String content, final String origin, final String issuer, final String department, final LocalDateTime createdAt,
-		final String municipalityId, final Address destinationAddress, final String organizationNumber, final String digitalMailTransactionId) {
+		final String content, final MessageContentEntity sharedContent, final String origin, final String issuer, final String department, final LocalDateTime createdAt,
+		final String municipalityId, final Address destinationAddress, final String organizationNumber, final String digitalMailTransactionId,
+		final HistoryMetadata metadata) {
 		this.id = id;
 		this.batchId = batchId;
 		this.messageId = messageId;
@@ -129,6 +170,7 @@ public class HistoryEntity {
 		this.status = status;
 		this.statusDetail = statusDetail;
 		this.content = content;
+		this.sharedContent = sharedContent;
 		this.origin = origin;
 		this.issuer = issuer;
 		this.department = department;
@@ -137,6 +179,43 @@ public class HistoryEntity {
 		this.destinationAddress = destinationAddress;
 		this.organizationNumber = organizationNumber;
 		this.digitalMailTransactionId = digitalMailTransactionId;
+		if (metadata != null) {
+			setMetadata(metadata);
+		}
+	}
+
+	/**
+	 * Returns the content of the history entry, either stored inline or shared with other entries.
+	 */
+	public String getContent() {
+		return sharedContent != null ? sharedContent.getContent() : content;
+	}
+
+	/**
+	 * Returns the metadata extracted from the content, or null if it hasn't been extracted yet.
+	 */
+	public HistoryMetadata getMetadata() {
+		if (!metadataExtracted) {
+			return null;
+		}
+		return HistoryMetadata.builder()
+			.withSubject(subject)
+			.withBody(body)
+			.withDestination(destination)
+			.withAttachments(fromJson(attachmentsJson, new TypeReference<List<HistoryMetadata.Attachment>>() {}))
+			.build();
+	}
+
+	/**
+	 * Sets the metadata extracted from the content, marking it as extracted.
+	 */
+	public void setMetadata(final HistoryMetadata metadata) {
+		this.subject = metadata.subject();
+		this.body = metadata.body();
+		this.destination = metadata.destination();
+		this.attachmentCount = metadata.attachmentCount();
+		this.attachmentsJson = metadata.attachments().isEmpty() ? null : toJson(metadata.attachments());
+		this.metadataExtracted = true;
 	}
 
 	String getDestinationAddressJson() {
@@ -0,0 +1,47 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * The content of messages, and their history, kept apart from the messages themselves. Content may be shared by several
+ * messages, e.g. all deliveries of a letter or digital mail sent to multiple recipients.
+ */
+@Entity
+@Table(name = "message_content")
+@Getter
+@NoArgsConstructor
+public class MessageContentEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id")
+	private Long id;
+
+	@Column(name = "content", columnDefinition = "LONGTEXT NOT NULL")
+	private String content;
+
+	@Column(name = "created_at")
+	private LocalDateTime createdAt;
+
+	@Builder(setterPrefix = "with")
+	private MessageContentEntity(final Long id, final String content, final LocalDateTime createdAt) {
+		this.id = id;
+		this.content = content;
+		this.createdAt = createdAt;
+	}
+
+	@PrePersist
+	void prePersist() {
+		createdAt = LocalDateTime.now();
+	}
+}
@@ -1,12 +1,17 @@
 package se.sundsvall.messaging.integration.db.entity;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.ConstraintMode;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PostLoad;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
@@ -26,7 +31,21 @@ import static se.sundsvall.messaging.util.JsonUtils.fromJson;
 import static se.sundsvall.messaging.util.JsonUtils.toJson;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+	// Index for queries: findClaimablePendingMessages, findClaimablePendingMessagesByType, findClaimableCompletedMessageIds
+	@Index(name = "idx_messages_status_claim_expires_at", columnList = "status, claim_expires_at"),
+	// Index for query: renewClaims
+	@Index(name = "idx_messages_claimed_by", columnList = "claimed_by"),
+	// Index for queries: findByDeliveryId, deleteByDeliveryId, deleteByDeliveryIdAndTypeNot, deleteByDeliveryIdAndType,
+	// claimByDeliveryIdAndStatus, updateOutcomeByDeliveryIdAndTypeNot
+	@Index(name = "idx_messages_delivery_id", columnList = "delivery_id"),
+	// Index for queries: existsByBatchIdAndType, deleteByBatchIdAndType
+	@Index(name = "idx_messages_batch_id", columnList = "batch_id"),
+	// Index for queries: findClaimablePendingMessages, findClaimablePendingMessagesByType, reading pending messages in id order
+	@Index(name = "idx_messages_status_id", columnList = "status, id"),
+	// Index for queries: findUnreferencedIds and deleteUnreferencedByIdIn (message content)
+	@Index(name = "idx_messages_content_id", columnList = "content_id")
+})
 @Getter
 @NoArgsConstructor
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
@@ -65,9 +84,11 @@ public class MessageEntity {
 	@Column(name = "status")
 	private MessageStatus status;
 
+	// Kept in a table of its own, so that queue scans, existence checks and deletes never touch it
 	@With
-	@Column(name = "content", columnDefinition = "LONGTEXT NOT NULL")
-	private String content;
+	@ManyToOne
+	@JoinColumn(name = "content_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+	private MessageContentEntity content;
 
 	@With
 	@Column(name = "origin")
@@ -93,10 +114,26 @@ public class MessageEntity {
 	@Column(name = "organizationNumber", length = 12)
 	private String organizationNumber;
 
+	@With
+	@Column(name = "claimed_by")
+	private String claimedBy;
+
+	@With
+	@Column(name = "claim_expires_at")
+	private LocalDateTime claimExpiresAt;
+
+	// The outcome of a delivery that couldn't be archived, along with its status, until the message is archived
+	@Column(name = "status_detail", columnDefinition = "LONGTEXT")
+	private String statusDetail;
+
+	@Column(name = "digital_mail_transaction_id", length = 36)
+	private String digitalMailTransactionId;
+
 	@Builder(setterPrefix = "with")
-	private MessageEntity(final Long id, final String messageId, final String batchId, final String deliveryId, final String partyId, final MessageType type, final MessageType originalMessageType, final MessageStatus status, final String content,
-		final String origin, final String issuer, final LocalDateTime createdAt,
-		final String municipalityId, final Address destinationAddress, final String organizationNumber) {
+	private MessageEntity(final Long id, final String messageId, final String batchId, final String deliveryId, final String partyId, final MessageType type, final MessageType originalMessageType, final MessageStatus status,
+		final MessageContentEntity content, final String origin, final String issuer, final LocalDateTime createdAt,
+		final String municipalityId, final Address destinationAddress, final String organizationNumber, final String claimedBy, final LocalDateTime claimExpiresAt,
+		final String statusDetail, final String digitalMailTransactionId) {
 		this.id = id;
 		this.messageId = messageId;
 		this.batchId = batchId;
@@ -112,6 +149,21 @@ public class MessageEntity {
 		this.municipalityId = municipalityId;
 		this.destinationAddress = destinationAddress;
 		this.organizationNumber = organizationNumber;
+		this.claimedBy = claimedBy;
+		this.claimExpiresAt = claimExpiresAt;
+		this.statusDetail = statusDetail;
+		this.digitalMailTransactionId = digitalMailTransactionId;
+	}
+
+	/**
+	 * Returns the content of the message, possibly shared with other messages.
+	 */
+	public String getContent() {
+		return content != null ? content.getContent() : null;
+	}
+
+	public Long getContentId() {
+		return content != null ? content.getId() : null;
 	}
 
 	String getDestinationAddressJson() {
@@ -0,0 +1,47 @@
+package se.sundsvall.messaging.integration.db.mapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import se.sundsvall.messaging.integration.db.entity.BatchSummaryEntity;
+import se.sundsvall.messaging.model.HistoryMetadata;
+import se.sundsvall.messaging.model.Message;
+import se.sundsvall.messaging.model.MessageType;
+
+import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
+import static se.sundsvall.messaging.model.MessageType.EMAIL;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+
+public final class BatchSummaryMapper {
+
+	// A letter is delivered as digital mail where possible, and keeps its subject as such
+	private static final List<MessageType> TYPES_WITH_SUBJECT = List.of(DIGITAL_MAIL, EMAIL, LETTER);
+
+	private BatchSummaryMapper() {
+		// Intentionally empty to prevent instantiation
+	}
+
+	/**
+	 * Maps the message to the summary of its batch, or returns null if the message isn't part of a batch. The subject
+	 * and attachment count are taken from the metadata extracted from the content. Since the batch is summarized as it is
+	 * received, before its messages are delivered, the subject is kept by the original message type.
+	 *
+	 * @param  message  the message
+	 * @param  metadata the metadata extracted from the content of the message
+	 * @return          the summary of the batch, or null
+	 */
+	public static BatchSummaryEntity toBatchSummaryEntity(final Message message, final HistoryMetadata metadata) {
+		if (message == null || message.batchId() == null) {
+			return null;
+		}
+
+		return BatchSummaryEntity.builder()
+			.withMunicipalityId(message.municipalityId())
+			.withBatchId(message.batchId())
+			.withIssuer(message.issuer())
+			.withOriginalMessageType(message.originalType())
+			.withSubject(TYPES_WITH_SUBJECT.contains(message.originalType()) ? metadata.subject() : null)
+			.withAttachmentCount(metadata.attachmentCount())
+			.withCreatedAt(LocalDateTime.now())
+			.build();
+	}
+}
@@ -1,22 +1,22 @@
 package se.sundsvall.messaging.integration.db.mapper;
 
-import com.google.gson.JsonParser;
 import java.time.LocalDateTime;
-import java.util.Collections;
-import org.springframework.data.domain.Page;
-import se.sundsvall.dept44.models.api.paging.PagingAndSortingMetaData;
 import se.sundsvall.messaging.api.model.response.Batch;
-import se.sundsvall.messaging.api.model.response.UserBatches;
 import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
+import se.sundsvall.messaging.integration.db.projection.HistoryExportProjection;
+import se.sundsvall.messaging.integration.db.projection.UserMessageHistoryProjection;
+import se.sundsvall.messaging.model.Address;
 import se.sundsvall.messaging.model.History;
+import se.sundsvall.messaging.model.HistoryExportEntry;
+import se.sundsvall.messaging.model.HistoryMetadata;
 import se.sundsvall.messaging.model.Message;
+import se.sundsvall.messaging.model.UserMessageHistory;
 
 import static java.util.Optional.ofNullable;
+import static se.sundsvall.messaging.util.JsonUtils.fromJson;
 
 public final class HistoryMapper {
 
-	private static final String DEPARTMENT = "department";
-
 	private HistoryMapper() {
 		// Intentionally empty to prevent instantiation
 	}
@@ -39,7 +39,7 @@ public final class HistoryMapper {
 			.build()).orElse(null);
 	}
 
-	public static HistoryEntity mapToHistoryEntity(final Message message, final String statusDetail) {
+	public static HistoryEntity mapToHistoryEntity(final Message message, final String statusDetail, final HistoryMetadata metadata) {
 		return ofNullable(message).map(actualMessage -> HistoryEntity.builder()
 			.withBatchId(actualMessage.batchId())
 			.withMessageId(actualMessage.messageId())
@@ -49,26 +49,56 @@ public final class HistoryMapper {
 			.withOriginalMessageType(actualMessage.originalType())
 			.withStatus(actualMessage.status())
 			.withStatusDetail(statusDetail)
-			.withContent(actualMessage.content())
+			// Shared content is referenced rather than stored with the history entry
+			.withContent(actualMessage.contentId() == null ? actualMessage.content() : null)
 			.withOrigin(actualMessage.origin())
 			.withIssuer(actualMessage.issuer())
-			.withDepartment(toDepartment(actualMessage.content()))
+			// The department is taken from the metadata, rather than parsing the content once more
+			.withDepartment(ofNullable(metadata).map(HistoryMetadata::department).orElse(null))
 			.withCreatedAt(LocalDateTime.now())
 			.withMunicipalityId(actualMessage.municipalityId())
 			.withDestinationAddress(actualMessage.address())
 			.withOrganizationNumber(actualMessage.organizationNumber())
 			.withDigitalMailTransactionId(actualMessage.digitalMailTransactionId())
+			.withMetadata(metadata)
 			.build()).orElse(null);
 	}
 
-	private static String toDepartment(final String content) {
-		if (null == content) {
-			return null;
-		}
-
-		final var jsonObject = JsonParser.parseString(content).getAsJsonObject();
+	public static UserMessageHistory toUserMessageHistory(final UserMessageHistoryProjection projection, final HistoryMetadata metadata) {
+		return UserMessageHistory.builder()
+			.withMessageId(projection.getMessageId())
+			.withPartyId(projection.getPartyId())
+			.withMessageType(projection.getMessageType())
+			.withStatus(projection.getStatus())
+			.withIssuer(projection.getIssuer())
+			.withOrigin(projection.getOrigin())
+			.withCreatedAt(projection.getCreatedAt())
+			.withDestinationAddress(fromJson(projection.getDestinationAddressJson(), Address.class))
+			.withMetadata(metadata)
+			.build();
+	}
 
-		return jsonObject.has(DEPARTMENT) ? jsonObject.get(DEPARTMENT).getAsString() : null;
+	/**
+	 * Maps an exported history entry, leaving out the content, which is only selected when requested.
+	 */
+	public static HistoryExportEntry toHistoryExportEntry(final HistoryExportProjection projection) {
+		return HistoryExportEntry.builder()
+			.withBatchId(projection.getBatchId())
+			.withMessageId(projection.getMessageId())
+			.withDeliveryId(projection.getDeliveryId())
+			.withPartyId(projection.getPartyId())
+			.withMessageType(projection.getMessageType())
+			.withOriginalMessageType(projection.getOriginalMessageType())
+			.withStatus(projection.getStatus())
+			.withOrigin(projection.getOrigin())
+			.withIssuer(projection.getIssuer())
+			.withDepartment(projection.getDepartment())
+			.withCreatedAt(projection.getCreatedAt())
+			.withOrganizationNumber(projection.getOrganizationNumber())
+			.withSubject(projection.getSubject())
+			.withDestination(projection.getDestination())
+			.withAttachmentCount(projection.getAttachmentCount())
+			.build();
 	}
 
 	public static Batch toBatch(final String batchId, final LocalDateTime sent, final String messageType, final String subject, final int attachmentCount, final int recipientCount, final Batch.Status status) {
@@ -89,11 +119,4 @@ public final class HistoryMapper {
 			.withUnsuccessful(unsuccessful)
 			.build();
 	}
-
-	public static UserBatches toUserBatches(final Page<Batch> pagedBatch, final int page) {
-		return UserBatches.builder()
-			.withBatches(pagedBatch.getTotalPages() < page ? Collections.emptyList() : pagedBatch.getContent())
-			.withMetaData(PagingAndSortingMetaData.create().withPageData(pagedBatch))
-			.build();
-	}
 }
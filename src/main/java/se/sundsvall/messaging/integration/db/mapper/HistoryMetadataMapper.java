@@ -0,0 +1,201 @@
+package se.sundsvall.messaging.integration.db.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import se.sundsvall.messaging.integration.db.projection.UserMessageHistoryProjection;
+import se.sundsvall.messaging.model.HistoryMetadata;
+import se.sundsvall.messaging.model.MessageType;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.type.TypeReference;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.truncate;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor.decodedSize;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor.isReference;
+import static se.sundsvall.messaging.util.JsonUtils.createParser;
+import static se.sundsvall.messaging.util.JsonUtils.fromJson;
+import static tools.jackson.core.JsonToken.END_ARRAY;
+import static tools.jackson.core.JsonToken.PROPERTY_NAME;
+import static tools.jackson.core.JsonToken.START_ARRAY;
+import static tools.jackson.core.JsonToken.START_OBJECT;
+
+public final class HistoryMetadataMapper {
+
+	private static final HistoryMetadata EMPTY = HistoryMetadata.builder().build();
+	private static final int SUBJECT_MAX_LENGTH = 1000;
+	private static final int DESTINATION_MAX_LENGTH = 255;
+
+	private HistoryMetadataMapper() {
+		// Intentionally empty to prevent instantiation
+	}
+
+	/**
+	 * Maps the metadata stored with a history entry, or returns null if it hasn't been extracted yet.
+	 */
+	public static HistoryMetadata toHistoryMetadata(final UserMessageHistoryProjection projection) {
+		if (!Boolean.TRUE.equals(projection.getMetadataExtracted())) {
+			return null;
+		}
+
+		return HistoryMetadata.builder()
+			.withSubject(projection.getSubject())
+			.withBody(projection.getBody())
+			.withDestination(projection.getDestination())
+			.withAttachments(fromJson(projection.getAttachmentsJson(), new TypeReference<List<HistoryMetadata.Attachment>>() {}))
+			.build();
+	}
+
+	/**
+	 * Extracts the metadata of a history entry from its content, leaving out the sizes of attachments moved to the
+	 * attachment store.
+	 *
+	 * @param  messageType the message type of the history entry
+	 * @param  content     the content of the history entry
+	 * @return             the metadata
+	 */
+	public static HistoryMetadata toHistoryMetadata(final MessageType messageType, final String content) {
+		return toHistoryMetadata(messageType, content, null);
+	}
+
+	/**
+	 * Extracts the metadata of a history entry from its content, in a single pass with a streaming parser. Attachment
+	 * contents are skipped, apart from measuring their size. Content that is missing or isn't valid JSON has no metadata.
+	 *
+	 * @param  messageType   the message type of the history entry
+	 * @param  content       the content of the history entry
+	 * @param  referenceSize returns the size of an attachment moved to the attachment store, given its reference, or
+	 *                       null to leave such sizes out
+	 * @return               the metadata
+	 */
+	public static HistoryMetadata toHistoryMetadata(final MessageType messageType, final String content, final ToLongFunction<String> referenceSize) {
+		if (messageType == null || isBlank(content)) {
+			return EMPTY;
+		}
+
+		final var attachmentsField = getAttachmentsField(messageType);
+		final var metadata = HistoryMetadata.builder();
+		try (final var parser = createParser(content)) {
+			if (parser.nextToken() != START_OBJECT) {
+				return EMPTY;
+			}
+			while (parser.nextToken() == PROPERTY_NAME) {
+				final var field = parser.currentName();
+				final var token = parser.nextToken();
+				if (token == START_ARRAY && field.equals(attachmentsField)) {
+					metadata.withAttachments(readAttachments(parser, messageType, referenceSize));
+				} else if (!token.isScalarValue()) {
+					parser.skipChildren();
+				} else {
+					switch (field) {
+						case "subject" -> metadata.withSubject(truncate(parser.getValueAsString(), SUBJECT_MAX_LENGTH));
+						case "message" -> metadata.withBody(parser.getValueAsString());
+						case "mobileNumber", "emailAddress" -> metadata.withDestination(truncate(parser.getValueAsString(), DESTINATION_MAX_LENGTH));
+						case "department" -> metadata.withDepartment(parser.getValueAsString());
+						default -> {
+							// Not part of the metadata
+						}
+					}
+				}
+			}
+		} catch (final JacksonException e) {
+			return EMPTY;
+		}
+		return metadata.build();
+	}
+
+	private static List<HistoryMetadata.Attachment> readAttachments(final JsonParser parser, final MessageType messageType, final ToLongFunction<String> referenceSize) {
+		final var fileNameField = getFileNameField(messageType);
+		final var contentTypeField = getContentTypeField(messageType);
+
+		final var attachments = new ArrayList<HistoryMetadata.Attachment>();
+		JsonToken token;
+		while ((token = parser.nextToken()) != END_ARRAY) {
+			if (token != START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+
+			String name = null;
+			String contentType = null;
+			Long size = null;
+			while (parser.nextToken() == PROPERTY_NAME) {
+				final var field = parser.currentName();
+				if (!parser.nextToken().isScalarValue()) {
+					parser.skipChildren();
+				} else if (field.equals(fileNameField)) {
+					name = parser.getValueAsString();
+				} else if (field.equals(contentTypeField)) {
+					contentType = parser.getValueAsString();
+				} else if ("content".equals(field) || "base64Data".equals(field)) {
+					size = toSize(parser.getValueAsString(), referenceSize);
+				}
+			}
+			attachments.add(new HistoryMetadata.Attachment(name, contentType, size));
+		}
+		return attachments;
+	}
+
+	private static Long toSize(final String content, final ToLongFunction<String> referenceSize) {
+		if (content == null) {
+			return null;
+		}
+		if (!isReference(content)) {
+			return decodedSize(content);
+		}
+		if (referenceSize == null) {
+			return null;
+		}
+		try {
+			return referenceSize.applyAsLong(content);
+		} catch (final RuntimeException e) {
+			// The size is left out rather than failing the whole entry
+			return null;
+		}
+	}
+
+	/**
+	 * Get the attachments field name for the given message type.
+	 *
+	 * @param  messageType messageType to get the attachments field for
+	 * @return             the attachments field name
+	 */
+	public static String getAttachmentsField(final MessageType messageType) {
+		return switch (messageType) {
+			case DIGITAL_MAIL, EMAIL, LETTER, SNAIL_MAIL, WEB_MESSAGE -> "attachments";
+			case DIGITAL_INVOICE -> "files";
+			default -> null; // SMS, MESSAGE and SLACK
+		};
+	}
+
+	/**
+	 * Get the name field name for the given message type.
+	 *
+	 * @param  messageType messageType to get the name field for
+	 * @return             the name field name
+	 */
+	public static String getFileNameField(final MessageType messageType) {
+		return switch (messageType) {
+			case DIGITAL_INVOICE, DIGITAL_MAIL, LETTER, SNAIL_MAIL -> "filename";
+			case EMAIL -> "name";
+			case WEB_MESSAGE -> "fileName";
+			default -> null; // SMS, MESSAGE and SLACK
+		};
+	}
+
+	/**
+	 * Get the content type field name for the given message type.
+	 *
+	 * @param  messageType messageType to get the content type field name for
+	 * @return             the content type field name
+	 */
+	public static String getContentTypeField(final MessageType messageType) {
+		return switch (messageType) {
+			case DIGITAL_INVOICE, DIGITAL_MAIL, EMAIL, LETTER, SNAIL_MAIL -> "contentType";
+			case WEB_MESSAGE -> "mimeType";
+			default -> null; // SMS, MESSAGE and SLACK
+		};
+	}
+}
@@ -20,10 +20,12 @@ public final class MessageMapper {
 			.withOriginalType(actualMessageEntity.getOriginalMessageType())
 			.withStatus(actualMessageEntity.getStatus())
 			.withContent(actualMessageEntity.getContent())
+			.withContentId(actualMessageEntity.getContentId())
 			.withOrigin(actualMessageEntity.getOrigin())
 			.withIssuer(actualMessageEntity.getIssuer())
 			.withAddress(messageEntity.getDestinationAddress())
 			.withOrganizationNumber(actualMessageEntity.getOrganizationNumber())
+			.withDigitalMailTransactionId(actualMessageEntity.getDigitalMailTransactionId())
 			.build()).orElse(null);
 	}
 
@@ -37,7 +39,6 @@ public final class MessageMapper {
 			.withType(actualMessage.type())
 			.withOriginalMessageType(actualMessage.originalType())
 			.withStatus(actualMessage.status())
-			.withContent(actualMessage.content())
 			.withOrigin(actualMessage.origin())
 			.withIssuer(actualMessage.issuer())
 			.withDestinationAddress(actualMessage.address())
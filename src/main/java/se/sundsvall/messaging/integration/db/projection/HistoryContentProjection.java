@@ -0,0 +1,15 @@
+package se.sundsvall.messaging.integration.db.projection;
+
+import se.sundsvall.messaging.model.MessageType;
+
+public interface HistoryContentProjection {
+
+	Long getId();
+
+	MessageType getMessageType();
+
+	/**
+	 * The content of the history entry, either its own or the content shared with other entries.
+	 */
+	String getContent();
+}
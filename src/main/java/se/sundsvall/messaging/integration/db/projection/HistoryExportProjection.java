@@ -0,0 +1,47 @@
+package se.sundsvall.messaging.integration.db.projection;
+
+import java.time.LocalDateTime;
+import se.sundsvall.messaging.model.MessageStatus;
+import se.sundsvall.messaging.model.MessageType;
+
+/**
+ * Interface used when exporting history. The content is only selected when requested, since it dominates the size of
+ * an entry.
+ */
+public interface HistoryExportProjection {
+
+	String getBatchId();
+
+	String getMessageId();
+
+	String getDeliveryId();
+
+	String getPartyId();
+
+	MessageType getMessageType();
+
+	MessageType getOriginalMessageType();
+
+	MessageStatus getStatus();
+
+	String getOrigin();
+
+	String getIssuer();
+
+	String getDepartment();
+
+	LocalDateTime getCreatedAt();
+
+	String getOrganizationNumber();
+
+	String getSubject();
+
+	String getDestination();
+
+	Integer getAttachmentCount();
+
+	/**
+	 * Returns the content, either stored inline or shared with other entries, or null if it wasn't selected.
+	 */
+	String getContent();
+}
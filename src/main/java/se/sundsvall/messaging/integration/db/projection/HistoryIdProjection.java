@@ -0,0 +1,12 @@
+package se.sundsvall.messaging.integration.db.projection;
+
+import se.sundsvall.messaging.model.MessageType;
+
+public interface HistoryIdProjection {
+
+	Long getId();
+
+	MessageType getMessageType();
+
+	String getAttachmentsJson();
+}
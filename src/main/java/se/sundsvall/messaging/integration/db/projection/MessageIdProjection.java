@@ -1,6 +1,18 @@
 package se.sundsvall.messaging.integration.db.projection;
 
+import java.time.LocalDateTime;
+
 public interface MessageIdProjection {
 
 	String getMessageId();
+
+	/**
+	 * The creation time of the first history entry of the message.
+	 */
+	LocalDateTime getCreatedAt();
+
+	/**
+	 * The id of the first history entry of the message.
+	 */
+	Long getId();
 }
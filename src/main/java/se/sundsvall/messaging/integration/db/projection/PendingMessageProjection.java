@@ -0,0 +1,19 @@
+package se.sundsvall.messaging.integration.db.projection;
+
+import se.sundsvall.messaging.model.MessageType;
+
+/**
+ * Interface used when claiming pending messages for delivery
+ */
+public interface PendingMessageProjection {
+
+	Long getId();
+
+	String getDeliveryId();
+
+	MessageType getType();
+
+	String getMunicipalityId();
+
+	String getOrigin();
+}
@@ -0,0 +1,40 @@
+package se.sundsvall.messaging.integration.db.projection;
+
+import java.time.LocalDateTime;
+import se.sundsvall.messaging.model.MessageStatus;
+import se.sundsvall.messaging.model.MessageType;
+
+/**
+ * Interface used when reading data to build user message response, without the content
+ */
+
+public interface UserMessageHistoryProjection {
+
+	Long getId();
+
+	String getMessageId();
+
+	String getPartyId();
+
+	MessageType getMessageType();
+
+	MessageStatus getStatus();
+
+	String getIssuer();
+
+	String getOrigin();
+
+	LocalDateTime getCreatedAt();
+
+	String getDestinationAddressJson();
+
+	String getSubject();
+
+	String getBody();
+
+	String getDestination();
+
+	String getAttachmentsJson();
+
+	Boolean getMetadataExtracted();
+}
@@ -3,9 +3,11 @@ package se.sundsvall.messaging.integration.db.specification;
 import java.time.LocalDate;
 import org.springframework.data.jpa.domain.Specification;
 import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
+import se.sundsvall.messaging.util.ContinuationToken;
 
 import static java.lang.Boolean.TRUE;
 import static se.sundsvall.messaging.integration.db.entity.HistoryEntity_.CREATED_AT;
+import static se.sundsvall.messaging.integration.db.entity.HistoryEntity_.ID;
 import static se.sundsvall.messaging.integration.db.entity.HistoryEntity_.MUNICIPALITY_ID;
 import static se.sundsvall.messaging.integration.db.entity.HistoryEntity_.PARTY_ID;
 
@@ -37,9 +39,23 @@ public interface HistorySpecification {
 		return (entity, cq, cb) -> cb.equal(entity.get(MUNICIPALITY_ID), municipalityId);
 	}
 
+	/**
+	 * Matches the entries following the given position when ordered by {@link #orderByCreatedAtDesc(Specification)}.
+	 */
+	static Specification<HistoryEntity> withCursor(final ContinuationToken cursor) {
+		if (cursor == null) {
+			return FALLBACK;
+		}
+
+		return (entity, cq, cb) -> cb.or(
+			cb.lessThan(entity.get(CREATED_AT), cursor.createdAt()),
+			cb.and(cb.equal(entity.get(CREATED_AT), cursor.createdAt()), cb.lessThan(entity.get(ID), cursor.id())));
+	}
+
 	static Specification<HistoryEntity> orderByCreatedAtDesc(final Specification<HistoryEntity> specification) {
 		return (entity, cq, cb) -> {
-			cq.orderBy(cb.desc(entity.get(CREATED_AT)));
+			// The id breaks ties, making the order stable for keyset pagination
+			cq.orderBy(cb.desc(entity.get(CREATED_AT)), cb.desc(entity.get(ID)));
 
 			return specification.toPredicate(entity, cq, cb);
 		};
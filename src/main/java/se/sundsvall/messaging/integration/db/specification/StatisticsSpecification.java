@@ -10,6 +10,8 @@ public interface StatisticsSpecification {
 
 	SpecificationBuilder<StatisticEntity> BUILDER = new SpecificationBuilder<>();
 	String ORIGINAL_MESSAGE_TYPE = "originalMessageType";
+	String MESSAGE_TYPE = "messageType";
+	String STATUS = "status";
 	String MUNICIPALITY_ID = "municipalityId";
 	String ORIGIN = "origin";
 	String DEPARTMENT = "department";
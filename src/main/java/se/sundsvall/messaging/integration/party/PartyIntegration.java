@@ -1,25 +1,82 @@
 package se.sundsvall.messaging.integration.party;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import generated.se.sundsvall.party.PartyType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.configuration.PartyCacheProperties;
 
+import static generated.se.sundsvall.party.PartyType.ENTERPRISE;
+import static generated.se.sundsvall.party.PartyType.PRIVATE;
+import static java.util.Optional.ofNullable;
+
+/**
+ * Resolves legal ids from party ids. Resolved legal ids are cached, together with the party type they were found for,
+ * so that a refresh of a cached legal id asks for the known party type first.
+ */
 @Component
-@EnableConfigurationProperties(PartyIntegrationProperties.class)
+@EnableConfigurationProperties({
+	PartyIntegrationProperties.class, PartyCacheProperties.class
+})
 public class PartyIntegration {
 
 	static final String INTEGRATION_NAME = "Party";
 
+	static final String CACHE_NAME = "party.legal-id";
+
 	private final PartyClient client;
 
-	public PartyIntegration(final PartyClient client) {
+	private final LoadingCache<CacheKey, PartyLegalId> legalIds;
+
+	public PartyIntegration(final PartyClient client, final PartyCacheProperties cacheProperties, final MeterRegistry meterRegistry) {
 		this.client = client;
+		this.legalIds = Caffeine.newBuilder()
+			.maximumSize(cacheProperties.maximumSize())
+			.refreshAfterWrite(cacheProperties.refreshAfter())
+			.expireAfterWrite(cacheProperties.timeToLive())
+			// Refreshes are done in the calling thread, since the request id and identifier needed by the client are thread-bound
+			.executor(Runnable::run)
+			.recordStats()
+			.build(new LegalIdLoader());
+
+		CaffeineCacheMetrics.monitor(meterRegistry, legalIds, CACHE_NAME);
 	}
 
 	public String getLegalIdByPartyId(final String municipalityId, final String partyId) {
-		return client.getLegalIdByPartyId(municipalityId, PartyType.PRIVATE, partyId)
-			.orElseGet(() -> client.getLegalIdByPartyId(municipalityId, PartyType.ENTERPRISE, partyId)
-				.orElse(null));
+		return ofNullable(legalIds.get(new CacheKey(municipalityId, partyId)))
+			.map(PartyLegalId::legalId)
+			.orElse(null);
+	}
+
+	private PartyLegalId resolve(final CacheKey key, final PartyType... partyTypes) {
+		for (final var partyType : partyTypes) {
+			final var legalId = client.getLegalIdByPartyId(key.municipalityId(), partyType, key.partyId());
+			if (legalId.isPresent()) {
+				return new PartyLegalId(partyType, legalId.get());
+			}
+		}
+		// Party ids that could not be resolved are not cached
+		return null;
 	}
 
+	private class LegalIdLoader implements CacheLoader<CacheKey, PartyLegalId> {
+
+		@Override
+		public PartyLegalId load(final CacheKey key) {
+			return resolve(key, PRIVATE, ENTERPRISE);
+		}
+
+		@Override
+		public PartyLegalId reload(final CacheKey key, final PartyLegalId oldValue) {
+			return oldValue.partyType() == ENTERPRISE ? resolve(key, ENTERPRISE, PRIVATE) : resolve(key, PRIVATE, ENTERPRISE);
+		}
+	}
+
+	private record CacheKey(String municipalityId, String partyId) {}
+
+	private record PartyLegalId(PartyType partyType, String legalId) {}
 }
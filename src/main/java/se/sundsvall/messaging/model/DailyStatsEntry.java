@@ -0,0 +1,18 @@
+package se.sundsvall.messaging.model;
+
+import java.time.LocalDate;
+import lombok.Builder;
+
+/**
+ * Number of deliveries on a day with the same original message type, message type, status, origin and department.
+ */
+@Builder(setterPrefix = "with")
+public record DailyStatsEntry(
+	LocalDate day,
+	MessageType originalMessageType,
+	MessageType messageType,
+	MessageStatus status,
+	String origin,
+	String department,
+	long count) {
+}
@@ -0,0 +1,43 @@
+package se.sundsvall.messaging.model;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import lombok.Builder;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+
+/**
+ * The day, municipality, origin, department, original message type, message type and status a history entry is
+ * counted under in the daily statistics. A missing origin or department is given as an empty string, as it is stored.
+ * Keys are ordered as the unique key of the daily statistics, so that counting them in order locks the rows in the same
+ * order whoever counts them.
+ */
+@Builder(setterPrefix = "with")
+public record DailyStatsKey(
+	String municipalityId,
+	LocalDate day,
+	String origin,
+	String department,
+	MessageType originalMessageType,
+	MessageType messageType,
+	MessageStatus status) implements Comparable<DailyStatsKey> {
+
+	private static final Comparator<DailyStatsKey> ORDER = Comparator.comparing(DailyStatsKey::municipalityId, nullsFirst(naturalOrder()))
+		.thenComparing(DailyStatsKey::day, nullsFirst(naturalOrder()))
+		.thenComparing(DailyStatsKey::origin)
+		.thenComparing(DailyStatsKey::department)
+		.thenComparing(DailyStatsKey::originalMessageType, nullsFirst(naturalOrder()))
+		.thenComparing(DailyStatsKey::messageType, nullsFirst(naturalOrder()))
+		.thenComparing(DailyStatsKey::status, nullsFirst(naturalOrder()));
+
+	public DailyStatsKey {
+		origin = origin == null ? "" : origin;
+		department = department == null ? "" : department;
+	}
+
+	@Override
+	public int compareTo(final DailyStatsKey other) {
+		return ORDER.compare(this, other);
+	}
+}
@@ -0,0 +1,27 @@
+package se.sundsvall.messaging.model;
+
+/**
+ * Formats that history and statistics can be exported in.
+ */
+public enum ExportFormat {
+	/** One JSON object per line, leaving out empty values */
+	NDJSON("application/x-ndjson", "ndjson"),
+	/** Comma separated values with a header row, as described in RFC 4180 */
+	CSV("text/csv", "csv");
+
+	private final String mediaType;
+	private final String fileExtension;
+
+	ExportFormat(final String mediaType, final String fileExtension) {
+		this.mediaType = mediaType;
+		this.fileExtension = fileExtension;
+	}
+
+	public String getMediaType() {
+		return mediaType;
+	}
+
+	public String getFileExtension() {
+		return fileExtension;
+	}
+}
@@ -0,0 +1,29 @@
+package se.sundsvall.messaging.model;
+
+import java.time.LocalDateTime;
+import lombok.Builder;
+import lombok.With;
+
+/**
+ * A history entry as exported, with the metadata extracted from its content and, if requested, the content itself.
+ */
+@With
+@Builder(setterPrefix = "with")
+public record HistoryExportEntry(
+	String batchId,
+	String messageId,
+	String deliveryId,
+	String partyId,
+	MessageType messageType,
+	MessageType originalMessageType,
+	MessageStatus status,
+	String origin,
+	String issuer,
+	String department,
+	LocalDateTime createdAt,
+	String organizationNumber,
+	String subject,
+	String destination,
+	Integer attachmentCount,
+	String content) {
+}
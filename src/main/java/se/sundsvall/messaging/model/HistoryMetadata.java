@@ -0,0 +1,45 @@
+package se.sundsvall.messaging.model;
+
+import java.util.List;
+import lombok.Builder;
+
+/**
+ * The metadata of a history entry, extracted from its content when archived, so that it can be listed without reading
+ * the content.
+ *
+ * @param subject     the subject
+ * @param body        the message body
+ * @param destination the mobile number or e-mail address the message was sent to
+ * @param attachments the attachments, without their contents
+ * @param department  the department, stored with the history entry as a column of its own and counted in the daily
+ *                    statistics, rather than listed
+ */
+@Builder(setterPrefix = "with")
+public record HistoryMetadata(
+	String subject,
+	String body,
+	String destination,
+	List<Attachment> attachments,
+	String department) {
+
+	public HistoryMetadata {
+		attachments = attachments == null ? List.of() : List.copyOf(attachments);
+	}
+
+	public int attachmentCount() {
+		return attachments.size();
+	}
+
+	/**
+	 * An entry of the attachment manifest.
+	 *
+	 * @param name        the file name
+	 * @param contentType the content type
+	 * @param size        the size of the content in bytes, or null if unknown
+	 */
+	public record Attachment(
+		String name,
+		String contentType,
+		Long size) {
+	}
+}
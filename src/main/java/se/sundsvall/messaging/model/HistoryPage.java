@@ -0,0 +1,13 @@
+package se.sundsvall.messaging.model;
+
+import java.util.List;
+import lombok.Builder;
+
+/**
+ * A page of history, with the token to fetch the next page with, or null if there is no next page.
+ */
+@Builder(setterPrefix = "with")
+public record HistoryPage(
+	List<History> history,
+	String continuationToken) {
+}
@@ -3,6 +3,10 @@ package se.sundsvall.messaging.model;
 import lombok.Builder;
 import lombok.With;
 
+/**
+ * @param contentId the id of the stored content of the message, possibly shared with other messages, e.g. in a batch,
+ *                  or null when the content hasn't been stored
+ */
 @With
 @Builder(setterPrefix = "with")
 public record Message(
@@ -15,8 +19,19 @@ public record Message(
 	MessageStatus status,
 	Address address,
 	String content,
+	Long contentId,
 	String origin,
 	String issuer,
 	String municipalityId,
 	String organizationNumber,
-	String digitalMailTransactionId) {}
+	String digitalMailTransactionId) {
+
+	/**
+	 * Returns a copy of this message with the given content. Since the content no longer is the shared one, the
+	 * content id is cleared.
+	 */
+	public Message withContent(final String content) {
+		return new Message(batchId, messageId, deliveryId, partyId, type, originalType, status, address, content, null,
+			origin, issuer, municipalityId, organizationNumber, digitalMailTransactionId);
+	}
+}
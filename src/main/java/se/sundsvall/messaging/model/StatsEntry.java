@@ -0,0 +1,16 @@
+package se.sundsvall.messaging.model;
+
+import lombok.Builder;
+
+/**
+ * Number of deliveries with the same original message type, message type, status, origin and department.
+ */
+@Builder(setterPrefix = "with")
+public record StatsEntry(
+	MessageType originalMessageType,
+	MessageType messageType,
+	MessageStatus status,
+	String origin,
+	String department,
+	long count) {
+}
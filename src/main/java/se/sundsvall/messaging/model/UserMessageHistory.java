@@ -0,0 +1,17 @@
+package se.sundsvall.messaging.model;
+
+import java.time.LocalDateTime;
+import lombok.Builder;
+
+@Builder(setterPrefix = "with")
+public record UserMessageHistory(
+	String messageId,
+	String partyId,
+	MessageType messageType,
+	MessageStatus status,
+	String issuer,
+	String origin,
+	LocalDateTime createdAt,
+	Address destinationAddress,
+	HistoryMetadata metadata) {
+}
@@ -0,0 +1,47 @@
+package se.sundsvall.messaging.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.configuration.AttachmentCleanupProperties;
+import se.sundsvall.messaging.integration.attachmentstore.AttachmentStore;
+
+/**
+ * Removes attachment contents that are no longer referenced by any message content, batch by batch until there are none
+ * left. Attachment contents become unreferenced as the message content referencing them is removed.
+ */
+@Component
+@EnableConfigurationProperties(AttachmentCleanupProperties.class)
+class AttachmentCleanupScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AttachmentCleanupScheduler.class);
+
+	private final AttachmentStore attachmentStore;
+
+	private final AttachmentCleanupProperties properties;
+
+	AttachmentCleanupScheduler(final AttachmentStore attachmentStore, final AttachmentCleanupProperties properties) {
+		this.attachmentStore = attachmentStore;
+		this.properties = properties;
+	}
+
+	@Scheduled(initialDelayString = "${messaging.attachment-cleanup.interval:PT1H}", fixedDelayString = "${messaging.attachment-cleanup.interval:PT1H}")
+	void cleanup() {
+		if (!properties.enabled()) {
+			return;
+		}
+
+		var total = 0;
+		int deleted;
+		do {
+			deleted = attachmentStore.deleteUnreferenced(properties.minAge(), properties.batchSize());
+			total += deleted;
+		} while (deleted == properties.batchSize());
+
+		if (total > 0) {
+			LOG.info("Removed {} unreferenced attachment content(s)", total);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package se.sundsvall.messaging.service;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.integration.db.projection.BatchHistoryProjection;
+
+import static java.util.Collections.emptyList;
+import static java.util.Optional.ofNullable;
+import static se.sundsvall.messaging.model.MessageStatus.SENT;
+
+@Component
+public class BatchStatusAggregator {
+
+	/**
+	 * Status of the messages in a batch.
+	 *
+	 * @param recipientCount      total amount of message recipients in the batch
+	 * @param successfulCount     amount of messages with at least one successful transmission
+	 * @param unsuccessfulCount   amount of messages without any successful transmission
+	 * @param sent                timestamp of the first successful transmission, or of the first transmission if none
+	 *                            was successful (or null if no timestamp at all is present)
+	 * @param originalMessageType the first non null original message type (all members have the same original message
+	 *                            type), or null if no member has a value for the attribute
+	 */
+	public record BatchStatus(int recipientCount, int successfulCount, int unsuccessfulCount, LocalDateTime sent, String originalMessageType) {}
+
+	/**
+	 * Calculates the status of the messages in a batch in a single pass over its transmissions. Each message id is given
+	 * an index the first time it is seen, and the messages with a successful transmission are tracked by index, so the
+	 * work grows linearly with the size of the batch.
+	 *
+	 * @param  projections Transmissions of the messages in the batch.
+	 * @return             The status of the batch.
+	 */
+	public BatchStatus aggregate(final List<BatchHistoryProjection> projections) {
+		final var messageIndexes = new HashMap<String, Integer>();
+		final var successfulMessages = new BitSet();
+		LocalDateTime firstSent = null;
+		LocalDateTime firstCreated = null;
+		String originalMessageType = null;
+
+		for (final var projection : ofNullable(projections).orElse(emptyList())) {
+			var index = messageIndexes.get(projection.getMessageId());
+			if (index == null) {
+				index = messageIndexes.size();
+				messageIndexes.put(projection.getMessageId(), index);
+			}
+
+			if (SENT == projection.getStatus()) {
+				successfulMessages.set(index);
+				if (firstSent == null) {
+					firstSent = projection.getCreatedAt();
+				}
+			}
+			if (firstCreated == null) {
+				firstCreated = projection.getCreatedAt();
+			}
+			if (originalMessageType == null && projection.getOriginalMessageType() != null) {
+				originalMessageType = projection.getOriginalMessageType().name();
+			}
+		}
+
+		final var recipientCount = messageIndexes.size();
+		final var successfulCount = successfulMessages.cardinality();
+
+		return new BatchStatus(recipientCount, successfulCount, recipientCount - successfulCount, firstSent != null ? firstSent : firstCreated, originalMessageType);
+	}
+}
@@ -0,0 +1,65 @@
+package se.sundsvall.messaging.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.configuration.BatchTrackingProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+import se.sundsvall.messaging.integration.db.entity.BatchTrackingEntity;
+import se.sundsvall.messaging.integration.snailmailsender.SnailMailSenderIntegration;
+
+/**
+ * Triggers the asynchronous letter batches that were never triggered by their last delivered letter, e.g. since a
+ * letter of them was deleted without being delivered, once no letter of them is left to deliver. Tracking of batches
+ * older than the retention is removed, triggered or not.
+ */
+@Component
+@EnableConfigurationProperties(BatchTrackingProperties.class)
+class BatchTrackingScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BatchTrackingScheduler.class);
+
+	private final DbIntegration dbIntegration;
+
+	private final SnailMailSenderIntegration snailMailSenderIntegration;
+
+	private final BatchTrackingProperties properties;
+
+	BatchTrackingScheduler(final DbIntegration dbIntegration, final SnailMailSenderIntegration snailMailSenderIntegration, final BatchTrackingProperties properties) {
+		this.dbIntegration = dbIntegration;
+		this.snailMailSenderIntegration = snailMailSenderIntegration;
+		this.properties = properties;
+	}
+
+	@Scheduled(initialDelayString = "${messaging.batch-tracking.interval:PT10M}", fixedDelayString = "${messaging.batch-tracking.interval:PT10M}")
+	void triggerStaleBatches() {
+		if (!properties.enabled()) {
+			return;
+		}
+
+		dbIntegration.getStaleBatches(properties.staleAfter(), properties.batchSize()).stream()
+			.filter(batch -> !dbIntegration.existsByBatchId(batch.getBatchId()))
+			.filter(batch -> dbIntegration.markStaleBatchTriggered(batch.getBatchId()))
+			.forEach(this::trigger);
+
+		final var deleted = dbIntegration.deleteBatchTracking(properties.retention());
+		if (deleted > 0) {
+			LOG.info("Removed the tracking of {} batch(es)", deleted);
+		}
+	}
+
+	private void trigger(final BatchTrackingEntity batch) {
+		if (batch.getSentSnailMailCount() == 0) {
+			LOG.info("Not triggering stale batch {}, since no snail-mail was sent in it", batch.getBatchId());
+		} else {
+			LOG.info("Triggering stale batch {} with {} letter(s) left uncounted", batch.getBatchId(), batch.getRemaining());
+			try {
+				snailMailSenderIntegration.sendBatch(batch.getMunicipalityId(), batch.getBatchId());
+			} catch (final RuntimeException e) {
+				LOG.error("Unable to trigger stale batch {}", batch.getBatchId(), e);
+			}
+		}
+	}
+}
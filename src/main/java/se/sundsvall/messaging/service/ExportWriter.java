@@ -0,0 +1,127 @@
+package se.sundsvall.messaging.service;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+import se.sundsvall.messaging.model.ExportFormat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static org.apache.commons.lang3.StringUtils.containsAny;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static se.sundsvall.messaging.model.ExportFormat.CSV;
+import static se.sundsvall.messaging.util.JsonUtils.toJson;
+
+/**
+ * Writes the rows of an export to a response as they are given, as NDJSON or CSV, so that the rows never have to be
+ * held in memory all at once.
+ *
+ * @param <T> the type of the rows
+ */
+final class ExportWriter<T> implements Closeable {
+
+	private static final String CSV_LINE_SEPARATOR = "\r\n";
+
+	private final ExportFormat format;
+	private final List<Column<T>> columns;
+	private final Writer writer;
+
+	private ExportWriter(final ExportFormat format, final List<Column<T>> columns, final Writer writer) {
+		this.format = format;
+		this.columns = columns;
+		this.writer = writer;
+	}
+
+	/**
+	 * Sets up the response for an export as an attachment, and writes the header row if the format has one.
+	 *
+	 * @param  format      the format of the export
+	 * @param  response    the response to write the export to
+	 * @param  fileName    the name of the exported file, without extension
+	 * @param  columns     the columns of the rows, in order
+	 * @return             a writer, to be closed by the caller once all rows are written
+	 * @throws IOException if the header row can't be written
+	 */
+	static <T> ExportWriter<T> create(final ExportFormat format, final HttpServletResponse response, final String fileName, final List<Column<T>> columns) throws IOException {
+		response.setContentType(format.getMediaType());
+		response.setCharacterEncoding(UTF_8.name());
+		response.addHeader(CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "." + format.getFileExtension() + "\"");
+
+		final var exportWriter = new ExportWriter<>(format, columns, new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), UTF_8)));
+		if (format == CSV) {
+			exportWriter.writeCsvLine(columns.stream().map(Column::name).toList());
+		}
+		return exportWriter;
+	}
+
+	/**
+	 * Writes a row.
+	 *
+	 * @param  row                  the row
+	 * @throws UncheckedIOException if the row can't be written, since rows are typically written from a stream
+	 */
+	void write(final T row) {
+		try {
+			if (format == CSV) {
+				writeCsvLine(columns.stream().map(column -> column.value().apply(row)).toList());
+			} else {
+				writeNdjsonLine(row);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Flushes the rows written, leaving the response to be closed by the container.
+	 */
+	@Override
+	public void close() throws IOException {
+		writer.flush();
+	}
+
+	private void writeNdjsonLine(final T row) throws IOException {
+		final var values = new LinkedHashMap<String, Object>();
+		for (final var column : columns) {
+			final var value = column.value().apply(row);
+			if (value != null) {
+				values.put(column.name(), value);
+			}
+		}
+		writer.write(toJson(values));
+		writer.write('\n');
+	}
+
+	private void writeCsvLine(final List<?> values) throws IOException {
+		writer.write(values.stream().map(ExportWriter::toCsvField).collect(joining(",")));
+		writer.write(CSV_LINE_SEPARATOR);
+	}
+
+	/**
+	 * Formats a value as a CSV field, quoted if it contains a separator, a quote or a line break.
+	 */
+	static String toCsvField(final Object value) {
+		if (value == null) {
+			return "";
+		}
+
+		final var text = value.toString();
+		return containsAny(text, ',', '"', '\r', '\n') ? "\"" + text.replace("\"", "\"\"") + "\"" : text;
+	}
+
+	/**
+	 * A column of an export.
+	 *
+	 * @param name  the name of the column, used as property name in NDJSON and in the header row of CSV
+	 * @param value returns the value of the column for a row, or null if the row has no value
+	 */
+	record Column<T>(String name, Function<T, Object> value) {
+	}
+}
@@ -0,0 +1,48 @@
+package se.sundsvall.messaging.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.configuration.HistoryMetadataBackfillProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+
+/**
+ * Extracts the metadata of history saved before the metadata was extracted when saving it, batch by batch until there
+ * is none left. Instances running it at the same time may extract the same entries, which is harmless since the result
+ * is the same.
+ */
+@Component
+@EnableConfigurationProperties(HistoryMetadataBackfillProperties.class)
+class HistoryMetadataBackfillScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HistoryMetadataBackfillScheduler.class);
+
+	private final DbIntegration dbIntegration;
+
+	private final HistoryMetadataBackfillProperties properties;
+
+	HistoryMetadataBackfillScheduler(final DbIntegration dbIntegration, final HistoryMetadataBackfillProperties properties) {
+		this.dbIntegration = dbIntegration;
+		this.properties = properties;
+	}
+
+	@Scheduled(initialDelayString = "${messaging.history-metadata-backfill.interval:PT5M}", fixedDelayString = "${messaging.history-metadata-backfill.interval:PT5M}")
+	void backfill() {
+		if (!properties.enabled()) {
+			return;
+		}
+
+		var total = 0;
+		int extracted;
+		do {
+			extracted = dbIntegration.backfillHistoryMetadata(properties.batchSize());
+			total += extracted;
+		} while (extracted == properties.batchSize());
+
+		if (total > 0) {
+			LOG.info("Extracted the metadata of {} history entries", total);
+		}
+	}
+}
@@ -3,16 +3,20 @@ package se.sundsvall.messaging.service;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Serial;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.hc.client5.http.utils.Base64;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StreamUtils;
 import se.sundsvall.dept44.models.api.paging.PagingMetaData;
@@ -21,51 +25,107 @@ import se.sundsvall.messaging.api.model.response.Batch;
 import se.sundsvall.messaging.api.model.response.UserBatches;
 import se.sundsvall.messaging.api.model.response.UserMessage;
 import se.sundsvall.messaging.api.model.response.UserMessages;
+import se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor;
 import se.sundsvall.messaging.integration.db.DbIntegration;
-import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
+import se.sundsvall.messaging.integration.db.entity.BatchSummaryEntity;
 import se.sundsvall.messaging.integration.db.projection.BatchHistoryProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryIdProjection;
 import se.sundsvall.messaging.integration.db.projection.MessageIdProjection;
-import se.sundsvall.messaging.integration.party.PartyIntegration;
 import se.sundsvall.messaging.model.Address;
+import se.sundsvall.messaging.model.ExportFormat;
 import se.sundsvall.messaging.model.History;
+import se.sundsvall.messaging.model.HistoryExportEntry;
+import se.sundsvall.messaging.model.HistoryMetadata;
+import se.sundsvall.messaging.model.HistoryPage;
 import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.model.UserMessageHistory;
 import se.sundsvall.messaging.service.model.Attachment;
+import se.sundsvall.messaging.util.ContinuationToken;
 import se.sundsvall.messaging.util.FilterUtils;
+import tools.jackson.core.Base64Variant;
+import tools.jackson.core.Base64Variants;
 import tools.jackson.core.JacksonException;
-import tools.jackson.databind.JsonNode;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.ObjectReadContext;
+import tools.jackson.core.StreamReadConstraints;
+import tools.jackson.core.exc.JacksonIOException;
+import tools.jackson.core.exc.StreamConstraintsException;
+import tools.jackson.core.json.JsonFactory;
+import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.ObjectMapper;
 
+import static jakarta.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static jakarta.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.util.Collections.emptyList;
 import static java.util.Objects.isNull;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toCollection;
+import static org.springframework.http.HttpHeaders.ACCEPT_RANGES;
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
-import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor.REFERENCE_PREFIX;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor.decodedSize;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor.isReference;
 import static se.sundsvall.messaging.integration.db.mapper.HistoryMapper.toBatch;
 import static se.sundsvall.messaging.integration.db.mapper.HistoryMapper.toStatus;
-import static se.sundsvall.messaging.integration.db.mapper.HistoryMapper.toUserBatches;
+import static se.sundsvall.messaging.integration.db.mapper.HistoryMetadataMapper.getFileNameField;
 import static se.sundsvall.messaging.util.FilterUtils.isSnailMailSuccessful;
-import static se.sundsvall.messaging.util.PagingUtil.toPage;
+import static se.sundsvall.messaging.util.JsonUtils.fromJson;
+import static tools.jackson.core.JsonToken.PROPERTY_NAME;
+import static tools.jackson.core.JsonToken.START_ARRAY;
+import static tools.jackson.core.JsonToken.START_OBJECT;
 
 @Service
 public class HistoryService {
 
+	private static final List<ExportWriter.Column<HistoryExportEntry>> HISTORY_EXPORT_COLUMNS = List.of(
+		new ExportWriter.Column<>("batchId", HistoryExportEntry::batchId),
+		new ExportWriter.Column<>("messageId", HistoryExportEntry::messageId),
+		new ExportWriter.Column<>("deliveryId", HistoryExportEntry::deliveryId),
+		new ExportWriter.Column<>("partyId", HistoryExportEntry::partyId),
+		new ExportWriter.Column<>("messageType", HistoryExportEntry::messageType),
+		new ExportWriter.Column<>("originalMessageType", HistoryExportEntry::originalMessageType),
+		new ExportWriter.Column<>("status", HistoryExportEntry::status),
+		new ExportWriter.Column<>("origin", HistoryExportEntry::origin),
+		new ExportWriter.Column<>("issuer", HistoryExportEntry::issuer),
+		new ExportWriter.Column<>("department", HistoryExportEntry::department),
+		new ExportWriter.Column<>("createdAt", HistoryExportEntry::createdAt),
+		new ExportWriter.Column<>("organizationNumber", HistoryExportEntry::organizationNumber),
+		new ExportWriter.Column<>("subject", HistoryExportEntry::subject),
+		new ExportWriter.Column<>("destination", HistoryExportEntry::destination),
+		new ExportWriter.Column<>("attachmentCount", HistoryExportEntry::attachmentCount));
+
+	private static final ExportWriter.Column<HistoryExportEntry> CONTENT_EXPORT_COLUMN = new ExportWriter.Column<>("content", HistoryExportEntry::content);
+
+	private static final int MAX_REFERENCE_LENGTH = REFERENCE_PREFIX.length() + 64;
+
+	private static final Base64Variant INLINE_CONTENT_VARIANT = Base64Variants.MIME.withPaddingAllowed();
+
+	private static final JsonFactory REFERENCE_PARSER_FACTORY = JsonFactory.builder()
+		.streamReadConstraints(StreamReadConstraints.builder().maxStringLength(MAX_REFERENCE_LENGTH).build())
+		.build();
+
 	private final DbIntegration dbIntegration;
 
-	private final PartyIntegration partyIntegration;
+	private final LegalIdResolver legalIdResolver;
 
 	private final ObjectMapper objectMapper;
 
-	private final BatchExtractor batchExtractor;
+	private final BatchStatusAggregator batchStatusAggregator;
+
+	private final AttachmentExtractor attachmentExtractor;
 
-	public HistoryService(final DbIntegration dbIntegration, final PartyIntegration partyIntegration, final ObjectMapper objectMapper, BatchExtractor batchDecorator) {
+	public HistoryService(final DbIntegration dbIntegration, final LegalIdResolver legalIdResolver, final ObjectMapper objectMapper, final BatchStatusAggregator batchStatusAggregator,
+		final AttachmentExtractor attachmentExtractor) {
 		this.dbIntegration = dbIntegration;
-		this.partyIntegration = partyIntegration;
+		this.legalIdResolver = legalIdResolver;
 		this.objectMapper = objectMapper;
-		this.batchExtractor = batchDecorator;
+		this.batchStatusAggregator = batchStatusAggregator;
+		this.attachmentExtractor = attachmentExtractor;
 	}
 
 	public List<History> getHistoryByMunicipalityIdAndMessageId(final String municipalityId, final String messageId) {
@@ -80,188 +140,454 @@ public class HistoryService {
 		return dbIntegration.getHistoryByMunicipalityIdAndDeliveryId(municipalityId, deliveryId);
 	}
 
-	public List<History> getConversationHistory(final String municipalityId, final String partyId, final LocalDate from,
-		final LocalDate to) {
-		return dbIntegration.getHistory(municipalityId, partyId, from, to);
+	/**
+	 * Returns the conversation history of the party, latest first. If a limit is given, the history is returned a page at
+	 * a time, continuing after the position of the given token.
+	 *
+	 * @param  municipalityId    the municipality ID
+	 * @param  partyId           the party ID
+	 * @param  from              the first date to include, or null
+	 * @param  to                the last date to include, or null
+	 * @param  limit             the maximum number of entries to return, or null for all
+	 * @param  continuationToken the token returned with the previous page, or null for the first page
+	 * @return                   the page of history
+	 */
+	public HistoryPage getConversationHistory(final String municipalityId, final String partyId, final LocalDate from,
+		final LocalDate to, final Integer limit, final String continuationToken) {
+		return dbIntegration.getHistory(municipalityId, partyId, from, to, ContinuationToken.decode(continuationToken), limit);
 	}
 
-	public void streamAttachment(final String municipalityId, final String messageId, final String fileName, final HttpServletResponse response) throws IOException {
-		final var history = dbIntegration.getFirstHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId);
-		final var nameField = getFileNameField(history.getMessageType());
-		final var content = objectMapper.readTree(history.getContent());
+	/**
+	 * Exports the history of the municipality created within the given dates to the response, one entry per line or row.
+	 * The entries are written as they are read from the database, so the export may span any number of entries.
+	 *
+	 * @param  municipalityId the municipality ID
+	 * @param  partyId        the party ID, or null for all parties
+	 * @param  from           the first date to include, or null
+	 * @param  to             the last date to include, or null
+	 * @param  format         the format of the export
+	 * @param  includeContent whether to include the content of the entries, or only their metadata
+	 * @param  response       the response to write the export to
+	 * @throws IOException    if the export can't be written to the response
+	 */
+	public void exportHistory(final String municipalityId, final String partyId, final LocalDate from, final LocalDate to, final ExportFormat format,
+		final boolean includeContent, final HttpServletResponse response) throws IOException {
+		final var columns = new ArrayList<>(HISTORY_EXPORT_COLUMNS);
+		if (includeContent) {
+			columns.add(CONTENT_EXPORT_COLUMN);
+		}
 
-		final var attachment = findAttachmentByName(content, nameField, fileName);
-		setupResponse(response, attachment);
+		try (final var writer = ExportWriter.create(format, response, "history", columns)) {
+			dbIntegration.exportHistory(municipalityId, partyId, from, to, includeContent, writer::write);
+		}
 	}
 
-	Attachment findAttachmentByName(final JsonNode content, final String nameField, final String fileName) {
-		final var attachments = content.get("attachments");
-		if (attachments == null || !attachments.isArray()) {
-			throw Problem.valueOf(NOT_FOUND, "Attachment with name " + fileName + " not found");
+	/**
+	 * Streams the content of an attachment to the response, without reading the whole content into memory. The content of
+	 * the history entry is read from the database a chunk at a time, the attachment is located with a streaming parser, and
+	 * its content is streamed from the attachment store or, for history stored before the attachment store was introduced,
+	 * decoded by the parser while streamed. A single byte range may be requested using the Range header.
+	 *
+	 * @param  municipalityId the municipality ID
+	 * @param  messageId      the message ID
+	 * @param  fileName       the name of the attachment
+	 * @param  range          the Range header of the request, or null for the whole content
+	 * @param  response       the response to stream the content to
+	 * @throws IOException    if the content can't be written to the response
+	 */
+	public void streamAttachment(final String municipalityId, final String messageId, final String fileName, final String range, final HttpServletResponse response) throws IOException {
+		final var history = dbIntegration.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId);
+		final var nameField = getFileNameField(history.getMessageType());
+
+		// The size stored with the metadata, when extracted, spares measuring the content again
+		final var storedSize = getStoredSize(history, fileName);
+
+		final Attachment attachment;
+		try (final var content = dbIntegration.openHistoryContent(history.getId())) {
+			attachment = findAttachmentByName(content, nameField, fileName);
 		}
-		for (final var attachment : attachments) {
-			final var name = attachment.get(nameField).asText();
-			if (fileName.equals(name)) {
-				return Attachment.builder()
-					.withName(name)
-					.withContent(attachment.get("content").asText())
-					.withContentType(attachment.get("contentType").asText())
-					.build();
+		readContent(history.getId(), attachment, storedSize);
+		setupResponse(response, history.getId(), attachment, storedSize, range);
+	}
+
+	/**
+	 * Returns the size of the attachment with the given name as stored with the metadata of the history entry, or null if
+	 * it isn't stored.
+	 */
+	private static Long getStoredSize(final HistoryIdProjection history, final String fileName) {
+		return ofNullable(fromJson(history.getAttachmentsJson(), new TypeReference<List<HistoryMetadata.Attachment>>() {}))
+			.orElse(emptyList())
+			.stream()
+			.filter(attachment -> fileName.equals(attachment.name()))
+			.findFirst()
+			.map(HistoryMetadata.Attachment::size)
+			.orElse(null);
+	}
+
+	/**
+	 * Finds the attachment with the given name in the given content. The contents of the attachments are skipped without
+	 * being read, as the name may follow the content.
+	 */
+	Attachment findAttachmentByName(final Reader content, final String nameField, final String fileName) {
+		try (final var parser = objectMapper.createParser(content)) {
+			if (toAttachments(parser)) {
+				var index = 0;
+				while (parser.nextToken() == START_OBJECT) {
+					final var attachment = readAttachment(parser, nameField);
+					if (fileName.equals(attachment.getName())) {
+						attachment.setIndex(index);
+						return attachment;
+					}
+					index++;
+				}
 			}
+		} catch (final JacksonException ignored) {
+			// Not JSON, hence no attachments
 		}
 		throw Problem.valueOf(NOT_FOUND, "Attachment with name " + fileName + " not found");
 	}
 
-	private void setupResponse(final HttpServletResponse response, final Attachment attachment) throws IOException {
-		final var decodedContent = Base64.decodeBase64(attachment.getContent());
-		response.addHeader(CONTENT_TYPE, attachment.getContentType());
-		response.addHeader(CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.getName() + "\"");
-		response.addHeader(CONTENT_LENGTH, String.valueOf(decodedContent.length));
-		response.setContentLength(decodedContent.length);
+	/**
+	 * Moves the parser to the start of the attachments array of the given content.
+	 *
+	 * @return true if the content has an attachments array, false otherwise
+	 */
+	private static boolean toAttachments(final JsonParser parser) {
+		if (parser.nextToken() != START_OBJECT) {
+			return false;
+		}
 
-		final var binaryStream = new ByteArrayInputStream(decodedContent);
-		StreamUtils.copy(binaryStream, response.getOutputStream());
+		while (parser.nextToken() == PROPERTY_NAME) {
+			final var field = parser.currentName();
+			if (parser.nextToken() == START_ARRAY && "attachments".equals(field)) {
+				return true;
+			}
+			parser.skipChildren();
+		}
+		return false;
 	}
 
-	public UserBatches getUserBatches(final String municipalityId, final String issuer, final Integer page, final Integer limit) {
-		final var thirtyDaysAgo = LocalDate.now().minusDays(30).atStartOfDay();
-		final var batches = dbIntegration.getBatchHistoryMessagesForUser(municipalityId, issuer, thirtyDaysAgo).stream() // Fetch batchprojections for all messages sent the 30 last day for issuer
-			.collect(groupingBy(BatchHistoryProjection::getBatchId)).entrySet().stream() // Group result by batch id and stream result (Map<batchId, List<BatchHistoryProjection>>)
-			.map(entry -> createBatch(municipalityId, entry)) // To map each entry to a Batch object
-			.filter(Objects::nonNull) // Just to be safe
-			.sorted((o1, o2) -> ofNullable(o2.sent()).orElse(LocalDateTime.MAX).compareTo(ofNullable(o1.sent()).orElse(LocalDateTime.MAX))) // Sort on sent descending to have latest batches first in list
-			.toList();
+	/**
+	 * Moves the parser to the content of the attachment at the given index of the given content, skipping the preceding
+	 * attachments and fields without reading them.
+	 *
+	 * @return true if the attachment has a content, false otherwise
+	 */
+	private static boolean toContent(final JsonParser parser, final int index) {
+		if (!toAttachments(parser)) {
+			return false;
+		}
+		for (var i = 0; i < index; i++) {
+			parser.nextToken();
+			parser.skipChildren();
+		}
 
-		return toUserBatches(toPage(page, limit, batches), page); // Return a paginated result with content matching requested page and limit
+		if (parser.nextToken() != START_OBJECT) {
+			return false;
+		}
+		while (parser.nextToken() == PROPERTY_NAME) {
+			final var field = parser.currentName();
+			parser.nextToken();
+			if ("content".equals(field)) {
+				return true;
+			}
+			parser.skipChildren();
+		}
+		return false;
 	}
 
-	Batch createBatch(String municipalityId, Entry<String, List<BatchHistoryProjection>> batchHistoryProjectionEntry) {
-		return ofNullable(batchHistoryProjectionEntry)
-			.map(entry -> {
-				final var batchId = entry.getKey();
-				final var batchMessages = entry.getValue();
+	private static Attachment readAttachment(final JsonParser parser, final String nameField) {
+		final var attachment = new Attachment();
+		while (parser.nextToken() == PROPERTY_NAME) {
+			final var field = parser.currentName();
+			if (!parser.nextToken().isScalarValue()) {
+				parser.skipChildren();
+			} else if (field.equals(nameField)) {
+				attachment.setName(parser.getValueAsString());
+			} else if ("contentType".equals(field)) {
+				attachment.setContentType(parser.getValueAsString());
+			}
+		}
+		return attachment;
+	}
 
-				final var sent = batchExtractor.extractSent(batchMessages);
-				final var attachmentCount = batchExtractor.extractAttachmentCount(municipalityId, batchMessages);
-				final var recipientCount = batchExtractor.extractRecipientCount(batchMessages);
-				final var messageType = batchExtractor.extractOriginalMesageType(batchMessages);
-				final var subject = batchExtractor.extractSubject(municipalityId, batchMessages);
-				final var status = toStatus(
-					batchExtractor.extractSuccessfulCount(batchMessages),
-					batchExtractor.extractUnsuccessfulCount(batchMessages));
+	/**
+	 * Reads the content of the given attachment if no longer than a reference, using a parser that refuses to read longer
+	 * strings, so that the content never is read into memory. Longer contents are base64 encoded contents of history
+	 * stored before the attachment store was introduced, of which only the decoded size is kept. It is measured by
+	 * decoding the content without keeping it, unless stored, and the content is decoded from the history content again
+	 * when streamed.
+	 */
+	void readContent(final Long historyId, final Attachment attachment, final Long storedSize) throws IOException {
+		try (final var content = dbIntegration.openHistoryContent(historyId);
+			final var parser = REFERENCE_PARSER_FACTORY.createParser(ObjectReadContext.empty(), content)) {
+			if (toContent(parser, attachment.getIndex())) {
+				attachment.setContent(parser.getValueAsString());
+			}
+			return;
+		} catch (final StreamConstraintsException e) {
+			// Longer than a reference, hence inline content
+		}
 
-				return toBatch(batchId, sent, messageType, subject, attachmentCount, recipientCount, status);
-			})
-			.orElse(null);
+		attachment.setSize(storedSize != null ? storedSize : measureInlineContent(historyId, attachment.getIndex()));
 	}
 
-	public UserMessages getUserMessages(final String municipalityId, final String userId, String batchId, final Integer page, final Integer limit) {
-		final var thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-		final var pageRequest = PageRequest.of(page - 1, limit);
-		final var messageIdPage = isNull(batchId) ? dbIntegration.getUniqueMessageIds(municipalityId, userId, thirtyDaysAgo, pageRequest)
-			: dbIntegration.getUniqueMessageIds(municipalityId, batchId, userId, thirtyDaysAgo, pageRequest);
-
-		return UserMessages.builder()
-			.withMessages(createUserMessages(municipalityId, messageIdPage.getContent()))
-			.withMetaData(PagingMetaData.create()
-				.withPage(messageIdPage.getNumber() + 1)
-				.withLimit(messageIdPage.getSize())
-				.withCount(messageIdPage.getNumberOfElements())
-				.withTotalRecords(messageIdPage.getTotalElements())
-				.withTotalPages(messageIdPage.getTotalPages()))
-			.build();
+	/**
+	 * Measures the decoded size of the inline content of the attachment at the given index by decoding it without keeping
+	 * it, reading the history content again a chunk at a time.
+	 */
+	private long measureInlineContent(final Long historyId, final int index) throws IOException {
+		try (final var content = dbIntegration.openHistoryContent(historyId);
+			final var parser = objectMapper.createParser(content)) {
+			return toContent(parser, index) ? parser.readBinaryValue(INLINE_CONTENT_VARIANT, OutputStream.nullOutputStream()) : 0;
+		}
 	}
 
-	List<UserMessage> createUserMessages(final String municipalityId, final List<MessageIdProjection> messageIdProjections) {
-		return messageIdProjections.stream()
-			.map(MessageIdProjection::getMessageId)
-			.map(messageId -> createUserMessage(municipalityId, messageId))
-			.toList();
+	private void setupResponse(final HttpServletResponse response, final Long historyId, final Attachment attachment, final Long storedSize, final String range) throws IOException {
+		// The content is either a reference to the attachment store or, for history stored before the attachment store
+		// was introduced, the base64 encoded content itself, of which only the size is read when long
+		final var content = attachment.getContent();
+		final var inline = attachment.getSize() != null;
+		final var size = inline ? attachment.getSize() : ofNullable(storedSize).orElseGet(() -> contentSize(content));
+
+		final var byteRange = toByteRange(range, size);
+		response.addHeader(ACCEPT_RANGES, "bytes");
+		if (byteRange == null) {
+			response.setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			response.addHeader(CONTENT_RANGE, "bytes */" + size);
+			return;
+		}
+
+		final var start = byteRange[0];
+		final var length = byteRange[1] - start + 1;
+		if (length < size) {
+			response.setStatus(SC_PARTIAL_CONTENT);
+			response.addHeader(CONTENT_RANGE, "bytes %d-%d/%d".formatted(start, byteRange[1], size));
+		}
+		response.addHeader(CONTENT_TYPE, attachment.getContentType());
+		response.addHeader(CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.getName() + "\"");
+		response.setContentLengthLong(length);
+
+		if (inline) {
+			streamInlineContent(historyId, attachment.getIndex(), new RangeOutputStream(response.getOutputStream(), start, length));
+			return;
+		}
+
+		try (final var stream = openContent(content, start)) {
+			StreamUtils.copyRange(stream, response.getOutputStream(), 0, length - 1);
+		}
 	}
 
-	UserMessage createUserMessage(final String municipalityId, final String messageId) {
-		final var histories = dbIntegration.getHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId);
-		final var recipients = createRecipients(municipalityId, histories);
-		final var history = histories.stream()
-			.filter(h -> h.getMessageType() == MessageType.DIGITAL_MAIL)
-			.findFirst().orElse(histories.getFirst());
+	private long contentSize(final String content) {
+		if (content == null) {
+			return 0;
+		}
+		return isReference(content) ? attachmentExtractor.size(content) : decodedSize(content);
+	}
 
-		return UserMessage.builder()
-			.withMessageId(messageId)
-			.withIssuer(history.getIssuer())
-			.withOrigin(history.getOrigin())
-			.withSent(history.getCreatedAt())
-			.withRecipients(recipients)
-			.withSubject(extractSubject(history))
-			.withAttachments(extractAttachment(history))
-			.withBody(extractMessage(history))
-			.build();
+	/**
+	 * Decodes the content of the attachment at the given index of the history content straight to the given stream, reading
+	 * the history content again a chunk at a time. Decoding stops once the range of the given stream has been written.
+	 */
+	private void streamInlineContent(final Long historyId, final int index, final OutputStream outputStream) throws IOException {
+		try (final var content = dbIntegration.openHistoryContent(historyId);
+			final var parser = objectMapper.createParser(content)) {
+			if (toContent(parser, index)) {
+				parser.readBinaryValue(INLINE_CONTENT_VARIANT, outputStream);
+			}
+		} catch (final RangeWrittenException e) {
+			// The rest of the content is left undecoded
+		} catch (final JacksonIOException e) {
+			if (!(e.getCause() instanceof RangeWrittenException)) {
+				// Writing to the response failed, e.g. since the client went away
+				throw e.getCause();
+			}
+		}
 	}
 
-	private String extractMessage(final HistoryEntity history) {
-		JsonNode content;
+	/**
+	 * Resolves the byte range to send from the given Range header. Multiple ranges aren't supported, in which case, as
+	 * well as when no or an invalid Range header is given, the whole content is sent.
+	 *
+	 * @param  range the Range header
+	 * @param  size  the size of the content
+	 * @return       the first and last position of the range, or null if the range can't be satisfied
+	 */
+	static long[] toByteRange(final String range, final long size) {
+		final List<HttpRange> ranges;
 		try {
-			content = objectMapper.readTree(history.getContent());
-		} catch (final JacksonException ignored) {
-			return "";
+			ranges = HttpRange.parseRanges(range);
+		} catch (final IllegalArgumentException e) {
+			return new long[] {
+				0, size - 1
+			};
+		}
+		if (ranges.size() != 1) {
+			return new long[] {
+				0, size - 1
+			};
 		}
-		return ofNullable(content.get("message")).map(JsonNode::asText).orElse(null);
-	}
 
-	private String extractMobileNumber(final HistoryEntity history) {
-		JsonNode content;
 		try {
-			content = objectMapper.readTree(history.getContent());
-		} catch (final JacksonException ignored) {
+			final var start = ranges.getFirst().getRangeStart(size);
+			final var end = ranges.getFirst().getRangeEnd(size);
+			return start <= end ? new long[] {
+				start, end
+			} : null;
+		} catch (final IllegalArgumentException e) {
 			return null;
 		}
-		return ofNullable(content.get("mobileNumber")).map(JsonNode::asText).orElse(null);
 	}
 
-	String extractSubject(final HistoryEntity history) {
-		JsonNode content;
-		try {
-			content = objectMapper.readTree(history.getContent());
-		} catch (final JacksonException ignored) {
-			return "";
+	private InputStream openContent(final String content, final long start) throws IOException {
+		if (isReference(content)) {
+			return attachmentExtractor.open(content, start);
 		}
-		return ofNullable(content.get("subject")).map(JsonNode::asText).orElse(null);
+
+		final var stream = Base64.getMimeDecoder().wrap(new ByteArrayInputStream(content.getBytes(US_ASCII)));
+		stream.skipNBytes(start);
+		return stream;
 	}
 
-	List<UserMessage.MessageAttachment> extractAttachment(final HistoryEntity history) {
-		if (StringUtils.isBlank(history.getContent())) {
-			return emptyList();
-		}
-		final List<UserMessage.MessageAttachment> attachments = new ArrayList<>();
-		final var messageType = history.getMessageType();
+	/**
+	 * Returns a page of the batches sent by the issuer the last 30 days, latest first. Pages are either fetched by number
+	 * or, when a token is given, by continuing after the last batch of the previous page, which doesn't have to skip the
+	 * batches of all preceding pages. Counting the total number of batches is optional.
+	 *
+	 * @param  municipalityId    the municipality ID
+	 * @param  issuer            the issuer of the batches
+	 * @param  page              the page to fetch, ignored if a token is given
+	 * @param  limit             the maximum number of batches on the page
+	 * @param  continuationToken the token returned with the previous page, or null
+	 * @param  count             whether to count the total number of batches
+	 * @return                   the page of batches
+	 */
+	public UserBatches getUserBatches(final String municipalityId, final String issuer, final Integer page, final Integer limit, final String continuationToken, final boolean count) {
+		final var thirtyDaysAgo = LocalDate.now().minusDays(30).atStartOfDay();
+		final var cursor = ContinuationToken.decode(continuationToken);
+		final var summaries = dbIntegration.getBatchSummaries(municipalityId, issuer, thirtyDaysAgo, cursor, toPageRequest(cursor, page, limit)); // Fetch summaries for the requested page of batches sent the 30 last days by issuer, latest first
+		final var batchMessages = dbIntegration.getBatchHistoryMessages(municipalityId, issuer, summaries.stream().map(BatchSummaryEntity::getBatchId).toList(), thirtyDaysAgo).stream() // Fetch batch projections for the messages of the batches on the page only
+			.collect(groupingBy(BatchHistoryProjection::getBatchId));
+		final var totalRecords = count ? dbIntegration.countBatchSummaries(municipalityId, issuer, thirtyDaysAgo) : null;
+
+		return UserBatches.builder()
+			.withBatches(summaries.stream()
+				.map(summary -> createBatch(summary, batchMessages.getOrDefault(summary.getBatchId(), emptyList())))
+				.toList())
+			.withMetaData(toMetaData(PagingMetaData.create(), cursor, page, limit, summaries.size(), totalRecords))
+			.withContinuationToken(summaries.size() == limit ? ContinuationToken.encode(summaries.getLast().getCreatedAt(), summaries.getLast().getId()) : null)
+			.build();
+	}
 
-		JsonNode attachmentsNode;
+	private static PageRequest toPageRequest(final ContinuationToken cursor, final Integer page, final Integer limit) {
+		// The cursor points out where the page starts, hence no page has to be skipped
+		return PageRequest.of(isNull(cursor) ? page - 1 : 0, limit);
+	}
 
-		try {
-			final var jsonNode = objectMapper.readTree(history.getContent());
-			final var attachmentsField = getAttachmentsField(messageType);
-			attachmentsNode = jsonNode.get(attachmentsField);
-		} catch (final JacksonException ignored) {
-			return emptyList();
+	private static PagingMetaData toMetaData(final PagingMetaData metaData, final ContinuationToken cursor, final Integer page, final Integer limit, final int count, final Long totalRecords) {
+		metaData.withLimit(limit).withCount(count);
+		if (isNull(cursor)) {
+			// A page continued from a token has no page number
+			metaData.withPage(page);
 		}
+		ofNullable(totalRecords).ifPresent(total -> metaData
+			.withTotalRecords(total)
+			.withTotalPages((int) ((total + limit - 1) / limit)));
+		return metaData;
+	}
 
-		if (attachmentsNode != null && attachmentsNode.isArray()) {
-			final var fileNameField = getFileNameField(messageType);
-			final var contentTypeField = getContentTypeField(messageType);
+	Batch createBatch(final BatchSummaryEntity summary, final List<BatchHistoryProjection> batchMessages) {
+		final var batchStatus = batchStatusAggregator.aggregate(batchMessages);
+		final var messageType = ofNullable(summary.getOriginalMessageType())
+			.map(MessageType::name)
+			.orElse(batchStatus.originalMessageType());
+		final var status = toStatus(batchStatus.successfulCount(), batchStatus.unsuccessfulCount());
 
-			for (final var attachment : attachmentsNode) {
-				attachments.add(UserMessage.MessageAttachment.builder()
-					.withFileName(attachment.get(fileNameField).asText())
-					.withContentType(attachment.get(contentTypeField).asText())
-					.build());
-			}
-		}
-		return attachments;
+		return toBatch(summary.getBatchId(), batchStatus.sent(), messageType, ofNullable(summary.getSubject()).orElse(""), summary.getAttachmentCount(), batchStatus.recipientCount(), status);
+	}
+
+	/**
+	 * Returns a page of the messages sent by the user the last 30 days, optionally limited to a batch, latest first.
+	 * Pages are either fetched by number or, when a token is given, by continuing after the last message of the previous
+	 * page. Counting the total number of messages is optional.
+	 *
+	 * @param  municipalityId    the municipality ID
+	 * @param  userId            the user ID
+	 * @param  batchId           the batch ID, or null for messages of all batches
+	 * @param  page              the page to fetch, ignored if a token is given
+	 * @param  limit             the maximum number of messages on the page
+	 * @param  continuationToken the token returned with the previous page, or null
+	 * @param  count             whether to count the total number of messages
+	 * @return                   the page of messages
+	 */
+	public UserMessages getUserMessages(final String municipalityId, final String userId, final String batchId, final Integer page, final Integer limit, final String continuationToken,
+		final boolean count) {
+		final var thirtyDaysAgo = LocalDateTime.now().minusDays(30);
+		final var cursor = ContinuationToken.decode(continuationToken);
+		final var messageIds = dbIntegration.getUniqueMessageIds(municipalityId, batchId, userId, thirtyDaysAgo, cursor, toPageRequest(cursor, page, limit));
+		final var totalRecords = count ? dbIntegration.countUniqueMessageIds(municipalityId, batchId, userId, thirtyDaysAgo) : null;
+
+		return UserMessages.builder()
+			.withMessages(createUserMessages(municipalityId, messageIds))
+			.withMetaData(toMetaData(PagingMetaData.create(), cursor, page, limit, messageIds.size(), totalRecords))
+			.withContinuationToken(messageIds.size() == limit ? ContinuationToken.encode(messageIds.getLast().getCreatedAt(), messageIds.getLast().getId()) : null)
+			.build();
 	}
 
-	List<UserMessage.Recipient> createRecipients(final String municipalityId, final List<HistoryEntity> histories) {
+	List<UserMessage> createUserMessages(final String municipalityId, final List<MessageIdProjection> messageIdProjections) {
+		final var historiesByMessageId = new LinkedHashMap<String, List<UserMessageHistory>>();
+		messageIdProjections.forEach(projection -> historiesByMessageId.put(projection.getMessageId(),
+			dbIntegration.getUserMessageHistory(municipalityId, projection.getMessageId())));
+
+		// Resolve the legal ids of all recipients on the page at once
+		final var legalIds = resolveLegalIds(municipalityId, historiesByMessageId.values().stream().flatMap(List::stream).toList());
+
+		return historiesByMessageId.entrySet().stream()
+			.map(entry -> createUserMessage(entry.getKey(), entry.getValue(), legalIds))
+			.toList();
+	}
+
+	UserMessage createUserMessage(final String municipalityId, final String messageId) {
+		final var histories = dbIntegration.getUserMessageHistory(municipalityId, messageId);
+
+		return createUserMessage(messageId, histories, resolveLegalIds(municipalityId, histories));
+	}
+
+	private Map<String, String> resolveLegalIds(final String municipalityId, final List<UserMessageHistory> histories) {
+		return legalIdResolver.resolve(municipalityId, histories.stream().map(UserMessageHistory::partyId).toList());
+	}
+
+	private UserMessage createUserMessage(final String messageId, final List<UserMessageHistory> histories, final Map<String, String> legalIds) {
+		final var recipients = createRecipients(histories, legalIds);
+		final var history = histories.stream()
+			.filter(h -> h.messageType() == MessageType.DIGITAL_MAIL)
+			.findFirst().orElse(histories.getFirst());
+		final var metadata = history.metadata();
+
+		return UserMessage.builder()
+			.withMessageId(messageId)
+			.withIssuer(history.issuer())
+			.withOrigin(history.origin())
+			.withSent(history.createdAt())
+			.withRecipients(recipients)
+			.withSubject(metadata.subject())
+			.withAttachments(createAttachments(metadata))
+			.withBody(metadata.body())
+			.build();
+	}
+
+	List<UserMessage.MessageAttachment> createAttachments(final HistoryMetadata metadata) {
+		return metadata.attachments().stream()
+			.map(attachment -> UserMessage.MessageAttachment.builder()
+				.withFileName(attachment.name())
+				.withContentType(attachment.contentType())
+				.build())
+			.toList();
+	}
+
+	List<UserMessage.Recipient> createRecipients(final List<UserMessageHistory> histories, final Map<String, String> legalIds) {
 		final var recipients = histories.stream()
-			.map(history -> createRecipient(municipalityId, history))
+			.map(history -> createRecipient(history, legalIds))
 			.collect(toCollection(ArrayList::new));
 
 		// Remove entries with messagetype DIGITAL_MAIL and status not equal to SENT if there exists an entry with same
@@ -275,16 +601,16 @@ public class HistoryService {
 		return recipients;
 	}
 
-	UserMessage.Recipient createRecipient(final String municipalityId, final HistoryEntity history) {
-		final var legalId = ofNullable(history.getPartyId())
-			.map(party -> partyIntegration.getLegalIdByPartyId(municipalityId, party))
+	UserMessage.Recipient createRecipient(final UserMessageHistory history, final Map<String, String> legalIds) {
+		final var legalId = ofNullable(history.partyId())
+			.map(legalIds::get)
 			.orElse(null);
 
 		return UserMessage.Recipient.builder()
-			.withStatus(history.getStatus().name())
-			.withMessageType(history.getMessageType().toString())
-			.withAddress(createAddress(history.getDestinationAddress()))
-			.withMobileNumber(extractMobileNumber(history))
+			.withStatus(history.status().name())
+			.withMessageType(history.messageType().toString())
+			.withAddress(createAddress(history.destinationAddress()))
+			.withMobileNumber(history.messageType() == MessageType.SMS ? history.metadata().destination() : null)
 			.withPersonId(legalId)
 			.build();
 	}
@@ -321,45 +647,57 @@ public class HistoryService {
 	}
 
 	/**
-	 * Get the attachments field name for the given message type.
-	 *
-	 * @param  messageType messageType to get the attachments field for
-	 * @return             the attachments field name
+	 * Passes the given range of the bytes written to it on to the underlying stream, and fails with a
+	 * {@link RangeWrittenException} once the whole range has been written, so that the rest isn't produced.
 	 */
-	String getAttachmentsField(final MessageType messageType) {
-		return switch (messageType) {
-			case DIGITAL_MAIL, EMAIL, LETTER, SNAIL_MAIL, WEB_MESSAGE -> "attachments";
-			case DIGITAL_INVOICE -> "files";
-			default -> null; // SMS, MESSAGE and SLACK
-		};
-	}
+	private static final class RangeOutputStream extends OutputStream {
 
-	/**
-	 * Get the name field name for the given message type.
-	 *
-	 * @param  messageType messageType to get the name field for
-	 * @return             the name field name
-	 */
-	String getFileNameField(final MessageType messageType) {
-		return switch (messageType) {
-			case DIGITAL_INVOICE, DIGITAL_MAIL, LETTER, SNAIL_MAIL -> "filename";
-			case EMAIL -> "name";
-			case WEB_MESSAGE -> "fileName";
-			default -> null; // SMS, MESSAGE and SLACK
-		};
+		private final OutputStream outputStream;
+
+		private long skip;
+
+		private long remaining;
+
+		RangeOutputStream(final OutputStream outputStream, final long start, final long length) {
+			this.outputStream = outputStream;
+			this.skip = start;
+			this.remaining = length;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			write(new byte[] {
+				(byte) b
+			}, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+			final var skipped = (int) Math.min(skip, length);
+			skip -= skipped;
+
+			final var written = (int) Math.min(remaining, length - skipped);
+			if (written > 0) {
+				outputStream.write(bytes, offset + skipped, written);
+				remaining -= written;
+			}
+			if (remaining == 0) {
+				throw new RangeWrittenException();
+			}
+		}
 	}
 
 	/**
-	 * Get the content type field name for the given message type.
-	 *
-	 * @param  messageType messageType to get the content type field name for
-	 * @return             the content type field name
+	 * Signals that the whole range has been written, rather than a failure.
 	 */
-	String getContentTypeField(final MessageType messageType) {
-		return switch (messageType) {
-			case DIGITAL_INVOICE, DIGITAL_MAIL, EMAIL, LETTER, SNAIL_MAIL -> "contentType";
-			case WEB_MESSAGE -> "mimeType";
-			default -> null; // SMS, MESSAGE and SLACK
-		};
+	private static final class RangeWrittenException extends IOException {
+
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
 	}
 }
@@ -0,0 +1,60 @@
+package se.sundsvall.messaging.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.integration.party.PartyIntegration;
+import se.sundsvall.messaging.service.delivery.FanOutExecutor;
+
+/**
+ * Resolves the legal ids of the recipients shown in user message views. Each distinct party id is resolved once, and
+ * the party ids are resolved in parallel, capped by the fan-out parallelism.
+ */
+@Component
+public class LegalIdResolver {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LegalIdResolver.class);
+
+	private final PartyIntegration partyIntegration;
+
+	private final FanOutExecutor fanOutExecutor;
+
+	public LegalIdResolver(final PartyIntegration partyIntegration, final FanOutExecutor fanOutExecutor) {
+		this.partyIntegration = partyIntegration;
+		this.fanOutExecutor = fanOutExecutor;
+	}
+
+	/**
+	 * Resolves the legal ids of the given party ids. Party ids that are {@code null}, or that could not be resolved, have
+	 * no entry in the result. If no party id at all could be resolved due to failures, the first failure is re-thrown.
+	 *
+	 * @param  municipalityId the municipality id
+	 * @param  partyIds       the party ids, possibly with duplicates
+	 * @return                the legal ids, by party id
+	 */
+	public Map<String, String> resolve(final String municipalityId, final Collection<String> partyIds) {
+		final var distinctPartyIds = partyIds.stream()
+			.filter(Objects::nonNull)
+			.distinct()
+			.toList();
+
+		final var legalIds = fanOutExecutor.map(distinctPartyIds,
+			partyId -> partyIntegration.getLegalIdByPartyId(municipalityId, partyId),
+			(partyId, e) -> {
+				LOG.warn("Unable to resolve legal id for party id {}", partyId, e);
+				return null;
+			});
+
+		final var result = HashMap.<String, String>newHashMap(distinctPartyIds.size());
+		for (var i = 0; i < distinctPartyIds.size(); i++) {
+			if (legalIds.get(i) != null) {
+				result.put(distinctPartyIds.get(i), legalIds.get(i));
+			}
+		}
+		return result;
+	}
+}
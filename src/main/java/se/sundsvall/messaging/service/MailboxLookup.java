@@ -0,0 +1,94 @@
+package se.sundsvall.messaging.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.api.model.response.Mailbox;
+import se.sundsvall.messaging.configuration.MailboxLookupProperties;
+import se.sundsvall.messaging.integration.digitalmailsender.DigitalMailSenderIntegration;
+import se.sundsvall.messaging.service.delivery.FanOutExecutor;
+
+import static org.apache.commons.collections4.ListUtils.partition;
+
+/**
+ * Looks up the digital mailboxes of parties. Mailboxes are cached per municipality, organization number and party id
+ * for a short while, and the party ids that aren't cached are looked up in chunks, with the chunks looked up in
+ * parallel.
+ */
+@Component
+@EnableConfigurationProperties(MailboxLookupProperties.class)
+public class MailboxLookup {
+
+	static final String CACHE_NAME = "mailboxes";
+
+	private final DigitalMailSenderIntegration digitalMailSenderIntegration;
+
+	private final FanOutExecutor fanOutExecutor;
+
+	private final MailboxLookupProperties properties;
+
+	private final Cache<CacheKey, Mailbox> mailboxes;
+
+	public MailboxLookup(final DigitalMailSenderIntegration digitalMailSenderIntegration, final FanOutExecutor fanOutExecutor,
+		final MailboxLookupProperties properties, final MeterRegistry meterRegistry) {
+		this.digitalMailSenderIntegration = digitalMailSenderIntegration;
+		this.fanOutExecutor = fanOutExecutor;
+		this.properties = properties;
+		this.mailboxes = Caffeine.newBuilder()
+			.maximumSize(properties.maximumSize())
+			.expireAfterWrite(properties.timeToLive())
+			.recordStats()
+			.build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, mailboxes, CACHE_NAME);
+	}
+
+	/**
+	 * Gets the mailboxes of the given party ids, in the order of the party ids. Party ids that DigitalMailSender returns
+	 * no mailbox for have no entry in the result. If any chunk of party ids can't be looked up, the lookup fails.
+	 *
+	 * @param  municipalityId     the municipality id
+	 * @param  organizationNumber the organization number of the sending organization
+	 * @param  partyIds           the party ids
+	 * @return                    the mailboxes, in party id order
+	 */
+	public List<Mailbox> getMailboxes(final String municipalityId, final String organizationNumber, final List<String> partyIds) {
+		final var found = HashMap.<String, Mailbox>newHashMap(partyIds.size());
+		final var missing = partyIds.stream()
+			.distinct()
+			.filter(partyId -> {
+				final var mailbox = mailboxes.getIfPresent(new CacheKey(municipalityId, organizationNumber, partyId));
+				if (mailbox != null) {
+					found.put(partyId, mailbox);
+				}
+				return mailbox == null;
+			})
+			.toList();
+
+		fanOutExecutor.map(partition(missing, properties.chunkSize()), properties.parallelism(),
+			chunk -> digitalMailSenderIntegration.getMailboxes(municipalityId, organizationNumber, chunk),
+			(chunk, e) -> {
+				throw e;
+			})
+			.stream()
+			.flatMap(List::stream)
+			.filter(mailbox -> mailbox.partyId() != null)
+			.forEach(mailbox -> {
+				mailboxes.put(new CacheKey(municipalityId, organizationNumber, mailbox.partyId()), mailbox);
+				found.put(mailbox.partyId(), mailbox);
+			});
+
+		return partyIds.stream()
+			.map(found::get)
+			.filter(Objects::nonNull)
+			.toList();
+	}
+
+	record CacheKey(String municipalityId, String organizationNumber, String partyId) {}
+}
@@ -0,0 +1,47 @@
+package se.sundsvall.messaging.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.configuration.MessageContentCleanupProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+
+/**
+ * Removes message content that is no longer referenced by any message or history entry, batch by batch until there is
+ * none left. Content is kept for as long as the history referencing it, which itself is never removed by this service.
+ */
+@Component
+@EnableConfigurationProperties(MessageContentCleanupProperties.class)
+class MessageContentCleanupScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MessageContentCleanupScheduler.class);
+
+	private final DbIntegration dbIntegration;
+
+	private final MessageContentCleanupProperties properties;
+
+	MessageContentCleanupScheduler(final DbIntegration dbIntegration, final MessageContentCleanupProperties properties) {
+		this.dbIntegration = dbIntegration;
+		this.properties = properties;
+	}
+
+	@Scheduled(initialDelayString = "${messaging.message-content-cleanup.interval:PT1H}", fixedDelayString = "${messaging.message-content-cleanup.interval:PT1H}")
+	void cleanup() {
+		if (!properties.enabled()) {
+			return;
+		}
+
+		var total = 0;
+		int deleted;
+		do {
+			deleted = dbIntegration.deleteUnreferencedMessageContent(properties.minAge(), properties.batchSize());
+			total += deleted;
+		} while (deleted == properties.batchSize());
+
+		if (total > 0) {
+			LOG.info("Removed {} unreferenced message content row(s)", total);
+		}
+	}
+}
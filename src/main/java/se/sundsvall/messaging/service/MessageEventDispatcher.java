@@ -1,6 +1,7 @@
 package se.sundsvall.messaging.service;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.stream.Stream;
 import org.springframework.context.ApplicationEventPublisher;
@@ -55,6 +56,7 @@ public class MessageEventDispatcher {
 			.map(message -> messageMapper.toMessage(request.municipalityId(), request.origin(), request.issuer(), batchId, message))
 			.map(dbIntegration::saveMessage)
 			.toList();
+		dbIntegration.registerBatch(messages);
 
 		final var deliveries = messages.stream()
 			.map(this::publishMessageEvent)
@@ -66,6 +68,7 @@ public class MessageEventDispatcher {
 	public InternalDeliveryResult handleEmailRequest(final EmailRequest request) {
 		final var batchId = UUID.randomUUID().toString(); // Create batchId as history resource depends on it being instansiated
 		final var message = dbIntegration.saveMessage(messageMapper.toMessage(request, batchId));
+		dbIntegration.registerBatch(List.of(message));
 
 		return publishMessageEvent(message);
 	}
@@ -73,10 +76,15 @@ public class MessageEventDispatcher {
 	public InternalDeliveryBatchResult handleEmailBatchRequest(final EmailBatchRequest request) {
 		final var batchId = UUID.randomUUID().toString();
 
-		final var deliveryResults = ofNullable(request.parties()).orElse(Collections.emptyList()).stream()
+		final var messages = ofNullable(request.parties()).orElse(Collections.emptyList()).stream()
 			.map(party -> requestMapper.toEmailRequest(request, party))
 			.map(emailRequest -> messageMapper.toMessage(emailRequest, batchId))
-			.map(dbIntegration::saveMessage)
+			.toList();
+
+		final var savedMessages = dbIntegration.saveMessages(messages);
+		dbIntegration.registerBatch(savedMessages);
+
+		final var deliveryResults = savedMessages.stream()
 			.map(this::publishMessageEvent)
 			.toList();
 
@@ -91,10 +99,15 @@ public class MessageEventDispatcher {
 		final var cleanedRequest = request.withSender(cleanSenderName(request.sender()));
 		final var batchId = UUID.randomUUID().toString();
 
-		final var deliveryResults = ofNullable(cleanedRequest.parties()).orElse(emptyList()).stream()
+		final var messages = ofNullable(cleanedRequest.parties()).orElse(emptyList()).stream()
 			.map(party -> requestMapper.toSmsRequest(cleanedRequest, party))
 			.map(smsRequest -> messageMapper.toMessage(smsRequest, batchId))
-			.map(dbIntegration::saveMessage)
+			.toList();
+
+		final var savedMessages = dbIntegration.saveMessages(messages);
+		dbIntegration.registerBatch(savedMessages);
+
+		final var deliveryResults = savedMessages.stream()
 			.map(this::publishMessageEvent)
 			.toList();
 
@@ -109,6 +122,7 @@ public class MessageEventDispatcher {
 		final var cleanedRequest = request.withSender(cleanSenderName(request.sender()));
 		final var batchId = UUID.randomUUID().toString(); // Create batchId as history resource depends on it being instansiated
 		final var message = dbIntegration.saveMessage(messageMapper.toMessage(cleanedRequest, batchId));
+		dbIntegration.registerBatch(List.of(message));
 
 		return publishMessageEvent(message);
 	}
@@ -116,6 +130,7 @@ public class MessageEventDispatcher {
 	public InternalDeliveryResult handleWebMessageRequest(final WebMessageRequest request) {
 		final var batchId = UUID.randomUUID().toString(); // Create batchId as history resource depends on it being instansiated
 		final var message = dbIntegration.saveMessage(messageMapper.toMessage(request, batchId));
+		dbIntegration.registerBatch(List.of(message));
 
 		return publishMessageEvent(message);
 	}
@@ -124,6 +139,7 @@ public class MessageEventDispatcher {
 		final var batchId = UUID.randomUUID().toString();
 
 		final var messages = dbIntegration.saveMessages(messageMapper.toMessages(request, batchId, organizationNumber));
+		dbIntegration.registerBatch(messages);
 
 		final var deliveries = messages.stream()
 			.map(this::publishMessageEvent)
@@ -135,6 +151,7 @@ public class MessageEventDispatcher {
 	public InternalDeliveryResult handleDigitalInvoiceRequest(final DigitalInvoiceRequest request) {
 		final var batchId = UUID.randomUUID().toString(); // Create batchId as history resource depends on it being instansiated
 		final var message = dbIntegration.saveMessage(messageMapper.toMessage(request, batchId));
+		dbIntegration.registerBatch(List.of(message));
 
 		return publishMessageEvent(message);
 	}
@@ -147,7 +164,10 @@ public class MessageEventDispatcher {
 
 		final var allMessages = Stream.concat(messages.stream(), addressMessages.stream()).toList();
 
+		// Track the batch before any message in it can be delivered, so that the last one delivered triggers it
+		dbIntegration.trackBatch(batchId, request.municipalityId(), allMessages.size());
 		dbIntegration.saveMessages(allMessages);
+		dbIntegration.registerBatch(allMessages);
 		final var deliveries = allMessages.stream()
 			.map(this::publishMessageEvent)
 			.toList();
@@ -158,6 +178,7 @@ public class MessageEventDispatcher {
 	public InternalDeliveryResult handleSlackRequest(final SlackRequest request) {
 		final var batchId = UUID.randomUUID().toString(); // Create batchId as history resource depends on it being instansiated
 		final var message = dbIntegration.saveMessage(messageMapper.toMessage(request, batchId));
+		dbIntegration.registerBatch(List.of(message));
 
 		return publishMessageEvent(message);
 	}
@@ -1,13 +1,17 @@
 package se.sundsvall.messaging.service;
 
-import org.springframework.scheduling.annotation.Async;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionalEventListener;
 import se.sundsvall.dept44.problem.Problem;
 import se.sundsvall.dept44.requestid.RequestId;
 import se.sundsvall.messaging.integration.db.DbIntegration;
+import se.sundsvall.messaging.service.delivery.DeliveryExecutor;
 import se.sundsvall.messaging.service.event.IncomingMessageEvent;
 
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static se.sundsvall.messaging.model.MessageType.LETTER;
 import static se.sundsvall.messaging.model.MessageType.MESSAGE;
@@ -15,21 +19,44 @@ import static se.sundsvall.messaging.model.MessageType.MESSAGE;
 @Component
 class MessageEventHandler {
 
+	private static final Logger LOG = LoggerFactory.getLogger(MessageEventHandler.class);
+
 	private final MessageService messageService;
 
 	private final DbIntegration dbIntegration;
 
-	MessageEventHandler(final MessageService messageService, final DbIntegration dbIntegration) {
+	private final DeliveryExecutor deliveryExecutor;
+
+	MessageEventHandler(final MessageService messageService, final DbIntegration dbIntegration, final DeliveryExecutor deliveryExecutor) {
 		this.messageService = messageService;
 		this.dbIntegration = dbIntegration;
+		this.deliveryExecutor = deliveryExecutor;
 	}
 
-	@Async
 	@TransactionalEventListener(value = IncomingMessageEvent.class, fallbackExecution = true)
 	public void handleIncomingMessageEvent(final IncomingMessageEvent event) {
+		try {
+			deliveryExecutor.execute(event.getMessageType(), event.getDeliveryId(), () -> handle(event));
+		} catch (final RejectedExecutionException e) {
+			// Leave the claim to expire, rather than releasing it from the request thread, after which the message is picked
+			// up again by any instance polling the delivery queue
+			LOG.warn("Delivery of {} with id {} was rejected: {}", event.getMessageType(), event.getDeliveryId(), e.getMessage());
+		}
+	}
+
+	void handle(final IncomingMessageEvent event) {
+		// The delivery may run on the thread publishing the event, e.g. a request thread, whose request id is restored
+		final var callerRequestId = RequestId.get();
 		try {
 			RequestId.init();
 
+			// Make sure no other instance is delivering the message
+			if (!dbIntegration.claimMessage(event.getDeliveryId())) {
+				LOG.info("Skipping {} with delivery id {}, since it is claimed by another instance or no longer pending",
+					event.getMessageType(), event.getDeliveryId());
+				return;
+			}
+
 			// Get the message (delivery)
 			final var message = dbIntegration.getMessageByDeliveryId(event.getDeliveryId())
 				.orElseThrow(() -> Problem.valueOf(INTERNAL_SERVER_ERROR,
@@ -44,7 +71,11 @@ class MessageEventHandler {
 				messageService.deliver(message);
 			}
 		} finally {
-			RequestId.reset();
+			if (isNotBlank(callerRequestId)) {
+				RequestId.init(callerRequestId);
+			} else {
+				RequestId.reset();
+			}
 		}
 	}
 
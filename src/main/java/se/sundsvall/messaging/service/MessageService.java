@@ -3,12 +3,16 @@ package se.sundsvall.messaging.service;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
@@ -26,6 +30,7 @@ import se.sundsvall.messaging.api.model.request.SmsRequest;
 import se.sundsvall.messaging.api.model.request.SnailMailRequest;
 import se.sundsvall.messaging.api.model.request.WebMessageRequest;
 import se.sundsvall.messaging.api.model.response.Mailbox;
+import se.sundsvall.messaging.configuration.MailboxPreCheckProperties;
 import se.sundsvall.messaging.integration.citizen.CitizenIntegration;
 import se.sundsvall.messaging.integration.contactsettings.ContactSettingsIntegration;
 import se.sundsvall.messaging.integration.db.DbIntegration;
@@ -39,6 +44,9 @@ import se.sundsvall.messaging.model.InternalDeliveryBatchResult;
 import se.sundsvall.messaging.model.InternalDeliveryResult;
 import se.sundsvall.messaging.model.Message;
 import se.sundsvall.messaging.model.MessageOutcome;
+import se.sundsvall.messaging.service.delivery.DeliveryExecutor;
+import se.sundsvall.messaging.service.delivery.FanOutExecutor;
+import se.sundsvall.messaging.service.delivery.HistoryArchiver;
 import se.sundsvall.messaging.service.mapper.DtoMapper;
 import se.sundsvall.messaging.service.mapper.MessageMapper;
 import se.sundsvall.messaging.service.mapper.RequestMapper;
@@ -63,6 +71,7 @@ import static se.sundsvall.messaging.util.JsonUtils.fromJson;
 import static se.sundsvall.messaging.util.JsonUtils.toJson;
 
 @Service
+@EnableConfigurationProperties(MailboxPreCheckProperties.class)
 public class MessageService {
 
 	private static final Logger LOG = LoggerFactory.getLogger(MessageService.class);
@@ -81,6 +90,11 @@ public class MessageService {
 	private final MessageMapper messageMapper;
 	private final RequestMapper requestMapper;
 	private final DtoMapper dtoMapper;
+	private final FanOutExecutor fanOutExecutor;
+	private final DeliveryExecutor deliveryExecutor;
+	private final HistoryArchiver historyArchiver;
+	private final MailboxLookup mailboxLookup;
+	private final MailboxPreCheckProperties mailboxPreCheckProperties;
 
 	public MessageService(final TransactionTemplate transactionTemplate,
 		final DbIntegration dbIntegration,
@@ -94,7 +108,12 @@ public class MessageService {
 		final OepIntegratorIntegration oepIntegration,
 		final MessageMapper messageMapper,
 		final RequestMapper requestMapper,
-		final DtoMapper dtoMapper) {
+		final DtoMapper dtoMapper,
+		final FanOutExecutor fanOutExecutor,
+		final DeliveryExecutor deliveryExecutor,
+		final HistoryArchiver historyArchiver,
+		final MailboxLookup mailboxLookup,
+		final MailboxPreCheckProperties mailboxPreCheckProperties) {
 		this.transactionTemplate = transactionTemplate;
 		this.dbIntegration = dbIntegration;
 		this.citizenIntegration = citizenIntegration;
@@ -108,10 +127,15 @@ public class MessageService {
 		this.messageMapper = messageMapper;
 		this.requestMapper = requestMapper;
 		this.dtoMapper = dtoMapper;
+		this.fanOutExecutor = fanOutExecutor;
+		this.deliveryExecutor = deliveryExecutor;
+		this.historyArchiver = historyArchiver;
+		this.mailboxLookup = mailboxLookup;
+		this.mailboxPreCheckProperties = mailboxPreCheckProperties;
 	}
 
 	public InternalDeliveryResult sendSnailMail(final SnailMailRequest request, final String batchId) {
-		return deliver(dbIntegration.saveMessage(messageMapper.toMessage(request, batchId)));
+		return saveAndDeliver(messageMapper.toMessage(request, batchId));
 	}
 
 	public void sendSnailMailBatch(final String municipalityId, final String batchId) {
@@ -124,7 +148,7 @@ public class MessageService {
 		final var cleanedRequest = request.withSender(cleanSenderName(request.sender()));
 
 		// Save the message and (try to) deliver it
-		return deliver(dbIntegration.saveMessage(messageMapper.toMessage(cleanedRequest, batchId)));
+		return saveAndDeliver(messageMapper.toMessage(cleanedRequest, batchId));
 	}
 
 	public InternalDeliveryResult sendEmail(final EmailRequest request) {
@@ -132,7 +156,7 @@ public class MessageService {
 		final var batchId = UUID.randomUUID().toString();
 
 		// Save the message and (try to) deliver it
-		return deliver(dbIntegration.saveMessage(messageMapper.toMessage(request, batchId)));
+		return saveAndDeliver(messageMapper.toMessage(request, batchId));
 	}
 
 	public InternalDeliveryResult sendWebMessage(final WebMessageRequest request) {
@@ -140,17 +164,17 @@ public class MessageService {
 		final var batchId = UUID.randomUUID().toString();
 
 		// Save the message and (try to) deliver it
-		return deliver(dbIntegration.saveMessage(messageMapper.toMessage(request, batchId)));
+		return saveAndDeliver(messageMapper.toMessage(request, batchId));
 	}
 
 	public InternalDeliveryBatchResult sendDigitalMail(final DigitalMailRequest request, String organizationNumber) {
 		final var batchId = UUID.randomUUID().toString();
 		// Save the message(s)
 		final var deliveries = dbIntegration.saveMessages(messageMapper.toMessages(request, batchId, organizationNumber));
-		// Deliver them
-		final var deliveryResults = deliveries.stream()
-			.map(this::deliver)
-			.toList();
+		dbIntegration.registerBatch(deliveries);
+		// Deliver them, in parallel
+		final var deliveryResults = whileInFlight(deliveries, () -> fanOutExecutor.map(deliveries, this::deliver,
+			(delivery, e) -> new InternalDeliveryResult(delivery, FAILED)));
 
 		return new InternalDeliveryBatchResult(batchId, deliveryResults, request.municipalityId());
 	}
@@ -160,7 +184,7 @@ public class MessageService {
 		final var batchId = UUID.randomUUID().toString();
 
 		// Save the message and (try to) deliver it
-		return deliver(dbIntegration.saveMessage(messageMapper.toMessage(request, batchId)));
+		return saveAndDeliver(messageMapper.toMessage(request, batchId));
 	}
 
 	public InternalDeliveryBatchResult sendMessages(final MessageRequest request) {
@@ -169,13 +193,18 @@ public class MessageService {
 			.map(message -> messageMapper.toMessage(request.municipalityId(), request.origin(), request.issuer(), batchId, message))
 			.map(dbIntegration::saveMessage)
 			.toList();
-
-		// Handle and send each message individually, since we don't know if it will result in zero,
-		// one or more actual deliveries
-		final var deliveryResults = messages.stream()
-			.map(this::sendMessage)
+		dbIntegration.registerBatch(messages);
+
+		// Handle and send each message individually, in parallel, since we don't know if it will result
+		// in zero, one or more actual deliveries. A message that fails to be handled fails the request, as
+		// when handled one at a time, and is left claimed, to be picked up by the delivery queue once its
+		// claim has expired
+		final var deliveryResults = whileInFlight(messages, () -> fanOutExecutor.map(messages, this::sendMessage,
+			(message, e) -> {
+				throw e;
+			}).stream()
 			.flatMap(Collection::stream)
-			.toList();
+			.toList());
 
 		return new InternalDeliveryBatchResult(batchId, deliveryResults, request.municipalityId());
 	}
@@ -185,13 +214,34 @@ public class MessageService {
 
 		final var deliveryResults = routeAndSendLetter(message);
 
-		// Trigger the batch if no messages are left unsent
-		if (!dbIntegration.existsByBatchId(batchId)) {
-			LOG.info("Triggering async batch {}", batchId);
+		final var sentSnailMailCount = (int) deliveryResults.stream()
+			.filter(deliveryResult -> SNAIL_MAIL.equals(deliveryResult.messageType()) && !FAILED.equals(deliveryResult.status()))
+			.count();
+		// Delete the letter itself, so that it no longer counts as left to deliver whether its deliveries are archived yet
+		// or not, and count it down in the same transaction, so that a redelivered letter isn't counted down again
+		if (!dbIntegration.completeLetter(batchId, message.deliveryId(), sentSnailMailCount)) {
+			// Batches saved before they were tracked are triggered if no messages are left unsent
+			if (!dbIntegration.existsByBatchId(batchId)) {
+				LOG.info("Triggering async batch {}", batchId);
+
+				sendSnailMailBatch(deliveryResults, batchId, message.municipalityId());
+			} else {
+				LOG.info("Not triggering batch {} since there are unhandled messages", batchId);
+			}
+			return;
+		}
 
-			sendSnailMailBatch(deliveryResults, batchId, message.municipalityId());
-		} else {
+		// Only the delivery that finds no messages left undelivered gets to trigger the batch
+		if (!dbIntegration.markBatchTriggered(batchId)) {
 			LOG.info("Not triggering batch {} since there are unhandled messages", batchId);
+		} else if (dbIntegration.getSentSnailMailCount(batchId) == 0) {
+			LOG.info("Not triggering batch {} since no snail-mail deliveries within it were sent", batchId);
+		} else {
+			LOG.info("Triggering async batch {}", batchId);
+
+			snailMailSenderIntegration.sendBatch(message.municipalityId(), batchId);
+
+			LOG.info("Batch {} sent successfully", batchId);
 		}
 	}
 
@@ -202,13 +252,19 @@ public class MessageService {
 		final var messagesWithAddress = messageMapper.mapAddressesToMessages(request, batchId);
 		final var allMessages = Stream.concat(messagesWithPartyId.stream(), messagesWithAddress.stream()).toList();
 		dbIntegration.saveMessages(allMessages);
+		dbIntegration.registerBatch(allMessages);
+
+		// Check the digital mailboxes of all recipients up front, so that recipients without one are
+		// routed directly to snail-mail
+		final var partyIdsWithoutMailbox = getPartyIdsWithoutMailbox(request, organizationNumber, messagesWithPartyId);
 
 		// Handle and send each message individually, since we don't know if it will result in zero,
 		// one or more actual deliveries
-		final var deliveryResults = allMessages.stream()
-			.map(this::routeAndSendLetter)
+		final var deliveryResults = whileInFlight(allMessages, () -> allMessages.stream()
+			.map(message -> routeAndSendLetter(message, partyIdsWithoutMailbox))
 			.flatMap(Collection::stream)
-			.toList();
+			.toList());
+		dbIntegration.deleteLetters(batchId);
 
 		LOG.info("Triggering sync batch {}", batchId);
 
@@ -217,6 +273,39 @@ public class MessageService {
 		return new InternalDeliveryBatchResult(batchId, deliveryResults, request.municipalityId());
 	}
 
+	/**
+	 * Gets the party ids, among the recipients of the given letter, that are known to have no reachable digital mailbox.
+	 * If the mailboxes can't be checked, the recipients are treated as having a mailbox, i.e. a delivery as digital mail
+	 * is attempted for them.
+	 *
+	 * @param  request            the letter request
+	 * @param  organizationNumber the organization number of the sending organization
+	 * @param  messages           the messages for the recipients with a party id
+	 * @return                    the party ids of the recipients without a reachable digital mailbox
+	 */
+	Set<String> getPartyIdsWithoutMailbox(final LetterRequest request, final String organizationNumber, final List<Message> messages) {
+		if (!mailboxPreCheckProperties.enabled() || request.attachments().stream().noneMatch(LetterRequest.Attachment::isIntendedForDigitalMail)) {
+			return Set.of();
+		}
+
+		final var partyIds = messages.stream()
+			.map(Message::partyId)
+			.filter(StringUtils::isNotBlank)
+			.distinct()
+			.toList();
+
+		try {
+			return mailboxLookup.getMailboxes(request.municipalityId(), organizationNumber, partyIds).stream()
+				.filter(mailbox -> !mailbox.reachable())
+				.map(Mailbox::partyId)
+				.collect(Collectors.toSet());
+		} catch (final Exception e) {
+			LOG.warn("Unable to check the digital mailboxes of {} recipient(s), will attempt DIGITAL_MAIL for them", partyIds.size(), e);
+
+			return Set.of();
+		}
+	}
+
 	private void sendSnailMailBatch(final List<InternalDeliveryResult> deliveryResults, final String batchId, final String municipalityId) {
 		final var snailMailDeliveryResults = deliveryResults.stream().filter(deliveryResult -> SNAIL_MAIL.equals(deliveryResult.messageType())).toList();
 
@@ -239,7 +328,17 @@ public class MessageService {
 		final var batchId = UUID.randomUUID().toString();
 
 		// Save the message and (try to) deliver it
-		return deliver(dbIntegration.saveMessage(messageMapper.toMessage(request, batchId)));
+		return saveAndDeliver(messageMapper.toMessage(request, batchId));
+	}
+
+	/**
+	 * Saves the message, making up a batch of its own, and (tries to) deliver it.
+	 */
+	private InternalDeliveryResult saveAndDeliver(final Message message) {
+		final var savedMessage = dbIntegration.saveMessage(message);
+		dbIntegration.registerBatch(List.of(savedMessage));
+
+		return deliver(savedMessage);
 	}
 
 	List<InternalDeliveryResult> sendMessage(final Message message) {
@@ -264,7 +363,7 @@ public class MessageService {
 			.orElseGet(LinkedMultiValueMap::new);
 
 		// Get contact settings and maybe act upon them
-		final var contactSettings = contactSettingsIntegration.getContactSettings(message.municipalityId(), partyId, filters);
+		final var contactSettings = contactSettingsIntegration.getContactSettings(message.municipalityId(), message.origin(), partyId, filters);
 		if (contactSettings.isEmpty()) {
 			LOG.info("No contact settings found for {} with filters {}", partyId, filters);
 
@@ -348,6 +447,10 @@ public class MessageService {
 	}
 
 	List<InternalDeliveryResult> routeAndSendLetter(final Message message) {
+		return routeAndSendLetter(message, Set.of());
+	}
+
+	List<InternalDeliveryResult> routeAndSendLetter(final Message message, final Set<String> partyIdsWithoutMailbox) {
 		final var result = new ArrayList<InternalDeliveryResult>();
 		final var request = fromJson(message.content(), LetterRequest.class);
 
@@ -367,8 +470,20 @@ public class MessageService {
 			final var digitalMailRequestAsJson = toJson(digitalMailRequest);
 
 			// Don't make an attempt to deliver as digital mail if there aren't any attachments
-			// intended for it
-			if (!digitalMailRequest.attachments().isEmpty()) {
+			// intended for it, or if the recipient is known to have no reachable digital mailbox
+			if (digitalMailRequest.attachments().isEmpty()) {
+				LOG.info("No attachment(s) for DIGITAL_MAIL - switching over to snail-mail");
+			} else if (partyIdsWithoutMailbox.contains(message.partyId())) {
+				if (request.attachments().stream().noneMatch(LetterRequest.Attachment::isIntendedForSnailMail)) {
+					// Only digital mail delivery allowed - fail without attempting it
+					final var failedMessage = message.withType(DIGITAL_MAIL).withStatus(FAILED);
+					archiveMessage(failedMessage, "Only DIGITAL_MAIL delivery allowed and no reachable digital mailbox");
+
+					return List.of(new InternalDeliveryResult(failedMessage));
+				}
+
+				LOG.info("No reachable digital mailbox - switching over to snail-mail");
+			} else {
 				// "Re-route" the message as digital mail
 				final var reroutedMessage = dbIntegration.saveMessage(message
 					.withType(DIGITAL_MAIL)
@@ -386,9 +501,6 @@ public class MessageService {
 
 					result.add(new InternalDeliveryResult(reroutedMessage.withStatus(FAILED)));
 				}
-			} else {
-				// No attachments intended for digital mail
-				LOG.info("No attachment(s) for DIGITAL_MAIL - switching over to snail-mail");
 			}
 		}
 		// We're about to switch to snail-mail delivery - make sure that there exists some attachment(s) for that
@@ -429,11 +541,9 @@ public class MessageService {
 			// Re-route the original message as snail-mail - if the party id is set on the original message,
 			// we've gotten here after attempting a digital mail delivery, so we need to treat the delivery
 			// as a new one with a fresh delivery id
-			var deliveryIdModified = false;
 			var deliveryId = message.deliveryId();
 			if (isNotBlank(message.partyId())) {
 				deliveryId = UUID.randomUUID().toString();
-				deliveryIdModified = true;
 			}
 
 			final var reroutedMessage = dbIntegration.saveMessage(message
@@ -450,11 +560,6 @@ public class MessageService {
 
 				result.add(new InternalDeliveryResult(reroutedMessage.withStatus(FAILED)));
 			}
-
-			// If we modified the delivery id we need to delete the original delivery manually
-			if (deliveryIdModified) {
-				dbIntegration.deleteMessageByDeliveryId(message.deliveryId());
-			}
 		} else {
 			LOG.info("No attachment(s) for SNAIL_MAIL - unable to send letter");
 		}
@@ -488,8 +593,8 @@ public class MessageService {
 		};
 
 		try {
-			// Perform the attempt
-			final var outcome = deliveryAttempt.get();
+			// Perform the attempt, keeping the claim on the message alive while at it
+			final var outcome = whileInFlight(List.of(delivery), deliveryAttempt);
 			// Archive the message
 			final var deliveredMessage = delivery.withStatus(outcome.status()).withDigitalMailTransactionId(outcome.transactionId());
 			archiveMessage(deliveredMessage);
@@ -518,20 +623,44 @@ public class MessageService {
 	}
 
 	void archiveMessage(final Message message, final String statusDetail) {
+		LOG.info("Moving {} delivery {} with status {} to history", message.type(),
+			message.deliveryId(), message.status());
+
+		// Leave it to the history archiver when write-behind archiving is enabled
+		if (historyArchiver.archive(message, statusDetail)) {
+			return;
+		}
+
+		// Counted in the daily statistics in the same transaction, like the deliveries archived by the history archiver
 		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
 
 			@Override
 			protected void doInTransactionWithoutResult(@NotNull final TransactionStatus ignored) {
-				LOG.info("Moving {} delivery {} with status {} to history", message.type(),
-					message.deliveryId(), message.status());
-
-				dbIntegration.saveHistory(message, statusDetail);
-				dbIntegration.deleteMessageByDeliveryId(message.deliveryId());
+				dbIntegration.archiveAndCountMessage(message, statusDetail);
 			}
 		});
 	}
 
+	/**
+	 * Keeps the given deliveries as in-flight while delivering them, so that their claims are renewed even though they
+	 * are delivered synchronously, rather than by the delivery executor.
+	 */
+	private <T> T whileInFlight(final List<Message> deliveries, final Supplier<T> delivery) {
+		final var deliveryIds = deliveries.stream().map(Message::deliveryId).toList();
+
+		deliveryExecutor.started(deliveryIds);
+		try {
+			return delivery.get();
+		} finally {
+			deliveryExecutor.completed(deliveryIds);
+		}
+	}
+
 	public List<Mailbox> getMailboxes(final String municipalityId, final String organizationNumber, final List<String> partyIds) {
-		return digitalMailSenderIntegration.getMailboxes(municipalityId, organizationNumber, partyIds);
+		return mailboxLookup.getMailboxes(municipalityId, organizationNumber, partyIds);
+	}
+
+	public void invalidateContactSettings(final String municipalityId, final String partyId) {
+		contactSettingsIntegration.invalidateContactSettings(municipalityId, partyId);
 	}
 }
@@ -1,11 +1,15 @@
 package se.sundsvall.messaging.service;
 
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import org.springframework.stereotype.Service;
 import se.sundsvall.messaging.api.model.response.DepartmentStats;
 import se.sundsvall.messaging.integration.db.DbIntegration;
+import se.sundsvall.messaging.model.DailyStatsEntry;
 import se.sundsvall.messaging.model.DepartmentStatistics;
+import se.sundsvall.messaging.model.ExportFormat;
 import se.sundsvall.messaging.model.MessageType;
 import se.sundsvall.messaging.model.Statistics;
 
@@ -18,6 +22,15 @@ import static se.sundsvall.messaging.service.mapper.StatisticsMapper.toStatistic
 @Service
 public class StatisticsService {
 
+	private static final List<ExportWriter.Column<DailyStatsEntry>> STATISTICS_EXPORT_COLUMNS = List.of(
+		new ExportWriter.Column<>("day", DailyStatsEntry::day),
+		new ExportWriter.Column<>("originalMessageType", DailyStatsEntry::originalMessageType),
+		new ExportWriter.Column<>("messageType", DailyStatsEntry::messageType),
+		new ExportWriter.Column<>("status", DailyStatsEntry::status),
+		new ExportWriter.Column<>("origin", DailyStatsEntry::origin),
+		new ExportWriter.Column<>("department", DailyStatsEntry::department),
+		new ExportWriter.Column<>("count", DailyStatsEntry::count));
+
 	private final DbIntegration dbIntegration;
 
 	public StatisticsService(final DbIntegration dbIntegration) {
@@ -32,7 +45,7 @@ public class StatisticsService {
 	}
 
 	public List<DepartmentStatistics> getDepartmentLetterStatistics(final String origin, final String department, final LocalDate from, final LocalDate to, final String municipalityId) {
-		return toDepartmentStatisticsList(dbIntegration.getStatsByParameters(municipalityId, origin, department, List.of(LETTER), from, to), municipalityId);
+		return toDepartmentStatisticsList(dbIntegration.getStatsByParameters(municipalityId, origin, department, List.of(LETTER), from, to));
 	}
 
 	public DepartmentStats getStatisticsByDepartment(final String municipalityId, final String department, final String origin, final LocalDate from, final LocalDate to) {
@@ -40,4 +53,21 @@ public class StatisticsService {
 		return toDepartmentStats(statEntries, department, origin);
 	}
 
+	/**
+	 * Exports the number of deliveries per day within the given dates to the response, one day and combination of
+	 * message types, status, origin and department per line or row. The rows are written as they are read from the
+	 * database, so the export may span any number of days.
+	 *
+	 * @param  municipalityId the municipality ID
+	 * @param  from           the first date to include, or null
+	 * @param  to             the last date to include, or null
+	 * @param  format         the format of the export
+	 * @param  response       the response to write the export to
+	 * @throws IOException    if the export can't be written to the response
+	 */
+	public void exportStatistics(final String municipalityId, final LocalDate from, final LocalDate to, final ExportFormat format, final HttpServletResponse response) throws IOException {
+		try (final var writer = ExportWriter.create(format, response, "statistics", STATISTICS_EXPORT_COLUMNS)) {
+			dbIntegration.exportDailyStats(municipalityId, from, to, writer::write);
+		}
+	}
 }
@@ -0,0 +1,158 @@
+package se.sundsvall.messaging.service.delivery;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.configuration.DeliveryExecutorProperties;
+import se.sundsvall.messaging.configuration.DeliveryExecutorProperties.Pool;
+import se.sundsvall.messaging.model.MessageType;
+
+/**
+ * Executes deliveries on one bounded thread pool per message type, so that a large batch of one
+ * type can neither starve the other types nor exhaust threads, memory or database connections. Deliveries made
+ * synchronously, on the request thread, are kept as in-flight here as well, so that their claims are kept alive too.
+ */
+@Component
+@EnableConfigurationProperties(DeliveryExecutorProperties.class)
+public class DeliveryExecutor implements DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DeliveryExecutor.class);
+
+	private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 30;
+
+	private final Map<MessageType, ThreadPoolExecutor> executors = new EnumMap<>(MessageType.class);
+
+	private final Map<String, Integer> inFlightDeliveryIds = new ConcurrentHashMap<>();
+
+	public DeliveryExecutor(final DeliveryExecutorProperties properties, final MeterRegistry meterRegistry) {
+		for (final var messageType : MessageType.values()) {
+			final var executor = createExecutor(messageType, properties.poolFor(messageType));
+
+			new ExecutorServiceMetrics(executor, "delivery", Tags.of("type", messageType.name())).bindTo(meterRegistry);
+
+			executors.put(messageType, executor);
+		}
+	}
+
+	/**
+	 * Executes the given delivery task on the pool for the given message type. The delivery id is
+	 * kept as in-flight from the moment the task is accepted until it has run.
+	 *
+	 * @param  messageType                the message type
+	 * @param  deliveryId                 the delivery id
+	 * @param  task                       the delivery task
+	 * @throws RejectedExecutionException if the pool rejects the task
+	 */
+	public void execute(final MessageType messageType, final String deliveryId, final Runnable task) {
+		inFlightDeliveryIds.merge(deliveryId, 1, Integer::sum);
+
+		try {
+			executors.get(messageType).execute(() -> {
+				try {
+					task.run();
+				} finally {
+					completed(deliveryId);
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			completed(deliveryId);
+			throw e;
+		}
+	}
+
+	/**
+	 * Keeps the given delivery ids as in-flight while they are delivered outside the pools, i.e. synchronously, until
+	 * {@link #completed(Collection)} is called for them.
+	 *
+	 * @param deliveryIds the delivery ids
+	 */
+	public void started(final Collection<String> deliveryIds) {
+		deliveryIds.forEach(deliveryId -> inFlightDeliveryIds.merge(deliveryId, 1, Integer::sum));
+	}
+
+	/**
+	 * No longer keeps the given delivery ids, previously passed to {@link #started(Collection)}, as in-flight.
+	 *
+	 * @param deliveryIds the delivery ids
+	 */
+	public void completed(final Collection<String> deliveryIds) {
+		deliveryIds.forEach(this::completed);
+	}
+
+	/**
+	 * Returns the number of deliveries of the given message type that can be queued before the pool for the type is full.
+	 *
+	 * @param  messageType the message type
+	 * @return             the remaining capacity of the queue of the pool
+	 */
+	public int getRemainingCapacity(final MessageType messageType) {
+		return executors.get(messageType).getQueue().remainingCapacity();
+	}
+
+	/**
+	 * Returns the delivery ids that are currently queued or running.
+	 *
+	 * @return the in-flight delivery ids
+	 */
+	public Set<String> getInFlightDeliveryIds() {
+		return Set.copyOf(inFlightDeliveryIds.keySet());
+	}
+
+	private void completed(final String deliveryId) {
+		inFlightDeliveryIds.computeIfPresent(deliveryId, (key, count) -> count > 1 ? count - 1 : null);
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		executors.values().forEach(ThreadPoolExecutor::shutdown);
+
+		for (final var entry : executors.entrySet()) {
+			if (!entry.getValue().awaitTermination(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+				LOG.warn("Delivery executor for {} did not terminate within {} seconds", entry.getKey(), SHUTDOWN_TIMEOUT_IN_SECONDS);
+			}
+		}
+	}
+
+	static ThreadPoolExecutor createExecutor(final MessageType messageType, final Pool pool) {
+		final var threadFactory = new CustomizableThreadFactory("delivery-" + messageType.name().toLowerCase() + "-");
+
+		return new ThreadPoolExecutor(pool.concurrency(), pool.concurrency(), 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(pool.queueCapacity()), threadFactory, toRejectedExecutionHandler(pool));
+	}
+
+	static RejectedExecutionHandler toRejectedExecutionHandler(final Pool pool) {
+		return switch (pool.rejectionPolicy()) {
+			case BLOCK -> (task, executor) -> {
+				if (executor.isShutdown()) {
+					throw new RejectedExecutionException("Delivery executor has been shut down");
+				}
+				try {
+					if (!executor.getQueue().offer(task, pool.blockTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+						throw new RejectedExecutionException("Timed out waiting for room in the delivery queue");
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RejectedExecutionException("Interrupted while waiting for room in the delivery queue", e);
+				}
+			};
+			case CALLER_RUNS -> new ThreadPoolExecutor.CallerRunsPolicy();
+			case ABORT -> new ThreadPoolExecutor.AbortPolicy();
+		};
+	}
+}
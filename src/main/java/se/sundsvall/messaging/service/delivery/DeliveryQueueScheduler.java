@@ -0,0 +1,123 @@
+package se.sundsvall.messaging.service.delivery;
+
+import java.util.HashSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.sundsvall.messaging.configuration.DeliveryQueueProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.service.event.IncomingMessageEvent;
+
+/**
+ * Keeps the claims of the deliveries in flight or waiting to be archived on this instance alive and picks up pending messages left behind by other instances, or by this
+ * instance, e.g. when a delivery was rejected by a full delivery executor. Messages whose outcome was recorded since they
+ * couldn't be archived when delivered are picked up to be archived, rather than delivered again.
+ */
+@Component
+class DeliveryQueueScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DeliveryQueueScheduler.class);
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final DbIntegration dbIntegration;
+
+	private final DeliveryExecutor deliveryExecutor;
+
+	private final HistoryArchiver historyArchiver;
+
+	private final DeliveryQueueProperties properties;
+
+	DeliveryQueueScheduler(final ApplicationEventPublisher eventPublisher, final DbIntegration dbIntegration,
+		final DeliveryExecutor deliveryExecutor, final HistoryArchiver historyArchiver,
+		final DeliveryQueueProperties properties) {
+		this.eventPublisher = eventPublisher;
+		this.dbIntegration = dbIntegration;
+		this.deliveryExecutor = deliveryExecutor;
+		this.historyArchiver = historyArchiver;
+		this.properties = properties;
+	}
+
+	@Scheduled(initialDelayString = "${messaging.delivery-queue.heartbeat-interval:PT1M}", fixedDelayString = "${messaging.delivery-queue.heartbeat-interval:PT1M}")
+	void renewClaims() {
+		// Only renew claims of deliveries still queued, running or waiting to be archived, claims left behind by a failed
+		// delivery are left to expire
+		final var deliveryIds = new HashSet<>(deliveryExecutor.getInFlightDeliveryIds());
+		deliveryIds.addAll(historyArchiver.getQueuedDeliveryIds());
+		if (deliveryIds.isEmpty()) {
+			return;
+		}
+
+		final var renewed = dbIntegration.renewClaims(deliveryIds);
+
+		LOG.debug("Renewed {} claim(s) held by {}", renewed, properties.instanceId());
+	}
+
+	@Scheduled(initialDelayString = "${messaging.delivery-queue.poll-interval:PT30S}", fixedDelayString = "${messaging.delivery-queue.poll-interval:PT30S}")
+	void pollPendingMessages() {
+		if (!properties.pollingEnabled()) {
+			return;
+		}
+
+		var claimed = 0;
+		for (final var messageType : MessageType.values()) {
+			claimed += pollPendingMessages(messageType);
+		}
+
+		if (claimed > 0) {
+			LOG.info("Claimed {} pending message(s) from the delivery queue", claimed);
+		}
+	}
+
+	/**
+	 * Claims no more pending messages of the given type than there is room for in the delivery executor, so that none of
+	 * them is rejected, and claims again right away as long as a full page was claimed.
+	 *
+	 * @return the number of claimed messages
+	 */
+	private int pollPendingMessages(final MessageType messageType) {
+		var claimed = 0;
+		while (true) {
+			final var limit = Math.min(properties.pollBatchSize(), deliveryExecutor.getRemainingCapacity(messageType));
+			if (limit == 0) {
+				return claimed;
+			}
+
+			final var pendingMessages = dbIntegration.claimPendingMessages(messageType, limit);
+
+			pendingMessages.stream()
+				.map(message -> new IncomingMessageEvent(this, message.getMunicipalityId(), message.getType(), message.getDeliveryId(), message.getOrigin()))
+				.forEach(eventPublisher::publishEvent);
+
+			claimed += pendingMessages.size();
+			if (pendingMessages.size() < limit) {
+				return claimed;
+			}
+		}
+	}
+
+	@Scheduled(initialDelayString = "${messaging.delivery-queue.poll-interval:PT30S}", fixedDelayString = "${messaging.delivery-queue.poll-interval:PT30S}")
+	void archiveCompletedMessages() {
+		if (!properties.pollingEnabled()) {
+			return;
+		}
+
+		final var ids = dbIntegration.claimCompletedMessages(properties.pollBatchSize());
+
+		if (!ids.isEmpty()) {
+			LOG.info("Claimed {} message(s) with a recorded outcome to archive", ids.size());
+		}
+
+		// One message failing to be archived shouldn't keep the rest from being archived
+		ids.forEach(id -> {
+			try {
+				dbIntegration.archiveCompletedMessage(id);
+			} catch (final RuntimeException e) {
+				LOG.warn("Unable to archive message {}, leaving its claim to expire", id, e);
+			}
+		});
+	}
+}
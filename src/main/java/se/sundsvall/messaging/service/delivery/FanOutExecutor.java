@@ -0,0 +1,127 @@
+package se.sundsvall.messaging.service.delivery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import se.sundsvall.dept44.requestid.RequestId;
+import se.sundsvall.dept44.support.Identifier;
+import se.sundsvall.messaging.configuration.FanOutProperties;
+
+/**
+ * Performs the tasks of a single (synchronous) request in parallel, on virtual threads, with the number of tasks
+ * running at the same time capped by the configured parallelism.
+ */
+@Component
+@EnableConfigurationProperties(FanOutProperties.class)
+public class FanOutExecutor {
+
+	private final int parallelism;
+
+	public FanOutExecutor(final FanOutProperties properties) {
+		this.parallelism = properties.parallelism();
+	}
+
+	/**
+	 * Applies the given task to each item in parallel and returns the results in the same order as the items. A task that
+	 * fails has its result created by the given failure handler instead, unless all tasks fail, in which case the failure of
+	 * the first item is re-thrown. A single item is handled in the calling thread.
+	 *
+	 * @param  items     the items
+	 * @param  task      the task to apply to each item
+	 * @param  onFailure creates the result for an item whose task failed
+	 * @return           the results, in item order
+	 */
+	public <T, R> List<R> map(final List<T> items, final Function<? super T, ? extends R> task,
+		final BiFunction<? super T, ? super RuntimeException, ? extends R> onFailure) {
+		return map(items, parallelism, task, onFailure);
+	}
+
+	/**
+	 * Same as {@link #map(List, Function, BiFunction)}, but with the number of tasks running at the same time capped by the
+	 * given parallelism instead of the configured one.
+	 *
+	 * @param  items       the items
+	 * @param  parallelism the maximum number of tasks running at the same time
+	 * @param  task        the task to apply to each item
+	 * @param  onFailure   creates the result for an item whose task failed
+	 * @return             the results, in item order
+	 */
+	public <T, R> List<R> map(final List<T> items, final int parallelism, final Function<? super T, ? extends R> task,
+		final BiFunction<? super T, ? super RuntimeException, ? extends R> onFailure) {
+		if (items.size() <= 1) {
+			return items.stream().<R>map(task).toList();
+		}
+
+		// The request id and identifier are thread-bound, and are needed by the integrations
+		final var requestId = RequestId.get();
+		final var identifier = Identifier.get();
+
+		final var semaphore = new Semaphore(parallelism);
+		final var futures = new ArrayList<Future<R>>(items.size());
+
+		try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (final var item : items) {
+				semaphore.acquireUninterruptibly();
+
+				futures.add(executor.submit(() -> {
+					try {
+						RequestId.init(requestId);
+						Identifier.set(identifier);
+
+						return task.apply(item);
+					} finally {
+						semaphore.release();
+					}
+				}));
+			}
+		}
+
+		return collectResults(items, futures, onFailure);
+	}
+
+	private static <T, R> List<R> collectResults(final List<T> items, final List<Future<R>> futures,
+		final BiFunction<? super T, ? super RuntimeException, ? extends R> onFailure) {
+		final var results = new ArrayList<R>(items.size());
+		RuntimeException firstFailure = null;
+		var failures = 0;
+
+		for (var i = 0; i < futures.size(); i++) {
+			final var future = futures.get(i);
+
+			if (future.state() == Future.State.SUCCESS) {
+				results.add(future.resultNow());
+			} else {
+				final var failure = toRuntimeException(future.exceptionNow());
+				if (firstFailure == null) {
+					firstFailure = failure;
+				}
+				failures++;
+
+				results.add(onFailure.apply(items.get(i), failure));
+			}
+		}
+
+		if (failures == items.size()) {
+			throw firstFailure;
+		}
+
+		return results;
+	}
+
+	private static RuntimeException toRuntimeException(final Throwable throwable) {
+		if (throwable instanceof final RuntimeException runtimeException) {
+			return runtimeException;
+		}
+		if (throwable instanceof final Error error) {
+			throw error;
+		}
+
+		return new IllegalStateException(throwable);
+	}
+}
@@ -0,0 +1,260 @@
+package se.sundsvall.messaging.service.delivery;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.sundsvall.messaging.configuration.HistoryArchiverProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+import se.sundsvall.messaging.model.DailyStatsKey;
+import se.sundsvall.messaging.model.Message;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Archives completed deliveries to the history in the background, when enabled, so that delivering threads don't have
+ * to wait for a commit per delivery. Completed deliveries are queued and archived in batches, one transaction per batch,
+ * as soon as a batch is full or the flush interval has passed. Delivering threads wait for room when the queue is full.
+ * The archived deliveries are counted in the daily statistics in the same transaction, one upsert per key rather than
+ * per delivery.
+ * <p>
+ * A queued delivery is still a pending message, claimed by this instance, until its batch is committed. Should the
+ * instance die before that, the claim expires and the message is delivered again, so that no outcome is lost. A
+ * delivery that fails to be archived is retried with the next batch. Once it has failed the maximum number of attempts,
+ * its outcome is recorded on its message, which keeps its claim and is archived by the delivery queue once the claim
+ * has expired, so that a delivery already made isn't made again.
+ */
+@Component
+@EnableConfigurationProperties(HistoryArchiverProperties.class)
+public class HistoryArchiver implements DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HistoryArchiver.class);
+
+	private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 30;
+
+	private static final long OFFER_TIMEOUT_IN_MILLIS = 100;
+
+	private final DbIntegration dbIntegration;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final HistoryArchiverProperties properties;
+
+	private final BlockingQueue<Archival> queue;
+
+	// Read by the lag gauge as well as the archiving thread
+	private final List<Archival> retries = new CopyOnWriteArrayList<>();
+
+	private final Map<String, Integer> queuedDeliveryIds = new ConcurrentHashMap<>();
+
+	private final ExecutorService executor;
+
+	private volatile boolean running;
+
+	public HistoryArchiver(final DbIntegration dbIntegration, final TransactionTemplate transactionTemplate,
+		final HistoryArchiverProperties properties, final MeterRegistry meterRegistry) {
+		this.dbIntegration = dbIntegration;
+		this.transactionTemplate = transactionTemplate;
+		this.properties = properties;
+		this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+
+		TimeGauge.builder("history.archiver.lag", this, NANOSECONDS, HistoryArchiver::lag)
+			.description("The time the oldest completed delivery, queued or to be retried, has been waiting to be archived")
+			.register(meterRegistry);
+		Gauge.builder("history.archiver.queue.size", queue, BlockingQueue::size)
+			.description("The number of completed deliveries waiting to be archived")
+			.register(meterRegistry);
+
+		if (properties.enabled()) {
+			running = true;
+			executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("history-archiver-"));
+			executor.execute(this::archiveQueued);
+		} else {
+			executor = null;
+		}
+	}
+
+	/**
+	 * Queues the completed delivery for archiving, waiting for room if the queue is full.
+	 *
+	 * @param  message      the completed delivery
+	 * @param  statusDetail the status detail, may be null
+	 * @return              true if the delivery was queued, false if it has to be archived by the caller, i.e. when
+	 *                      write-behind archiving is disabled or shutting down
+	 */
+	public boolean archive(final Message message, final String statusDetail) {
+		final var archival = new Archival(message, statusDetail, System.nanoTime(), 1);
+		queuedDeliveryIds.merge(message.deliveryId(), 1, Integer::sum);
+		try {
+			while (running) {
+				if (queue.offer(archival, OFFER_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		done(archival);
+		return false;
+	}
+
+	/**
+	 * Returns the delivery ids of the completed deliveries waiting to be archived, whose claims must be kept alive.
+	 *
+	 * @return the delivery ids
+	 */
+	public Set<String> getQueuedDeliveryIds() {
+		return Set.copyOf(queuedDeliveryIds.keySet());
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		if (executor == null) {
+			return;
+		}
+
+		// Stop accepting deliveries, and let the queued ones be archived
+		running = false;
+		executor.shutdown();
+		if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+			LOG.warn("History archiver did not terminate within {} seconds, {} queued deliveries are left as pending", SHUTDOWN_TIMEOUT_IN_SECONDS, queue.size());
+		}
+	}
+
+	private void archiveQueued() {
+		final var batch = new ArrayList<Archival>(properties.batchSize());
+		try {
+			while (running || !queue.isEmpty() || !retries.isEmpty()) {
+				fillBatch(batch);
+				// Failed deliveries are retried along with the next batch, i.e. at the latest a flush interval later
+				batch.addAll(retries);
+				retries.clear();
+				archiveBatch(batch);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			// Deliveries still queued are left as pending
+			archiveBatch(batch);
+		}
+	}
+
+	private void fillBatch(final List<Archival> batch) throws InterruptedException {
+		final var first = queue.poll(properties.flushInterval().toNanos(), NANOSECONDS);
+		if (first == null) {
+			return;
+		}
+		batch.add(first);
+
+		final var deadline = first.queuedAt() + properties.flushInterval().toNanos();
+		while (batch.size() < properties.batchSize()) {
+			queue.drainTo(batch, properties.batchSize() - batch.size());
+
+			final var remaining = deadline - System.nanoTime();
+			if (batch.size() >= properties.batchSize() || remaining <= 0 || !running) {
+				return;
+			}
+
+			final var next = queue.poll(remaining, NANOSECONDS);
+			if (next == null) {
+				return;
+			}
+			batch.add(next);
+		}
+	}
+
+	private void archiveBatch(final List<Archival> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		try {
+			transactionTemplate.executeWithoutResult(ignored -> archiveInTransaction(batch));
+			batch.forEach(this::done);
+		} catch (final RuntimeException e) {
+			if (batch.size() == 1) {
+				// Archiving it by itself would only repeat the attempt
+				failed(batch.getFirst(), e);
+			} else {
+				LOG.warn("Unable to archive a batch of {} deliveries, archiving them one by one", batch.size(), e);
+
+				// One failing delivery shouldn't keep the rest of the batch from being archived
+				batch.forEach(archival -> {
+					try {
+						transactionTemplate.executeWithoutResult(ignored -> archiveInTransaction(List.of(archival)));
+						done(archival);
+					} catch (final RuntimeException ex) {
+						failed(archival, ex);
+					}
+				});
+			}
+		}
+		batch.clear();
+	}
+
+	private void failed(final Archival archival, final RuntimeException e) {
+		final var message = archival.message();
+		if (archival.attempt() < properties.maxAttempts()) {
+			LOG.warn("Unable to archive {} delivery {} in attempt {}, retrying it", message.type(), message.deliveryId(), archival.attempt(), e);
+
+			retries.add(archival.retried());
+			return;
+		}
+
+		LOG.error("Unable to archive {} delivery {} in {} attempts, recording its outcome to be archived later", message.type(), message.deliveryId(), archival.attempt(), e);
+		try {
+			if (!dbIntegration.recordOutcome(message, archival.statusDetail())) {
+				LOG.error("Unable to record the outcome {} of {} delivery {}, since it has no stored message of its own", message.status(), message.type(), message.deliveryId());
+			}
+		} catch (final RuntimeException ex) {
+			LOG.error("Unable to record the outcome of {} delivery {}, leaving its claim to expire", message.type(), message.deliveryId(), ex);
+		}
+		done(archival);
+	}
+
+	private void done(final Archival archival) {
+		queuedDeliveryIds.computeIfPresent(archival.message().deliveryId(), (key, count) -> count > 1 ? count - 1 : null);
+	}
+
+	private void archiveInTransaction(final List<Archival> archivals) {
+		final var counts = new HashMap<DailyStatsKey, Integer>();
+		archivals.forEach(archival -> counts.merge(dbIntegration.archiveMessage(archival.message(), archival.statusDetail()), 1, Integer::sum));
+
+		dbIntegration.incrementDailyStats(counts);
+	}
+
+	/**
+	 * Returns the time the oldest queued or retried delivery has been waiting, in nanoseconds.
+	 */
+	double lag() {
+		final var oldest = Stream.concat(Stream.ofNullable(queue.peek()), retries.stream())
+			.mapToLong(Archival::queuedAt)
+			.min();
+		return oldest.isPresent() ? System.nanoTime() - oldest.getAsLong() : 0;
+	}
+
+	private record Archival(Message message, String statusDetail, long queuedAt, int attempt) {
+
+		Archival retried() {
+			return new Archival(message, statusDetail, queuedAt, attempt + 1);
+		}
+	}
+}
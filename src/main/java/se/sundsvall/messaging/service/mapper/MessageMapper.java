@@ -117,6 +117,9 @@ public class MessageMapper {
 	}
 
 	public List<Message> toMessages(final DigitalMailRequest request, final String batchId, String organizationNumber) {
+		// Serialize the request once, since the content is the same for all recipients
+		final var content = toJson(request);
+
 		return request.party().partyIds().stream()
 			.map(partyId -> Message.builder()
 				.withBatchId(batchId)
@@ -126,7 +129,7 @@ public class MessageMapper {
 				.withType(DIGITAL_MAIL)
 				.withOriginalType(DIGITAL_MAIL)
 				.withStatus(PENDING)
-				.withContent(toJson(request))
+				.withContent(content)
 				.withOrigin(request.origin())
 				.withIssuer(request.issuer())
 				.withMunicipalityId(request.municipalityId())
@@ -154,6 +157,9 @@ public class MessageMapper {
 	}
 
 	public List<Message> toMessages(final LetterRequest request, final String batchId, final String organizationNumber) {
+		// Serialize the request once, since the content is the same for all recipients
+		final var content = toJson(request);
+
 		return ofNullable(request.party()).map(LetterRequest.Party::partyIds).orElse(emptyList()).stream()
 			.map(partyId -> Message.builder()
 				.withBatchId(batchId)
@@ -163,7 +169,7 @@ public class MessageMapper {
 				.withType(LETTER)
 				.withOriginalType(LETTER)
 				.withStatus(PENDING)
-				.withContent(toJson(request))
+				.withContent(content)
 				.withOrigin(request.origin())
 				.withIssuer(request.issuer())
 				.withMunicipalityId(request.municipalityId())
@@ -173,6 +179,9 @@ public class MessageMapper {
 	}
 
 	public List<Message> mapAddressesToMessages(final LetterRequest request, final String batchId) {
+		// Serialize the request once, since the content is the same for all recipients
+		final var content = toJson(request);
+
 		return ofNullable(request.party()).map(LetterRequest.Party::addresses).orElse(emptyList()).stream()
 			.map(address -> Message.builder()
 				.withBatchId(batchId)
@@ -183,7 +192,7 @@ public class MessageMapper {
 				.withType(SNAIL_MAIL)
 				.withOriginalType(LETTER)
 				.withStatus(PENDING)
-				.withContent(toJson(request))
+				.withContent(content)
 				.withOrigin(request.origin())
 				.withIssuer(request.issuer())
 				.withMunicipalityId(request.municipalityId())
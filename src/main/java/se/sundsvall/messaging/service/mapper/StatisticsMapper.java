@@ -5,13 +5,13 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import se.sundsvall.messaging.api.model.response.DepartmentStats;
-import se.sundsvall.messaging.integration.db.entity.StatisticEntity;
 import se.sundsvall.messaging.model.Count;
 import se.sundsvall.messaging.model.DepartmentLetter;
 import se.sundsvall.messaging.model.DepartmentStatistics;
 import se.sundsvall.messaging.model.MessageStatus;
 import se.sundsvall.messaging.model.MessageType;
 import se.sundsvall.messaging.model.Statistics;
+import se.sundsvall.messaging.model.StatsEntry;
 
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.groupingBy;
@@ -35,13 +35,13 @@ public class StatisticsMapper {
 
 	private StatisticsMapper() {}
 
-	public static Statistics toStatistics(final List<StatisticEntity> stats) {
+	public static Statistics toStatistics(final List<StatsEntry> stats) {
 		final var messageAndLetterEntries = stats.stream()
-			.filter(entry -> EnumSet.of(MESSAGE, LETTER).contains(entry.getOriginalMessageType()))
+			.filter(entry -> EnumSet.of(MESSAGE, LETTER).contains(entry.originalMessageType()))
 			.toList();
 
 		final var otherEntries = stats.stream()
-			.filter(entry -> !EnumSet.of(MESSAGE, LETTER).contains(entry.getOriginalMessageType()))
+			.filter(entry -> !EnumSet.of(MESSAGE, LETTER).contains(entry.originalMessageType()))
 			.toList();
 
 		return Statistics.builder()
@@ -55,20 +55,20 @@ public class StatisticsMapper {
 			.build();
 	}
 
-	public static List<DepartmentStatistics> toDepartmentStatisticsList(final List<StatisticEntity> stats, final String municipalityId) {
+	public static List<DepartmentStatistics> toDepartmentStatisticsList(final List<StatsEntry> stats) {
 
 		final var statsWithUncategorized = stats.stream()
-			.filter(entry -> entry.getOriginalMessageType() == LETTER)
-			.map(entry -> isEmpty(entry.getOrigin()) ? overrideEntryValues(entry, UNCATEGORIZED_ORIGIN, entry.getDepartment(), municipalityId) : entry)
-			.map(entry -> isEmpty(entry.getDepartment()) ? overrideEntryValues(entry, entry.getOrigin(), UNCATEGORIZED_DEPARTMENT, municipalityId) : entry)
+			.filter(entry -> entry.originalMessageType() == LETTER)
+			.map(entry -> isEmpty(entry.origin()) ? overrideEntryValues(entry, UNCATEGORIZED_ORIGIN, entry.department()) : entry)
+			.map(entry -> isEmpty(entry.department()) ? overrideEntryValues(entry, entry.origin(), UNCATEGORIZED_DEPARTMENT) : entry)
 			.toList();
 
 		final Map<String, Map<String, Map<MessageType, Map<MessageStatus, Integer>>>> letterStats = statsWithUncategorized.stream()
-			.filter(entry -> entry.getOriginalMessageType() == LETTER && isNotEmpty(entry.getDepartment()) && isNotEmpty(entry.getOrigin()))
-			.collect(groupingBy(StatisticEntity::getOrigin,
-				groupingBy(StatisticEntity::getDepartment,
-					groupingBy(StatisticEntity::getMessageType,
-						groupingBy(StatisticEntity::getStatus, summingInt(n -> 1))))));
+			.filter(entry -> entry.originalMessageType() == LETTER && isNotEmpty(entry.department()) && isNotEmpty(entry.origin()))
+			.collect(groupingBy(StatsEntry::origin,
+				groupingBy(StatsEntry::department,
+					groupingBy(StatsEntry::messageType,
+						groupingBy(StatsEntry::status, summingInt(entry -> Math.toIntExact(entry.count())))))));
 
 		return sortDepartmentStatistics(letterStats.keySet().stream().map(origin -> toDepartmentStatistics(origin, letterStats.get(origin))).toList());
 	}
@@ -83,7 +83,7 @@ public class StatisticsMapper {
 	 * @return              a {@code DepartmentStats} object containing the delivery statistics for the specified department
 	 *                      and origin
 	 */
-	public static DepartmentStats toDepartmentStats(final List<StatisticEntity> statsEntries, final String department, final String origin) {
+	public static DepartmentStats toDepartmentStats(final List<StatsEntry> statsEntries, final String department, final String origin) {
 		return DepartmentStats.builder()
 			.withDepartment(department)
 			.withOrigin(origin)
@@ -102,9 +102,9 @@ public class StatisticsMapper {
 	 * @return              a {@code Count} object containing the counts of sent and failed messages of the given
 	 *                      {@code MessageType}
 	 */
-	static Count mapToCount(final List<StatisticEntity> statsEntries, final MessageType messageType) {
+	static Count mapToCount(final List<StatsEntry> statsEntries, final MessageType messageType) {
 		final var typeEntries = statsEntries.stream()
-			.filter(entry -> entry.getMessageType() == messageType)
+			.filter(entry -> entry.messageType() == messageType)
 			.toList();
 
 		if (typeEntries.isEmpty()) {
@@ -112,18 +112,20 @@ public class StatisticsMapper {
 		}
 
 		final var success = Math.toIntExact(typeEntries.stream()
-			.filter(entry -> entry.getStatus() == SENT)
-			.count());
+			.filter(entry -> entry.status() == SENT)
+			.mapToLong(StatsEntry::count)
+			.sum());
 		final var failed = Math.toIntExact(typeEntries.stream()
-			.filter(entry -> entry.getStatus() == FAILED)
-			.count());
+			.filter(entry -> entry.status() == FAILED)
+			.mapToLong(StatsEntry::count)
+			.sum());
 
 		return new Count(success, failed);
 	}
 
-	static Statistics.Message mapToMessage(final List<StatisticEntity> statsEntries) {
+	static Statistics.Message mapToMessage(final List<StatsEntry> statsEntries) {
 		final var messageEntries = statsEntries.stream()
-			.filter(entry -> entry.getOriginalMessageType() == MESSAGE)
+			.filter(entry -> entry.originalMessageType() == MESSAGE)
 			.toList();
 
 		if (messageEntries.isEmpty()) {
@@ -134,15 +136,16 @@ public class StatisticsMapper {
 		final var email = mapToCount(messageEntries, EMAIL);
 
 		final var undeliverable = Math.toIntExact(messageEntries.stream()
-			.filter(entry -> entry.getMessageType() == MESSAGE)
-			.count());
+			.filter(entry -> entry.messageType() == MESSAGE)
+			.mapToLong(StatsEntry::count)
+			.sum());
 
 		return new Statistics.Message(email, sms, undeliverable);
 	}
 
-	static Statistics.Letter mapToLetter(final List<StatisticEntity> statsEntries) {
+	static Statistics.Letter mapToLetter(final List<StatsEntry> statsEntries) {
 		final var letterEntries = statsEntries.stream()
-			.filter(entry -> entry.getOriginalMessageType() == LETTER)
+			.filter(entry -> entry.originalMessageType() == LETTER)
 			.toList();
 
 		if (letterEntries.isEmpty()) {
@@ -217,14 +220,14 @@ public class StatisticsMapper {
 		return sortedOnDepartmentList;
 	}
 
-	static StatisticEntity overrideEntryValues(StatisticEntity original, String origin, String department, String municipalityId) {
-		return StatisticEntity.builder()
-			.withMessageType(original.getMessageType())
-			.withOriginalMessageType(original.getOriginalMessageType())
-			.withStatus(original.getStatus())
+	static StatsEntry overrideEntryValues(StatsEntry original, String origin, String department) {
+		return StatsEntry.builder()
+			.withMessageType(original.messageType())
+			.withOriginalMessageType(original.originalMessageType())
+			.withStatus(original.status())
 			.withOrigin(origin)
 			.withDepartment(department)
-			.withMunicipalityId(municipalityId)
+			.withCount(original.count())
 			.build();
 	}
 
@@ -15,4 +15,6 @@ public class Attachment {
 	private String name;
 	private String content;
 	private String contentType;
+	private Integer index;
+	private Long size;
 }
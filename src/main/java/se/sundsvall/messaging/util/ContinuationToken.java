@@ -0,0 +1,54 @@
+package se.sundsvall.messaging.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import se.sundsvall.dept44.problem.Problem;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Position in a listing ordered by creation time and id, both descending. The next page of the listing starts right
+ * after the entry with the given creation time and id, which lets the database seek to it in the index instead of
+ * skipping all preceding entries. The position is handed to clients as an opaque, URL safe token.
+ *
+ * @param createdAt the creation time of the last entry on the previous page
+ * @param id        the id of the last entry on the previous page
+ */
+public record ContinuationToken(LocalDateTime createdAt, long id) {
+
+	private static final char SEPARATOR = '|';
+
+	/**
+	 * Encodes the position after the given entry as a token.
+	 *
+	 * @param  createdAt the creation time of the entry
+	 * @param  id        the id of the entry
+	 * @return           the token
+	 */
+	public static String encode(final LocalDateTime createdAt, final long id) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString((createdAt.toString() + SEPARATOR + id).getBytes(UTF_8));
+	}
+
+	/**
+	 * Decodes the given token.
+	 *
+	 * @param  token the token, may be null
+	 * @return       the position, or null if no token is given
+	 * @throws Problem with status BAD_REQUEST if the token isn't valid
+	 */
+	public static ContinuationToken decode(final String token) {
+		if (token == null) {
+			return null;
+		}
+
+		try {
+			final var value = new String(Base64.getUrlDecoder().decode(token), UTF_8);
+			final var separator = value.lastIndexOf(SEPARATOR);
+			return new ContinuationToken(LocalDateTime.parse(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+		} catch (final IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+			throw Problem.valueOf(BAD_REQUEST, "Invalid continuation token");
+		}
+	}
+}
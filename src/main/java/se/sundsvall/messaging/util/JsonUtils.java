@@ -2,6 +2,7 @@ package se.sundsvall.messaging.util;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import java.lang.reflect.Type;
+import tools.jackson.core.JsonParser;
 import tools.jackson.core.StreamReadConstraints;
 import tools.jackson.core.json.JsonFactory;
 import tools.jackson.core.type.TypeReference;
@@ -76,4 +77,14 @@ public final class JsonUtils {
 
 		return OBJECT_MAPPER.readValue(json, valueType);
 	}
+
+	/**
+	 * Creates a streaming parser for the given JSON string, for reading parts of it without deserializing all of it.
+	 *
+	 * @param  json the JSON string to parse
+	 * @return      a parser, to be closed by the caller
+	 */
+	public static JsonParser createParser(final String json) {
+		return OBJECT_MAPPER.createParser(json);
+	}
 }
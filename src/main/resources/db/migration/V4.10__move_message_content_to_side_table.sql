@@ -0,0 +1,23 @@
+-- Move the content stored with each message to message_content, so that the messages table only holds narrow rows
+ALTER TABLE message_content ADD COLUMN message_ref BIGINT DEFAULT NULL;
+
+INSERT INTO message_content (content, created_at, message_ref)
+SELECT content, created_at, id
+FROM messages
+WHERE content IS NOT NULL AND content_id IS NULL;
+
+UPDATE messages m
+JOIN message_content c ON c.message_ref = m.id
+SET m.content_id = c.id;
+
+ALTER TABLE message_content DROP COLUMN message_ref;
+ALTER TABLE messages DROP COLUMN content;
+
+CREATE INDEX idx_messages_delivery_id
+    ON messages(delivery_id);
+
+CREATE INDEX idx_messages_batch_id
+    ON messages(batch_id);
+
+CREATE INDEX idx_messages_status_id
+    ON messages(status, id);
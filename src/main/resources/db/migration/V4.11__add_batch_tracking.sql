@@ -0,0 +1,13 @@
+CREATE TABLE batch_tracking (
+    batch_id VARCHAR(36) NOT NULL,
+    municipality_id VARCHAR(12) NOT NULL,
+    remaining INT NOT NULL,
+    sent_snail_mail_count INT NOT NULL,
+    triggered BIT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (batch_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Lets stale batches be found for triggering, and old batch tracking for deletion
+CREATE INDEX idx_batch_tracking_created_at
+    ON batch_tracking(created_at);
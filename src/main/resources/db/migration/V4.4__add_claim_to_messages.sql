@@ -0,0 +1,13 @@
+ALTER TABLE messages ADD COLUMN claimed_by VARCHAR(255) DEFAULT NULL;
+ALTER TABLE messages ADD COLUMN claim_expires_at DATETIME(6) DEFAULT NULL;
+
+CREATE INDEX idx_messages_status_claim_expires_at
+    ON messages(status, claim_expires_at);
+
+CREATE INDEX idx_messages_claimed_by
+    ON messages(claimed_by);
+
+-- The outcome of a delivery that couldn't be archived is kept on its message, which then is archived rather than
+-- delivered again
+ALTER TABLE messages ADD COLUMN status_detail LONGTEXT DEFAULT NULL;
+ALTER TABLE messages ADD COLUMN digital_mail_transaction_id VARCHAR(36) DEFAULT NULL;
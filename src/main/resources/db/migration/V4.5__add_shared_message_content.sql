@@ -0,0 +1,18 @@
+CREATE TABLE message_content (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    content LONGTEXT NOT NULL,
+    created_at DATETIME(6) DEFAULT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+ALTER TABLE messages ADD COLUMN content_id BIGINT DEFAULT NULL;
+ALTER TABLE messages MODIFY COLUMN content LONGTEXT NULL;
+
+ALTER TABLE history ADD COLUMN content_id BIGINT DEFAULT NULL;
+
+-- Lets the removal of unreferenced message content look up the references of each content row
+CREATE INDEX idx_messages_content_id
+    ON messages(content_id);
+
+CREATE INDEX idx_history_content_id
+    ON history(content_id);
@@ -0,0 +1,20 @@
+CREATE TABLE attachment (
+    hash VARCHAR(64) NOT NULL,
+    content LONGBLOB NOT NULL,
+    created_at DATETIME(6) DEFAULT NULL,
+    PRIMARY KEY (hash)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- The attachment contents referenced by each stored message content, so that contents no longer referenced can be removed
+CREATE TABLE attachment_reference (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    content_id BIGINT NOT NULL,
+    hash VARCHAR(64) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_attachment_reference_content_id
+    ON attachment_reference(content_id);
+
+CREATE INDEX idx_attachment_reference_hash
+    ON attachment_reference(hash);
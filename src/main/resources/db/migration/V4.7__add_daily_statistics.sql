@@ -0,0 +1,20 @@
+CREATE TABLE daily_statistics (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    municipality_id VARCHAR(12) NOT NULL,
+    day DATE NOT NULL,
+    origin VARCHAR(255) NOT NULL,
+    department VARCHAR(255) NOT NULL,
+    original_message_type ENUM ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE') DEFAULT NULL,
+    message_type ENUM ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE') DEFAULT NULL,
+    status ENUM ('AWAITING_FEEDBACK','FAILED','NOT_SENT','NO_CONTACT_SETTINGS_FOUND','NO_CONTACT_WANTED','PENDING','SENT') DEFAULT NULL,
+    message_count BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_daily_statistics_dimensions UNIQUE (municipality_id, day, origin, department, original_message_type, message_type, status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Backfill from the existing history. From here on the counts are incremented as history is saved
+INSERT INTO daily_statistics (municipality_id, day, origin, department, original_message_type, message_type, status, message_count)
+SELECT municipality_id, DATE(created_at), COALESCE(origin, ''), COALESCE(department, ''), original_message_type, message_type, status, COUNT(*)
+FROM history
+WHERE municipality_id IS NOT NULL AND created_at IS NOT NULL
+GROUP BY municipality_id, DATE(created_at), COALESCE(origin, ''), COALESCE(department, ''), original_message_type, message_type, status;
@@ -0,0 +1,27 @@
+CREATE TABLE batch_summary (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    municipality_id VARCHAR(12) NOT NULL,
+    batch_id VARCHAR(36) NOT NULL,
+    issuer VARCHAR(255) DEFAULT NULL,
+    original_message_type ENUM ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE') DEFAULT NULL,
+    subject VARCHAR(1000) DEFAULT NULL,
+    attachment_count INT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_batch_summary_municipality_batch UNIQUE (municipality_id, batch_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_batch_summary_municipality_issuer_created ON batch_summary (municipality_id, issuer, created_at);
+
+-- Backfill from the history of the last 30 days, which is as far back as batches are listed. From here on the
+-- summaries are registered as batches are received. Like then, the subject is kept by the original message type,
+-- a letter keeping its subject as it's delivered as digital mail where possible
+INSERT INTO batch_summary (municipality_id, batch_id, issuer, original_message_type, subject, attachment_count, created_at)
+SELECT h.municipality_id, h.batch_id, MAX(h.issuer), MAX(h.original_message_type),
+       LEFT(MAX(CASE WHEN h.original_message_type IN ('DIGITAL_MAIL', 'EMAIL', 'LETTER') THEN JSON_VALUE(COALESCE(h.content, c.content), '$.subject') END), 1000),
+       COALESCE(MAX(CASE WHEN h.message_type IN ('DIGITAL_MAIL', 'SNAIL_MAIL', 'WEB_MESSAGE', 'EMAIL') THEN JSON_LENGTH(COALESCE(h.content, c.content), '$.attachments') END), 0),
+       MIN(h.created_at)
+FROM history h
+LEFT JOIN message_content c ON c.id = h.content_id
+WHERE h.municipality_id IS NOT NULL AND h.batch_id IS NOT NULL AND h.created_at >= CURRENT_DATE - INTERVAL 30 DAY
+GROUP BY h.municipality_id, h.batch_id;
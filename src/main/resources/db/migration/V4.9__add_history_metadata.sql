@@ -0,0 +1,11 @@
+-- Metadata extracted from the content when the history is saved, so that it can be listed without reading the content.
+-- Existing history is extracted by a scheduled backfill, which picks up the entries not yet extracted
+ALTER TABLE history
+    ADD COLUMN subject VARCHAR(1000) DEFAULT NULL,
+    ADD COLUMN body MEDIUMTEXT DEFAULT NULL,
+    ADD COLUMN destination VARCHAR(255) DEFAULT NULL,
+    ADD COLUMN attachment_count INT DEFAULT NULL,
+    ADD COLUMN attachments TEXT DEFAULT NULL,
+    ADD COLUMN metadata_extracted BIT NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_history_metadata_extracted ON history (metadata_extracted, id);
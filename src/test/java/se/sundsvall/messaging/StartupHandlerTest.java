@@ -1,92 +1,136 @@
 package se.sundsvall.messaging;
 
+import java.time.Duration;
 import java.util.List;
-import org.junit.jupiter.api.BeforeEach;
+import java.util.stream.LongStream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
+import se.sundsvall.messaging.configuration.DeliveryQueueProperties;
 import se.sundsvall.messaging.integration.db.DbIntegration;
-import se.sundsvall.messaging.integration.db.entity.MessageEntity;
+import se.sundsvall.messaging.integration.db.projection.PendingMessageProjection;
+import se.sundsvall.messaging.model.MessageType;
 import se.sundsvall.messaging.service.event.IncomingMessageEvent;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
-import static se.sundsvall.messaging.model.MessageStatus.PENDING;
-import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
-import static se.sundsvall.messaging.model.MessageType.EMAIL;
 import static se.sundsvall.messaging.model.MessageType.LETTER;
-import static se.sundsvall.messaging.model.MessageType.MESSAGE;
 import static se.sundsvall.messaging.model.MessageType.SMS;
-import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
-import static se.sundsvall.messaging.model.MessageType.WEB_MESSAGE;
 
 @ExtendWith(MockitoExtension.class)
 class StartupHandlerTest {
 
 	@Mock
 	private ApplicationEventPublisher mockEventPublisher;
+
 	@Mock
 	private DbIntegration mockDbIntegration;
 
-	private StartupHandler startupProcessor;
+	@Test
+	void testRun() {
+		when(mockDbIntegration.claimPendingMessages(2)).thenReturn(List.of());
+
+		createStartupHandler(true, 2, 1000).run();
+
+		// Recovery is done in the background
+		verify(mockDbIntegration, timeout(5000)).claimPendingMessages(2);
+		verifyNoMoreInteractions(mockDbIntegration);
+		verifyNoInteractions(mockEventPublisher);
+	}
+
+	@Test
+	void testRunWhenRecoveryIsDisabled() {
+		createStartupHandler(false, 2, 1000).run();
 
-	@BeforeEach
-	void setUp() {
-		startupProcessor = new StartupHandler(mockEventPublisher, mockDbIntegration);
+		verifyNoInteractions(mockDbIntegration, mockEventPublisher);
 	}
 
 	@Test
-	void testRun_whenNoPendingMessagesExist() {
-		when(mockDbIntegration.getLatestMessagesWithStatus(PENDING)).thenReturn(List.of());
+	void testRecoverPendingMessagesWhenNoPendingMessagesExist() {
+		when(mockDbIntegration.claimPendingMessages(2)).thenReturn(List.of());
 
-		startupProcessor.run();
+		createStartupHandler(true, 2, 1000).recoverPendingMessages();
 
-		verify(mockDbIntegration, times(1)).getLatestMessagesWithStatus(PENDING);
-		verify(mockEventPublisher, never()).publishEvent(any());
+		verify(mockDbIntegration).claimPendingMessages(2);
+		verifyNoMoreInteractions(mockDbIntegration);
+		verifyNoInteractions(mockEventPublisher);
 	}
 
 	@Test
-	void testRun() {
-		var messages = List.of(
-			MessageEntity.builder()
-				.withMessageId("messageId1")
-				.withType(MESSAGE)
-				.build(),
-			MessageEntity.builder()
-				.withMessageId("messageId2")
-				.withType(EMAIL)
-				.build(),
-			MessageEntity.builder()
-				.withMessageId("messageId3")
-				.withType(SMS)
-				.build(),
-			MessageEntity.builder()
-				.withMessageId("messageId4")
-				.withType(WEB_MESSAGE)
-				.build(),
-			MessageEntity.builder()
-				.withMessageId("messageId4")
-				.withType(SNAIL_MAIL)
-				.build(),
-			MessageEntity.builder()
-				.withMessageId("messageId4")
-				.withType(LETTER)
-				.build(),
-			MessageEntity.builder()
-				.withMessageId("messageId4")
-				.withType(DIGITAL_MAIL)
-				.build());
-
-		when(mockDbIntegration.getLatestMessagesWithStatus(PENDING)).thenReturn(messages);
-
-		startupProcessor.run();
-
-		verify(mockDbIntegration, times(1)).getLatestMessagesWithStatus(PENDING);
-		verify(mockEventPublisher, times(7)).publishEvent(any(IncomingMessageEvent.class));
+	void testRecoverPendingMessages() {
+		final var firstPage = List.of(createPendingMessage(1L, SMS), createPendingMessage(2L, LETTER));
+		final var secondPage = List.of(createPendingMessage(5L, SMS));
+		when(mockDbIntegration.claimPendingMessages(2)).thenReturn(firstPage, secondPage);
+
+		createStartupHandler(true, 2, 1000).recoverPendingMessages();
+
+		final var captor = ArgumentCaptor.forClass(IncomingMessageEvent.class);
+		// Pages are claimed until a page isn't full
+		verify(mockDbIntegration, times(2)).claimPendingMessages(2);
+		verify(mockEventPublisher, times(3)).publishEvent(captor.capture());
+		assertThat(captor.getAllValues())
+			.extracting(IncomingMessageEvent::getDeliveryId, IncomingMessageEvent::getMessageType)
+			.containsExactly(
+				tuple("deliveryId1", SMS),
+				tuple("deliveryId2", LETTER),
+				tuple("deliveryId5", SMS));
+		verifyNoMoreInteractions(mockDbIntegration, mockEventPublisher);
+	}
+
+	@Test
+	void testRecoverPendingMessagesWhenLastPageIsFull() {
+		final var firstPage = List.of(createPendingMessage(1L, SMS), createPendingMessage(2L, LETTER));
+		when(mockDbIntegration.claimPendingMessages(2)).thenReturn(firstPage, List.of());
+
+		createStartupHandler(true, 2, 1000).recoverPendingMessages();
+
+		verify(mockDbIntegration, times(2)).claimPendingMessages(2);
+		verify(mockEventPublisher, times(2)).publishEvent(any(IncomingMessageEvent.class));
+		verifyNoMoreInteractions(mockDbIntegration, mockEventPublisher);
+	}
+
+	@Test
+	void testRecoverPendingMessagesIsRateLimited() {
+		final var pendingMessages = LongStream.rangeClosed(1, 6).mapToObj(id -> createPendingMessage(id, SMS)).toList();
+		when(mockDbIntegration.claimPendingMessages(10)).thenReturn(pendingMessages);
+
+		final var startedAt = System.nanoTime();
+		createStartupHandler(true, 10, 20).recoverPendingMessages();
+
+		// Six messages at 20 per second should take at least 5 intervals of 50 ms
+		assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isGreaterThanOrEqualTo(Duration.ofMillis(250));
+		verify(mockEventPublisher, times(6)).publishEvent(any(IncomingMessageEvent.class));
+	}
+
+	@Test
+	void testRecoverPendingMessagesWhenFailing() {
+		when(mockDbIntegration.claimPendingMessages(2)).thenThrow(new IllegalStateException("Database unavailable"));
+
+		createStartupHandler(true, 2, 1000).recoverPendingMessages();
+
+		verifyNoInteractions(mockEventPublisher);
+	}
+
+	private StartupHandler createStartupHandler(final boolean enabled, final int pageSize, final int ratePerSecond) {
+		return new StartupHandler(mockEventPublisher, mockDbIntegration, new DeliveryQueueProperties("instanceId", Duration.ofMinutes(5), true, 100,
+			new DeliveryQueueProperties.Recovery(enabled, pageSize, ratePerSecond)));
+	}
+
+	private static PendingMessageProjection createPendingMessage(final long id, final MessageType type) {
+		final var pendingMessage = mock(PendingMessageProjection.class);
+		when(pendingMessage.getType()).thenReturn(type);
+		when(pendingMessage.getDeliveryId()).thenReturn("deliveryId" + id);
+		return pendingMessage;
 	}
 }
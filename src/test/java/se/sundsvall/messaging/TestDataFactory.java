@@ -23,17 +23,19 @@ import se.sundsvall.messaging.api.model.response.UserBatches;
 import se.sundsvall.messaging.api.model.response.UserMessage;
 import se.sundsvall.messaging.api.model.response.UserMessages;
 import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
-import se.sundsvall.messaging.integration.db.entity.StatisticEntity;
 import se.sundsvall.messaging.integration.emailsender.EmailDto;
 import se.sundsvall.messaging.model.AccountType;
 import se.sundsvall.messaging.model.Address;
 import se.sundsvall.messaging.model.ContentType;
 import se.sundsvall.messaging.model.ExternalReference;
+import se.sundsvall.messaging.model.HistoryMetadata;
 import se.sundsvall.messaging.model.InvoiceType;
 import se.sundsvall.messaging.model.Message;
 import se.sundsvall.messaging.model.MessageStatus;
 import se.sundsvall.messaging.model.MessageType;
 import se.sundsvall.messaging.model.ReferenceType;
+import se.sundsvall.messaging.model.StatsEntry;
+import se.sundsvall.messaging.model.UserMessageHistory;
 import se.sundsvall.messaging.service.model.Attachment;
 
 import static se.sundsvall.messaging.api.model.request.Header.IN_REPLY_TO;
@@ -497,6 +499,22 @@ public final class TestDataFactory {
 			.build();
 	}
 
+	public static UserMessageHistory createUserMessageHistory() {
+		return UserMessageHistory.builder()
+			.withMessageId(UUID.randomUUID().toString())
+			.withPartyId("somePartyId")
+			.withMessageType(MessageType.SNAIL_MAIL)
+			.withStatus(MessageStatus.SENT)
+			.withIssuer("someIssuer")
+			.withCreatedAt(LocalDateTime.now())
+			.withDestinationAddress(createAddress())
+			.withMetadata(HistoryMetadata.builder()
+				.withSubject("someSubject")
+				.withAttachments(List.of(new HistoryMetadata.Attachment("someFileName", "application/pdf", 8L)))
+				.build())
+			.build();
+	}
+
 	public static Attachment createAttachment() {
 		return Attachment.builder()
 			.withName("someName")
@@ -505,14 +523,14 @@ public final class TestDataFactory {
 			.build();
 	}
 
-	public static StatisticEntity createStatisticsEntity(MessageType messageType, MessageType originalMessageType, MessageStatus messageStatus, String origin, String department, String municipalityId) {
-		return StatisticEntity.builder()
+	public static StatsEntry createStatsEntry(MessageType messageType, MessageType originalMessageType, MessageStatus messageStatus, String origin, String department) {
+		return StatsEntry.builder()
 			.withMessageType(messageType)
 			.withOriginalMessageType(originalMessageType)
 			.withStatus(messageStatus)
 			.withOrigin(origin)
 			.withDepartment(department)
-			.withMunicipalityId(municipalityId)
+			.withCount(1)
 			.build();
 	}
 }
@@ -0,0 +1,78 @@
+package se.sundsvall.messaging.api;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webtestclient.autoconfigure.AutoConfigureWebTestClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import se.sundsvall.dept44.problem.violations.ConstraintViolationProblem;
+import se.sundsvall.dept44.problem.violations.Violation;
+import se.sundsvall.messaging.Application;
+import se.sundsvall.messaging.service.MessageService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_PROBLEM_JSON;
+import static se.sundsvall.messaging.Constants.CONTACT_SETTINGS_CACHE_PATH;
+import static se.sundsvall.messaging.TestDataFactory.MUNICIPALITY_ID;
+
+@AutoConfigureWebTestClient
+@SpringBootTest(classes = Application.class, webEnvironment = RANDOM_PORT)
+@ActiveProfiles("junit")
+class ContactSettingsCacheResourceFailureTest {
+
+	@MockitoBean
+	private MessageService mockMessageService;
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Test
+	void invalidateContactSettingsWithInvalidMunicipalityId() {
+		// Act
+		final var response = webTestClient.delete()
+			.uri(uriBuilder -> uriBuilder.path(CONTACT_SETTINGS_CACHE_PATH).build(Map.of("municipalityId", "invalid")))
+			.exchange()
+			.expectStatus().isBadRequest()
+			.expectHeader().contentType(APPLICATION_PROBLEM_JSON)
+			.expectBody(ConstraintViolationProblem.class)
+			.returnResult()
+			.getResponseBody();
+
+		// Assert and verify
+		assertThat(response).isNotNull();
+		assertThat(response.getViolations())
+			.extracting(Violation::field, Violation::message)
+			.containsExactly(tuple("invalidateContactSettings.municipalityId", "not a valid municipality ID"));
+
+		verifyNoInteractions(mockMessageService);
+	}
+
+	@Test
+	void invalidateContactSettingsWithInvalidPartyId() {
+		// Act
+		final var response = webTestClient.delete()
+			.uri(uriBuilder -> uriBuilder.path(CONTACT_SETTINGS_CACHE_PATH)
+				.queryParam("partyId", "invalid")
+				.build(Map.of("municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isBadRequest()
+			.expectHeader().contentType(APPLICATION_PROBLEM_JSON)
+			.expectBody(ConstraintViolationProblem.class)
+			.returnResult()
+			.getResponseBody();
+
+		// Assert and verify
+		assertThat(response).isNotNull();
+		assertThat(response.getViolations())
+			.extracting(Violation::field, Violation::message)
+			.containsExactly(tuple("invalidateContactSettings.partyId", "not a valid UUID"));
+
+		verifyNoInteractions(mockMessageService);
+	}
+}
@@ -0,0 +1,62 @@
+package se.sundsvall.messaging.api;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webtestclient.autoconfigure.AutoConfigureWebTestClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import se.sundsvall.messaging.Application;
+import se.sundsvall.messaging.service.MessageService;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static se.sundsvall.messaging.Constants.CONTACT_SETTINGS_CACHE_PATH;
+import static se.sundsvall.messaging.TestDataFactory.MUNICIPALITY_ID;
+
+@AutoConfigureWebTestClient
+@SpringBootTest(classes = Application.class, webEnvironment = RANDOM_PORT)
+@ActiveProfiles("junit")
+class ContactSettingsCacheResourceTest {
+
+	private static final String PARTY_ID = "46f9bf9f-09f2-45ac-8c8b-6cad847541ed";
+
+	@MockitoBean
+	private MessageService mockMessageService;
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Test
+	void invalidateContactSettings() {
+		// Act
+		webTestClient.delete()
+			.uri(uriBuilder -> uriBuilder.path(CONTACT_SETTINGS_CACHE_PATH).build(Map.of("municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isNoContent()
+			.expectBody().isEmpty();
+
+		// Verify
+		verify(mockMessageService).invalidateContactSettings(MUNICIPALITY_ID, null);
+		verifyNoMoreInteractions(mockMessageService);
+	}
+
+	@Test
+	void invalidateContactSettingsForParty() {
+		// Act
+		webTestClient.delete()
+			.uri(uriBuilder -> uriBuilder.path(CONTACT_SETTINGS_CACHE_PATH)
+				.queryParam("partyId", PARTY_ID)
+				.build(Map.of("municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isNoContent()
+			.expectBody().isEmpty();
+
+		// Verify
+		verify(mockMessageService).invalidateContactSettings(MUNICIPALITY_ID, PARTY_ID);
+		verifyNoMoreInteractions(mockMessageService);
+	}
+}
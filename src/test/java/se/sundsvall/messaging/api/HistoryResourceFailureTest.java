@@ -26,6 +26,7 @@ import static org.springframework.http.MediaType.APPLICATION_PROBLEM_JSON;
 import static se.sundsvall.messaging.Constants.BATCH_STATUS_PATH;
 import static se.sundsvall.messaging.Constants.CONVERSATION_HISTORY_PATH;
 import static se.sundsvall.messaging.Constants.DELIVERY_STATUS_PATH;
+import static se.sundsvall.messaging.Constants.HISTORY_EXPORT_PATH;
 import static se.sundsvall.messaging.Constants.MESSAGES_AND_DELIVERY_METADATA_PATH;
 import static se.sundsvall.messaging.Constants.MESSAGES_AND_DELIVERY_PATH;
 import static se.sundsvall.messaging.Constants.MESSAGES_ATTACHMENT_PATH;
@@ -70,6 +71,32 @@ class HistoryResourceFailureTest {
 		verifyNoInteractions(mockHistoryService);
 	}
 
+	@Test
+	void getConversationHistoryShouldFailWithTooSmallLimit() {
+		// Arrange
+		final var partyId = UUID.randomUUID().toString();
+
+		// Act
+		final var response = webTestClient.get()
+			.uri(uriBuilder -> uriBuilder.path(CONVERSATION_HISTORY_PATH)
+				.queryParam("limit", 0)
+				.build(Map.of("partyId", partyId, "municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isBadRequest()
+			.expectHeader().contentType(APPLICATION_PROBLEM_JSON)
+			.expectBody(ConstraintViolationProblem.class)
+			.returnResult()
+			.getResponseBody();
+
+		// Assert and verify
+		assertThat(response).isNotNull();
+		assertThat(response.getViolations())
+			.extracting(Violation::field, Violation::message)
+			.containsExactly(tuple("getConversationHistory.limit", "must be greater than or equal to 1 and less than or equal to 2147483647"));
+
+		verifyNoInteractions(mockHistoryService);
+	}
+
 	@Test
 	void getBatchStatusShouldFailWithInvalidUuId() {
 		// Arrange
@@ -553,4 +580,27 @@ class HistoryResourceFailureTest {
 
 		return parameters;
 	}
+
+	@Test
+	void exportHistoryShouldFailWithInvalidPartyId() {
+		// Act
+		final var response = webTestClient.get()
+			.uri(uriBuilder -> uriBuilder.path(HISTORY_EXPORT_PATH)
+				.queryParam("partyId", "not-a-valid-uuid")
+				.build(Map.of("municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isBadRequest()
+			.expectHeader().contentType(APPLICATION_PROBLEM_JSON)
+			.expectBody(ConstraintViolationProblem.class)
+			.returnResult()
+			.getResponseBody();
+
+		// Assert and verify
+		assertThat(response).isNotNull();
+		assertThat(response.getViolations())
+			.extracting(Violation::field, Violation::message)
+			.containsExactly(tuple("exportHistory.partyId", "not a valid UUID"));
+
+		verifyNoInteractions(mockHistoryService);
+	}
 }
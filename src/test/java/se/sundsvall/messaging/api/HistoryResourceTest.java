@@ -1,5 +1,7 @@
 package se.sundsvall.messaging.api;
 
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -27,7 +29,9 @@ import se.sundsvall.messaging.api.model.response.MessageResult;
 import se.sundsvall.messaging.api.model.response.UserBatches;
 import se.sundsvall.messaging.api.model.response.UserMessage;
 import se.sundsvall.messaging.api.model.response.UserMessages;
+import se.sundsvall.messaging.model.ExportFormat;
 import se.sundsvall.messaging.model.History;
+import se.sundsvall.messaging.model.HistoryPage;
 import se.sundsvall.messaging.model.MessageType;
 import se.sundsvall.messaging.service.HistoryService;
 
@@ -35,6 +39,8 @@ import static java.util.Collections.emptyList;
 import static java.util.Optional.ofNullable;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -44,12 +50,14 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static se.sundsvall.messaging.Constants.BATCH_STATUS_PATH;
 import static se.sundsvall.messaging.Constants.CONVERSATION_HISTORY_PATH;
 import static se.sundsvall.messaging.Constants.DELIVERY_STATUS_PATH;
+import static se.sundsvall.messaging.Constants.HISTORY_EXPORT_PATH;
 import static se.sundsvall.messaging.Constants.MESSAGES_AND_DELIVERY_METADATA_PATH;
 import static se.sundsvall.messaging.Constants.MESSAGES_AND_DELIVERY_PATH;
 import static se.sundsvall.messaging.Constants.MESSAGES_STATUS_PATH;
 import static se.sundsvall.messaging.Constants.USER_BATCHES_PATH;
 import static se.sundsvall.messaging.Constants.USER_MESSAGES_PATH;
 import static se.sundsvall.messaging.Constants.USER_MESSAGE_PATH;
+import static se.sundsvall.messaging.Constants.X_CONTINUATION_TOKEN_HEADER_KEY;
 import static se.sundsvall.messaging.TestDataFactory.MUNICIPALITY_ID;
 import static se.sundsvall.messaging.TestDataFactory.createUserMessages;
 import static se.sundsvall.messaging.model.MessageStatus.SENT;
@@ -75,13 +83,14 @@ class HistoryResourceTest {
 		final var history = History.builder()
 			.withMessageType(messageType)
 			.build();
-		when(mockHistoryService.getConversationHistory(any(), any(), any(), any())).thenReturn(List.of(history));
+		when(mockHistoryService.getConversationHistory(any(), any(), any(), any(), any(), any())).thenReturn(HistoryPage.builder().withHistory(List.of(history)).build());
 
 		// Act
 		final var response = webTestClient.get()
 			.uri(uriBuilder -> uriBuilder.path(CONVERSATION_HISTORY_PATH).build(Map.of("partyId", partyId, "municipalityId", MUNICIPALITY_ID)))
 			.exchange()
 			.expectStatus().isOk()
+			.expectHeader().doesNotExist(X_CONTINUATION_TOKEN_HEADER_KEY)
 			.expectBodyList(HistoryResponse.class)
 			.returnResult()
 			.getResponseBody();
@@ -90,7 +99,7 @@ class HistoryResourceTest {
 		assertThat(response).isNotNull().hasSize(1)
 			.extracting(HistoryResponse::messageType).containsExactly(messageType);
 
-		verify(mockHistoryService).getConversationHistory(MUNICIPALITY_ID, partyId, null, null);
+		verify(mockHistoryService).getConversationHistory(MUNICIPALITY_ID, partyId, null, null, null, null);
 		verifyNoMoreInteractions(mockHistoryService);
 	}
 
@@ -104,7 +113,7 @@ class HistoryResourceTest {
 		final var history = History.builder()
 			.withMessageType(messageType)
 			.build();
-		when(mockHistoryService.getConversationHistory(any(), any(), any(), any())).thenReturn(List.of(history));
+		when(mockHistoryService.getConversationHistory(any(), any(), any(), any(), any(), any())).thenReturn(HistoryPage.builder().withHistory(List.of(history)).build());
 
 		// Act
 		final var response = webTestClient.get()
@@ -122,7 +131,38 @@ class HistoryResourceTest {
 		assertThat(response).isNotNull().hasSize(1)
 			.extracting(HistoryResponse::messageType).containsExactly(messageType);
 
-		verify(mockHistoryService).getConversationHistory(MUNICIPALITY_ID, partyId, fromDate, toDate);
+		verify(mockHistoryService).getConversationHistory(MUNICIPALITY_ID, partyId, fromDate, toDate, null, null);
+		verifyNoMoreInteractions(mockHistoryService);
+	}
+
+	@Test
+	void getConversationHistoryWithLimitAndContinuationToken() {
+		// Arrange
+		final var partyId = UUID.randomUUID().toString();
+		final var history = History.builder()
+			.withMessageType(SMS)
+			.build();
+		when(mockHistoryService.getConversationHistory(any(), any(), any(), any(), any(), any()))
+			.thenReturn(HistoryPage.builder().withHistory(List.of(history)).withContinuationToken("nextToken").build());
+
+		// Act
+		final var response = webTestClient.get()
+			.uri(uriBuilder -> uriBuilder.path(CONVERSATION_HISTORY_PATH)
+				.queryParam("limit", 1)
+				.queryParam("continuationToken", "someToken")
+				.build(Map.of("partyId", partyId, "municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().valueEquals(X_CONTINUATION_TOKEN_HEADER_KEY, "nextToken")
+			.expectBodyList(HistoryResponse.class)
+			.returnResult()
+			.getResponseBody();
+
+		// Assert and verify
+		assertThat(response).isNotNull().hasSize(1)
+			.extracting(HistoryResponse::messageType).containsExactly(SMS);
+
+		verify(mockHistoryService).getConversationHistory(MUNICIPALITY_ID, partyId, null, null, 1, "someToken");
 		verifyNoMoreInteractions(mockHistoryService);
 	}
 
@@ -130,7 +170,7 @@ class HistoryResourceTest {
 	void getConversationHistoryWhenNoHistoryExists() {
 		// Arrange
 		final var partyId = UUID.randomUUID().toString();
-		when(mockHistoryService.getConversationHistory(any(), any(), any(), any())).thenReturn(emptyList());
+		when(mockHistoryService.getConversationHistory(any(), any(), any(), any(), any(), any())).thenReturn(HistoryPage.builder().withHistory(emptyList()).build());
 
 		// Act
 		final var result = webTestClient.get()
@@ -144,7 +184,7 @@ class HistoryResourceTest {
 		assertThat(result).isEmpty();
 
 		// Assert and verify
-		verify(mockHistoryService).getConversationHistory(MUNICIPALITY_ID, partyId, null, null);
+		verify(mockHistoryService).getConversationHistory(MUNICIPALITY_ID, partyId, null, null, null, null);
 		verifyNoMoreInteractions(mockHistoryService);
 	}
 
@@ -364,7 +404,7 @@ class HistoryResourceTest {
 				.withTotalRecords(15))
 			.build();
 
-		when(mockHistoryService.getUserBatches(MUNICIPALITY_ID, userId, page, limit)).thenReturn(userBatches);
+		when(mockHistoryService.getUserBatches(MUNICIPALITY_ID, userId, page, limit, null, true)).thenReturn(userBatches);
 
 		webTestClient.get()
 			.uri(uriBuilder -> uriBuilder.path(USER_BATCHES_PATH)
@@ -376,7 +416,7 @@ class HistoryResourceTest {
 			.expectBody(UserBatches.class)
 			.isEqualTo(userBatches);
 
-		verify(mockHistoryService).getUserBatches(MUNICIPALITY_ID, userId, page, limit);
+		verify(mockHistoryService).getUserBatches(MUNICIPALITY_ID, userId, page, limit, null, true);
 		verifyNoMoreInteractions(mockHistoryService);
 	}
 
@@ -389,7 +429,7 @@ class HistoryResourceTest {
 
 		final var userMessages = createUserMessages();
 
-		when(mockHistoryService.getUserMessages(municipalityId, userId, null, page, limit)).thenReturn(userMessages);
+		when(mockHistoryService.getUserMessages(municipalityId, userId, null, page, limit, null, true)).thenReturn(userMessages);
 
 		webTestClient.get()
 			.uri(uriBuilder -> uriBuilder.path(USER_MESSAGES_PATH)
@@ -401,7 +441,37 @@ class HistoryResourceTest {
 			.expectBody(UserMessages.class)
 			.isEqualTo(userMessages);
 
-		verify(mockHistoryService).getUserMessages(municipalityId, userId, null, page, limit);
+		verify(mockHistoryService).getUserMessages(municipalityId, userId, null, page, limit, null, true);
+		verifyNoMoreInteractions(mockHistoryService);
+	}
+
+	@Test
+	void getUserMessagesWithContinuationTokenAndWithoutCount() {
+		final var municipalityId = "2281";
+		final var userId = "userId";
+		final var limit = 15;
+
+		final var userMessages = UserMessages.builder()
+			.withMessages(List.of(UserMessage.builder().withMessageId("someMessageId").build()))
+			.withMetaData(PagingMetaData.create().withCount(1).withLimit(limit))
+			.withContinuationToken("nextToken")
+			.build();
+
+		when(mockHistoryService.getUserMessages(municipalityId, userId, null, 1, limit, "someToken", false)).thenReturn(userMessages);
+
+		webTestClient.get()
+			.uri(uriBuilder -> uriBuilder.path(USER_MESSAGES_PATH)
+				.queryParam("limit", limit)
+				.queryParam("continuationToken", "someToken")
+				.queryParam("count", false)
+				.build(Map.of("municipalityId", municipalityId, "userId", userId)))
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody(UserMessages.class)
+			.isEqualTo(userMessages);
+
+		verify(mockHistoryService).getUserMessages(municipalityId, userId, null, 1, limit, "someToken", false);
 		verifyNoMoreInteractions(mockHistoryService);
 	}
 
@@ -415,7 +485,7 @@ class HistoryResourceTest {
 
 		final var userMessages = createUserMessages();
 
-		when(mockHistoryService.getUserMessages(municipalityId, userId, batchId, page, limit)).thenReturn(userMessages);
+		when(mockHistoryService.getUserMessages(municipalityId, userId, batchId, page, limit, null, true)).thenReturn(userMessages);
 
 		webTestClient.get()
 			.uri(uriBuilder -> uriBuilder.path(USER_MESSAGES_PATH)
@@ -427,7 +497,7 @@ class HistoryResourceTest {
 			.expectBody(UserMessages.class)
 			.isEqualTo(userMessages);
 
-		verify(mockHistoryService).getUserMessages(municipalityId, userId, batchId, page, limit);
+		verify(mockHistoryService).getUserMessages(municipalityId, userId, batchId, page, limit, null, true);
 		verifyNoMoreInteractions(mockHistoryService);
 	}
 
@@ -515,4 +585,41 @@ class HistoryResourceTest {
 			.exchange()
 			.expectStatus().isNotFound();
 	}
+
+	@Test
+	void exportHistory() throws IOException {
+		// Act
+		webTestClient.get()
+			.uri(uriBuilder -> uriBuilder.path(HISTORY_EXPORT_PATH).build(Map.of("municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isOk();
+
+		// Verify
+		verify(mockHistoryService).exportHistory(eq(MUNICIPALITY_ID), isNull(), isNull(), isNull(), eq(ExportFormat.NDJSON), eq(false), any(HttpServletResponse.class));
+		verifyNoMoreInteractions(mockHistoryService);
+	}
+
+	@Test
+	void exportHistoryWithAllParameters() throws IOException {
+		// Arrange
+		final var partyId = UUID.randomUUID().toString();
+		final var from = LocalDate.of(2024, 1, 1);
+		final var to = LocalDate.of(2024, 12, 31);
+
+		// Act
+		webTestClient.get()
+			.uri(uriBuilder -> uriBuilder.path(HISTORY_EXPORT_PATH)
+				.queryParam("partyId", partyId)
+				.queryParam("from", from)
+				.queryParam("to", to)
+				.queryParam("format", "CSV")
+				.queryParam("includeContent", true)
+				.build(Map.of("municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isOk();
+
+		// Verify
+		verify(mockHistoryService).exportHistory(eq(MUNICIPALITY_ID), eq(partyId), eq(from), eq(to), eq(ExportFormat.CSV), eq(true), any(HttpServletResponse.class));
+		verifyNoMoreInteractions(mockHistoryService);
+	}
 }
@@ -1,5 +1,7 @@
 package se.sundsvall.messaging.api;
 
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -15,16 +17,20 @@ import se.sundsvall.messaging.api.model.response.DepartmentStats;
 import se.sundsvall.messaging.model.Count;
 import se.sundsvall.messaging.model.DepartmentLetter;
 import se.sundsvall.messaging.model.DepartmentStatistics;
+import se.sundsvall.messaging.model.ExportFormat;
 import se.sundsvall.messaging.model.MessageType;
 import se.sundsvall.messaging.model.Statistics;
 import se.sundsvall.messaging.service.StatisticsService;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static se.sundsvall.messaging.Constants.STATISTICS_EXPORT_PATH;
 import static se.sundsvall.messaging.Constants.STATISTICS_FOR_DEPARTMENTS_PATH;
 import static se.sundsvall.messaging.Constants.STATISTICS_FOR_SPECIFIC_DEPARTMENT_PATH;
 import static se.sundsvall.messaging.Constants.STATISTICS_PATH;
@@ -236,4 +242,38 @@ class StatisticsResourceTest {
 		verify(mockStatisticsService).getStatisticsByDepartment(MUNICIPALITY_ID, department, origin, from, to);
 		verifyNoMoreInteractions(mockStatisticsService);
 	}
+
+	@Test
+	void exportStatistics() throws IOException {
+		// Arrange
+		final var from = LocalDate.of(2024, 1, 1);
+		final var to = LocalDate.of(2024, 12, 31);
+
+		// Act
+		webTestClient.get()
+			.uri(uriBuilder -> uriBuilder.path(STATISTICS_EXPORT_PATH)
+				.queryParam("from", from)
+				.queryParam("to", to)
+				.queryParam("format", "CSV")
+				.build(Map.of("municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isOk();
+
+		// Verify
+		verify(mockStatisticsService).exportStatistics(eq(MUNICIPALITY_ID), eq(from), eq(to), eq(ExportFormat.CSV), any(HttpServletResponse.class));
+		verifyNoMoreInteractions(mockStatisticsService);
+	}
+
+	@Test
+	void exportStatisticsWithMinimalParameterSettings() throws IOException {
+		// Act
+		webTestClient.get()
+			.uri(uriBuilder -> uriBuilder.path(STATISTICS_EXPORT_PATH).build(Map.of("municipalityId", MUNICIPALITY_ID)))
+			.exchange()
+			.expectStatus().isOk();
+
+		// Verify
+		verify(mockStatisticsService).exportStatistics(eq(MUNICIPALITY_ID), isNull(), isNull(), eq(ExportFormat.NDJSON), any(HttpServletResponse.class));
+		verifyNoMoreInteractions(mockStatisticsService);
+	}
 }
@@ -12,15 +12,17 @@ class UserBatchesTest {
 
 	private static final PagingMetaData PAGING_META_DATA = createPagingMetaData();
 	private static final List<Batch> USER_BATCHES = List.of(createBatch());
+	private static final String CONTINUATION_TOKEN = "continuationToken";
 
 	@Test
 	void userBatchesConstructor() {
-		final var userBatches = new UserBatches(PAGING_META_DATA, USER_BATCHES);
+		final var userBatches = new UserBatches(PAGING_META_DATA, USER_BATCHES, CONTINUATION_TOKEN);
 
 		assertThat(userBatches).isNotNull().hasNoNullFieldsOrProperties();
 		assertThat(userBatches.metaData()).isEqualTo(PAGING_META_DATA);
 		assertThat(userBatches.batches()).isEqualTo(USER_BATCHES);
-		assertThat(userBatches).hasOnlyFields("metaData", "batches");
+		assertThat(userBatches.continuationToken()).isEqualTo(CONTINUATION_TOKEN);
+		assertThat(userBatches).hasOnlyFields("metaData", "batches", "continuationToken");
 	}
 
 	@Test
@@ -28,17 +30,19 @@ class UserBatchesTest {
 		final var userBatches = UserBatches.builder()
 			.withMetaData(PAGING_META_DATA)
 			.withBatches(USER_BATCHES)
+			.withContinuationToken(CONTINUATION_TOKEN)
 			.build();
 
 		assertThat(userBatches).isNotNull().hasNoNullFieldsOrProperties();
 		assertThat(userBatches.metaData()).isEqualTo(PAGING_META_DATA);
 		assertThat(userBatches.batches()).isEqualTo(USER_BATCHES);
-		assertThat(userBatches).hasOnlyFields("metaData", "batches");
+		assertThat(userBatches.continuationToken()).isEqualTo(CONTINUATION_TOKEN);
+		assertThat(userBatches).hasOnlyFields("metaData", "batches", "continuationToken");
 	}
 
 	@Test
 	void testNoDirtOnEmptyBean() {
 		assertThat(UserBatches.builder().build()).hasAllNullFieldsOrProperties();
-		assertThat(new UserBatches(null, null)).hasAllNullFieldsOrProperties();
+		assertThat(new UserBatches(null, null, null)).hasAllNullFieldsOrProperties();
 	}
 }
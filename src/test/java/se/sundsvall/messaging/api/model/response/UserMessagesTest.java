@@ -12,15 +12,17 @@ class UserMessagesTest {
 
 	private static final PagingMetaData PAGING_META_DATA = createPagingMetaData();
 	private static final List<UserMessage> USER_MESSAGES = List.of(createUserMessage());
+	private static final String CONTINUATION_TOKEN = "continuationToken";
 
 	@Test
 	void userMessagesConstructor() {
-		var userMessages = new UserMessages(PAGING_META_DATA, USER_MESSAGES);
+		var userMessages = new UserMessages(PAGING_META_DATA, USER_MESSAGES, CONTINUATION_TOKEN);
 
 		assertThat(userMessages).isNotNull().hasNoNullFieldsOrProperties();
 		assertThat(userMessages.metaData()).isEqualTo(PAGING_META_DATA);
 		assertThat(userMessages.messages()).isEqualTo(USER_MESSAGES);
-		assertThat(userMessages).hasOnlyFields("metaData", "messages");
+		assertThat(userMessages.continuationToken()).isEqualTo(CONTINUATION_TOKEN);
+		assertThat(userMessages).hasOnlyFields("metaData", "messages", "continuationToken");
 	}
 
 	@Test
@@ -28,12 +30,14 @@ class UserMessagesTest {
 		var userMessages = UserMessages.builder()
 			.withMetaData(PAGING_META_DATA)
 			.withMessages(USER_MESSAGES)
+			.withContinuationToken(CONTINUATION_TOKEN)
 			.build();
 
 		assertThat(userMessages).isNotNull().hasNoNullFieldsOrProperties();
 		assertThat(userMessages.metaData()).isEqualTo(PAGING_META_DATA);
 		assertThat(userMessages.messages()).isEqualTo(USER_MESSAGES);
-		assertThat(userMessages).hasOnlyFields("metaData", "messages");
+		assertThat(userMessages.continuationToken()).isEqualTo(CONTINUATION_TOKEN);
+		assertThat(userMessages).hasOnlyFields("metaData", "messages", "continuationToken");
 	}
 
 	@Test
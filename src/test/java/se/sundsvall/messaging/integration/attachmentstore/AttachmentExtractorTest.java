@@ -0,0 +1,196 @@
+package se.sundsvall.messaging.integration.attachmentstore;
+
+import java.io.ByteArrayInputStream;
+import java.util.Base64;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.sundsvall.dept44.problem.ThrowableProblem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor.REFERENCE_PREFIX;
+import static se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor.sha256;
+
+@ExtendWith(MockitoExtension.class)
+class AttachmentExtractorTest {
+
+	private static final byte[] CONTENT = "someContent".getBytes();
+	private static final String BASE64_CONTENT = Base64.getEncoder().encodeToString(CONTENT);
+	private static final String HASH = sha256(CONTENT);
+
+	@Mock
+	private AttachmentStore mockAttachmentStore;
+
+	@InjectMocks
+	private AttachmentExtractor attachmentExtractor;
+
+	@AfterEach
+	void verifyNoMoreMockInteractions() {
+		verifyNoMoreInteractions(mockAttachmentStore);
+	}
+
+	@Test
+	void extract() {
+		final var json = """
+			{"subject":"someSubject","attachments":[{"filename":"a.pdf","content":"%s"},{"filename":"b.pdf","content":"%s"}]}
+			""".formatted(BASE64_CONTENT, BASE64_CONTENT).strip();
+
+		final var result = attachmentExtractor.extract(json);
+
+		assertThat(result).isEqualTo("""
+			{"subject":"someSubject","attachments":[{"filename":"a.pdf","content":"%s"},{"filename":"b.pdf","content":"%s"}]}
+			""".formatted(REFERENCE_PREFIX + HASH, REFERENCE_PREFIX + HASH).strip());
+		verify(mockAttachmentStore, times(2)).store(HASH, CONTENT);
+	}
+
+	@Test
+	void extractFilesAndBase64Data() {
+		final var json = """
+			{"files":[{"filename":"a.pdf","content":"%s"}],"attachments":[{"fileName":"b.pdf","base64Data":"%s"}]}
+			""".formatted(BASE64_CONTENT, BASE64_CONTENT).strip();
+
+		final var result = attachmentExtractor.extract(json);
+
+		assertThat(result).doesNotContain(BASE64_CONTENT).contains(REFERENCE_PREFIX + HASH);
+		verify(mockAttachmentStore, times(2)).store(HASH, CONTENT);
+	}
+
+	@ParameterizedTest
+	@NullAndEmptySource
+	@ValueSource(strings = {
+		"not json",
+		"{\"subject\":\"someSubject\"}",
+		"{\"attachments\":[{\"filename\":\"a.pdf\",\"content\":\"not base64!\"}]}",
+		"{\"attachments\":[{\"filename\":\"a.pdf\",\"content\":\"\"}]}"
+	})
+	void extractWhenNothingToExtract(final String json) {
+		assertThat(attachmentExtractor.extract(json)).isSameAs(json);
+	}
+
+	@Test
+	void references() {
+		final var otherHash = sha256("otherContent".getBytes());
+		final var json = """
+			{"attachments":[{"filename":"a.pdf","content":"%s"},{"filename":"b.pdf","content":"%s"},{"filename":"c.pdf","content":"%s"}]}
+			""".formatted(REFERENCE_PREFIX + HASH, REFERENCE_PREFIX + otherHash, REFERENCE_PREFIX + HASH).strip();
+
+		assertThat(attachmentExtractor.references(json)).containsExactly(HASH, otherHash);
+	}
+
+	@ParameterizedTest
+	@NullAndEmptySource
+	@ValueSource(strings = {
+		"{\"subject\":\"someSubject\"}",
+		"{\"attachments\":[{\"filename\":\"a.pdf\",\"content\":\"c29tZUNvbnRlbnQ=\"}]}",
+		"{\"subject\":\"sha256:notAnAttachment\"}"
+	})
+	void referencesWhenNoReferences(final String json) {
+		assertThat(attachmentExtractor.references(json)).isEmpty();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"sha256:../../../etc/passwd",
+		"sha256:2c26b46b68ffc68ff99b453c1d30413413422d706483bfa0f98a5e886266e7ae"
+	})
+	void extractWhenContentIsReference(final String reference) {
+		final var json = """
+			{"attachments":[{"filename":"a.pdf","content":"%s"}]}
+			""".formatted(reference).strip();
+
+		assertThatThrownBy(() -> attachmentExtractor.extract(json))
+			.isInstanceOf(ThrowableProblem.class)
+			.satisfies(problem -> assertThat(((ThrowableProblem) problem).getStatus()).isEqualTo(BAD_REQUEST));
+	}
+
+	@Test
+	void resolve() {
+		final var json = """
+			{"attachments":[{"filename":"a.pdf","content":"%s"}]}
+			""".formatted(REFERENCE_PREFIX + HASH).strip();
+		when(mockAttachmentStore.read(HASH)).thenReturn(CONTENT);
+
+		final var result = attachmentExtractor.resolve(json);
+
+		assertThat(result).isEqualTo("""
+			{"attachments":[{"filename":"a.pdf","content":"%s"}]}
+			""".formatted(BASE64_CONTENT).strip());
+		verify(mockAttachmentStore).read(HASH);
+	}
+
+	@ParameterizedTest
+	@NullAndEmptySource
+	@ValueSource(strings = {
+		"{\"subject\":\"someSubject\"}",
+		"{\"attachments\":[{\"filename\":\"a.pdf\",\"content\":\"c29tZUNvbnRlbnQ=\"}]}",
+		"{\"subject\":\"sha256:notAnAttachment\"}"
+	})
+	void resolveWhenNothingToResolve(final String json) {
+		assertThat(attachmentExtractor.resolve(json)).isSameAs(json);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"sha256:../../../etc/passwd",
+		"sha256:2C26B46B68FFC68FF99B453C1D30413413422D706483BFA0F98A5E886266E7AE",
+		"sha256:someHash"
+	})
+	void resolveWhenReferenceIsInvalid(final String reference) {
+		final var json = """
+			{"attachments":[{"filename":"a.pdf","content":"%s"}]}
+			""".formatted(reference).strip();
+
+		assertThatThrownBy(() -> attachmentExtractor.resolve(json))
+			.isInstanceOf(ThrowableProblem.class)
+			.satisfies(problem -> assertThat(((ThrowableProblem) problem).getStatus()).isEqualTo(INTERNAL_SERVER_ERROR));
+	}
+
+	@Test
+	void read() {
+		when(mockAttachmentStore.read(HASH)).thenReturn(CONTENT);
+
+		assertThat(attachmentExtractor.read(REFERENCE_PREFIX + HASH)).isEqualTo(CONTENT);
+
+		verify(mockAttachmentStore).read(HASH);
+	}
+
+	@Test
+	void sizeAndOpen() {
+		final var stream = new ByteArrayInputStream(CONTENT);
+		when(mockAttachmentStore.size(HASH)).thenReturn(11L);
+		when(mockAttachmentStore.open(HASH, 4L)).thenReturn(stream);
+
+		assertThat(attachmentExtractor.size(REFERENCE_PREFIX + HASH)).isEqualTo(11L);
+		assertThat(attachmentExtractor.open(REFERENCE_PREFIX + HASH, 4L)).isSameAs(stream);
+
+		verify(mockAttachmentStore).size(HASH);
+		verify(mockAttachmentStore).open(HASH, 4L);
+	}
+
+	@Test
+	void isReference() {
+		assertThat(AttachmentExtractor.isReference(REFERENCE_PREFIX + HASH)).isTrue();
+		assertThat(AttachmentExtractor.isReference(BASE64_CONTENT)).isFalse();
+		assertThat(AttachmentExtractor.isReference(null)).isFalse();
+	}
+
+	@Test
+	void decodedSize() {
+		assertThat(AttachmentExtractor.decodedSize(BASE64_CONTENT)).isEqualTo(11);
+		assertThat(AttachmentExtractor.decodedSize(Base64.getMimeEncoder().encodeToString(new byte[100]))).isEqualTo(100);
+		assertThat(AttachmentExtractor.decodedSize("")).isZero();
+	}
+}
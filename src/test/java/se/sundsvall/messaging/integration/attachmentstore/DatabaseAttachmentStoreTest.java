@@ -0,0 +1,158 @@
+package se.sundsvall.messaging.integration.attachmentstore;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.sundsvall.dept44.problem.ThrowableProblem;
+import se.sundsvall.messaging.integration.db.AttachmentRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static se.sundsvall.messaging.integration.attachmentstore.ChunkedAttachmentInputStream.CHUNK_SIZE;
+
+@ExtendWith(MockitoExtension.class)
+class DatabaseAttachmentStoreTest {
+
+	private static final String HASH = "someHash";
+	private static final byte[] CONTENT = "someContent".getBytes();
+
+	@Mock
+	private AttachmentRepository mockAttachmentRepository;
+
+	@InjectMocks
+	private DatabaseAttachmentStore attachmentStore;
+
+	@AfterEach
+	void verifyNoMoreMockInteractions() {
+		verifyNoMoreInteractions(mockAttachmentRepository);
+	}
+
+	@Test
+	void store() {
+		when(mockAttachmentRepository.refreshCreatedAt(eq(HASH), any(LocalDateTime.class))).thenReturn(0);
+
+		attachmentStore.store(HASH, CONTENT);
+
+		verify(mockAttachmentRepository).refreshCreatedAt(eq(HASH), any(LocalDateTime.class));
+		verify(mockAttachmentRepository).insertIfAbsent(HASH, CONTENT);
+	}
+
+	@Test
+	void storeWhenAlreadyStored() {
+		when(mockAttachmentRepository.refreshCreatedAt(eq(HASH), any(LocalDateTime.class))).thenReturn(1);
+
+		attachmentStore.store(HASH, CONTENT);
+
+		verify(mockAttachmentRepository).refreshCreatedAt(eq(HASH), any(LocalDateTime.class));
+	}
+
+	@Test
+	void deleteUnreferenced() {
+		when(mockAttachmentRepository.deleteUnreferenced(any(LocalDateTime.class), eq(100))).thenReturn(7);
+
+		assertThat(attachmentStore.deleteUnreferenced(Duration.ofDays(1), 100)).isEqualTo(7);
+
+		verify(mockAttachmentRepository).deleteUnreferenced(argThat(createdBefore -> createdBefore.isBefore(LocalDateTime.now().minusHours(23))), eq(100));
+	}
+
+	@Test
+	void read() {
+		when(mockAttachmentRepository.findContentByHash(HASH)).thenReturn(Optional.of(CONTENT));
+
+		assertThat(attachmentStore.read(HASH)).isEqualTo(CONTENT);
+
+		verify(mockAttachmentRepository).findById(HASH);
+	}
+
+	@Test
+	void readWhenNotStored() {
+		when(mockAttachmentRepository.findContentByHash(HASH)).thenReturn(Optional.empty());
+
+		assertThatThrownBy(() -> attachmentStore.read(HASH))
+			.isInstanceOf(ThrowableProblem.class)
+			.satisfies(problem -> assertThat(((ThrowableProblem) problem).getStatus()).isEqualTo(NOT_FOUND));
+
+		verify(mockAttachmentRepository).findById(HASH);
+	}
+
+	@Test
+	void size() {
+		when(mockAttachmentRepository.findContentLengthByHash(HASH)).thenReturn(Optional.of(11L));
+
+		assertThat(attachmentStore.size(HASH)).isEqualTo(11L);
+
+		verify(mockAttachmentRepository).findContentLengthByHash(HASH);
+	}
+
+	@Test
+	void sizeWhenNotStored() {
+		when(mockAttachmentRepository.findContentLengthByHash(HASH)).thenReturn(Optional.empty());
+
+		assertThatThrownBy(() -> attachmentStore.size(HASH))
+			.isInstanceOf(ThrowableProblem.class)
+			.satisfies(problem -> assertThat(((ThrowableProblem) problem).getStatus()).isEqualTo(NOT_FOUND));
+
+		verify(mockAttachmentRepository).findContentLengthByHash(HASH);
+	}
+
+	@Test
+	void open() throws IOException {
+		when(mockAttachmentRepository.findContentChunkByHash(HASH, 5, CHUNK_SIZE)).thenReturn("Content".getBytes());
+
+		try (final var stream = attachmentStore.open(HASH, 4)) {
+			assertThat(stream).hasBinaryContent("Content".getBytes());
+		}
+
+		verify(mockAttachmentRepository).findContentChunkByHash(HASH, 5, CHUNK_SIZE);
+	}
+
+	@Test
+	void openReadsInChunks() throws IOException {
+		final var firstChunk = new byte[CHUNK_SIZE];
+		final var secondChunk = new byte[CHUNK_SIZE];
+		firstChunk[0] = 1;
+		secondChunk[0] = 2;
+		when(mockAttachmentRepository.findContentChunkByHash(HASH, 1, CHUNK_SIZE)).thenReturn(firstChunk);
+		when(mockAttachmentRepository.findContentChunkByHash(HASH, CHUNK_SIZE + 1L, CHUNK_SIZE)).thenReturn(secondChunk);
+		when(mockAttachmentRepository.findContentChunkByHash(HASH, 2L * CHUNK_SIZE + 1, CHUNK_SIZE)).thenReturn(new byte[0]);
+
+		try (final var stream = attachmentStore.open(HASH, 0)) {
+			final var content = stream.readAllBytes();
+
+			assertThat(content).hasSize(2 * CHUNK_SIZE);
+			assertThat(content[0]).isEqualTo((byte) 1);
+			assertThat(content[CHUNK_SIZE]).isEqualTo((byte) 2);
+		}
+
+		verify(mockAttachmentRepository).findContentChunkByHash(HASH, 1, CHUNK_SIZE);
+		verify(mockAttachmentRepository).findContentChunkByHash(HASH, CHUNK_SIZE + 1L, CHUNK_SIZE);
+		verify(mockAttachmentRepository).findContentChunkByHash(HASH, 2L * CHUNK_SIZE + 1, CHUNK_SIZE);
+	}
+
+	@Test
+	void openAndSkip() throws IOException {
+		when(mockAttachmentRepository.findContentChunkByHash(HASH, 1, CHUNK_SIZE)).thenReturn(CONTENT);
+
+		try (final var stream = attachmentStore.open(HASH, 0)) {
+			assertThat(stream.read()).isEqualTo('s');
+			stream.skipNBytes(3);
+			assertThat(stream).hasBinaryContent("Content".getBytes());
+		}
+
+		verify(mockAttachmentRepository).findContentChunkByHash(HASH, 1, CHUNK_SIZE);
+	}
+}
@@ -0,0 +1,148 @@
+package se.sundsvall.messaging.integration.attachmentstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import se.sundsvall.dept44.problem.ThrowableProblem;
+import se.sundsvall.messaging.integration.db.AttachmentReferenceRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+class FileSystemAttachmentStoreTest {
+
+	private static final String HASH = "ab" + "0123456789abcdef".repeat(3) + "0123456789abcd";
+	private static final String OTHER_HASH = "cd" + "0123456789abcdef".repeat(3) + "0123456789abcd";
+	private static final String RECENT_HASH = "ef" + "0123456789abcdef".repeat(3) + "0123456789abcd";
+
+	private final AttachmentReferenceRepository mockAttachmentReferenceRepository = mock(AttachmentReferenceRepository.class);
+
+	@TempDir
+	private Path root;
+
+	private FileSystemAttachmentStore attachmentStore;
+
+	@BeforeEach
+	void setUp() {
+		attachmentStore = new FileSystemAttachmentStore(root, mockAttachmentReferenceRepository);
+	}
+
+	@Test
+	void storeAndRead() throws IOException {
+		final var content = "someContent".getBytes();
+
+		attachmentStore.store(HASH, content);
+
+		assertThat(root.resolve("ab").resolve(HASH)).hasBinaryContent(content);
+		assertThat(attachmentStore.read(HASH)).isEqualTo(content);
+		try (final var files = Files.list(root.resolve("ab"))) {
+			// No temporary files left behind
+			assertThat(files).containsExactly(root.resolve("ab").resolve(HASH));
+		}
+	}
+
+	@Test
+	void storeWhenAlreadyStored() {
+		attachmentStore.store(HASH, "someContent".getBytes());
+		attachmentStore.store(HASH, "otherContent".getBytes());
+
+		assertThat(attachmentStore.read(HASH)).isEqualTo("someContent".getBytes());
+	}
+
+	@Test
+	void storeWhenAlreadyStoredRefreshesModificationTime() throws IOException {
+		attachmentStore.store(HASH, "someContent".getBytes());
+		Files.setLastModifiedTime(root.resolve("ab").resolve(HASH), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+		attachmentStore.store(HASH, "someContent".getBytes());
+
+		assertThat(Files.getLastModifiedTime(root.resolve("ab").resolve(HASH)).toInstant()).isAfter(Instant.now().minus(Duration.ofMinutes(1)));
+	}
+
+	@Test
+	void deleteUnreferenced() throws IOException {
+		attachmentStore.store(HASH, "someContent".getBytes());
+		attachmentStore.store(OTHER_HASH, "otherContent".getBytes());
+		attachmentStore.store(RECENT_HASH, "recentContent".getBytes());
+		final var old = FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+		Files.setLastModifiedTime(root.resolve("ab").resolve(HASH), old);
+		Files.setLastModifiedTime(root.resolve("cd").resolve(OTHER_HASH), old);
+		when(mockAttachmentReferenceRepository.existsByHash(OTHER_HASH)).thenReturn(true);
+
+		assertThat(attachmentStore.deleteUnreferenced(Duration.ofDays(1), 10)).isOne();
+
+		assertThat(root.resolve("ab").resolve(HASH)).doesNotExist();
+		assertThat(root.resolve("cd").resolve(OTHER_HASH)).exists();
+		assertThat(root.resolve("ef").resolve(RECENT_HASH)).exists();
+	}
+
+	@Test
+	void deleteUnreferencedWhenNothingStored() {
+		attachmentStore = new FileSystemAttachmentStore(root.resolve("missing"), mockAttachmentReferenceRepository);
+
+		assertThat(attachmentStore.deleteUnreferenced(Duration.ofDays(1), 10)).isZero();
+	}
+
+	@Test
+	void sizeAndOpen() throws IOException {
+		attachmentStore.store(HASH, "someContent".getBytes());
+
+		assertThat(attachmentStore.size(HASH)).isEqualTo(11L);
+		try (final var stream = attachmentStore.open(HASH, 4)) {
+			assertThat(stream).hasBinaryContent("Content".getBytes());
+		}
+	}
+
+	@Test
+	void openWithNegativeOffset() {
+		attachmentStore.store(HASH, "someContent".getBytes());
+
+		assertThatThrownBy(() -> attachmentStore.open(HASH, -1))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void sizeAndOpenWhenNotStored() {
+		assertThatThrownBy(() -> attachmentStore.size(HASH))
+			.isInstanceOf(ThrowableProblem.class)
+			.satisfies(problem -> assertThat(((ThrowableProblem) problem).getStatus()).isEqualTo(NOT_FOUND));
+		assertThatThrownBy(() -> attachmentStore.open(HASH, 0))
+			.isInstanceOf(ThrowableProblem.class)
+			.satisfies(problem -> assertThat(((ThrowableProblem) problem).getStatus()).isEqualTo(NOT_FOUND));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"../../../etc/passwd",
+		"..",
+		"AB0123456789ABCDEF0123456789ABCDEF0123456789ABCDEF0123456789ABCD",
+		"ab0123456789abcdef"
+	})
+	void invalidHash(final String hash) {
+		assertThatThrownBy(() -> attachmentStore.read(hash))
+			.isInstanceOf(ThrowableProblem.class)
+			.satisfies(problem -> assertThat(((ThrowableProblem) problem).getStatus()).isEqualTo(INTERNAL_SERVER_ERROR));
+		assertThatThrownBy(() -> attachmentStore.store(hash, "someContent".getBytes()))
+			.isInstanceOf(ThrowableProblem.class)
+			.satisfies(problem -> assertThat(((ThrowableProblem) problem).getStatus()).isEqualTo(INTERNAL_SERVER_ERROR));
+	}
+
+	@Test
+	void readWhenNotStored() {
+		assertThatThrownBy(() -> attachmentStore.read(HASH))
+			.isInstanceOf(ThrowableProblem.class)
+			.satisfies(problem -> assertThat(((ThrowableProblem) problem).getStatus()).isEqualTo(NOT_FOUND));
+	}
+}
@@ -2,10 +2,18 @@ package se.sundsvall.messaging.integration.citizen;
 
 import generated.se.sundsvall.citizen.CitizenAddress;
 import generated.se.sundsvall.citizen.CitizenExtended;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.extension.ExtensionContext;
@@ -13,29 +21,41 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsProvider;
 import org.junit.jupiter.params.provider.ArgumentsSource;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import se.sundsvall.dept44.problem.ThrowableProblem;
+import se.sundsvall.messaging.configuration.CitizenCacheProperties;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static se.sundsvall.messaging.TestDataFactory.createAddress;
+import static se.sundsvall.messaging.integration.citizen.CitizenIntegration.CACHE_NAME;
 import static se.sundsvall.messaging.integration.citizen.CitizenIntegration.POPULATION_REGISTRATION_ADDRESS;
 
 @ExtendWith(MockitoExtension.class)
 class CitizenIntegrationTest {
 
+	private static final CitizenCacheProperties CACHE_PROPERTIES = new CitizenCacheProperties(100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+
 	@Mock
 	private CitizenClient mockCitizenClient;
 
-	@InjectMocks
+	private SimpleMeterRegistry meterRegistry;
+
 	private CitizenIntegration citizenIntegration;
 
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		citizenIntegration = new CitizenIntegration(mockCitizenClient, CACHE_PROPERTIES, meterRegistry);
+	}
+
 	@Test
 	void getCitizenAddress() {
 		final var partyId = UUID.randomUUID().toString();
@@ -120,12 +140,124 @@ class CitizenIntegrationTest {
 		verifyNoMoreInteractions(mockCitizenClient);
 	}
 
+	@Test
+	void getCitizenAddressIsCached() {
+		final var partyId = UUID.randomUUID().toString();
+		final var municipalityId = "someMunicipalityId";
+
+		when(mockCitizenClient.getCitizen(municipalityId, partyId)).thenReturn(Optional.of(createCitizen()));
+
+		final var result1 = citizenIntegration.getCitizenAddress(partyId, municipalityId);
+		final var result2 = citizenIntegration.getCitizenAddress(partyId, municipalityId);
+
+		assertThat(result2).isNotNull().isEqualTo(result1);
+		assertThat(meterRegistry.get("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").functionCounter().count()).isOne();
+		assertThat(meterRegistry.get("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").functionCounter().count()).isOne();
+		verify(mockCitizenClient).getCitizen(municipalityId, partyId);
+		verifyNoMoreInteractions(mockCitizenClient);
+	}
+
+	@Test
+	void getCitizenAddressWhenNoCitizenIsFoundIsCached() {
+		final var partyId = UUID.randomUUID().toString();
+		final var municipalityId = "someMunicipalityId";
+
+		when(mockCitizenClient.getCitizen(municipalityId, partyId)).thenReturn(Optional.empty());
+
+		for (var i = 0; i < 2; i++) {
+			assertThatExceptionOfType(ThrowableProblem.class)
+				.isThrownBy(() -> citizenIntegration.getCitizenAddress(partyId, municipalityId))
+				.satisfies(thrownProblem -> assertThat(thrownProblem.getTitle()).isEqualTo("No citizen data found"));
+		}
+
+		verify(mockCitizenClient).getCitizen(municipalityId, partyId);
+		verifyNoMoreInteractions(mockCitizenClient);
+	}
+
+	@Test
+	void getCitizenAddressWhenCitizenCallFailsIsNotCached() {
+		final var partyId = UUID.randomUUID().toString();
+		final var municipalityId = "someMunicipalityId";
+
+		when(mockCitizenClient.getCitizen(municipalityId, partyId)).thenThrow(new IllegalStateException("Citizen unavailable"));
+
+		for (var i = 0; i < 2; i++) {
+			assertThatIllegalStateException()
+				.isThrownBy(() -> citizenIntegration.getCitizenAddress(partyId, municipalityId))
+				.withMessage("Citizen unavailable");
+		}
+
+		verify(mockCitizenClient, times(2)).getCitizen(municipalityId, partyId);
+		verifyNoMoreInteractions(mockCitizenClient);
+	}
+
+	@Test
+	void getCitizenAddressWhenCitizenCallThrowsErrorIsNotCached() {
+		final var partyId = UUID.randomUUID().toString();
+		final var municipalityId = "someMunicipalityId";
+
+		when(mockCitizenClient.getCitizen(municipalityId, partyId))
+			.thenThrow(new NoClassDefFoundError("someClass"))
+			.thenReturn(Optional.of(createCitizen()));
+
+		assertThatExceptionOfType(NoClassDefFoundError.class)
+			.isThrownBy(() -> citizenIntegration.getCitizenAddress(partyId, municipalityId))
+			.withMessage("someClass");
+		assertThat(citizenIntegration.getCitizenAddress(partyId, municipalityId)).isNotNull();
+
+		verify(mockCitizenClient, times(2)).getCitizen(municipalityId, partyId);
+		verifyNoMoreInteractions(mockCitizenClient);
+	}
+
+	@Test
+	void getCitizenAddressCoalescesConcurrentRequests() throws Exception {
+		final var partyId = UUID.randomUUID().toString();
+		final var municipalityId = "someMunicipalityId";
+		final var callStarted = new CountDownLatch(1);
+		final var callReleased = new CountDownLatch(1);
+
+		when(mockCitizenClient.getCitizen(municipalityId, partyId)).thenAnswer(invocation -> {
+			callStarted.countDown();
+			callReleased.await(10, TimeUnit.SECONDS);
+			return Optional.of(createCitizen());
+		});
+
+		final var futures = new ArrayList<Future<?>>();
+		try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			futures.add(executor.submit(() -> citizenIntegration.getCitizenAddress(partyId, municipalityId)));
+			assertThat(callStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+			for (var i = 0; i < 10; i++) {
+				futures.add(executor.submit(() -> citizenIntegration.getCitizenAddress(partyId, municipalityId)));
+			}
+			callReleased.countDown();
+		}
+
+		for (final var future : futures) {
+			assertThat(future.get()).isNotNull();
+		}
+		verify(mockCitizenClient).getCitizen(municipalityId, partyId);
+		verifyNoMoreInteractions(mockCitizenClient);
+	}
+
 	@ParameterizedTest
 	@ArgumentsSource(CapitalizeArgumentsProvider.class)
 	void capitalize(final String input, final String expected) {
 		assertThat(citizenIntegration.capitalize(input)).isEqualTo(expected);
 	}
 
+	private static CitizenExtended createCitizen() {
+		final var address = createAddress();
+
+		return new CitizenExtended()
+			.givenname(address.firstName())
+			.lastname(address.lastName())
+			.addresses(List.of(new CitizenAddress()
+				.addressType(POPULATION_REGISTRATION_ADDRESS)
+				.address(address.address())
+				.city(address.city())));
+	}
+
 	static class CapitalizeArgumentsProvider implements ArgumentsProvider {
 
 		@Override
@@ -3,31 +3,47 @@ package se.sundsvall.messaging.integration.contactsettings;
 import generated.se.sundsvall.contactsettings.ContactChannel;
 import generated.se.sundsvall.contactsettings.ContactMethod;
 import generated.se.sundsvall.contactsettings.ContactSetting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.util.LinkedMultiValueMap;
+import se.sundsvall.messaging.configuration.ContactSettingsCacheProperties;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static se.sundsvall.messaging.integration.contactsettings.ContactSettingsIntegration.ORIGIN_GETS_METRIC_NAME;
+import static se.sundsvall.messaging.integration.contactsettings.ContactSettingsIntegration.OTHER_ORIGIN;
 
 @ExtendWith(MockitoExtension.class)
 class ContactSettingsIntegrationTest {
 
+	private static final ContactSettingsCacheProperties CACHE_PROPERTIES = new ContactSettingsCacheProperties(100, Duration.ofMinutes(15), 2);
+
 	@Mock
 	private ContactSettingsClient mockClient;
 
-	@InjectMocks
+	private SimpleMeterRegistry meterRegistry;
+
 	private ContactSettingsIntegration integration;
 
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		integration = new ContactSettingsIntegration(mockClient, CACHE_PROPERTIES, meterRegistry);
+	}
+
 	@Test
 	void test_getSettings() {
 		final var contactSetting = new ContactSetting()
@@ -39,7 +55,7 @@ class ContactSettingsIntegrationTest {
 		when(mockClient.getSettings(anyString(), anyString(), any()))
 			.thenReturn(Optional.of(List.of(contactSetting)));
 
-		final var contactDtos = integration.getContactSettings("someMunicipalityId", "somePartyId", new LinkedMultiValueMap<>());
+		final var contactDtos = integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
 
 		assertThat(contactDtos).hasSize(1);
 		assertThat(contactDtos.getFirst().contactMethod()).isEqualTo(ContactDto.ContactMethod.EMAIL);
@@ -54,7 +70,7 @@ class ContactSettingsIntegrationTest {
 		when(mockClient.getSettings(anyString(), anyString(), any()))
 			.thenReturn(Optional.empty());
 
-		final var contactDtos = integration.getContactSettings("someMunicipalityId", "somePartyId", new LinkedMultiValueMap<>());
+		final var contactDtos = integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
 
 		assertThat(contactDtos).isEmpty();
 
@@ -69,11 +85,110 @@ class ContactSettingsIntegrationTest {
 		when(mockClient.getSettings(anyString(), anyString(), any()))
 			.thenReturn(Optional.of(List.of(contactSetting)));
 
-		final var contactDtos = integration.getContactSettings("someMunicipalityId", "somePartyId", new LinkedMultiValueMap<>());
+		final var contactDtos = integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
+
+		assertThat(contactDtos).isEmpty();
+
+		verify(mockClient, times(1)).getSettings(anyString(), anyString(), any());
+	}
+
+	@Test
+	void test_getSettings_isCached() {
+		final var contactSetting = new ContactSetting()
+			.contactChannels(List.of(new ContactChannel()
+				.contactMethod(ContactMethod.SMS)
+				.destination("+46701740605")
+				.disabled(false)));
+
+		when(mockClient.getSettings(anyString(), anyString(), any()))
+			.thenReturn(Optional.of(List.of(contactSetting)));
+
+		final var filters1 = new LinkedMultiValueMap<>(Map.of("a", List.of("1"), "b", List.of("2")));
+		final var filters2 = new LinkedMultiValueMap<>(Map.of("b", List.of("2"), "a", List.of("1")));
+		final var contactDtos1 = integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", filters1);
+		final var contactDtos2 = integration.getContactSettings("someMunicipalityId", "someOtherOrigin", "somePartyId", filters2);
+
+		assertThat(contactDtos2).isEqualTo(contactDtos1).hasSize(1);
+		assertThat(meterRegistry.get(ORIGIN_GETS_METRIC_NAME).tag("origin", "someOrigin").tag("result", "miss").counter().count()).isOne();
+		assertThat(meterRegistry.get(ORIGIN_GETS_METRIC_NAME).tag("origin", "someOtherOrigin").tag("result", "hit").counter().count()).isOne();
+
+		verify(mockClient, times(1)).getSettings("someMunicipalityId", "somePartyId", filters1);
+	}
+
+	@Test
+	void test_getSettings_originsAreBounded() {
+		when(mockClient.getSettings(anyString(), anyString(), any()))
+			.thenReturn(Optional.empty());
+
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
+		integration.getContactSettings("someMunicipalityId", "someOtherOrigin", "somePartyId", new LinkedMultiValueMap<>());
+		integration.getContactSettings("someMunicipalityId", "aThirdOrigin", "somePartyId", new LinkedMultiValueMap<>());
+		integration.getContactSettings("someMunicipalityId", "some origin; with junk", "somePartyId", new LinkedMultiValueMap<>());
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
+
+		assertThat(meterRegistry.get(ORIGIN_GETS_METRIC_NAME).tag("origin", "someOrigin").tag("result", "hit").counter().count()).isOne();
+		assertThat(meterRegistry.get(ORIGIN_GETS_METRIC_NAME).tag("origin", "someOtherOrigin").tag("result", "hit").counter().count()).isOne();
+		assertThat(meterRegistry.get(ORIGIN_GETS_METRIC_NAME).tag("origin", OTHER_ORIGIN).tag("result", "hit").counter().count()).isEqualTo(2);
+		assertThat(meterRegistry.find(ORIGIN_GETS_METRIC_NAME).tag("origin", "aThirdOrigin").counter()).isNull();
+		assertThat(meterRegistry.get(ORIGIN_GETS_METRIC_NAME).counters()).hasSize(4);
+	}
+
+	@Test
+	void test_getSettings_whenSettingsAreNotFoundIsCached() {
+		when(mockClient.getSettings(anyString(), anyString(), any()))
+			.thenReturn(Optional.empty());
+
+		integration.getContactSettings("someMunicipalityId", null, "somePartyId", new LinkedMultiValueMap<>());
+		final var contactDtos = integration.getContactSettings("someMunicipalityId", null, "somePartyId", new LinkedMultiValueMap<>());
 
 		assertThat(contactDtos).isEmpty();
+		assertThat(meterRegistry.get(ORIGIN_GETS_METRIC_NAME).tag("origin", "unknown").tag("result", "hit").counter().count()).isOne();
 
 		verify(mockClient, times(1)).getSettings(anyString(), anyString(), any());
 	}
 
+	@Test
+	void test_getSettings_withDifferentFiltersIsNotShared() {
+		when(mockClient.getSettings(anyString(), anyString(), any()))
+			.thenReturn(Optional.empty());
+
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>(Map.of("a", List.of("1"))));
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>(Map.of("a", List.of("2"))));
+
+		verify(mockClient, times(2)).getSettings(anyString(), anyString(), any());
+	}
+
+	@Test
+	void test_invalidateContactSettingsForParty() {
+		when(mockClient.getSettings(anyString(), anyString(), any()))
+			.thenReturn(Optional.empty());
+
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "someOtherPartyId", new LinkedMultiValueMap<>());
+
+		integration.invalidateContactSettings("someMunicipalityId", "somePartyId");
+
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "someOtherPartyId", new LinkedMultiValueMap<>());
+
+		verify(mockClient, times(2)).getSettings(eq("someMunicipalityId"), eq("somePartyId"), any());
+		verify(mockClient, times(1)).getSettings(eq("someMunicipalityId"), eq("someOtherPartyId"), any());
+	}
+
+	@Test
+	void test_invalidateContactSettingsForMunicipality() {
+		when(mockClient.getSettings(anyString(), anyString(), any()))
+			.thenReturn(Optional.empty());
+
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
+		integration.getContactSettings("someOtherMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
+
+		integration.invalidateContactSettings("someMunicipalityId", null);
+
+		integration.getContactSettings("someMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
+		integration.getContactSettings("someOtherMunicipalityId", "someOrigin", "somePartyId", new LinkedMultiValueMap<>());
+
+		verify(mockClient, times(2)).getSettings(eq("someMunicipalityId"), eq("somePartyId"), any());
+		verify(mockClient, times(1)).getSettings(eq("someOtherMunicipalityId"), eq("somePartyId"), any());
+	}
 }
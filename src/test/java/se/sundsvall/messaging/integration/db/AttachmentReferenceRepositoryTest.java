@@ -0,0 +1,57 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import se.sundsvall.messaging.integration.db.entity.AttachmentReferenceEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace.NONE;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@ActiveProfiles("junit")
+@Sql(scripts = {
+	"/db/scripts/truncate.sql",
+	"/db/scripts/testdata-ut.sql"
+})
+class AttachmentReferenceRepositoryTest {
+
+	@Autowired
+	private AttachmentReferenceRepository attachmentReferenceRepository;
+
+	@Autowired
+	private MessageContentRepository messageContentRepository;
+
+	@Test
+	void existsByHash() {
+		// Arrange
+		attachmentReferenceRepository.saveAndFlush(AttachmentReferenceEntity.builder().withContentId(1L).withHash("someHash").build());
+
+		// Act and assert
+		assertThat(attachmentReferenceRepository.existsByHash("someHash")).isTrue();
+		assertThat(attachmentReferenceRepository.existsByHash("otherHash")).isFalse();
+	}
+
+	@Test
+	void deleteByRemovedContent() {
+		// Arrange
+		final var removedContentId = messageContentRepository.insertAll(List.of("content")).getFirst().getId();
+		messageContentRepository.deleteUnreferencedByIdIn(List.of(removedContentId));
+		attachmentReferenceRepository.saveAllAndFlush(List.of(
+			AttachmentReferenceEntity.builder().withContentId(1L).withHash("someHash").build(),
+			AttachmentReferenceEntity.builder().withContentId(removedContentId).withHash("someHash").build(),
+			AttachmentReferenceEntity.builder().withContentId(removedContentId).withHash("otherHash").build()));
+
+		// Act
+		final var deleted = attachmentReferenceRepository.deleteByRemovedContent(List.of(1L, removedContentId));
+
+		// Assert
+		assertThat(deleted).isEqualTo(2);
+		assertThat(attachmentReferenceRepository.findAll()).extracting(AttachmentReferenceEntity::getContentId).containsExactly(1L);
+	}
+}
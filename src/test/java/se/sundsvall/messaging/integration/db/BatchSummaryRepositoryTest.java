@@ -0,0 +1,86 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import se.sundsvall.messaging.integration.db.entity.BatchSummaryEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace.NONE;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.SMS;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@ActiveProfiles("junit")
+@Sql(scripts = {
+	"/db/scripts/truncate.sql",
+	"/db/scripts/testdata-ut.sql"
+})
+class BatchSummaryRepositoryTest {
+
+	private static final String MUNICIPALITY_ID = "2281";
+
+	private static final PageRequest PAGE_REQUEST = PageRequest.of(0, 10);
+
+	@Autowired
+	private BatchSummaryRepository batchSummaryRepository;
+
+	@Test
+	void register() {
+		final var now = LocalDateTime.now();
+
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId", "issuer", "LETTER", null, 0, now.minusMinutes(1));
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId", "otherIssuer", "SMS", "subject", 2, now);
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId", "issuer", "LETTER", "otherSubject", 1, now);
+
+		final var summaries = batchSummaryRepository.findSummaries(MUNICIPALITY_ID, "issuer", now.minusDays(1), null, null, PAGE_REQUEST);
+
+		// The first registration is kept, completed with the first subject and the largest attachment count
+		assertThat(summaries).extracting(BatchSummaryEntity::getBatchId, BatchSummaryEntity::getOriginalMessageType, BatchSummaryEntity::getSubject, BatchSummaryEntity::getAttachmentCount)
+			.containsExactly(tuple("batchId", LETTER, "subject", 2));
+	}
+
+	@Test
+	void findSummaries() {
+		final var now = LocalDateTime.now();
+
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId1", "issuer", "SMS", null, 0, now.minusDays(40));
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId2", "issuer", "SMS", null, 0, now.minusDays(2));
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId3", "issuer", "SMS", null, 0, now.minusDays(1));
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId4", "otherIssuer", "SMS", null, 0, now.minusDays(1));
+		batchSummaryRepository.register("2260", "batchId5", "issuer", "SMS", null, 0, now.minusDays(1));
+
+		final var firstPage = batchSummaryRepository.findSummaries(MUNICIPALITY_ID, "issuer", now.minusDays(30), null, null, PageRequest.of(0, 1));
+		final var secondPage = batchSummaryRepository.findSummaries(MUNICIPALITY_ID, "issuer", now.minusDays(30), null, null, PageRequest.of(1, 1));
+
+		assertThat(firstPage).extracting(BatchSummaryEntity::getBatchId, BatchSummaryEntity::getOriginalMessageType).containsExactly(tuple("batchId3", SMS));
+		assertThat(secondPage).extracting(BatchSummaryEntity::getBatchId).containsExactly("batchId2");
+		assertThat(batchSummaryRepository.countByMunicipalityIdAndIssuerAndCreatedAtIsAfter(MUNICIPALITY_ID, "issuer", now.minusDays(30))).isEqualTo(2);
+	}
+
+	@Test
+	void findSummariesAfterCursor() {
+		final var now = LocalDateTime.now();
+
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId1", "issuer", "SMS", null, 0, now.minusDays(2));
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId2", "issuer", "SMS", null, 0, now.minusDays(1));
+		batchSummaryRepository.register(MUNICIPALITY_ID, "batchId3", "issuer", "SMS", null, 0, now.minusDays(1));
+
+		final var firstPage = batchSummaryRepository.findSummaries(MUNICIPALITY_ID, "issuer", now.minusDays(30), null, null, PageRequest.of(0, 1));
+		final var last = firstPage.getLast();
+		final var secondPage = batchSummaryRepository.findSummaries(MUNICIPALITY_ID, "issuer", now.minusDays(30), last.getCreatedAt(), last.getId(), PageRequest.of(0, 1));
+		final var rest = batchSummaryRepository.findSummaries(MUNICIPALITY_ID, "issuer", now.minusDays(30), secondPage.getLast().getCreatedAt(), secondPage.getLast().getId(), PageRequest.of(0, 10));
+
+		// Batches created at the same time are ordered by id, latest first
+		assertThat(firstPage).extracting(BatchSummaryEntity::getBatchId).containsExactly("batchId3");
+		assertThat(secondPage).extracting(BatchSummaryEntity::getBatchId).containsExactly("batchId2");
+		assertThat(rest).extracting(BatchSummaryEntity::getBatchId).containsExactly("batchId1");
+	}
+}
@@ -0,0 +1,118 @@
+package se.sundsvall.messaging.integration.db;
+
+import jakarta.persistence.EntityManager;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import se.sundsvall.messaging.integration.db.entity.BatchTrackingEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace.NONE;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@ActiveProfiles("junit")
+@Sql(scripts = {
+	"/db/scripts/truncate.sql",
+	"/db/scripts/testdata-ut.sql"
+})
+class BatchTrackingRepositoryTest {
+
+	private static final String BATCH_ID = "batchId";
+
+	@Autowired
+	private BatchTrackingRepository batchTrackingRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@BeforeEach
+	void setUp() {
+		batchTrackingRepository.saveAndFlush(BatchTrackingEntity.builder()
+			.withBatchId(BATCH_ID)
+			.withMunicipalityId("2281")
+			.withRemaining(2)
+			.withCreatedAt(LocalDateTime.now())
+			.build());
+	}
+
+	@Test
+	void countDownAndMarkTriggered() {
+		// First message delivered, one left
+		assertThat(batchTrackingRepository.countDown(BATCH_ID, 1)).isOne();
+		assertThat(batchTrackingRepository.markTriggered(BATCH_ID)).isZero();
+
+		// Last message delivered
+		assertThat(batchTrackingRepository.countDown(BATCH_ID, 2)).isOne();
+		assertThat(batchTrackingRepository.markTriggered(BATCH_ID)).isOne();
+
+		// Triggered only once, and never counted down below zero
+		assertThat(batchTrackingRepository.markTriggered(BATCH_ID)).isZero();
+		assertThat(batchTrackingRepository.countDown(BATCH_ID, 1)).isZero();
+
+		entityManager.clear();
+		assertThat(batchTrackingRepository.findById(BATCH_ID)).hasValueSatisfying(batchTracking -> {
+			assertThat(batchTracking.getRemaining()).isZero();
+			assertThat(batchTracking.getSentSnailMailCount()).isEqualTo(3);
+			assertThat(batchTracking.isTriggered()).isTrue();
+		});
+	}
+
+	@Test
+	void countDownWhenNotTracked() {
+		assertThat(batchTrackingRepository.countDown("otherBatchId", 1)).isZero();
+		assertThat(batchTrackingRepository.markTriggered("otherBatchId")).isZero();
+	}
+
+	@Test
+	void markStaleTriggered() {
+		// Triggered whatever the messages left to deliver, but only once
+		assertThat(batchTrackingRepository.markStaleTriggered(BATCH_ID)).isOne();
+		assertThat(batchTrackingRepository.markStaleTriggered(BATCH_ID)).isZero();
+
+		// Not triggered again when the last message is delivered after all
+		assertThat(batchTrackingRepository.countDown(BATCH_ID, 0)).isOne();
+		assertThat(batchTrackingRepository.countDown(BATCH_ID, 0)).isOne();
+		assertThat(batchTrackingRepository.markTriggered(BATCH_ID)).isZero();
+	}
+
+	@Test
+	void findByTriggeredFalseAndCreatedAtBeforeOrderByCreatedAtAsc() {
+		batchTrackingRepository.saveAndFlush(BatchTrackingEntity.builder()
+			.withBatchId("staleBatchId")
+			.withMunicipalityId("2281")
+			.withCreatedAt(LocalDateTime.now().minusHours(2))
+			.build());
+		batchTrackingRepository.saveAndFlush(BatchTrackingEntity.builder()
+			.withBatchId("triggeredBatchId")
+			.withMunicipalityId("2281")
+			.withTriggered(true)
+			.withCreatedAt(LocalDateTime.now().minusHours(3))
+			.build());
+
+		assertThat(batchTrackingRepository.findByTriggeredFalseAndCreatedAtBeforeOrderByCreatedAtAsc(LocalDateTime.now().minusHours(1), Limit.of(10)))
+			.extracting(BatchTrackingEntity::getBatchId)
+			.containsExactly("staleBatchId");
+	}
+
+	@Test
+	void deleteByCreatedAtBefore() {
+		batchTrackingRepository.saveAndFlush(BatchTrackingEntity.builder()
+			.withBatchId("oldBatchId")
+			.withMunicipalityId("2281")
+			.withTriggered(true)
+			.withCreatedAt(LocalDateTime.now().minusDays(8))
+			.build());
+
+		assertThat(batchTrackingRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusDays(7))).isOne();
+
+		entityManager.clear();
+		assertThat(batchTrackingRepository.findAll()).extracting(BatchTrackingEntity::getBatchId).containsExactly(BATCH_ID);
+	}
+}
@@ -0,0 +1,113 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import se.sundsvall.messaging.model.DailyStatsEntry;
+import se.sundsvall.messaging.model.StatsEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace.NONE;
+import static se.sundsvall.messaging.model.MessageStatus.FAILED;
+import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.SMS;
+import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@ActiveProfiles("junit")
+@Sql(scripts = {
+	"/db/scripts/truncate.sql",
+	"/db/scripts/testdata-ut.sql"
+})
+class DailyStatisticsRepositoryTest {
+
+	private static final String DEPARTMENT = "SBK(Gatuavdelningen, Trafiksektionen)";
+
+	@Autowired
+	private DailyStatisticsRepository dailyStatisticsRepository;
+
+	@Test
+	void sumByParametersForAllTypes() {
+		final var entries = dailyStatisticsRepository.sumByParameters("2281", null, null, List.of(), null, null);
+
+		// Every history entry is counted once
+		assertThat(entries.stream().mapToLong(StatsEntry::count).sum()).isEqualTo(17);
+	}
+
+	@Test
+	void sumByParametersWithDepartment() {
+		final var entries = dailyStatisticsRepository.sumByParameters("2281", null, DEPARTMENT, List.of(LETTER), null, null);
+
+		assertThat(entries).extracting(StatsEntry::originalMessageType, StatsEntry::messageType, StatsEntry::status, StatsEntry::origin, StatsEntry::department, StatsEntry::count)
+			.containsExactlyInAnyOrder(
+				tuple(LETTER, SNAIL_MAIL, SENT, null, DEPARTMENT, 1L),
+				tuple(LETTER, SNAIL_MAIL, SENT, "origin1", DEPARTMENT, 1L),
+				tuple(LETTER, SNAIL_MAIL, SENT, "origin2", DEPARTMENT, 1L),
+				tuple(LETTER, SNAIL_MAIL, FAILED, "origin1", DEPARTMENT, 1L));
+	}
+
+	@Test
+	void sumByParametersWithOriginAndDepartment() {
+		final var entries = dailyStatisticsRepository.sumByParameters("2281", "origin1", DEPARTMENT, List.of(LETTER, SMS), LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+
+		assertThat(entries).extracting(StatsEntry::messageType, StatsEntry::status, StatsEntry::count)
+			.containsExactlyInAnyOrder(
+				tuple(SNAIL_MAIL, SENT, 1L),
+				tuple(SNAIL_MAIL, FAILED, 1L));
+	}
+
+	@Test
+	void sumByParametersWithFromAndTo() {
+		final var entries = dailyStatisticsRepository.sumByParameters(null, null, null, List.of(SMS), LocalDate.of(2024, 2, 25), LocalDate.of(2024, 2, 25));
+
+		assertThat(entries).extracting(StatsEntry::messageType, StatsEntry::status, StatsEntry::origin, StatsEntry::department, StatsEntry::count)
+			.containsExactly(tuple(SMS, SENT, null, null, 1L));
+	}
+
+	@Test
+	void increment() {
+		final var day = LocalDate.of(2024, 7, 1);
+
+		dailyStatisticsRepository.increment("2281", day, "origin", null, "SMS", "SMS", "SENT", 2);
+		dailyStatisticsRepository.increment("2281", day, "origin", null, "SMS", "SMS", "SENT", 3);
+		dailyStatisticsRepository.increment("2281", day, "origin", null, "SMS", "SMS", "FAILED", 1);
+
+		final var entries = dailyStatisticsRepository.sumByParameters("2281", "origin", null, List.of(SMS), day, day);
+
+		assertThat(entries).extracting(StatsEntry::status, StatsEntry::department, StatsEntry::count)
+			.containsExactlyInAnyOrder(
+				tuple(SENT, null, 5L),
+				tuple(FAILED, null, 1L));
+	}
+
+	@Test
+	void streamByDay() {
+		try (final var rows = dailyStatisticsRepository.streamByDay("2281", null, null)) {
+			final var entries = rows.toList();
+
+			// Every history entry is counted once, and the days are in order
+			assertThat(entries.stream().mapToLong(DailyStatsEntry::count).sum()).isEqualTo(17);
+			assertThat(entries).extracting(DailyStatsEntry::day).isSorted();
+		}
+	}
+
+	@Test
+	void streamByDayWithFromAndTo() {
+		final var day = LocalDate.of(2024, 1, 16);
+
+		try (final var rows = dailyStatisticsRepository.streamByDay("2281", day, day)) {
+			assertThat(rows.toList())
+				.extracting(DailyStatsEntry::day, DailyStatsEntry::originalMessageType, DailyStatsEntry::messageType, DailyStatsEntry::status, DailyStatsEntry::origin,
+					DailyStatsEntry::department, DailyStatsEntry::count)
+				.containsExactly(tuple(day, LETTER, SNAIL_MAIL, FAILED, "origin1", "BOU Förskola", 1L));
+		}
+	}
+}
@@ -1,42 +1,91 @@
 package se.sundsvall.messaging.integration.db;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import se.sundsvall.dept44.problem.ThrowableProblem;
+import se.sundsvall.messaging.configuration.DeliveryQueueProperties;
+import se.sundsvall.messaging.configuration.StatisticsProperties;
+import se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor;
+import se.sundsvall.messaging.integration.db.entity.AttachmentReferenceEntity;
+import se.sundsvall.messaging.integration.db.entity.BatchSummaryEntity;
+import se.sundsvall.messaging.integration.db.entity.BatchTrackingEntity;
 import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
+import se.sundsvall.messaging.integration.db.entity.MessageContentEntity;
 import se.sundsvall.messaging.integration.db.entity.MessageEntity;
 import se.sundsvall.messaging.integration.db.projection.BatchHistoryProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryContentProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryIdProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryExportProjection;
 import se.sundsvall.messaging.integration.db.projection.MessageIdProjection;
+import se.sundsvall.messaging.integration.db.projection.PendingMessageProjection;
+import se.sundsvall.messaging.integration.db.projection.UserMessageHistoryProjection;
+import se.sundsvall.messaging.model.DailyStatsEntry;
+import se.sundsvall.messaging.model.DailyStatsKey;
 import se.sundsvall.messaging.model.History;
+import se.sundsvall.messaging.model.HistoryExportEntry;
+import se.sundsvall.messaging.model.HistoryMetadata;
 import se.sundsvall.messaging.model.Message;
 import se.sundsvall.messaging.model.MessageStatus;
 import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.model.UserMessageHistory;
+import se.sundsvall.messaging.util.ContinuationToken;
 
+import static java.time.temporal.ChronoUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
-import static se.sundsvall.messaging.TestDataFactory.createStatisticsEntity;
+import static se.sundsvall.messaging.configuration.StatisticsProperties.Source.HISTORY;
+import static se.sundsvall.messaging.configuration.StatisticsProperties.Source.ROLLUP;
+import static se.sundsvall.messaging.TestDataFactory.createStatsEntry;
+import static se.sundsvall.messaging.model.MessageStatus.FAILED;
 import static se.sundsvall.messaging.model.MessageStatus.PENDING;
 import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
 import static se.sundsvall.messaging.model.MessageType.LETTER;
 import static se.sundsvall.messaging.model.MessageType.SMS;
 import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
@@ -44,15 +93,54 @@ import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
 @ExtendWith(MockitoExtension.class)
 class DbIntegrationTest {
 
+	private static final String INSTANCE_ID = "instanceId";
+
+	private static final Duration CLAIM_DURATION = Duration.ofMinutes(5);
+
+	private static final String EXTRACTED_CONTENT = "{\"attachments\":[{\"content\":\"sha256:" + "a".repeat(64) + "\"}]}";
+
 	@Mock
 	private MessageRepository mockMessageRepository;
 
+	@Mock
+	private MessageContentRepository mockMessageContentRepository;
+
 	@Mock
 	private HistoryRepository mockHistoryRepository;
 
+	@Mock
+	private DailyStatisticsRepository mockDailyStatisticsRepository;
+
 	@Mock
 	private StatisticsRepository mockStatisticsRepository;
 
+	@Mock
+	private BatchSummaryRepository mockBatchSummaryRepository;
+
+	@Mock
+	private BatchTrackingRepository mockBatchTrackingRepository;
+
+	@Mock
+	private AttachmentReferenceRepository mockAttachmentReferenceRepository;
+
+	@Mock
+	private AttachmentExtractor mockAttachmentExtractor;
+
+	@Mock
+	private PlatformTransactionManager mockTransactionManager;
+
+	@Spy
+	private DeliveryQueueProperties deliveryQueueProperties = new DeliveryQueueProperties(INSTANCE_ID, CLAIM_DURATION, true, 100, null);
+
+	@Spy
+	private StatisticsProperties statisticsProperties = new StatisticsProperties(ROLLUP);
+
+	@Captor
+	private ArgumentCaptor<List<MessageEntity>> messageEntitiesCaptor;
+
+	@Captor
+	private ArgumentCaptor<List<AttachmentReferenceEntity>> attachmentReferencesCaptor;
+
 	@InjectMocks
 	private DbIntegration dbIntegration;
 
@@ -93,44 +181,351 @@ class DbIntegrationTest {
 
 	@AfterEach
 	void verifyNoMoreMockInteractions() {
-		verifyNoMoreInteractions(mockMessageRepository, mockHistoryRepository, mockStatisticsRepository);
+		verifyNoMoreInteractions(mockMessageRepository, mockMessageContentRepository, mockHistoryRepository, mockDailyStatisticsRepository, mockStatisticsRepository, mockBatchSummaryRepository, mockBatchTrackingRepository, mockAttachmentReferenceRepository, mockAttachmentExtractor, mockTransactionManager);
 	}
 
 	@Test
 	void getMessageByDeliveryId() {
 		final var deliveryId = "deliveryId";
-		when(mockMessageRepository.findByDeliveryId(deliveryId)).thenReturn(Optional.of(MessageEntity.builder().build()));
+		when(mockMessageRepository.findByDeliveryId(deliveryId)).thenReturn(Optional.of(MessageEntity.builder()
+			.withContent(MessageContentEntity.builder().withId(123L).withContent("extractedContent").build())
+			.build()));
+		when(mockAttachmentExtractor.resolve("extractedContent")).thenReturn("content");
 
-		assertThat(dbIntegration.getMessageByDeliveryId(deliveryId)).isPresent();
+		assertThat(dbIntegration.getMessageByDeliveryId(deliveryId)).hasValueSatisfying(message -> assertThat(message.content()).isEqualTo("content"));
 
 		verify(mockMessageRepository).findByDeliveryId(deliveryId);
+		verify(mockAttachmentExtractor).resolve("extractedContent");
 	}
 
 	@Test
-	void getLatestMessagesWithStatus() {
-		when(mockMessageRepository.findByStatusOrderByCreatedAtAsc(PENDING)).thenReturn(List.of(MessageEntity.builder().build(), MessageEntity.builder().build()));
-
-		assertThat(dbIntegration.getLatestMessagesWithStatus(PENDING)).hasSize(2);
+	void saveMessage() {
+		final var captor = ArgumentCaptor.forClass(MessageEntity.class);
+		final var contentCaptor = ArgumentCaptor.forClass(MessageContentEntity.class);
+		when(mockAttachmentExtractor.extract("content")).thenReturn("extractedContent");
+		when(mockMessageContentRepository.save(any(MessageContentEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(mockMessageRepository.save(any(MessageEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		assertThat(dbIntegration.saveMessage(Message.builder().withContent("content").build()))
+			.satisfies(message -> assertThat(message.content()).isEqualTo("content"));
+
+		verify(mockAttachmentExtractor).extract("content");
+		verify(mockMessageContentRepository).save(contentCaptor.capture());
+		assertThat(contentCaptor.getValue().getContent()).isEqualTo("extractedContent");
+		verify(mockAttachmentExtractor).references("extractedContent");
+		verify(mockMessageRepository).save(captor.capture());
+		assertThat(captor.getValue().getContent()).isEqualTo("extractedContent");
+		assertThat(captor.getValue().getClaimedBy()).isEqualTo(INSTANCE_ID);
+		assertThat(captor.getValue().getClaimExpiresAt()).isCloseTo(LocalDateTime.now().plus(CLAIM_DURATION), within(5, SECONDS));
+	}
 
-		verify(mockMessageRepository).findByStatusOrderByCreatedAtAsc(PENDING);
+	@Test
+	void saveMessageWithStoredContent() {
+		final var captor = ArgumentCaptor.forClass(MessageEntity.class);
+		final var storedContent = MessageContentEntity.builder().withId(123L).withContent("content").build();
+		when(mockMessageContentRepository.getReferenceById(123L)).thenReturn(storedContent);
+		when(mockMessageRepository.save(any(MessageEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		final var result = dbIntegration.saveMessage(Message.builder().withContent("content").withContentId(123L).build());
+
+		assertThat(result.content()).isEqualTo("content");
+		assertThat(result.contentId()).isEqualTo(123L);
+		verify(mockMessageContentRepository).getReferenceById(123L);
+		verify(mockMessageRepository).save(captor.capture());
+		assertThat(captor.getValue().getContentId()).isEqualTo(123L);
 	}
 
 	@Test
-	void saveMessage() {
-		when(mockMessageRepository.save(any(MessageEntity.class))).thenReturn(MessageEntity.builder().build());
+	void saveMessageWithoutContent() {
+		final var captor = ArgumentCaptor.forClass(MessageEntity.class);
+		when(mockMessageRepository.save(any(MessageEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-		assertThat(dbIntegration.saveMessage(Message.builder().build())).isNotNull();
+		assertThat(dbIntegration.saveMessage(Message.builder().withDeliveryId("deliveryId").build()).content()).isNull();
 
-		verify(mockMessageRepository).save(any(MessageEntity.class));
+		verify(mockMessageRepository).save(captor.capture());
+		assertThat(captor.getValue().getContentId()).isNull();
 	}
 
 	@Test
 	void saveMessages() {
-		when(mockMessageRepository.save(any(MessageEntity.class))).thenReturn(MessageEntity.builder().build());
+		assertThat(dbIntegration.saveMessages(List.of(
+			Message.builder().withDeliveryId("deliveryId1").build(),
+			Message.builder().withDeliveryId("deliveryId2").build())))
+			.extracting(Message::deliveryId).containsExactly("deliveryId1", "deliveryId2");
+
+		verify(mockAttachmentExtractor, never()).extract(any());
+		verify(mockMessageContentRepository).insertAll(List.of());
+		verify(mockMessageRepository).insertAll(messageEntitiesCaptor.capture());
+		assertThat(messageEntitiesCaptor.getValue()).hasSize(2)
+			.allSatisfy(entity -> assertThat(entity.getClaimedBy()).isEqualTo(INSTANCE_ID));
+	}
+
+	@Test
+	void saveMessagesStoresIdenticalContentOnce() {
+		final var sharedContent = MessageContentEntity.builder().withId(123L).withContent("extractedSharedContent").build();
+		final var otherContent = MessageContentEntity.builder().withId(456L).withContent("extractedOtherContent").build();
+		when(mockAttachmentExtractor.extract("sharedContent")).thenReturn("extractedSharedContent");
+		when(mockAttachmentExtractor.extract("otherContent")).thenReturn("extractedOtherContent");
+		when(mockMessageContentRepository.insertAll(List.of("extractedSharedContent", "extractedOtherContent"))).thenReturn(List.of(sharedContent, otherContent));
+		when(mockAttachmentExtractor.references("extractedSharedContent")).thenReturn(Set.of("someHash"));
+
+		final var result = dbIntegration.saveMessages(List.of(
+			Message.builder().withPartyId("partyId1").withContent("sharedContent").build(),
+			Message.builder().withPartyId("partyId2").withContent("sharedContent").build(),
+			Message.builder().withPartyId("partyId3").withContent("otherContent").build()));
+
+		assertThat(result).extracting(Message::content).containsExactly("sharedContent", "sharedContent", "otherContent");
+		assertThat(result).extracting(Message::contentId).containsExactly(123L, 123L, 456L);
+
+		verify(mockAttachmentExtractor).extract("sharedContent");
+		verify(mockAttachmentExtractor).extract("otherContent");
+		verify(mockMessageContentRepository).insertAll(List.of("extractedSharedContent", "extractedOtherContent"));
+		verify(mockAttachmentExtractor).references("extractedSharedContent");
+		verify(mockAttachmentExtractor).references("extractedOtherContent");
+		verify(mockAttachmentReferenceRepository).saveAll(attachmentReferencesCaptor.capture());
+		assertThat(attachmentReferencesCaptor.getValue()).singleElement().satisfies(reference -> {
+			assertThat(reference.getContentId()).isEqualTo(123L);
+			assertThat(reference.getHash()).isEqualTo("someHash");
+		});
+		verify(mockMessageRepository).insertAll(messageEntitiesCaptor.capture());
+		assertThat(messageEntitiesCaptor.getValue()).extracting(MessageEntity::getContentId).containsExactly(123L, 123L, 456L);
+	}
+
+	@Test
+	void trackBatch() {
+		final var captor = ArgumentCaptor.forClass(BatchTrackingEntity.class);
+
+		dbIntegration.trackBatch("batchId", "municipalityId", 3);
+
+		verify(mockBatchTrackingRepository).save(captor.capture());
+		assertThat(captor.getValue().getBatchId()).isEqualTo("batchId");
+		assertThat(captor.getValue().getMunicipalityId()).isEqualTo("municipalityId");
+		assertThat(captor.getValue().getRemaining()).isEqualTo(3);
+		assertThat(captor.getValue().getSentSnailMailCount()).isZero();
+		assertThat(captor.getValue().isTriggered()).isFalse();
+		assertThat(captor.getValue().getCreatedAt()).isCloseTo(LocalDateTime.now(), within(5, SECONDS));
+	}
+
+	@Test
+	void completeLetter() {
+		when(mockMessageRepository.deleteByDeliveryIdAndType("deliveryId", LETTER)).thenReturn(1);
+		when(mockBatchTrackingRepository.countDown("batchId", 2)).thenReturn(1);
+
+		assertThat(dbIntegration.completeLetter("batchId", "deliveryId", 2)).isTrue();
+
+		verify(mockMessageRepository).deleteByDeliveryIdAndType("deliveryId", LETTER);
+		verify(mockBatchTrackingRepository).countDown("batchId", 2);
+		verify(mockBatchTrackingRepository, never()).existsById(any());
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {
+		true, false
+	})
+	void completeLetterWhenNotCountedDown(final boolean tracked) {
+		when(mockMessageRepository.deleteByDeliveryIdAndType("deliveryId", LETTER)).thenReturn(1);
+		when(mockBatchTrackingRepository.existsById("batchId")).thenReturn(tracked);
+
+		assertThat(dbIntegration.completeLetter("batchId", "deliveryId", 0)).isEqualTo(tracked);
+
+		verify(mockBatchTrackingRepository).countDown("batchId", 0);
+		verify(mockBatchTrackingRepository).existsById("batchId");
+	}
+
+	@Test
+	void completeLetterWhenAlreadyDeleted() {
+		when(mockBatchTrackingRepository.existsById("batchId")).thenReturn(true);
+
+		assertThat(dbIntegration.completeLetter("batchId", "deliveryId", 1)).isTrue();
+
+		verify(mockMessageRepository).deleteByDeliveryIdAndType("deliveryId", LETTER);
+		verify(mockBatchTrackingRepository, never()).countDown(any(), anyInt());
+		verify(mockBatchTrackingRepository).existsById("batchId");
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+		"1, true",
+		"0, false"
+	})
+	void markBatchTriggered(final int updated, final boolean expected) {
+		when(mockBatchTrackingRepository.markTriggered("batchId")).thenReturn(updated);
+
+		assertThat(dbIntegration.markBatchTriggered("batchId")).isEqualTo(expected);
+
+		verify(mockBatchTrackingRepository).markTriggered("batchId");
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+		"1, true",
+		"0, false"
+	})
+	void markStaleBatchTriggered(final int updated, final boolean expected) {
+		when(mockBatchTrackingRepository.markStaleTriggered("batchId")).thenReturn(updated);
+
+		assertThat(dbIntegration.markStaleBatchTriggered("batchId")).isEqualTo(expected);
+
+		verify(mockBatchTrackingRepository).markStaleTriggered("batchId");
+	}
+
+	@Test
+	void getStaleBatches() {
+		final var batch = BatchTrackingEntity.builder().withBatchId("batchId").build();
+		when(mockBatchTrackingRepository.findByTriggeredFalseAndCreatedAtBeforeOrderByCreatedAtAsc(any(LocalDateTime.class), eq(Limit.of(10)))).thenReturn(List.of(batch));
+
+		assertThat(dbIntegration.getStaleBatches(Duration.ofHours(1), 10)).containsExactly(batch);
+
+		verify(mockBatchTrackingRepository).findByTriggeredFalseAndCreatedAtBeforeOrderByCreatedAtAsc(argThat(createdBefore -> createdBefore.isBefore(LocalDateTime.now().minusMinutes(59))), eq(Limit.of(10)));
+	}
+
+	@Test
+	void deleteBatchTracking() {
+		when(mockBatchTrackingRepository.deleteByCreatedAtBefore(any(LocalDateTime.class))).thenReturn(3);
 
-		assertThat(dbIntegration.saveMessages(List.of(Message.builder().build(), Message.builder().build()))).hasSize(2);
+		assertThat(dbIntegration.deleteBatchTracking(Duration.ofDays(7))).isEqualTo(3);
 
-		verify(mockMessageRepository, times(2)).save(any(MessageEntity.class));
+		verify(mockBatchTrackingRepository).deleteByCreatedAtBefore(argThat(createdBefore -> createdBefore.isBefore(LocalDateTime.now().minusDays(6))));
+	}
+
+	@Test
+	void getSentSnailMailCount() {
+		when(mockBatchTrackingRepository.findById("batchId")).thenReturn(Optional.of(BatchTrackingEntity.builder().withSentSnailMailCount(4).build()));
+
+		assertThat(dbIntegration.getSentSnailMailCount("batchId")).isEqualTo(4);
+		assertThat(dbIntegration.getSentSnailMailCount("otherBatchId")).isZero();
+
+		verify(mockBatchTrackingRepository).findById("batchId");
+		verify(mockBatchTrackingRepository).findById("otherBatchId");
+	}
+
+	@Test
+	void claimPendingMessages() {
+		final var pendingMessage = mock(PendingMessageProjection.class);
+		when(pendingMessage.getId()).thenReturn(123L);
+		when(mockMessageRepository.findClaimablePendingMessages(any(LocalDateTime.class), anyInt())).thenReturn(List.of(pendingMessage));
+
+		assertThat(dbIntegration.claimPendingMessages(10)).containsExactly(pendingMessage);
+
+		verify(mockMessageRepository).findClaimablePendingMessages(any(LocalDateTime.class), eq(10));
+		verify(mockMessageRepository).claimByIds(eq(List.of(123L)), eq(INSTANCE_ID), any(LocalDateTime.class));
+	}
+
+	@Test
+	void claimPendingMessagesOfType() {
+		final var pendingMessage = mock(PendingMessageProjection.class);
+		when(pendingMessage.getId()).thenReturn(123L);
+		when(mockMessageRepository.findClaimablePendingMessagesByType(eq("SMS"), any(LocalDateTime.class), anyInt())).thenReturn(List.of(pendingMessage));
+
+		assertThat(dbIntegration.claimPendingMessages(SMS, 10)).containsExactly(pendingMessage);
+
+		verify(mockMessageRepository).findClaimablePendingMessagesByType(eq("SMS"), any(LocalDateTime.class), eq(10));
+		verify(mockMessageRepository).claimByIds(eq(List.of(123L)), eq(INSTANCE_ID), any(LocalDateTime.class));
+	}
+
+	@Test
+	void claimPendingMessagesWhenNothingToClaim() {
+		when(mockMessageRepository.findClaimablePendingMessages(any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+
+		assertThat(dbIntegration.claimPendingMessages(10)).isEmpty();
+
+		verify(mockMessageRepository).findClaimablePendingMessages(any(LocalDateTime.class), eq(10));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {
+		0, 1
+	})
+	void claimMessage(final int updated) {
+		final var deliveryId = "deliveryId";
+		when(mockMessageRepository.claimByDeliveryIdAndStatus(eq(deliveryId), eq(PENDING), eq(INSTANCE_ID), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(updated);
+
+		assertThat(dbIntegration.claimMessage(deliveryId)).isEqualTo(updated > 0);
+
+		verify(mockMessageRepository).claimByDeliveryIdAndStatus(eq(deliveryId), eq(PENDING), eq(INSTANCE_ID), any(LocalDateTime.class), any(LocalDateTime.class));
+	}
+
+	@Test
+	void renewClaims() {
+		final var deliveryIds = List.of("deliveryId1", "deliveryId2");
+		when(mockMessageRepository.renewClaims(eq(deliveryIds), eq(INSTANCE_ID), any(LocalDateTime.class))).thenReturn(3);
+
+		assertThat(dbIntegration.renewClaims(deliveryIds)).isEqualTo(3);
+
+		verify(mockMessageRepository).renewClaims(eq(deliveryIds), eq(INSTANCE_ID), any(LocalDateTime.class));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {
+		0, 1
+	})
+	void recordOutcome(final int updated) {
+		final var message = Message.builder()
+			.withDeliveryId("deliveryId")
+			.withStatus(SENT)
+			.withDigitalMailTransactionId("transactionId")
+			.build();
+		when(mockMessageRepository.updateOutcomeByDeliveryIdAndTypeNot("deliveryId", LETTER, SENT, "statusDetail", "transactionId")).thenReturn(updated);
+
+		assertThat(dbIntegration.recordOutcome(message, "statusDetail")).isEqualTo(updated > 0);
+
+		verify(mockMessageRepository).updateOutcomeByDeliveryIdAndTypeNot("deliveryId", LETTER, SENT, "statusDetail", "transactionId");
+	}
+
+	@Test
+	void claimCompletedMessages() {
+		when(mockMessageRepository.findClaimableCompletedMessageIds(any(LocalDateTime.class), anyInt())).thenReturn(List.of(123L));
+
+		assertThat(dbIntegration.claimCompletedMessages(10)).containsExactly(123L);
+
+		verify(mockMessageRepository).findClaimableCompletedMessageIds(any(LocalDateTime.class), eq(10));
+		verify(mockMessageRepository).claimByIds(eq(List.of(123L)), eq(INSTANCE_ID), any(LocalDateTime.class));
+	}
+
+	@Test
+	void claimCompletedMessagesWhenNothingToClaim() {
+		when(mockMessageRepository.findClaimableCompletedMessageIds(any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+
+		assertThat(dbIntegration.claimCompletedMessages(10)).isEmpty();
+
+		verify(mockMessageRepository).findClaimableCompletedMessageIds(any(LocalDateTime.class), eq(10));
+	}
+
+	@Test
+	void archiveCompletedMessage() {
+		when(mockMessageRepository.findById(123L)).thenReturn(Optional.of(MessageEntity.builder()
+			.withMunicipalityId("2281")
+			.withDeliveryId("deliveryId")
+			.withType(SMS)
+			.withStatus(SENT)
+			.withContent(MessageContentEntity.builder().withId(1L).withContent("{\"mobileNumber\":\"+46701234567\",\"message\":\"message\"}").build())
+			.withClaimedBy(INSTANCE_ID)
+			.withStatusDetail("statusDetail")
+			.withDigitalMailTransactionId("transactionId")
+			.build()));
+		when(mockHistoryRepository.insertFromMessage(eq("deliveryId"), eq("SMS"), eq("SENT"), eq("statusDetail"), eq("transactionId"), any(LocalDateTime.class),
+			isNull(), eq("message"), eq("+46701234567"), eq(0), isNull())).thenReturn(1);
+
+		assertThat(dbIntegration.archiveCompletedMessage(123L)).isTrue();
+
+		verify(mockMessageRepository).findById(123L);
+		verify(mockHistoryRepository).insertFromMessage(eq("deliveryId"), eq("SMS"), eq("SENT"), eq("statusDetail"), eq("transactionId"), any(LocalDateTime.class),
+			isNull(), eq("message"), eq("+46701234567"), eq(0), isNull());
+		verify(mockMessageRepository).deleteByDeliveryIdAndTypeNot("deliveryId", LETTER);
+		verify(mockDailyStatisticsRepository).increment("2281", LocalDate.now(), "", "", null, "SMS", "SENT", 1);
+	}
+
+	@Test
+	void archiveCompletedMessageWhenClaimedByOther() {
+		when(mockMessageRepository.findById(123L)).thenReturn(Optional.of(MessageEntity.builder()
+			.withDeliveryId("deliveryId")
+			.withStatus(SENT)
+			.withClaimedBy("otherInstanceId")
+			.build()));
+
+		assertThat(dbIntegration.archiveCompletedMessage(123L)).isFalse();
+
+		verify(mockMessageRepository).findById(123L);
 	}
 
 	@Test
@@ -142,6 +537,41 @@ class DbIntegrationTest {
 		verify(mockMessageRepository).deleteByDeliveryId(deliveryId);
 	}
 
+	@Test
+	void deleteLetters() {
+		dbIntegration.deleteLetters("batchId");
+
+		verify(mockMessageRepository).deleteByBatchIdAndType("batchId", LETTER);
+	}
+
+	@Test
+	void existsByBatchId() {
+		when(mockMessageRepository.existsByBatchIdAndType("batchId", LETTER)).thenReturn(true);
+
+		assertThat(dbIntegration.existsByBatchId("batchId")).isTrue();
+
+		verify(mockMessageRepository).existsByBatchIdAndType("batchId", LETTER);
+	}
+
+	@Test
+	void deleteUnreferencedMessageContent() {
+		when(mockMessageContentRepository.findUnreferencedIds(any(LocalDateTime.class), eq(100))).thenReturn(List.of(1L, 2L));
+		when(mockMessageContentRepository.deleteUnreferencedByIdIn(List.of(1L, 2L))).thenReturn(2);
+
+		assertThat(dbIntegration.deleteUnreferencedMessageContent(Duration.ofDays(1), 100)).isEqualTo(2);
+
+		verify(mockMessageContentRepository).findUnreferencedIds(argThat(createdBefore -> createdBefore.isBefore(LocalDateTime.now().minusHours(23))), eq(100));
+		verify(mockMessageContentRepository).deleteUnreferencedByIdIn(List.of(1L, 2L));
+		verify(mockAttachmentReferenceRepository).deleteByRemovedContent(List.of(1L, 2L));
+	}
+
+	@Test
+	void deleteUnreferencedMessageContentWhenNoneUnreferenced() {
+		assertThat(dbIntegration.deleteUnreferencedMessageContent(Duration.ofDays(1), 100)).isZero();
+
+		verify(mockMessageContentRepository).findUnreferencedIds(any(LocalDateTime.class), eq(100));
+	}
+
 	@Test
 	void getHistoryByMessageId() {
 		final var municipalityId = "municipalityId";
@@ -151,6 +581,7 @@ class DbIntegrationTest {
 		assertThat(dbIntegration.getHistoryByMunicipalityIdAndMessageId(municipalityId, messageId)).hasSize(2);
 
 		verify(mockHistoryRepository).findByMunicipalityIdAndMessageId(municipalityId, messageId);
+		verify(mockAttachmentExtractor, times(2)).resolve(null);
 	}
 
 	@Test
@@ -162,6 +593,7 @@ class DbIntegrationTest {
 		assertThat(dbIntegration.getHistoryByMunicipalityIdAndBatchId(municipalityId, batchId)).hasSize(2);
 
 		verify(mockHistoryRepository).findByMunicipalityIdAndBatchId(municipalityId, batchId);
+		verify(mockAttachmentExtractor, times(2)).resolve(null);
 	}
 
 	@Test
@@ -173,6 +605,7 @@ class DbIntegrationTest {
 		assertThat(dbIntegration.getHistoryByMunicipalityIdAndDeliveryId(municipalityId, deliveryId)).contains(History.builder().build());
 
 		verify(mockHistoryRepository).findByMunicipalityIdAndDeliveryId(municipalityId, deliveryId);
+		verify(mockAttachmentExtractor).resolve(null);
 	}
 
 	@Test
@@ -180,9 +613,13 @@ class DbIntegrationTest {
 		when(mockHistoryRepository.findAll(ArgumentMatchers.<Specification<HistoryEntity>>any()))
 			.thenReturn(List.of(HistoryEntity.builder().build(), HistoryEntity.builder().build()));
 
-		assertThat(dbIntegration.getHistory(null, null, null, null)).hasSize(2);
+		final var result = dbIntegration.getHistory(null, null, null, null, null, null);
+
+		assertThat(result.history()).hasSize(2);
+		assertThat(result.continuationToken()).isNull();
 
 		verify(mockHistoryRepository).findAll(ArgumentMatchers.<Specification<HistoryEntity>>any());
+		verify(mockAttachmentExtractor, times(2)).resolve(null);
 	}
 
 	@Test
@@ -194,20 +631,295 @@ class DbIntegrationTest {
 		when(mockHistoryRepository.findAll(ArgumentMatchers.<Specification<HistoryEntity>>any()))
 			.thenReturn(List.of(HistoryEntity.builder().build(), HistoryEntity.builder().build()));
 
-		assertThat(dbIntegration.getHistory(municipalityId, partyId, from, to)).hasSize(2);
+		assertThat(dbIntegration.getHistory(municipalityId, partyId, from, to, null, null).history()).hasSize(2);
 
 		verify(mockHistoryRepository).findAll(ArgumentMatchers.<Specification<HistoryEntity>>any());
+		verify(mockAttachmentExtractor, times(2)).resolve(null);
+	}
+
+	@Test
+	void getHistoryWithLimit() {
+		final var createdAt = LocalDateTime.now();
+		final var cursor = new ContinuationToken(createdAt.plusMinutes(1), 3L);
+		when(mockHistoryRepository.findBy(ArgumentMatchers.<Specification<HistoryEntity>>any(), any()))
+			.thenReturn(List.of(HistoryEntity.builder().withId(2L).build(), HistoryEntity.builder().withId(1L).withCreatedAt(createdAt).build()));
+
+		final var result = dbIntegration.getHistory("municipalityId", "partyId", null, null, cursor, 2);
+
+		// The page is full, hence there might be a next page to continue with after the last entry
+		assertThat(result.history()).hasSize(2);
+		assertThat(ContinuationToken.decode(result.continuationToken())).isEqualTo(new ContinuationToken(createdAt, 1L));
+
+		verify(mockHistoryRepository).findBy(ArgumentMatchers.<Specification<HistoryEntity>>any(), any());
+		verify(mockAttachmentExtractor, times(2)).resolve(null);
+	}
+
+	@Test
+	void getHistoryWithLimitOnLastPage() {
+		when(mockHistoryRepository.findBy(ArgumentMatchers.<Specification<HistoryEntity>>any(), any()))
+			.thenReturn(List.of(HistoryEntity.builder().withId(1L).withCreatedAt(LocalDateTime.now()).build()));
+
+		final var result = dbIntegration.getHistory("municipalityId", "partyId", null, null, null, 2);
+
+		assertThat(result.history()).hasSize(1);
+		assertThat(result.continuationToken()).isNull();
+
+		verify(mockHistoryRepository).findBy(ArgumentMatchers.<Specification<HistoryEntity>>any(), any());
+		verify(mockAttachmentExtractor).resolve(null);
+	}
+
+	@Test
+	void exportHistory() {
+		final var closed = new AtomicBoolean();
+		final var row = mock(HistoryExportProjection.class);
+		final var entries = new ArrayList<HistoryExportEntry>();
+		when(row.getMessageId()).thenReturn("messageId");
+		when(row.getSubject()).thenReturn("subject");
+		when(mockHistoryRepository.streamHistory("municipalityId", "partyId", LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0)))
+			.thenReturn(Stream.of(row).onClose(() -> closed.set(true)));
+
+		dbIntegration.exportHistory("municipalityId", "partyId", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), false, entries::add);
+
+		assertThat(entries).extracting(HistoryExportEntry::messageId, HistoryExportEntry::subject, HistoryExportEntry::content)
+			.containsExactly(tuple("messageId", "subject", null));
+		assertThat(closed).isTrue();
+
+		verify(mockHistoryRepository).streamHistory("municipalityId", "partyId", LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0));
+		verify(row, never()).getContent();
+	}
+
+	@Test
+	void exportHistoryWithContent() {
+		final var closed = new AtomicBoolean();
+		final var row = mock(HistoryExportProjection.class);
+		final var otherRow = mock(HistoryExportProjection.class);
+		final var entries = new ArrayList<HistoryExportEntry>();
+		when(row.getMessageId()).thenReturn("messageId");
+		when(row.getContent()).thenReturn(EXTRACTED_CONTENT);
+		when(otherRow.getMessageId()).thenReturn("otherMessageId");
+		when(otherRow.getContent()).thenReturn("contentWithoutAttachments");
+		when(mockAttachmentExtractor.resolve(EXTRACTED_CONTENT)).thenReturn("content");
+		when(mockHistoryRepository.streamHistoryWithContent("municipalityId", null, null, null)).thenReturn(Stream.of(row, otherRow).onClose(() -> closed.set(true)));
+
+		dbIntegration.exportHistory("municipalityId", null, null, null, true, entries::add);
+
+		assertThat(entries).extracting(HistoryExportEntry::messageId, HistoryExportEntry::content)
+			.containsExactly(tuple("messageId", "content"), tuple("otherMessageId", "contentWithoutAttachments"));
+		assertThat(closed).isTrue();
+
+		verify(mockHistoryRepository).streamHistoryWithContent("municipalityId", null, null, null);
+		// The attachments are resolved in a read-only transaction of their own, content without references is exported as is
+		verify(mockTransactionManager).getTransaction(argThat(definition -> definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW
+			&& definition.isReadOnly()));
+		verify(mockTransactionManager).commit(any());
+		verify(mockAttachmentExtractor).resolve(EXTRACTED_CONTENT);
+	}
+
+	@Test
+	void exportHistoryWithContentOfManyEntriesWithAttachments() {
+		final var rowCount = 10_000;
+		final var streamed = new AtomicInteger();
+		final var exported = new AtomicInteger();
+		final var row = mock(HistoryExportProjection.class);
+		when(row.getContent()).thenReturn(EXTRACTED_CONTENT);
+		when(mockAttachmentExtractor.resolve(EXTRACTED_CONTENT)).thenReturn("content");
+		when(mockHistoryRepository.streamHistoryWithContent("municipalityId", null, null, null))
+			.thenReturn(Stream.generate(() -> row).limit(rowCount).peek(ignored -> streamed.incrementAndGet()));
+
+		dbIntegration.exportHistory("municipalityId", null, null, null, true, entry -> {
+			// Each entry is handed over as soon as it has been read, rather than once all of them have
+			assertThat(streamed).hasValue(exported.incrementAndGet());
+			assertThat(entry.content()).isEqualTo("content");
+		});
+
+		assertThat(exported).hasValue(rowCount);
+
+		// Each entry has its attachments resolved in a transaction of its own, ended before the next entry is read
+		verify(mockTransactionManager, times(rowCount)).getTransaction(any());
+		verify(mockTransactionManager, times(rowCount)).commit(any());
+		verify(mockAttachmentExtractor, times(rowCount)).resolve(EXTRACTED_CONTENT);
 	}
 
 	@Test
 	void saveHistory() {
-		when(mockHistoryRepository.save(any(HistoryEntity.class))).thenReturn(HistoryEntity.builder().build());
+		final var captor = ArgumentCaptor.forClass(HistoryEntity.class);
 
-		assertThat(dbIntegration.saveHistory(Message.builder().build(), null)).isNotNull();
+		when(mockAttachmentExtractor.extract("content")).thenReturn("extractedContent");
+		when(mockMessageContentRepository.save(any(MessageContentEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
+		assertThat(dbIntegration.saveHistory(Message.builder().withContent("content").build(), null))
+			.isEqualTo(DailyStatsKey.builder().withDay(LocalDate.now()).build());
+
+		verify(mockAttachmentExtractor).extract("content");
+		verify(mockMessageContentRepository).save(any(MessageContentEntity.class));
+		verify(mockAttachmentExtractor).references("extractedContent");
+		verify(mockHistoryRepository).save(captor.capture());
+		assertThat(captor.getValue().getContent()).isNull();
+		assertThat(captor.getValue().getSharedContent().getContent()).isEqualTo("extractedContent");
+	}
+
+	@Test
+	void saveHistoryReturnsDailyStatsKey() {
+		final var message = Message.builder()
+			.withMunicipalityId("2281")
+			.withOrigin("origin")
+			.withType(SNAIL_MAIL)
+			.withOriginalType(LETTER)
+			.withStatus(SENT)
+			.withContent("{\"department\":\"department\"}")
+			.build();
+		when(mockAttachmentExtractor.extract(message.content())).thenReturn(message.content());
+		when(mockMessageContentRepository.save(any(MessageContentEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		assertThat(dbIntegration.saveHistory(message, null)).isEqualTo(DailyStatsKey.builder()
+			.withMunicipalityId("2281")
+			.withDay(LocalDate.now())
+			.withOrigin("origin")
+			.withDepartment("department")
+			.withOriginalMessageType(LETTER)
+			.withMessageType(SNAIL_MAIL)
+			.withStatus(SENT)
+			.build());
+
+		verify(mockAttachmentExtractor).extract(message.content());
+		verify(mockMessageContentRepository).save(any(MessageContentEntity.class));
+		verify(mockAttachmentExtractor).references(message.content());
 		verify(mockHistoryRepository).save(any(HistoryEntity.class));
 	}
 
+	@Test
+	void saveHistoryStoresMetadata() {
+		final var captor = ArgumentCaptor.forClass(HistoryEntity.class);
+		final var message = Message.builder()
+			.withType(SMS)
+			.withContent("{\"mobileNumber\":\"+46701234567\",\"message\":\"message\"}")
+			.build();
+		when(mockAttachmentExtractor.extract(message.content())).thenReturn(message.content());
+		when(mockMessageContentRepository.save(any(MessageContentEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		dbIntegration.saveHistory(message, null);
+
+		verify(mockAttachmentExtractor).extract(message.content());
+		verify(mockMessageContentRepository).save(any(MessageContentEntity.class));
+		verify(mockAttachmentExtractor).references(message.content());
+		verify(mockHistoryRepository).save(captor.capture());
+		assertThat(captor.getValue().isMetadataExtracted()).isTrue();
+		assertThat(captor.getValue().getMetadata()).isEqualTo(HistoryMetadata.builder().withDestination("+46701234567").withBody("message").build());
+	}
+
+	@Test
+	void saveHistoryWithSharedContent() {
+		final var captor = ArgumentCaptor.forClass(HistoryEntity.class);
+		final var sharedContent = MessageContentEntity.builder().withId(123L).withContent("content").build();
+		when(mockMessageContentRepository.getReferenceById(123L)).thenReturn(sharedContent);
+
+		dbIntegration.saveHistory(Message.builder().withContent("content").withContentId(123L).build(), null);
+
+		verify(mockMessageContentRepository).getReferenceById(123L);
+		verify(mockHistoryRepository).save(captor.capture());
+		assertThat(captor.getValue().getSharedContent()).isSameAs(sharedContent);
+	}
+
+	@Test
+	void archiveMessage() {
+		final var message = Message.builder()
+			.withMunicipalityId("2281")
+			.withBatchId("batchId")
+			.withDeliveryId("deliveryId")
+			.withIssuer("issuer")
+			.withType(DIGITAL_MAIL)
+			.withOriginalType(LETTER)
+			.withStatus(SENT)
+			.withDigitalMailTransactionId("transactionId")
+			.withContent("{\"subject\":\"subject\",\"attachments\":[{\"filename\":\"a.pdf\",\"contentType\":\"application/pdf\"}]}")
+			.build();
+		when(mockHistoryRepository.insertFromMessage(eq("deliveryId"), eq("DIGITAL_MAIL"), eq("SENT"), eq("statusDetail"), eq("transactionId"), any(LocalDateTime.class),
+			eq("subject"), isNull(), isNull(), eq(1), eq("[{\"name\":\"a.pdf\",\"contentType\":\"application/pdf\"}]"))).thenReturn(1);
+
+		assertThat(dbIntegration.archiveMessage(message, "statusDetail")).isEqualTo(DailyStatsKey.builder()
+			.withMunicipalityId("2281")
+			.withDay(LocalDate.now())
+			.withOriginalMessageType(LETTER)
+			.withMessageType(DIGITAL_MAIL)
+			.withStatus(SENT)
+			.build());
+
+		verify(mockHistoryRepository).insertFromMessage(eq("deliveryId"), eq("DIGITAL_MAIL"), eq("SENT"), eq("statusDetail"), eq("transactionId"), any(LocalDateTime.class),
+			eq("subject"), isNull(), isNull(), eq(1), eq("[{\"name\":\"a.pdf\",\"contentType\":\"application/pdf\"}]"));
+		verify(mockMessageRepository).deleteByDeliveryIdAndTypeNot("deliveryId", LETTER);
+	}
+
+	@Test
+	void archiveMessageWhenNotStored() {
+		final var captor = ArgumentCaptor.forClass(HistoryEntity.class);
+		final var message = Message.builder()
+			.withMunicipalityId("2281")
+			.withDeliveryId("deliveryId")
+			.withType(SMS)
+			.withStatus(FAILED)
+			.withContent("{\"mobileNumber\":\"+46701234567\",\"message\":\"message\"}")
+			.build();
+		when(mockAttachmentExtractor.extract(message.content())).thenReturn(message.content());
+		when(mockMessageContentRepository.save(any(MessageContentEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		assertThat(dbIntegration.archiveMessage(message, "statusDetail")).isEqualTo(DailyStatsKey.builder()
+			.withMunicipalityId("2281")
+			.withDay(LocalDate.now())
+			.withMessageType(SMS)
+			.withStatus(FAILED)
+			.build());
+
+		verify(mockHistoryRepository).insertFromMessage(eq("deliveryId"), eq("SMS"), eq("FAILED"), eq("statusDetail"), isNull(), any(LocalDateTime.class),
+			isNull(), eq("message"), eq("+46701234567"), eq(0), isNull());
+		verify(mockAttachmentExtractor).extract(message.content());
+		verify(mockMessageContentRepository).save(any(MessageContentEntity.class));
+		verify(mockAttachmentExtractor).references(message.content());
+		verify(mockHistoryRepository).save(captor.capture());
+		verify(mockMessageRepository, never()).deleteByDeliveryIdAndTypeNot(any(), any());
+		assertThat(captor.getValue().getDeliveryId()).isEqualTo("deliveryId");
+		assertThat(captor.getValue().getStatusDetail()).isEqualTo("statusDetail");
+	}
+
+	@Test
+	void registerBatch() {
+		final var message = Message.builder()
+			.withMunicipalityId("2281")
+			.withBatchId("batchId")
+			.withIssuer("issuer")
+			.withType(LETTER)
+			.withOriginalType(LETTER)
+			.withContent("{\"subject\":\"subject\",\"attachments\":[{\"filename\":\"a.pdf\"},{\"filename\":\"b.pdf\"}]}")
+			.build();
+
+		dbIntegration.registerBatch(List.of(message, message.withDeliveryId("otherDeliveryId")));
+
+		// Once for the whole batch
+		verify(mockBatchSummaryRepository).register(eq("2281"), eq("batchId"), eq("issuer"), eq("LETTER"), eq("subject"), eq(2), any(LocalDateTime.class));
+	}
+
+	@Test
+	void registerBatchWhenEmpty() {
+		dbIntegration.registerBatch(List.of());
+
+		verifyNoInteractions(mockBatchSummaryRepository);
+	}
+
+	@Test
+	void incrementDailyStats() {
+		final var day = LocalDate.now();
+		final var sent = DailyStatsKey.builder().withMunicipalityId("2281").withDay(day).withOrigin("origin").withMessageType(SMS).withStatus(SENT).build();
+		final var failed = DailyStatsKey.builder().withMunicipalityId("2281").withDay(day).withOrigin("origin").withMessageType(SMS).withStatus(FAILED).build();
+		final var earlier = DailyStatsKey.builder().withMunicipalityId("2281").withDay(day.minusDays(1)).withMessageType(SMS).withStatus(SENT).build();
+
+		dbIntegration.incrementDailyStats(Map.of(failed, 1, sent, 3, earlier, 2));
+
+		// One upsert per key, in key order
+		final var inOrder = inOrder(mockDailyStatisticsRepository);
+		inOrder.verify(mockDailyStatisticsRepository).increment("2281", day.minusDays(1), "", "", null, "SMS", "SENT", 2);
+		inOrder.verify(mockDailyStatisticsRepository).increment("2281", day, "origin", "", null, "SMS", "SENT", 3);
+		inOrder.verify(mockDailyStatisticsRepository).increment("2281", day, "origin", "", null, "SMS", "FAILED", 1);
+	}
+
 	@Test
 	void getStatsByParameters() {
 		final var municipalityId = "municipalityId";
@@ -217,18 +929,57 @@ class DbIntegrationTest {
 		final var from = LocalDate.now().minusDays(1);
 		final var to = LocalDate.now();
 
-		final var statsProjection = createStatisticsEntity(SNAIL_MAIL, LETTER, SENT, null, null, "2281");
+		final var statsEntry = createStatsEntry(SNAIL_MAIL, LETTER, SENT, null, null);
+
+		when(mockDailyStatisticsRepository.sumByParameters(municipalityId, department, origin, messageTypes, from, to))
+			.thenReturn(List.of(statsEntry));
+
+		final var result = dbIntegration.getStatsByParameters(municipalityId, department, origin, messageTypes, from, to);
+
+		assertThat(result).isNotEmpty().hasSize(1).allSatisfy(entry -> assertThat(entry).isEqualTo(statsEntry));
+
+		verify(mockDailyStatisticsRepository).sumByParameters(municipalityId, department, origin, messageTypes, from, to);
+	}
+
+	@Test
+	void getStatsByParametersFromHistory() {
+		final var municipalityId = "municipalityId";
+		final var department = "department";
+		final var origin = "origin";
+		final var messageTypes = List.of(LETTER, SMS);
+		final var from = LocalDate.now().minusDays(1);
+		final var to = LocalDate.now();
+
+		final var statsEntry = createStatsEntry(SNAIL_MAIL, LETTER, SENT, null, null);
 
+		when(statisticsProperties.source()).thenReturn(HISTORY);
 		when(mockStatisticsRepository.findAllByParameters(municipalityId, department, origin, messageTypes, from, to))
-			.thenReturn(List.of(statsProjection));
+			.thenReturn(List.of(statsEntry));
 
 		final var result = dbIntegration.getStatsByParameters(municipalityId, department, origin, messageTypes, from, to);
 
-		assertThat(result).isNotEmpty().hasSize(1).allSatisfy(entry -> assertThat(entry).isEqualTo(statsProjection));
+		assertThat(result).containsExactly(statsEntry);
 
 		verify(mockStatisticsRepository).findAllByParameters(municipalityId, department, origin, messageTypes, from, to);
 	}
 
+	@Test
+	void exportDailyStats() {
+		final var closed = new AtomicBoolean();
+		final var from = LocalDate.now().minusDays(1);
+		final var to = LocalDate.now();
+		final var entry = new DailyStatsEntry(from, LETTER, SNAIL_MAIL, SENT, null, null, 2);
+		final var entries = new ArrayList<DailyStatsEntry>();
+		when(mockDailyStatisticsRepository.streamByDay("municipalityId", from, to)).thenReturn(Stream.of(entry).onClose(() -> closed.set(true)));
+
+		dbIntegration.exportDailyStats("municipalityId", from, to, entries::add);
+
+		assertThat(entries).containsExactly(entry);
+		assertThat(closed).isTrue();
+
+		verify(mockDailyStatisticsRepository).streamByDay("municipalityId", from, to);
+	}
+
 	@Test
 	void existsByMunicipalityIdAndMessageIdAndIssuer() {
 		final var municipalityId = "municipalityId";
@@ -248,13 +999,13 @@ class DbIntegrationTest {
 		final var issuer = "issuer";
 		final var date = LocalDateTime.now();
 		final var pageRequest = PageRequest.of(12, 34);
-		final Page<MessageIdProjection> result = Page.empty();
+		final List<MessageIdProjection> result = List.of(mock(MessageIdProjection.class));
 
-		when(mockHistoryRepository.findDistinctMessageIdsByMunicipalityIdAndIssuerAndCreatedAtIsAfter(municipalityId, issuer, date, pageRequest)).thenReturn(result);
+		when(mockHistoryRepository.findMessageIds(municipalityId, issuer, date, null, null, pageRequest)).thenReturn(result);
 
-		assertThat(dbIntegration.getUniqueMessageIds(municipalityId, issuer, date, pageRequest)).isEqualTo(result);
+		assertThat(dbIntegration.getUniqueMessageIds(municipalityId, null, issuer, date, null, pageRequest)).isEqualTo(result);
 
-		verify(mockHistoryRepository).findDistinctMessageIdsByMunicipalityIdAndIssuerAndCreatedAtIsAfter(municipalityId, issuer, date, pageRequest);
+		verify(mockHistoryRepository).findMessageIds(municipalityId, issuer, date, null, null, pageRequest);
 	}
 
 	@Test
@@ -263,71 +1014,207 @@ class DbIntegrationTest {
 		final var batchId = "batchId";
 		final var issuer = "issuer";
 		final var date = LocalDateTime.now();
-		final var pageRequest = PageRequest.of(12, 34);
-		final Page<MessageIdProjection> result = Page.empty();
+		final var cursor = new ContinuationToken(date.plusDays(1), 56L);
+		final var pageRequest = PageRequest.of(0, 34);
+		final List<MessageIdProjection> result = List.of(mock(MessageIdProjection.class));
 
-		when(mockHistoryRepository.findDistinctMessageIdsByMunicipalityIdAndBatchIdAndIssuerAndCreatedAtIsAfter(municipalityId, batchId, issuer, date, pageRequest)).thenReturn(result);
+		when(mockHistoryRepository.findMessageIdsInBatch(municipalityId, batchId, issuer, date, cursor.createdAt(), 56L, pageRequest)).thenReturn(result);
 
-		assertThat(dbIntegration.getUniqueMessageIds(municipalityId, batchId, issuer, date, pageRequest)).isEqualTo(result);
+		assertThat(dbIntegration.getUniqueMessageIds(municipalityId, batchId, issuer, date, cursor, pageRequest)).isEqualTo(result);
 
-		verify(mockHistoryRepository).findDistinctMessageIdsByMunicipalityIdAndBatchIdAndIssuerAndCreatedAtIsAfter(municipalityId, batchId, issuer, date, pageRequest);
+		verify(mockHistoryRepository).findMessageIdsInBatch(municipalityId, batchId, issuer, date, cursor.createdAt(), 56L, pageRequest);
 	}
 
 	@Test
-	void getHistoryEntityByMunicipalityIdAndMessageId() {
+	void countUniqueMessageIdsForUserId() {
+		final var date = LocalDateTime.now();
+		when(mockHistoryRepository.countMessageIds("municipalityId", "issuer", date)).thenReturn(12L);
+
+		assertThat(dbIntegration.countUniqueMessageIds("municipalityId", null, "issuer", date)).isEqualTo(12L);
+
+		verify(mockHistoryRepository).countMessageIds("municipalityId", "issuer", date);
+	}
+
+	@Test
+	void countUniqueMessageIdsForUserIdAndBatch() {
+		final var date = LocalDateTime.now();
+		when(mockHistoryRepository.countMessageIdsInBatch("municipalityId", "batchId", "issuer", date)).thenReturn(3L);
+
+		assertThat(dbIntegration.countUniqueMessageIds("municipalityId", "batchId", "issuer", date)).isEqualTo(3L);
+
+		verify(mockHistoryRepository).countMessageIdsInBatch("municipalityId", "batchId", "issuer", date);
+	}
+
+	@Test
+	void getUserMessageHistory() {
 		final var municipalityId = "municipalityId";
 		final var messageId = "messageId";
-		final var response = List.of(
-			HistoryEntity.builder().withId(123L).build(),
-			HistoryEntity.builder().withId(234L).build());
-
-		when(mockHistoryRepository.findByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(response);
+		final var projection = mock(UserMessageHistoryProjection.class);
+		when(projection.getMessageId()).thenReturn(messageId);
+		when(projection.getPartyId()).thenReturn("partyId");
+		when(projection.getMessageType()).thenReturn(SMS);
+		when(projection.getStatus()).thenReturn(SENT);
+		when(projection.getDestinationAddressJson()).thenReturn("{\"address\":\"someAddress\"}");
+		when(projection.getMetadataExtracted()).thenReturn(true);
+		when(projection.getDestination()).thenReturn("+46701234567");
+		when(mockHistoryRepository.findUserMessageHistoryByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(List.of(projection));
+
+		final var result = dbIntegration.getUserMessageHistory(municipalityId, messageId);
+
+		assertThat(result).singleElement().satisfies(history -> {
+			assertThat(history.messageId()).isEqualTo(messageId);
+			assertThat(history.partyId()).isEqualTo("partyId");
+			assertThat(history.messageType()).isEqualTo(SMS);
+			assertThat(history.status()).isEqualTo(SENT);
+			assertThat(history.destinationAddress().address()).isEqualTo("someAddress");
+			assertThat(history.metadata()).isEqualTo(HistoryMetadata.builder().withDestination("+46701234567").build());
+		});
+		verify(mockHistoryRepository).findUserMessageHistoryByMunicipalityIdAndMessageId(municipalityId, messageId);
+	}
 
-		assertThat(dbIntegration.getHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId)).isEqualTo(response);
+	@Test
+	void getUserMessageHistoryExtractsMetadataNotYetExtracted() {
+		final var municipalityId = "municipalityId";
+		final var messageId = "messageId";
+		final var projection = mock(UserMessageHistoryProjection.class);
+		when(projection.getId()).thenReturn(123L);
+		when(projection.getMetadataExtracted()).thenReturn(false);
+		when(mockHistoryRepository.findUserMessageHistoryByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(List.of(projection));
+		final var historyContent = mock(HistoryContentProjection.class);
+		when(historyContent.getId()).thenReturn(123L);
+		when(historyContent.getMessageType()).thenReturn(DIGITAL_MAIL);
+		when(historyContent.getContent()).thenReturn("{\"subject\":\"subject\",\"attachments\":[{\"filename\":\"a.pdf\",\"content\":\"sha256:hash\"}]}");
+		when(mockHistoryRepository.findContentByIdIn(List.of(123L))).thenReturn(List.of(historyContent));
+
+		final var result = dbIntegration.getUserMessageHistory(municipalityId, messageId);
+
+		// The sizes of attachments in the attachment store aren't listed, hence not read
+		assertThat(result).singleElement().extracting(UserMessageHistory::metadata).isEqualTo(HistoryMetadata.builder()
+			.withSubject("subject")
+			.withAttachments(List.of(new HistoryMetadata.Attachment("a.pdf", null, null)))
+			.build());
+		verify(mockHistoryRepository).findUserMessageHistoryByMunicipalityIdAndMessageId(municipalityId, messageId);
+		verify(mockHistoryRepository).findContentByIdIn(List.of(123L));
+		verify(mockHistoryRepository, never()).findById(any());
+	}
 
-		verify(mockHistoryRepository).findByMunicipalityIdAndMessageId(municipalityId, messageId);
+	@Test
+	void backfillHistoryMetadata() {
+		final var historyContent = mock(HistoryContentProjection.class);
+		when(historyContent.getId()).thenReturn(123L);
+		when(historyContent.getMessageType()).thenReturn(DIGITAL_MAIL);
+		when(historyContent.getContent()).thenReturn("{\"subject\":\"subject\",\"attachments\":[{\"filename\":\"a.pdf\",\"content\":\"sha256:hash\"}]}");
+		when(mockHistoryRepository.findContentByMetadataExtractedFalse(PageRequest.of(0, 10))).thenReturn(List.of(historyContent));
+		when(mockAttachmentExtractor.size("sha256:hash")).thenReturn(11L);
+
+		assertThat(dbIntegration.backfillHistoryMetadata(10)).isOne();
+
+		verify(mockHistoryRepository).findContentByMetadataExtractedFalse(PageRequest.of(0, 10));
+		verify(mockHistoryRepository).updateMetadata(123L, "subject", null, null, 1, "[{\"name\":\"a.pdf\",\"size\":11}]");
+		verify(mockAttachmentExtractor).size("sha256:hash");
+		verifyNoMoreInteractions(mockHistoryRepository);
 	}
 
 	@Test
-	void getFirstHistoryEntityByMunicipalityIdAndMessageId() {
+	void getFirstHistoryIdByMunicipalityIdAndMessageId() {
 		final var municipalityId = "municipalityId";
 		final var messageId = "messageId";
-		final var historyEntity = HistoryEntity.builder().withId(556L).build();
+		final var historyId = mock(HistoryIdProjection.class);
 
-		when(mockHistoryRepository.findFirstByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(Optional.of(historyEntity));
+		when(mockHistoryRepository.findIdByMunicipalityIdAndMessageId(municipalityId, messageId, PageRequest.of(0, 1))).thenReturn(List.of(historyId));
 
-		assertThat(dbIntegration.getFirstHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId)).isEqualTo(historyEntity);
+		assertThat(dbIntegration.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId)).isSameAs(historyId);
 
-		verify(mockHistoryRepository).findFirstByMunicipalityIdAndMessageId(municipalityId, messageId);
+		verify(mockHistoryRepository).findIdByMunicipalityIdAndMessageId(municipalityId, messageId, PageRequest.of(0, 1));
 	}
 
 	@Test
-	void getFirstHistoryEntityByMunicipalityIdAndMessageIdNotFound() {
+	void getFirstHistoryIdByMunicipalityIdAndMessageIdNotFound() {
 		final var municipalityId = "municipalityId";
 		final var messageId = "messageId";
 
-		final var e = assertThrows(ThrowableProblem.class, () -> dbIntegration.getFirstHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId));
+		final var e = assertThrows(ThrowableProblem.class, () -> dbIntegration.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId));
 
 		assertThat(e.getStatus()).isEqualTo(NOT_FOUND);
 		assertThat(e.getMessage()).isEqualTo("Not Found: No history found for message id messageId");
 
-		verify(mockHistoryRepository).findFirstByMunicipalityIdAndMessageId(municipalityId, messageId);
+		verify(mockHistoryRepository).findIdByMunicipalityIdAndMessageId(municipalityId, messageId, PageRequest.of(0, 1));
+	}
+
+	@Test
+	void openHistoryContent() throws IOException {
+		final var chunk = "\uD83D\uDCE7".repeat(ChunkedHistoryContentReader.CHUNK_SIZE);
+		when(mockHistoryRepository.findContentChunkById(123L, 1, ChunkedHistoryContentReader.CHUNK_SIZE)).thenReturn(chunk);
+		when(mockHistoryRepository.findContentChunkById(123L, ChunkedHistoryContentReader.CHUNK_SIZE + 1L, ChunkedHistoryContentReader.CHUNK_SIZE)).thenReturn("content");
+
+		final var content = new StringWriter();
+		try (final var reader = dbIntegration.openHistoryContent(123L)) {
+			reader.transferTo(content);
+		}
+
+		// The chunks are counted in code points, as by the database, hence the second chunk starts after all emojis
+		assertThat(content).hasToString(chunk + "content");
+
+		verify(mockHistoryRepository).findContentChunkById(123L, 1, ChunkedHistoryContentReader.CHUNK_SIZE);
+		verify(mockHistoryRepository).findContentChunkById(123L, ChunkedHistoryContentReader.CHUNK_SIZE + 1L, ChunkedHistoryContentReader.CHUNK_SIZE);
+	}
+
+	@Test
+	void openHistoryContentNotFound() throws IOException {
+		try (final var reader = dbIntegration.openHistoryContent(123L)) {
+			assertThat(reader.read()).isEqualTo(-1);
+			assertThat(reader.read()).isEqualTo(-1);
+		}
+
+		verify(mockHistoryRepository).findContentChunkById(123L, 1, ChunkedHistoryContentReader.CHUNK_SIZE);
+	}
+
+	@Test
+	void getBatchSummaries() {
+		final var municipalityId = "municipalityId";
+		final var issuer = "issuer";
+		final var timestamp = LocalDateTime.now();
+		final var cursor = new ContinuationToken(timestamp.plusDays(1), 78L);
+		final var pageRequest = PageRequest.of(0, 10);
+		final var summaries = List.of(BatchSummaryEntity.builder().build());
+
+		when(mockBatchSummaryRepository.findSummaries(municipalityId, issuer, timestamp, cursor.createdAt(), 78L, pageRequest)).thenReturn(summaries);
+
+		assertThat(dbIntegration.getBatchSummaries(municipalityId, issuer, timestamp, cursor, pageRequest)).isSameAs(summaries);
+
+		verify(mockBatchSummaryRepository).findSummaries(municipalityId, issuer, timestamp, cursor.createdAt(), 78L, pageRequest);
+	}
+
+	@Test
+	void countBatchSummaries() {
+		final var timestamp = LocalDateTime.now();
+		when(mockBatchSummaryRepository.countByMunicipalityIdAndIssuerAndCreatedAtIsAfter("municipalityId", "issuer", timestamp)).thenReturn(5L);
+
+		assertThat(dbIntegration.countBatchSummaries("municipalityId", "issuer", timestamp)).isEqualTo(5L);
+
+		verify(mockBatchSummaryRepository).countByMunicipalityIdAndIssuerAndCreatedAtIsAfter("municipalityId", "issuer", timestamp);
 	}
 
 	@Test
-	void getBatchHistoryMessagesForUser() {
+	void getBatchHistoryMessages() {
 		final var municipalityId = "municipalityId";
 		final var issuer = "issuer";
+		final var batchIds = List.of("batchId1", "batchId2");
 		final var timestamp = LocalDateTime.now();
 		final var projections = List.of(createBatchHistoryProjection(), createBatchHistoryProjection());
 
-		when(mockHistoryRepository.findByMunicipalityIdAndIssuerAndCreatedAtIsAfter(municipalityId, issuer, timestamp)).thenReturn(projections);
+		when(mockHistoryRepository.findByMunicipalityIdAndIssuerAndBatchIdInAndCreatedAtIsAfter(municipalityId, issuer, batchIds, timestamp)).thenReturn(projections);
 
-		final var matches = dbIntegration.getBatchHistoryMessagesForUser(municipalityId, issuer, timestamp);
+		final var matches = dbIntegration.getBatchHistoryMessages(municipalityId, issuer, batchIds, timestamp);
 
 		assertThat(matches).isSameAs(projections);
 
-		verify(mockHistoryRepository).findByMunicipalityIdAndIssuerAndCreatedAtIsAfter(municipalityId, issuer, timestamp);
+		verify(mockHistoryRepository).findByMunicipalityIdAndIssuerAndBatchIdInAndCreatedAtIsAfter(municipalityId, issuer, batchIds, timestamp);
+	}
+
+	@Test
+	void getBatchHistoryMessagesWithoutBatches() {
+		assertThat(dbIntegration.getBatchHistoryMessages("municipalityId", "issuer", List.of(), LocalDateTime.now())).isEmpty();
 	}
 
 	@ParameterizedTest
@@ -1,5 +1,7 @@
 package se.sundsvall.messaging.integration.db;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
@@ -8,10 +10,20 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
+import se.sundsvall.messaging.integration.db.projection.HistoryContentProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryExportProjection;
+import se.sundsvall.messaging.integration.db.projection.MessageIdProjection;
+import se.sundsvall.messaging.integration.db.projection.UserMessageHistoryProjection;
+import se.sundsvall.messaging.model.HistoryMetadata;
 
+import static java.time.temporal.ChronoUnit.MICROS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.groups.Tuple.tuple;
 import static org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace.NONE;
+import static se.sundsvall.messaging.model.MessageStatus.FAILED;
+import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
 import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
 
 @DataJpaTest
@@ -96,6 +108,124 @@ class HistoryRepositoryTest {
 		assertThat(historyRepository.findByMunicipalityIdAndMessageId(municipalityId, messageId)).isEmpty();
 	}
 
+	@Test
+	void findIdByMunicipalityIdAndMessageId() {
+		// Act
+		final var matches = historyRepository.findIdByMunicipalityIdAndMessageId("2281", "d5161acb-2462-4065-a679-53b1cd77be92", PageRequest.of(0, 1));
+
+		// Assert
+		assertThat(matches).singleElement().satisfies(match -> {
+			assertThat(match.getId()).isNotNull();
+			assertThat(match.getMessageType()).isEqualTo(SNAIL_MAIL);
+			assertThat(match.getAttachmentsJson()).isNull();
+		});
+	}
+
+	@Test
+	void findIdByMunicipalityIdAndMessageIdWhenNoMatch() {
+		// Act and assert
+		assertThat(historyRepository.findIdByMunicipalityIdAndMessageId("2281", "c8276a4a-25ef-4f45-b89e-7802f3c45b3a", PageRequest.of(0, 1))).isEmpty();
+	}
+
+	@Test
+	void findContentChunkById() {
+		// Arrange
+		final var id = historyRepository.findIdByMunicipalityIdAndMessageId("2281", "d5161acb-2462-4065-a679-53b1cd77be92", PageRequest.of(0, 1)).getFirst().getId();
+
+		// Act and assert
+		assertThat(historyRepository.findContentChunkById(id, 1, 10)).isEqualTo("{\"party\":{");
+		assertThat(historyRepository.findContentChunkById(id, 75, 20)).isEqualTo("BOU Förskola\"}");
+		assertThat(historyRepository.findContentChunkById(id, 200, 10)).isEmpty();
+	}
+
+	@Test
+	void findUserMessageHistoryByMunicipalityIdAndMessageId() {
+		// Arrange
+		final var municipalityId = "2281";
+		final var messageId = "d5161acb-2462-4065-a679-53b1cd77be92";
+
+		// Act
+		final var matches = historyRepository.findUserMessageHistoryByMunicipalityIdAndMessageId(municipalityId, messageId);
+
+		// Assert
+		assertThat(matches).isNotEmpty().hasSize(1)
+			.extracting(
+				UserMessageHistoryProjection::getMessageId,
+				UserMessageHistoryProjection::getPartyId,
+				UserMessageHistoryProjection::getMessageType,
+				UserMessageHistoryProjection::getStatus,
+				UserMessageHistoryProjection::getOrigin,
+				UserMessageHistoryProjection::getIssuer,
+				UserMessageHistoryProjection::getMetadataExtracted)
+			.containsExactly(tuple(
+				messageId,
+				"66eda45f-3dff-4e08-ae6b-620cf038e608",
+				SNAIL_MAIL,
+				FAILED,
+				"origin1",
+				"issuer1",
+				false));
+	}
+
+	@Test
+	void findContentByMetadataExtractedFalse() {
+		// Arrange
+		final var first = historyRepository.findContentByMetadataExtractedFalse(PageRequest.of(0, 2));
+		historyRepository.updateMetadata(first.getFirst().getId(), "subject", null, null, 0, null);
+
+		// Act
+		final var matches = historyRepository.findContentByMetadataExtractedFalse(PageRequest.of(0, 2));
+
+		// Assert
+		assertThat(first).hasSize(2).allSatisfy(historyContent -> assertThat(historyContent.getContent()).isNotNull());
+		assertThat(matches).hasSize(2).extracting(HistoryContentProjection::getId)
+			.isSorted()
+			.doesNotContain(first.getFirst().getId())
+			.startsWith(first.getLast().getId());
+	}
+
+	@Test
+	void findContentByIdIn() {
+		// Arrange
+		final var history = historyRepository.findContentByMetadataExtractedFalse(PageRequest.of(0, 3));
+		final var ids = List.of(history.getFirst().getId(), history.getLast().getId());
+
+		// Act
+		final var matches = historyRepository.findContentByIdIn(ids);
+
+		// Assert
+		assertThat(matches).hasSize(2).allSatisfy(historyContent -> {
+			assertThat(historyContent.getMessageType()).isNotNull();
+			assertThat(historyContent.getContent()).isNotNull();
+		});
+		assertThat(matches).extracting(HistoryContentProjection::getId).containsExactlyInAnyOrderElementsOf(ids);
+	}
+
+	@Test
+	void updateMetadata() {
+		// Arrange
+		final var id = historyRepository.findContentByMetadataExtractedFalse(PageRequest.of(0, 1)).getFirst().getId();
+		final var content = historyRepository.findById(id).orElseThrow().getContent();
+		final var metadata = HistoryMetadata.builder()
+			.withSubject("subject")
+			.withBody("body")
+			.withDestination("destination")
+			.withAttachments(List.of(new HistoryMetadata.Attachment("a.pdf", "application/pdf", 11L)))
+			.build();
+
+		// Act
+		final var updated = historyRepository.updateMetadata(id, "subject", "body", "destination", 1,
+			"[{\"name\":\"a.pdf\",\"contentType\":\"application/pdf\",\"size\":11}]");
+
+		// Assert
+		assertThat(updated).isOne();
+		assertThat(historyRepository.findById(id)).hasValueSatisfying(entity -> {
+			assertThat(entity.isMetadataExtracted()).isTrue();
+			assertThat(entity.getMetadata()).isEqualTo(metadata);
+			assertThat(entity.getContent()).isEqualTo(content);
+		});
+	}
+
 	@Test
 	void findByMunicipalityIdAndBatchId() {
 		// Arrange
@@ -151,6 +281,41 @@ class HistoryRepositoryTest {
 				tuple(municipalityId, "2e0a24de-71bc-488c-9f1b-3cf05352bd4f", "72971e8e-e4ae-4539-9c4e-3675ae4baa37", "8fffe36f-be9d-42b9-a676-24244877c5ae", "origin2", "issuer2"));
 	}
 
+	@Test
+	void findMessageIds() {
+		final var municipalityId = "2281";
+		final var issuer = "issuer1";
+		final var createdAt = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+		final var firstPage = historyRepository.findMessageIds(municipalityId, issuer, createdAt, null, null, PageRequest.of(0, 2));
+		final var last = firstPage.getLast();
+		final var nextPage = historyRepository.findMessageIds(municipalityId, issuer, createdAt, last.getCreatedAt(), last.getId(), PageRequest.of(0, 2));
+		final var secondPage = historyRepository.findMessageIds(municipalityId, issuer, createdAt, null, null, PageRequest.of(1, 2));
+
+		// Messages with several history entries are listed once, latest first
+		assertThat(firstPage).extracting(MessageIdProjection::getMessageId)
+			.containsExactly("7fa6eaca-caa2-4c8e-928a-418740473a26", "8fffe36f-be9d-42b9-a676-24244877c5ae");
+		assertThat(last.getCreatedAt()).isEqualTo(LocalDateTime.of(2024, 2, 8, 10, 36, 40, 913355000));
+		assertThat(nextPage).extracting(MessageIdProjection::getMessageId).containsExactly("5ee0274e-784a-4ffb-90b9-d2974b94878b");
+		assertThat(secondPage).extracting(MessageIdProjection::getMessageId).containsExactly("5ee0274e-784a-4ffb-90b9-d2974b94878b");
+		assertThat(historyRepository.countMessageIds(municipalityId, issuer, createdAt)).isEqualTo(3);
+	}
+
+	@Test
+	void findMessageIdsInBatch() {
+		final var municipalityId = "2281";
+		final var batchId = "cca5589b-b107-46ab-ad8b-05c392752e09";
+		final var issuer = "issuer1";
+		final var createdAt = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+		final var firstPage = historyRepository.findMessageIdsInBatch(municipalityId, batchId, issuer, createdAt, null, null, PageRequest.of(0, 2));
+		final var nextPage = historyRepository.findMessageIdsInBatch(municipalityId, batchId, issuer, createdAt, firstPage.getLast().getCreatedAt(), firstPage.getLast().getId(), PageRequest.of(0, 2));
+
+		assertThat(firstPage).extracting(MessageIdProjection::getMessageId).containsExactly("7fa6eaca-caa2-4c8e-928a-418740473a26");
+		assertThat(nextPage).isEmpty();
+		assertThat(historyRepository.countMessageIdsInBatch(municipalityId, batchId, issuer, createdAt)).isEqualTo(1);
+	}
+
 	@Test
 	void existsByMunicipalityIdAndMessageIdAndIssuer() {
 		final var municipalityId = "2281";
@@ -168,4 +333,78 @@ class HistoryRepositoryTest {
 
 		assertThat(historyRepository.existsByMunicipalityIdAndMessageIdAndIssuer(municipalityId, messageId, issuer)).isFalse();
 	}
+	@Test
+	void streamHistory() {
+		try (final var rows = historyRepository.streamHistory("2281", null, null, null)) {
+			assertThat(rows).hasSize(17);
+		}
+	}
+
+	@Test
+	void streamHistoryForPartyWithinPeriod() {
+		final var from = LocalDateTime.of(2024, 1, 16, 0, 0);
+		final var to = LocalDateTime.of(2024, 1, 17, 0, 0);
+
+		try (final var rows = historyRepository.streamHistory("2281", "66eda45f-3dff-4e08-ae6b-620cf038e608", from, to)) {
+			assertThat(rows.toList())
+				.extracting(HistoryExportProjection::getMessageId, HistoryExportProjection::getMessageType, HistoryExportProjection::getStatus, HistoryExportProjection::getIssuer,
+					HistoryExportProjection::getDepartment)
+				.containsExactly(tuple("d5161acb-2462-4065-a679-53b1cd77be92", SNAIL_MAIL, FAILED, "issuer1", "BOU Förskola"));
+		}
+	}
+
+	@Test
+	void streamHistoryWithContent() {
+		final var from = LocalDateTime.of(2024, 1, 16, 0, 0);
+		final var to = LocalDateTime.of(2024, 1, 17, 0, 0);
+
+		try (final var rows = historyRepository.streamHistoryWithContent("2281", "66eda45f-3dff-4e08-ae6b-620cf038e608", from, to)) {
+			assertThat(rows.toList())
+				.extracting(HistoryExportProjection::getMessageId, HistoryExportProjection::getContent)
+				.containsExactly(tuple("d5161acb-2462-4065-a679-53b1cd77be92", "{\"party\":{\"partyId\":\"66eda45f-3dff-4e08-ae6b-620cf038e608\"},\"department\":\"BOU Förskola\"}"));
+		}
+	}
+
+	@Test
+	void insertFromMessage() {
+		final var createdAt = LocalDateTime.now().truncatedTo(MICROS);
+
+		final var inserted = historyRepository.insertFromMessage("abd1c62e-8242-4a08-b6ab-edffb3a51235", "DIGITAL_MAIL", "SENT", "statusDetail", "transactionId", createdAt,
+			"subject", "body", "destination", 1, "[{\"name\":\"a.pdf\"}]");
+
+		assertThat(inserted).isOne();
+		assertThat(historyRepository.findAll()).filteredOn(entity -> "statusDetail".equals(entity.getStatusDetail())).singleElement().satisfies(entity -> {
+			// Copied from the message
+			assertThat(entity.getMunicipalityId()).isEqualTo("2281");
+			assertThat(entity.getMessageId()).isEqualTo("47a249ea-0308-4b93-a482-a023d708a788");
+			assertThat(entity.getBatchId()).isEqualTo("b93b11b2-4d6f-4cc1-914d-7a4d00d408b2");
+			assertThat(entity.getDeliveryId()).isEqualTo("abd1c62e-8242-4a08-b6ab-edffb3a51235");
+			assertThat(entity.getOriginalMessageType()).isEqualTo(LETTER);
+			assertThat(entity.getOrigin()).isEqualTo("origin1");
+			assertThat(entity.getIssuer()).isEqualTo("issuer1");
+			assertThat(entity.getContent()).isEqualTo("{\"party\":{\"partyId\":\"66eda45f-3dff-4e08-ae6b-620cf038e608\"},\"department\":\"Stadsbyggnadskontoret\"}");
+			assertThat(entity.getDepartment()).isEqualTo("Stadsbyggnadskontoret");
+			// Given as parameters
+			assertThat(entity.getMessageType()).isEqualTo(DIGITAL_MAIL);
+			assertThat(entity.getStatus()).isEqualTo(SENT);
+			assertThat(entity.getDigitalMailTransactionId()).isEqualTo("transactionId");
+			assertThat(entity.getCreatedAt()).isEqualTo(createdAt);
+			assertThat(entity.getMetadata()).isEqualTo(HistoryMetadata.builder()
+				.withSubject("subject")
+				.withBody("body")
+				.withDestination("destination")
+				.withAttachments(List.of(new HistoryMetadata.Attachment("a.pdf", null, null)))
+				.build());
+			assertThat(entity.getAttachmentCount()).isOne();
+		});
+	}
+
+	@Test
+	void insertFromMessageWhenNoMatch() {
+		final var count = historyRepository.count();
+
+		assertThat(historyRepository.insertFromMessage("d62134e2-f652-42a1-be43-72f620a1a358", "SMS", "SENT", null, null, LocalDateTime.now(),
+			null, null, null, 0, null)).isZero();
+		assertThat(historyRepository.count()).isEqualTo(count);
+	}
 }
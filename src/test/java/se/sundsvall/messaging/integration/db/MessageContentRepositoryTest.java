@@ -0,0 +1,79 @@
+package se.sundsvall.messaging.integration.db;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import se.sundsvall.messaging.integration.db.entity.MessageContentEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace.NONE;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@ActiveProfiles("junit")
+@Sql(scripts = {
+	"/db/scripts/truncate.sql",
+	"/db/scripts/testdata-ut.sql"
+})
+class MessageContentRepositoryTest {
+
+	@Autowired
+	private MessageContentRepository messageContentRepository;
+
+	@Test
+	void insertAll() {
+		// Act
+		final var inserted = messageContentRepository.insertAll(List.of("content1", "content2", "content1"));
+
+		// Assert
+		assertThat(inserted).extracting(MessageContentEntity::getContent).containsExactly("content1", "content2", "content1");
+		assertThat(inserted).extracting(MessageContentEntity::getId).doesNotContainNull().doesNotHaveDuplicates();
+		assertThat(inserted).allSatisfy(content -> assertThat(content.getCreatedAt()).isNotNull());
+		inserted.forEach(content -> assertThat(messageContentRepository.findById(content.getId()))
+			.hasValueSatisfying(stored -> assertThat(stored.getContent()).isEqualTo(content.getContent())));
+	}
+
+	@Test
+	void insertAllWhenEmpty() {
+		// Act and assert
+		assertThat(messageContentRepository.insertAll(List.of())).isEmpty();
+		assertThat(messageContentRepository.count()).isEqualTo(3);
+	}
+
+	@Test
+	void findUnreferencedIdsAndDelete() {
+		// Arrange
+		final var unreferenced = messageContentRepository.insertAll(List.of("content1", "content2", "content3"));
+
+		// Act
+		final var ids = messageContentRepository.findUnreferencedIds(LocalDateTime.now().plusMinutes(1), 2);
+		final var deleted = messageContentRepository.deleteUnreferencedByIdIn(ids);
+
+		// Assert
+		assertThat(ids).containsExactly(unreferenced.get(0).getId(), unreferenced.get(1).getId());
+		assertThat(deleted).isEqualTo(2);
+		assertThat(messageContentRepository.findAll()).extracting(MessageContentEntity::getId)
+			.containsExactlyInAnyOrder(1L, 2L, 3L, unreferenced.getLast().getId());
+	}
+
+	@Test
+	void findUnreferencedIdsWhenTooRecent() {
+		// Arrange
+		messageContentRepository.insertAll(List.of("content1"));
+
+		// Act and assert
+		assertThat(messageContentRepository.findUnreferencedIds(LocalDateTime.now().minusMinutes(1), 10)).isEmpty();
+	}
+
+	@Test
+	void deleteUnreferencedByIdInWhenReferenced() {
+		// Act and assert
+		assertThat(messageContentRepository.deleteUnreferencedByIdIn(List.of(1L, 2L, 3L))).isZero();
+		assertThat(messageContentRepository.count()).isEqualTo(3);
+	}
+}
@@ -1,18 +1,26 @@
 package se.sundsvall.messaging.integration.db;
 
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
 import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
+import se.sundsvall.messaging.integration.db.entity.MessageContentEntity;
+import se.sundsvall.messaging.integration.db.entity.MessageEntity;
+import se.sundsvall.messaging.integration.db.projection.PendingMessageProjection;
+import se.sundsvall.messaging.model.Address;
 
+import static java.time.temporal.ChronoUnit.MICROS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase.Replace.NONE;
 import static se.sundsvall.messaging.model.MessageStatus.PENDING;
 import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.SMS;
+import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = NONE)
@@ -41,6 +49,7 @@ class MessageRepositoryTest {
 			assertThat(entity.getBatchId()).isEqualTo("d003421e-45ea-49b4-9230-244142daa634");
 			assertThat(entity.getStatus()).isEqualTo(SENT);
 			assertThat(entity.getMunicipalityId()).isEqualTo("2281");
+			assertThat(entity.getContent()).isEqualTo("{\"party\":{\"partyId\":\"66eda45f-3dff-4e08-ae6b-620cf038e608\"},\"department\":\"Kultur och fritid\"}");
 		});
 	}
 
@@ -77,16 +86,250 @@ class MessageRepositoryTest {
 	}
 
 	@Test
-	void findByStatusOrderByCreatedAtAsc() {
+	void deleteByDeliveryIdAndTypeNot() {
+		// Arrange
+		final var deliveryId = "abd1c62e-8242-4a08-b6ab-edffb3a51235";
+
+		// Act and assert
+		assertThat(messageRepository.deleteByDeliveryIdAndTypeNot(deliveryId, SNAIL_MAIL)).isZero();
+		assertThat(messageRepository.findByDeliveryId(deliveryId)).isPresent();
+		assertThat(messageRepository.deleteByDeliveryIdAndTypeNot(deliveryId, LETTER)).isOne();
+		assertThat(messageRepository.findByDeliveryId(deliveryId)).isEmpty();
+	}
+
+	@Test
+	void deleteByDeliveryIdAndType() {
+		// Arrange
+		final var deliveryId = "abd1c62e-8242-4a08-b6ab-edffb3a51235";
+
+		// Act and assert
+		assertThat(messageRepository.deleteByDeliveryIdAndType(deliveryId, LETTER)).isZero();
+		assertThat(messageRepository.findByDeliveryId(deliveryId)).isPresent();
+		assertThat(messageRepository.deleteByDeliveryIdAndType(deliveryId, SNAIL_MAIL)).isOne();
+		assertThat(messageRepository.findByDeliveryId(deliveryId)).isEmpty();
+	}
+
+	@Test
+	void deleteByBatchIdAndType() {
+		// Arrange
+		final var batchId = "b93b11b2-4d6f-4cc1-914d-7a4d00d408b2";
+
+		// Act and assert
+		assertThat(messageRepository.deleteByBatchIdAndType(batchId, LETTER)).isZero();
+		assertThat(messageRepository.existsByBatchIdAndType(batchId, SNAIL_MAIL)).isTrue();
+		assertThat(messageRepository.deleteByBatchIdAndType(batchId, SNAIL_MAIL)).isOne();
+		assertThat(messageRepository.existsByBatchIdAndType(batchId, SNAIL_MAIL)).isFalse();
+	}
+
+	@Test
+	void existsByBatchIdAndType() {
+		// Arrange
+		final var batchId = "d5161acb-2462-4065-a679-53b1cd77be92";
+
+		// Act and assert
+		assertThat(messageRepository.existsByBatchIdAndType(batchId, SNAIL_MAIL)).isTrue();
+		assertThat(messageRepository.existsByBatchIdAndType(batchId, LETTER)).isFalse();
+	}
+
+	@Test
+	void findClaimablePendingMessages() {
+		// Act
+		final var matches = messageRepository.findClaimablePendingMessages(LocalDateTime.now(), 10);
+
+		// Assert
+		assertThat(matches).hasSize(2).satisfiesExactly(projection -> {
+			assertThat(projection.getId()).isEqualTo(1L);
+			assertThat(projection.getDeliveryId()).isEqualTo("ea6b0684-69d5-4f70-8b2d-6255303ead0e");
+			assertThat(projection.getType()).isEqualTo(SNAIL_MAIL);
+			assertThat(projection.getMunicipalityId()).isEqualTo("2281");
+			assertThat(projection.getOrigin()).isEqualTo("origin1");
+		}, projection -> assertThat(projection.getId()).isEqualTo(3L));
+	}
+
+	@Test
+	void findClaimablePendingMessagesWithLimit() {
+		// Act and assert
+		assertThat(messageRepository.findClaimablePendingMessages(LocalDateTime.now(), 1))
+			.extracting(PendingMessageProjection::getId)
+			.containsExactly(1L);
+	}
+
+	@Test
+	void findClaimablePendingMessagesByType() {
+		// Act and assert
+		assertThat(messageRepository.findClaimablePendingMessagesByType("SNAIL_MAIL", LocalDateTime.now(), 10))
+			.extracting(PendingMessageProjection::getId)
+			.containsExactly(1L, 3L);
+		assertThat(messageRepository.findClaimablePendingMessagesByType("EMAIL", LocalDateTime.now(), 10)).isEmpty();
+	}
+
+	@Test
+	void claimByIds() {
+		// Arrange
+		final var now = LocalDateTime.now();
+
+		// Act
+		final var claimed = messageRepository.claimByIds(List.of(1L, 3L), "instance1", now.plusMinutes(5));
+
+		// Assert
+		assertThat(claimed).isEqualTo(2);
+		assertThat(messageRepository.findClaimablePendingMessages(now, 10)).isEmpty();
+		assertThat(messageRepository.findClaimablePendingMessages(now.plusMinutes(10), 10)).hasSize(2);
+	}
+
+	@Test
+	void claimByDeliveryIdAndStatus() {
+		// Arrange
+		final var deliveryId = "ea6b0684-69d5-4f70-8b2d-6255303ead0e";
+		final var now = LocalDateTime.now();
+
+		// Act and assert
+		assertThat(messageRepository.claimByDeliveryIdAndStatus(deliveryId, PENDING, "instance1", now.plusMinutes(5), now)).isOne();
+		// Claimed by another instance
+		assertThat(messageRepository.claimByDeliveryIdAndStatus(deliveryId, PENDING, "instance2", now.plusMinutes(5), now)).isZero();
+		// Already claimed by the same instance
+		assertThat(messageRepository.claimByDeliveryIdAndStatus(deliveryId, PENDING, "instance1", now.plusMinutes(5), now)).isOne();
+		// Claim has expired
+		assertThat(messageRepository.claimByDeliveryIdAndStatus(deliveryId, PENDING, "instance2", now.plusMinutes(15), now.plusMinutes(10))).isOne();
+	}
+
+	@Test
+	void claimByDeliveryIdAndStatusWhenNotPending() {
+		// Arrange
+		final var now = LocalDateTime.now();
+
 		// Act and assert
-		final var matches = messageRepository.findByStatusOrderByCreatedAtAsc(PENDING);
-
-		assertThat(matches).hasSize(2).satisfiesExactly(entity -> {
-			assertThat(entity.getMessageId()).isEqualTo("cb1af665-835f-45b8-8755-9aa2ed284292");
-			assertThat(entity.getCreatedAt().truncatedTo(ChronoUnit.SECONDS)).isEqualTo(LocalDateTime.of(2024, 01, 16, 14, 44, 17));
-		}, entity -> {
-			assertThat(entity.getMessageId()).isEqualTo("47a249ea-0308-4b93-a482-a023d708a788");
-			assertThat(entity.getCreatedAt().truncatedTo(ChronoUnit.SECONDS)).isEqualTo(LocalDateTime.of(2024, 01, 24, 10, 26, 17));
+		assertThat(messageRepository.claimByDeliveryIdAndStatus("0cc1cd5b-1196-49e9-9dad-11cc0da77e3d", PENDING, "instance1", now.plusMinutes(5), now)).isZero();
+	}
+
+	@Test
+	void renewClaims() {
+		// Arrange
+		final var now = LocalDateTime.now();
+		messageRepository.claimByIds(List.of(1L, 3L), "instance1", now.plusMinutes(5));
+
+		// Act
+		final var renewed = messageRepository.renewClaims(List.of("ea6b0684-69d5-4f70-8b2d-6255303ead0e"), "instance1", now.plusMinutes(20));
+		final var renewedByOther = messageRepository.renewClaims(List.of("abd1c62e-8242-4a08-b6ab-edffb3a51235"), "instance2", now.plusMinutes(20));
+
+		// Assert
+		assertThat(renewed).isOne();
+		assertThat(renewedByOther).isZero();
+		assertThat(messageRepository.findClaimablePendingMessages(now.plusMinutes(10), 10))
+			.extracting(PendingMessageProjection::getId)
+			.containsExactly(3L);
+	}
+
+	@Test
+	void updateOutcomeByDeliveryIdAndTypeNot() {
+		// Arrange
+		final var deliveryId = "ea6b0684-69d5-4f70-8b2d-6255303ead0e";
+
+		// Act and assert
+		assertThat(messageRepository.updateOutcomeByDeliveryIdAndTypeNot(deliveryId, SNAIL_MAIL, SENT, "someStatusDetail", "someTransactionId")).isZero();
+		assertThat(messageRepository.updateOutcomeByDeliveryIdAndTypeNot(deliveryId, LETTER, SENT, "someStatusDetail", "someTransactionId")).isOne();
+		assertThat(messageRepository.findById(1L)).hasValueSatisfying(entity -> {
+			assertThat(entity.getStatus()).isEqualTo(SENT);
+			assertThat(entity.getStatusDetail()).isEqualTo("someStatusDetail");
+			assertThat(entity.getDigitalMailTransactionId()).isEqualTo("someTransactionId");
+		});
+		assertThat(messageRepository.findClaimablePendingMessages(LocalDateTime.now(), 10))
+			.extracting(PendingMessageProjection::getId)
+			.containsExactly(3L);
+	}
+
+	@Test
+	void findClaimableCompletedMessageIds() {
+		// Arrange
+		final var now = LocalDateTime.now();
+
+		// Act and assert
+		assertThat(messageRepository.findClaimableCompletedMessageIds(now, 10)).containsExactly(2L);
+		messageRepository.claimByIds(List.of(2L), "instance1", now.plusMinutes(5));
+		assertThat(messageRepository.findClaimableCompletedMessageIds(now, 10)).isEmpty();
+		assertThat(messageRepository.findClaimableCompletedMessageIds(now.plusMinutes(10), 10)).containsExactly(2L);
+	}
+
+	@Test
+	void insertAll() {
+		// Arrange
+		final var before = LocalDateTime.now().truncatedTo(MICROS);
+		final var claimExpiresAt = LocalDateTime.now().plusMinutes(5).truncatedTo(MICROS);
+		final var destinationAddress = Address.builder()
+			.withFirstName("John")
+			.withLastName("Doe")
+			.withAddress("Main Street 1")
+			.withApartmentNumber("1101")
+			.withCareOf("c/o Jane Doe")
+			.withZipCode("12345")
+			.withCity("Sundsvall")
+			.withCountry("Sweden")
+			.build();
+		final var messages = List.of(
+			MessageEntity.builder()
+				.withMessageId("messageId1")
+				.withBatchId("batchId")
+				.withDeliveryId("deliveryId1")
+				.withPartyId("partyId1")
+				.withMunicipalityId("2281")
+				.withType(SNAIL_MAIL)
+				.withOriginalMessageType(LETTER)
+				.withStatus(PENDING)
+				.withContent(MessageContentEntity.builder().withId(1L).build())
+				.withOrigin("origin")
+				.withIssuer("issuer")
+				.withDestinationAddress(destinationAddress)
+				.withOrganizationNumber("5591628136")
+				.withClaimedBy("instance1")
+				.withClaimExpiresAt(claimExpiresAt)
+				.withStatusDetail("statusDetail")
+				.withDigitalMailTransactionId("transactionId")
+				.build(),
+			MessageEntity.builder()
+				.withMessageId("messageId2")
+				.withBatchId("batchId")
+				.withDeliveryId("deliveryId2")
+				.withMunicipalityId("2281")
+				.withType(SMS)
+				.withStatus(PENDING)
+				.build());
+
+		// Act
+		messageRepository.insertAll(messages);
+
+		// Assert, reading every mapped column back through the entity
+		assertThat(messageRepository.findAll()).filteredOn(MessageEntity::getStatus, PENDING).hasSize(4);
+		assertThat(messageRepository.findByDeliveryId("deliveryId1")).hasValueSatisfying(entity -> {
+			assertThat(entity.getId()).isNotNull();
+			assertThat(entity.getMessageId()).isEqualTo("messageId1");
+			assertThat(entity.getBatchId()).isEqualTo("batchId");
+			assertThat(entity.getDeliveryId()).isEqualTo("deliveryId1");
+			assertThat(entity.getPartyId()).isEqualTo("partyId1");
+			assertThat(entity.getMunicipalityId()).isEqualTo("2281");
+			assertThat(entity.getType()).isEqualTo(SNAIL_MAIL);
+			assertThat(entity.getOriginalMessageType()).isEqualTo(LETTER);
+			assertThat(entity.getStatus()).isEqualTo(PENDING);
+			assertThat(entity.getContentId()).isEqualTo(1L);
+			assertThat(entity.getContent()).isEqualTo("{\"party\":{\"partyId\":\"66eda45f-3dff-4e08-ae6b-620cf038e608\"},\"department\":\"BOU Förskola\"}");
+			assertThat(entity.getOrigin()).isEqualTo("origin");
+			assertThat(entity.getIssuer()).isEqualTo("issuer");
+			assertThat(entity.getCreatedAt()).isAfterOrEqualTo(before);
+			assertThat(entity.getDestinationAddress()).isEqualTo(destinationAddress);
+			assertThat(entity.getOrganizationNumber()).isEqualTo("5591628136");
+			assertThat(entity.getClaimedBy()).isEqualTo("instance1");
+			assertThat(entity.getClaimExpiresAt()).isEqualTo(claimExpiresAt);
+			assertThat(entity.getStatusDetail()).isEqualTo("statusDetail");
+			assertThat(entity.getDigitalMailTransactionId()).isEqualTo("transactionId");
+		});
+		assertThat(messageRepository.findByDeliveryId("deliveryId2")).hasValueSatisfying(entity -> {
+			assertThat(entity.getId()).isNotNull();
+			assertThat(entity.getMessageId()).isEqualTo("messageId2");
+			assertThat(entity.getType()).isEqualTo(SMS);
+			assertThat(entity.getCreatedAt()).isNotNull();
+			assertThat(entity).extracting(MessageEntity::getPartyId, MessageEntity::getOriginalMessageType, MessageEntity::getContent, MessageEntity::getOrigin,
+				MessageEntity::getIssuer, MessageEntity::getDestinationAddress, MessageEntity::getOrganizationNumber, MessageEntity::getClaimedBy,
+				MessageEntity::getClaimExpiresAt, MessageEntity::getStatusDetail, MessageEntity::getDigitalMailTransactionId)
+				.containsOnlyNulls();
 		});
 	}
 }
@@ -12,7 +12,7 @@ import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
 import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
-import se.sundsvall.messaging.integration.db.entity.StatisticEntity;
+import se.sundsvall.messaging.model.StatsEntry;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.groups.Tuple.tuple;
@@ -32,6 +32,8 @@ import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
 })
 class StatisticsRepositoryTest {
 
+	private static final String DEPARTMENT = "SBK(Gatuavdelningen, Trafiksektionen)";
+
 	@Autowired
 	private StatisticsRepository statisticsRepository;
 
@@ -45,91 +47,87 @@ class StatisticsRepositoryTest {
 
 	@Test
 	void findAllByParameters() {
-		final var statisticsEntities = statisticsRepository.findAllByParameters(null, null, null, List.of(SMS), null, null);
+		final var entries = statisticsRepository.findAllByParameters(null, null, null, List.of(SMS), null, null);
 
-		// Assert that the map contains the expected keys
-		assertThat(statisticsEntities).extracting(StatisticEntity::getMessageType, StatisticEntity::getOriginalMessageType, StatisticEntity::getStatus)
-			.containsExactly(
-				tuple(SMS, SMS, SENT),
-				tuple(SMS, SMS, SENT),
-				tuple(SMS, SMS, SENT),
-				tuple(SMS, SMS, FAILED),
-				tuple(SMS, SMS, SENT),
-				tuple(SMS, SMS, FAILED));
+		assertThat(entries).extracting(StatsEntry::messageType, StatsEntry::originalMessageType, StatsEntry::status, StatsEntry::department, StatsEntry::count)
+			.containsExactlyInAnyOrder(
+				tuple(SMS, SMS, SENT, null, 2L),
+				tuple(SMS, SMS, SENT, DEPARTMENT, 2L),
+				tuple(SMS, SMS, FAILED, DEPARTMENT, 2L));
+	}
+
+	@Test
+	void findAllByParametersForAllTypes() {
+		final var entries = statisticsRepository.findAllByParameters("2281", null, null, List.of(), null, null);
+
+		// Every history entry is counted once
+		assertThat(entries.stream().mapToLong(StatsEntry::count).sum()).isEqualTo(17);
 	}
 
 	@Test
 	void findAllByParametersWithFromAndTo() {
-		final var statisticsEntities = statisticsRepository.findAllByParameters(null, null, null, List.of(SMS), LocalDate.of(2024, 2, 25), LocalDate.of(2024, 2, 25));
+		final var entries = statisticsRepository.findAllByParameters(null, null, null, List.of(SMS), LocalDate.of(2024, 2, 25), LocalDate.of(2024, 2, 25));
 
-		// Assert that the map contains the expected keys
-		assertThat(statisticsEntities).extracting(StatisticEntity::getMessageType, StatisticEntity::getOriginalMessageType, StatisticEntity::getStatus)
+		assertThat(entries).extracting(StatsEntry::messageType, StatsEntry::originalMessageType, StatsEntry::status, StatsEntry::count)
 			.containsExactly(
-				tuple(SMS, SMS, SENT));
+				tuple(SMS, SMS, SENT, 1L));
 	}
 
 	@ParameterizedTest()
 	@MethodSource("provideDateParameters")
 	void findAllByParametersWithMunicipalityIdAndyOriginAndDepartment(LocalDate from, LocalDate to) {
-		final var statisticsEntities = statisticsRepository.findAllByParameters("2281", "origin1", "SBK(Gatuavdelningen, Trafiksektionen)", List.of(LETTER), from, to);
+		final var entries = statisticsRepository.findAllByParameters("2281", "origin1", DEPARTMENT, List.of(LETTER), from, to);
 
-		// Assert that the map contains the expected keys
-		assertThat(statisticsEntities).extracting(StatisticEntity::getDepartment, StatisticEntity::getMessageType, StatisticEntity::getOriginalMessageType, StatisticEntity::getStatus)
-			.containsExactly(
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, SENT),
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, FAILED));
+		assertThat(entries).extracting(StatsEntry::department, StatsEntry::messageType, StatsEntry::originalMessageType, StatsEntry::status, StatsEntry::count)
+			.containsExactlyInAnyOrder(
+				tuple(DEPARTMENT, SNAIL_MAIL, LETTER, SENT, 1L),
+				tuple(DEPARTMENT, SNAIL_MAIL, LETTER, FAILED, 1L));
 	}
 
 	@ParameterizedTest()
 	@MethodSource("provideDateParameters")
 	void findAllByParametersWithDepartment(LocalDate from, LocalDate to) {
+		final var entries = statisticsRepository.findAllByParameters("2281", null, DEPARTMENT, List.of(LETTER), from, to);
 
-		final var statisticsEntities = statisticsRepository.findAllByParameters("2281", null, "SBK(Gatuavdelningen, Trafiksektionen)", List.of(LETTER), from, to);
-
-		// Assert that the map contains the expected keys
-		assertThat(statisticsEntities).extracting(StatisticEntity::getDepartment, StatisticEntity::getMessageType, StatisticEntity::getOriginalMessageType, StatisticEntity::getStatus)
-			.containsExactly(
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, SENT),
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, SENT),
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, SENT),
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, FAILED));
+		assertThat(entries).extracting(StatsEntry::origin, StatsEntry::department, StatsEntry::messageType, StatsEntry::originalMessageType, StatsEntry::status, StatsEntry::count)
+			.containsExactlyInAnyOrder(
+				tuple(null, DEPARTMENT, SNAIL_MAIL, LETTER, SENT, 1L),
+				tuple("origin1", DEPARTMENT, SNAIL_MAIL, LETTER, SENT, 1L),
+				tuple("origin2", DEPARTMENT, SNAIL_MAIL, LETTER, SENT, 1L),
+				tuple("origin1", DEPARTMENT, SNAIL_MAIL, LETTER, FAILED, 1L));
 	}
 
 	@Test
 	void findAllByParametersWithDepartmentNoOriginAndDepartment() {
+		final var entries = statisticsRepository.findAllByParameters("2281", null, null, List.of(LETTER), null, null);
 
-		final var statisticsEntities = statisticsRepository.findAllByParameters("2281", null, null, List.of(LETTER), null, null);
-
-		// Assert that the map contains the expected keys
-		assertThat(statisticsEntities).extracting(StatisticEntity::getDepartment, StatisticEntity::getMessageType, StatisticEntity::getOriginalMessageType, StatisticEntity::getStatus)
+		// Empty and missing departments are counted together
+		assertThat(entries).extracting(StatsEntry::origin, StatsEntry::department, StatsEntry::messageType, StatsEntry::originalMessageType, StatsEntry::status, StatsEntry::count)
 			.containsExactlyInAnyOrder(
-				tuple("BOU Förskola", SNAIL_MAIL, LETTER, FAILED),
-				tuple("Kultur och fritid", SNAIL_MAIL, LETTER, FAILED),
-				tuple("Stadsbyggnadskontoret", SNAIL_MAIL, LETTER, SENT),
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, SENT),
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, SENT),
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, SENT),
-				tuple("SBK(Gatuavdelningen, Trafiksektionen)", SNAIL_MAIL, LETTER, FAILED),
-				tuple("Kommunstyrelsekontoret", SNAIL_MAIL, LETTER, SENT),
-				tuple("", SNAIL_MAIL, LETTER, SENT),
-				tuple("", SNAIL_MAIL, LETTER, FAILED),
-				tuple(null, SNAIL_MAIL, LETTER, SENT));
+				tuple("origin1", "BOU Förskola", SNAIL_MAIL, LETTER, FAILED, 1L),
+				tuple("origin1", "Kultur och fritid", SNAIL_MAIL, LETTER, FAILED, 1L),
+				tuple("origin1", "Stadsbyggnadskontoret", SNAIL_MAIL, LETTER, SENT, 1L),
+				tuple(null, DEPARTMENT, SNAIL_MAIL, LETTER, SENT, 1L),
+				tuple("origin1", DEPARTMENT, SNAIL_MAIL, LETTER, SENT, 1L),
+				tuple("origin2", DEPARTMENT, SNAIL_MAIL, LETTER, SENT, 1L),
+				tuple("origin1", DEPARTMENT, SNAIL_MAIL, LETTER, FAILED, 1L),
+				tuple("origin1", "Kommunstyrelsekontoret", SNAIL_MAIL, LETTER, SENT, 1L),
+				tuple("origin1", null, SNAIL_MAIL, LETTER, SENT, 2L),
+				tuple("origin1", null, SNAIL_MAIL, LETTER, FAILED, 1L));
 	}
 
 	@Test
 	void findAllByParametersWithMunicipalityIdAndDepartmentAndOriginAndMessageTypes() {
-		final var statisticsEntities = statisticsRepository.findAllByParameters("2281", null, "SBK(Gatuavdelningen, Trafiksektionen)", List.of(LETTER, SMS), LocalDate.of(2022, 1, 1), LocalDate.of(2024, 12, 25));
+		final var entries = statisticsRepository.findAllByParameters("2281", null, DEPARTMENT, List.of(LETTER, SMS), LocalDate.of(2022, 1, 1), LocalDate.of(2024, 12, 25));
 
-		assertThat(statisticsEntities).extracting(StatisticEntity::getMessageType, StatisticEntity::getOriginalMessageType, StatisticEntity::getDepartment, StatisticEntity::getStatus)
+		assertThat(entries).extracting(StatsEntry::messageType, StatsEntry::originalMessageType, StatsEntry::origin, StatsEntry::status, StatsEntry::count)
 			.containsExactlyInAnyOrder(
-				tuple(SNAIL_MAIL, LETTER, "SBK(Gatuavdelningen, Trafiksektionen)", SENT),
-				tuple(SNAIL_MAIL, LETTER, "SBK(Gatuavdelningen, Trafiksektionen)", SENT),
-				tuple(SNAIL_MAIL, LETTER, "SBK(Gatuavdelningen, Trafiksektionen)", SENT),
-				tuple(SNAIL_MAIL, LETTER, "SBK(Gatuavdelningen, Trafiksektionen)", FAILED),
-				tuple(SMS, SMS, "SBK(Gatuavdelningen, Trafiksektionen)", SENT),
-				tuple(SMS, SMS, "SBK(Gatuavdelningen, Trafiksektionen)", FAILED),
-				tuple(SMS, SMS, "SBK(Gatuavdelningen, Trafiksektionen)", SENT),
-				tuple(SMS, SMS, "SBK(Gatuavdelningen, Trafiksektionen)", FAILED));
+				tuple(SNAIL_MAIL, LETTER, null, SENT, 1L),
+				tuple(SNAIL_MAIL, LETTER, "origin1", SENT, 1L),
+				tuple(SNAIL_MAIL, LETTER, "origin2", SENT, 1L),
+				tuple(SNAIL_MAIL, LETTER, "origin1", FAILED, 1L),
+				tuple(SMS, SMS, null, SENT, 2L),
+				tuple(SMS, SMS, null, FAILED, 2L));
 	}
 
 }
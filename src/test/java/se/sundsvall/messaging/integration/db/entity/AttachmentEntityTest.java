@@ -0,0 +1,33 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttachmentEntityTest {
+
+	@Test
+	void testBuilder() {
+		var hash = "hash";
+		var content = "content".getBytes();
+		var createdAt = LocalDateTime.now();
+
+		var bean = AttachmentEntity.builder()
+			.withHash(hash)
+			.withContent(content)
+			.withCreatedAt(createdAt)
+			.build();
+
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.getHash()).isEqualTo(hash);
+		assertThat(bean.getContent()).isEqualTo(content);
+		assertThat(bean.getCreatedAt()).isEqualTo(createdAt);
+	}
+
+	@Test
+	void noDirtOnCreatedBean() {
+		assertThat(AttachmentEntity.builder().build()).hasAllNullFieldsOrProperties();
+		assertThat(new AttachmentEntity()).hasAllNullFieldsOrProperties();
+	}
+}
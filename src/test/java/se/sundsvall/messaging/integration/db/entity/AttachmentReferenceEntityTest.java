@@ -0,0 +1,32 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttachmentReferenceEntityTest {
+
+	@Test
+	void testBuilder() {
+		var id = 1L;
+		var contentId = 2L;
+		var hash = "hash";
+
+		var bean = AttachmentReferenceEntity.builder()
+			.withId(id)
+			.withContentId(contentId)
+			.withHash(hash)
+			.build();
+
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.getId()).isEqualTo(id);
+		assertThat(bean.getContentId()).isEqualTo(contentId);
+		assertThat(bean.getHash()).isEqualTo(hash);
+	}
+
+	@Test
+	void noDirtOnCreatedBean() {
+		assertThat(AttachmentReferenceEntity.builder().build()).hasAllNullFieldsOrProperties();
+		assertThat(new AttachmentReferenceEntity()).hasAllNullFieldsOrProperties();
+	}
+}
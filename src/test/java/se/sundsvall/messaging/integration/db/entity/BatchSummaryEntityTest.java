@@ -0,0 +1,48 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+
+class BatchSummaryEntityTest {
+
+	@Test
+	void testBuilder() {
+		var id = 1234L;
+		var municipalityId = "2281";
+		var batchId = "batchId";
+		var issuer = "issuer";
+		var subject = "subject";
+		var attachmentCount = 3;
+		var createdAt = LocalDateTime.now();
+
+		var bean = BatchSummaryEntity.builder()
+			.withId(id)
+			.withMunicipalityId(municipalityId)
+			.withBatchId(batchId)
+			.withIssuer(issuer)
+			.withOriginalMessageType(LETTER)
+			.withSubject(subject)
+			.withAttachmentCount(attachmentCount)
+			.withCreatedAt(createdAt)
+			.build();
+
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.getId()).isEqualTo(id);
+		assertThat(bean.getMunicipalityId()).isEqualTo(municipalityId);
+		assertThat(bean.getBatchId()).isEqualTo(batchId);
+		assertThat(bean.getIssuer()).isEqualTo(issuer);
+		assertThat(bean.getOriginalMessageType()).isEqualTo(LETTER);
+		assertThat(bean.getSubject()).isEqualTo(subject);
+		assertThat(bean.getAttachmentCount()).isEqualTo(attachmentCount);
+		assertThat(bean.getCreatedAt()).isEqualTo(createdAt);
+	}
+
+	@Test
+	void noDirtOnCreatedBean() {
+		assertThat(BatchSummaryEntity.builder().build()).hasAllNullFieldsOrPropertiesExcept("attachmentCount");
+		assertThat(new BatchSummaryEntity()).hasAllNullFieldsOrPropertiesExcept("attachmentCount");
+	}
+}
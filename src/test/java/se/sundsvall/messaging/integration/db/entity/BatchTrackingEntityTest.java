@@ -0,0 +1,41 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchTrackingEntityTest {
+
+	@Test
+	void testBuilder() {
+		var batchId = "batchId";
+		var municipalityId = "municipalityId";
+		var remaining = 3;
+		var sentSnailMailCount = 2;
+		var createdAt = LocalDateTime.now();
+
+		var bean = BatchTrackingEntity.builder()
+			.withBatchId(batchId)
+			.withMunicipalityId(municipalityId)
+			.withRemaining(remaining)
+			.withSentSnailMailCount(sentSnailMailCount)
+			.withTriggered(true)
+			.withCreatedAt(createdAt)
+			.build();
+
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.getBatchId()).isEqualTo(batchId);
+		assertThat(bean.getMunicipalityId()).isEqualTo(municipalityId);
+		assertThat(bean.getRemaining()).isEqualTo(remaining);
+		assertThat(bean.getSentSnailMailCount()).isEqualTo(sentSnailMailCount);
+		assertThat(bean.isTriggered()).isTrue();
+		assertThat(bean.getCreatedAt()).isEqualTo(createdAt);
+	}
+
+	@Test
+	void noDirtOnCreatedBean() {
+		assertThat(BatchTrackingEntity.builder().build()).hasAllNullFieldsOrPropertiesExcept("remaining", "sentSnailMailCount", "triggered");
+		assertThat(new BatchTrackingEntity()).hasAllNullFieldsOrPropertiesExcept("remaining", "sentSnailMailCount", "triggered");
+	}
+}
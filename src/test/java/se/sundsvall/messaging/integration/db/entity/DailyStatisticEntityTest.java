@@ -0,0 +1,51 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
+
+class DailyStatisticEntityTest {
+
+	@Test
+	void testBuilder() {
+		var id = 1234L;
+		var municipalityId = "2281";
+		var day = LocalDate.now();
+		var origin = "origin";
+		var department = "department";
+		var messageCount = 12L;
+
+		var bean = DailyStatisticEntity.builder()
+			.withId(id)
+			.withMunicipalityId(municipalityId)
+			.withDay(day)
+			.withOrigin(origin)
+			.withDepartment(department)
+			.withOriginalMessageType(LETTER)
+			.withMessageType(SNAIL_MAIL)
+			.withStatus(SENT)
+			.withMessageCount(messageCount)
+			.build();
+
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.getId()).isEqualTo(id);
+		assertThat(bean.getMunicipalityId()).isEqualTo(municipalityId);
+		assertThat(bean.getDay()).isEqualTo(day);
+		assertThat(bean.getOrigin()).isEqualTo(origin);
+		assertThat(bean.getDepartment()).isEqualTo(department);
+		assertThat(bean.getOriginalMessageType()).isEqualTo(LETTER);
+		assertThat(bean.getMessageType()).isEqualTo(SNAIL_MAIL);
+		assertThat(bean.getStatus()).isEqualTo(SENT);
+		assertThat(bean.getMessageCount()).isEqualTo(messageCount);
+	}
+
+	@Test
+	void noDirtOnCreatedBean() {
+		assertThat(DailyStatisticEntity.builder().build()).hasAllNullFieldsOrPropertiesExcept("messageCount");
+		assertThat(new DailyStatisticEntity()).hasAllNullFieldsOrPropertiesExcept("messageCount");
+	}
+}
@@ -1,9 +1,11 @@
 package se.sundsvall.messaging.integration.db.entity;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import se.sundsvall.messaging.model.Address;
+import se.sundsvall.messaging.model.HistoryMetadata;
 import se.sundsvall.messaging.model.MessageStatus;
 import se.sundsvall.messaging.model.MessageType;
 
@@ -25,6 +27,7 @@ class HistoryEntityTest {
 		var status = MessageStatus.NO_CONTACT_WANTED;
 		var statusDetail = "statusDetail";
 		var content = "content";
+		var sharedContent = MessageContentEntity.builder().withId(5678L).withContent("sharedContent").build();
 		var origin = "origin";
 		var issuer = "issuer";
 		var department = "department";
@@ -33,10 +36,17 @@ class HistoryEntityTest {
 		var destinationAddress = Address.builder().withAddress("someStreet").build();
 		var organizationNumber = "1234567890";
 		var transactionId = UUID.randomUUID().toString();
+		var metadata = HistoryMetadata.builder()
+			.withSubject("subject")
+			.withBody("body")
+			.withDestination("destination")
+			.withAttachments(List.of(new HistoryMetadata.Attachment("a.pdf", "application/pdf", 11L)))
+			.build();
 
 		var bean = HistoryEntity.builder()
 			.withBatchId(batchId)
 			.withContent(content)
+			.withSharedContent(sharedContent)
 			.withCreatedAt(createdAt)
 			.withDeliveryId(deliveryId)
 			.withDepartment(department)
@@ -53,11 +63,13 @@ class HistoryEntityTest {
 			.withDestinationAddress(destinationAddress)
 			.withOrganizationNumber(organizationNumber)
 			.withDigitalMailTransactionId(transactionId)
+			.withMetadata(metadata)
 			.build();
 
 		assertThat(bean).isNotNull().hasNoNullFieldsOrPropertiesExcept("destinationAddressJson");
 		assertThat(bean.getBatchId()).isEqualTo(batchId);
-		assertThat(bean.getContent()).isEqualTo(content);
+		assertThat(bean.getSharedContent()).isEqualTo(sharedContent);
+		assertThat(bean.getContent()).isEqualTo("sharedContent");
 		assertThat(bean.getCreatedAt()).isEqualTo(createdAt);
 		assertThat(bean.getDeliveryId()).isEqualTo(deliveryId);
 		assertThat(bean.getDepartment()).isEqualTo(department);
@@ -74,12 +86,34 @@ class HistoryEntityTest {
 		assertThat(bean.getDestinationAddress()).isEqualTo(destinationAddress);
 		assertThat(bean.getOrganizationNumber()).isEqualTo(organizationNumber);
 		assertThat(bean.getDigitalMailTransactionId()).isEqualTo(transactionId);
+		assertThat(bean.getMetadata()).isEqualTo(metadata);
+		assertThat(bean.getAttachmentCount()).isEqualTo(1);
+		assertThat(bean.isMetadataExtracted()).isTrue();
+	}
+
+	@Test
+	void setMetadataWithoutAttachments() {
+		var bean = new HistoryEntity();
+
+		bean.setMetadata(HistoryMetadata.builder().withSubject("subject").build());
+
+		assertThat(bean.isMetadataExtracted()).isTrue();
+		assertThat(bean.getAttachmentCount()).isZero();
+		assertThat(bean.getAttachmentsJson()).isNull();
+		assertThat(bean.getMetadata()).isEqualTo(HistoryMetadata.builder().withSubject("subject").build());
+	}
+
+	@Test
+	void getContentWhenNotShared() {
+		var bean = HistoryEntity.builder().withContent("content").build();
+
+		assertThat(bean.getContent()).isEqualTo("content");
 	}
 
 	@Test
 	void noDirtOnCreatedBean() {
-		assertThat(HistoryEntity.builder().build()).hasAllNullFieldsOrPropertiesExcept("additionalMetadata");
-		assertThat(new HistoryEntity()).hasAllNullFieldsOrPropertiesExcept("additionalMetadata");
+		assertThat(HistoryEntity.builder().build()).hasAllNullFieldsOrPropertiesExcept("additionalMetadata", "metadataExtracted");
+		assertThat(new HistoryEntity()).hasAllNullFieldsOrPropertiesExcept("additionalMetadata", "metadataExtracted");
 	}
 
 	@Test
@@ -0,0 +1,44 @@
+package se.sundsvall.messaging.integration.db.entity;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MessageContentEntityTest {
+
+	@Test
+	void testBuilder() {
+		var id = 1234L;
+		var content = "content";
+		var createdAt = LocalDateTime.now();
+
+		var bean = MessageContentEntity.builder()
+			.withId(id)
+			.withContent(content)
+			.withCreatedAt(createdAt)
+			.build();
+
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.getId()).isEqualTo(id);
+		assertThat(bean.getContent()).isEqualTo(content);
+		assertThat(bean.getCreatedAt()).isEqualTo(createdAt);
+	}
+
+	@Test
+	void noDirtOnCreatedBean() {
+		assertThat(MessageContentEntity.builder().build()).hasAllNullFieldsOrProperties();
+		assertThat(new MessageContentEntity()).hasAllNullFieldsOrProperties();
+	}
+
+	@Test
+	void testPrePersist() {
+		var bean = MessageContentEntity.builder().build();
+		assertThat(bean.getCreatedAt()).isNull();
+
+		bean.prePersist();
+		assertThat(bean.getCreatedAt()).isCloseTo(LocalDateTime.now(), within(1, SECONDS));
+	}
+}
@@ -22,13 +22,17 @@ class MessageEntityTest {
 		var type = MessageType.SLACK;
 		var originalMessageType = MessageType.EMAIL;
 		var status = MessageStatus.NO_CONTACT_WANTED;
-		var content = "content";
+		var content = MessageContentEntity.builder().withId(5678L).withContent("content").build();
 		var origin = "origin";
 		var issuer = "issuer";
 		var createdAt = LocalDateTime.now();
 		var municipalityId = "municipalityId";
 		var destinationAddress = Address.builder().withAddress("someAddress").build();
 		var organizationNumber = "1234567890";
+		var claimedBy = "claimedBy";
+		var claimExpiresAt = LocalDateTime.now().plusMinutes(5);
+		var statusDetail = "statusDetail";
+		var digitalMailTransactionId = "digitalMailTransactionId";
 
 		var bean = MessageEntity.builder()
 			.withBatchId(batchId)
@@ -46,11 +50,16 @@ class MessageEntityTest {
 			.withStatus(status)
 			.withDestinationAddress(destinationAddress)
 			.withOrganizationNumber(organizationNumber)
+			.withClaimedBy(claimedBy)
+			.withClaimExpiresAt(claimExpiresAt)
+			.withStatusDetail(statusDetail)
+			.withDigitalMailTransactionId(digitalMailTransactionId)
 			.build();
 
 		assertThat(bean).isNotNull().hasNoNullFieldsOrPropertiesExcept("destinationAddressJson");
 		assertThat(bean.getBatchId()).isEqualTo(batchId);
-		assertThat(bean.getContent()).isEqualTo(content);
+		assertThat(bean.getContent()).isEqualTo("content");
+		assertThat(bean.getContentId()).isEqualTo(5678L);
 		assertThat(bean.getCreatedAt()).isEqualTo(createdAt);
 		assertThat(bean.getDeliveryId()).isEqualTo(deliveryId);
 		assertThat(bean.getId()).isEqualTo(id);
@@ -64,6 +73,18 @@ class MessageEntityTest {
 		assertThat(bean.getStatus()).isEqualTo(status);
 		assertThat(bean.getDestinationAddress()).isEqualTo(destinationAddress);
 		assertThat(bean.getOrganizationNumber()).isEqualTo(organizationNumber);
+		assertThat(bean.getClaimedBy()).isEqualTo(claimedBy);
+		assertThat(bean.getClaimExpiresAt()).isEqualTo(claimExpiresAt);
+		assertThat(bean.getStatusDetail()).isEqualTo(statusDetail);
+		assertThat(bean.getDigitalMailTransactionId()).isEqualTo(digitalMailTransactionId);
+	}
+
+	@Test
+	void getContentWhenNotStored() {
+		var bean = MessageEntity.builder().build();
+
+		assertThat(bean.getContent()).isNull();
+		assertThat(bean.getContentId()).isNull();
 	}
 
 	@Test
@@ -0,0 +1,85 @@
+package se.sundsvall.messaging.integration.db.mapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import se.sundsvall.messaging.model.HistoryMetadata;
+import se.sundsvall.messaging.model.Message;
+import se.sundsvall.messaging.model.MessageType;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
+import static se.sundsvall.messaging.model.MessageType.EMAIL;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.SMS;
+import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
+import static se.sundsvall.messaging.model.MessageType.WEB_MESSAGE;
+
+class BatchSummaryMapperTest {
+
+	private static final HistoryMetadata METADATA = HistoryMetadata.builder()
+		.withSubject("subject")
+		.withAttachments(List.of(new HistoryMetadata.Attachment("a.pdf", null, 5L), new HistoryMetadata.Attachment("b.pdf", null, 5L)))
+		.build();
+
+	@Test
+	void toBatchSummaryEntity() {
+		final var message = Message.builder()
+			.withMunicipalityId("2281")
+			.withBatchId("batchId")
+			.withIssuer("issuer")
+			.withType(DIGITAL_MAIL)
+			.withOriginalType(LETTER)
+			.build();
+
+		final var bean = BatchSummaryMapper.toBatchSummaryEntity(message, METADATA);
+
+		assertThat(bean).isNotNull().hasAllNullFieldsOrPropertiesExcept("municipalityId", "batchId", "issuer", "originalMessageType", "subject", "attachmentCount", "createdAt");
+		assertThat(bean.getMunicipalityId()).isEqualTo("2281");
+		assertThat(bean.getBatchId()).isEqualTo("batchId");
+		assertThat(bean.getIssuer()).isEqualTo("issuer");
+		assertThat(bean.getOriginalMessageType()).isEqualTo(LETTER);
+		assertThat(bean.getSubject()).isEqualTo("subject");
+		assertThat(bean.getAttachmentCount()).isEqualTo(2);
+		assertThat(bean.getCreatedAt()).isCloseTo(LocalDateTime.now(), within(2, SECONDS));
+	}
+
+	@ParameterizedTest
+	@MethodSource("typeArgumentProvider")
+	void toBatchSummaryEntityPerType(final MessageType originalType, final String expectedSubject) {
+		final var bean = BatchSummaryMapper.toBatchSummaryEntity(Message.builder().withBatchId("batchId").withOriginalType(originalType).build(), METADATA);
+
+		assertThat(bean.getSubject()).isEqualTo(expectedSubject);
+		assertThat(bean.getAttachmentCount()).isEqualTo(2);
+	}
+
+	private static Stream<Arguments> typeArgumentProvider() {
+		return Stream.of(
+			Arguments.of(DIGITAL_MAIL, "subject"),
+			Arguments.of(EMAIL, "subject"),
+			Arguments.of(LETTER, "subject"),
+			Arguments.of(SNAIL_MAIL, null),
+			Arguments.of(WEB_MESSAGE, null),
+			Arguments.of(SMS, null));
+	}
+
+	@Test
+	void toBatchSummaryEntityWithEmptyMetadata() {
+		final var bean = BatchSummaryMapper.toBatchSummaryEntity(Message.builder().withBatchId("batchId").withOriginalType(EMAIL).build(), HistoryMetadata.builder().build());
+
+		assertThat(bean.getSubject()).isNull();
+		assertThat(bean.getAttachmentCount()).isZero();
+	}
+
+	@Test
+	void toBatchSummaryEntityWithoutBatch() {
+		assertThat(BatchSummaryMapper.toBatchSummaryEntity(Message.builder().withOriginalType(EMAIL).build(), METADATA)).isNull();
+		assertThat(BatchSummaryMapper.toBatchSummaryEntity(null, METADATA)).isNull();
+	}
+}
@@ -7,13 +7,17 @@ import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import se.sundsvall.messaging.api.model.response.Batch;
 import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
+import se.sundsvall.messaging.integration.db.projection.HistoryExportProjection;
 import se.sundsvall.messaging.model.Address;
+import se.sundsvall.messaging.model.HistoryMetadata;
 import se.sundsvall.messaging.model.Message;
-import se.sundsvall.messaging.util.PagingUtil;
 
 import static org.assertj.core.api.Assertions.within;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
-import static org.assertj.core.api.InstanceOfAssertFactories.LIST;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static se.sundsvall.messaging.model.MessageStatus.FAILED;
 import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
 import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
@@ -61,9 +65,24 @@ class HistoryMapperTest {
 		assertThat(history.digitalMailTransactionId()).isEqualTo(historyEntity.getDigitalMailTransactionId());
 	}
 
+	@Test
+	void mapToHistoryEntityWithSharedContent() {
+		final var message = Message.builder()
+			.withMessageId("someMessageId")
+			.withContent("{\"department\":\"department\"}")
+			.withContentId(123L)
+			.build();
+
+		final var historyEntity = HistoryMapper.mapToHistoryEntity(message, null, null);
+
+		assertThat(historyEntity.getMessageId()).isEqualTo(message.messageId());
+		assertThat(historyEntity.getContent()).isNull();
+		assertThat(historyEntity.getDepartment()).isEqualTo("department");
+	}
+
 	@Test
 	void mapToHistoryEntityWhenMessageIsNull() {
-		assertThat(HistoryMapper.mapToHistoryEntity(null, null)).isNull();
+		assertThat(HistoryMapper.mapToHistoryEntity(null, null, null)).isNull();
 	}
 
 	@Test
@@ -86,10 +105,17 @@ class HistoryMapperTest {
 			.withOrganizationNumber("1234567890")
 			.withDigitalMailTransactionId(UUID.randomUUID().toString())
 			.build();
+		final var metadata = HistoryMetadata.builder()
+			.withSubject("someSubject")
+			.withBody("someBody")
+			.withDestination("someDestination")
+			.withAttachments(List.of(new HistoryMetadata.Attachment("someFileName", "application/pdf", 11L)))
+			.withDepartment("department")
+			.build();
 
-		final var historyEntity = HistoryMapper.mapToHistoryEntity(message, statusDetail);
+		final var historyEntity = HistoryMapper.mapToHistoryEntity(message, statusDetail, metadata);
 
-		assertThat(historyEntity).isNotNull().hasNoNullFieldsOrPropertiesExcept("id", "destinationAddressJson");
+		assertThat(historyEntity).isNotNull().hasNoNullFieldsOrPropertiesExcept("id", "sharedContent", "destinationAddressJson");
 		assertThat(historyEntity.getBatchId()).isEqualTo(message.batchId());
 		assertThat(historyEntity.getMessageId()).isEqualTo(message.messageId());
 		assertThat(historyEntity.getDeliveryId()).isEqualTo(message.deliveryId());
@@ -107,6 +133,7 @@ class HistoryMapperTest {
 		assertThat(historyEntity.getDestinationAddress()).isEqualTo(address);
 		assertThat(historyEntity.getOrganizationNumber()).isEqualTo(message.organizationNumber());
 		assertThat(historyEntity.getDigitalMailTransactionId()).isEqualTo(message.digitalMailTransactionId());
+		assertThat(historyEntity.getMetadata()).usingRecursiveComparison().ignoringFields("department").isEqualTo(metadata);
 	}
 
 	@Test
@@ -126,7 +153,7 @@ class HistoryMapperTest {
 			.withDigitalMailTransactionId(UUID.randomUUID().toString())
 			.build();
 
-		final var historyEntity = HistoryMapper.mapToHistoryEntity(message, statusDetail);
+		final var historyEntity = HistoryMapper.mapToHistoryEntity(message, statusDetail, null);
 
 		assertThat(historyEntity.getBatchId()).isEqualTo(message.batchId());
 		assertThat(historyEntity.getMessageId()).isEqualTo(message.messageId());
@@ -159,7 +186,7 @@ class HistoryMapperTest {
 			.withDigitalMailTransactionId(UUID.randomUUID().toString())
 			.build();
 
-		final var historyEntity = HistoryMapper.mapToHistoryEntity(message, statusDetail);
+		final var historyEntity = HistoryMapper.mapToHistoryEntity(message, statusDetail, null);
 
 		assertThat(historyEntity.getBatchId()).isEqualTo(message.batchId());
 		assertThat(historyEntity.getMessageId()).isEqualTo(message.messageId());
@@ -212,82 +239,43 @@ class HistoryMapperTest {
 	}
 
 	@Test
-	void toUserBatchesPage1Limit1() {
-		final var firstBatch = Batch.builder().build();
-		final var secondBatch = Batch.builder().build();
-		final var batches = List.of(firstBatch, secondBatch);
-
-		final var page = PagingUtil.toPage(1, 1, batches);
-
-		final var bean = HistoryMapper.toUserBatches(page, 1);
-
-		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
-		assertThat(bean.metaData().getCount()).isEqualTo(1);
-		assertThat(bean.metaData().getLimit()).isEqualTo(1);
-		assertThat(bean.metaData().getPage()).isEqualTo(1);
-		assertThat(bean.metaData().getTotalPages()).isEqualTo(2);
-		assertThat(bean.metaData().getTotalRecords()).isEqualTo(2);
-
-		assertThat(bean.batches()).asInstanceOf(LIST).hasSize(1).containsExactly(firstBatch);
-	}
-
-	@Test
-	void toUserBatchesPage2Limit1() {
-		final var firstBatch = Batch.builder().build();
-		final var secondBatch = Batch.builder().build();
-		final var batches = List.of(firstBatch, secondBatch);
-
-		final var page = PagingUtil.toPage(2, 1, batches);
-
-		final var bean = HistoryMapper.toUserBatches(page, 2);
-
-		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
-		assertThat(bean.metaData().getCount()).isEqualTo(1);
-		assertThat(bean.metaData().getLimit()).isEqualTo(1);
-		assertThat(bean.metaData().getPage()).isEqualTo(2);
-		assertThat(bean.metaData().getTotalPages()).isEqualTo(2);
-		assertThat(bean.metaData().getTotalRecords()).isEqualTo(2);
-
-		assertThat(bean.batches()).asInstanceOf(LIST).hasSize(1).containsExactly(secondBatch);
-	}
-
-	@Test
-	void toUserBatchesPage1Limit2() {
-		final var firstBatch = Batch.builder().build();
-		final var secondBatch = Batch.builder().build();
-		final var batches = List.of(firstBatch, secondBatch);
-
-		final var page = PagingUtil.toPage(1, 2, batches);
-
-		final var bean = HistoryMapper.toUserBatches(page, 1);
-
-		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
-		assertThat(bean.metaData().getCount()).isEqualTo(2);
-		assertThat(bean.metaData().getLimit()).isEqualTo(2);
-		assertThat(bean.metaData().getPage()).isEqualTo(1);
-		assertThat(bean.metaData().getTotalPages()).isEqualTo(1);
-		assertThat(bean.metaData().getTotalRecords()).isEqualTo(2);
-
-		assertThat(bean.batches()).asInstanceOf(LIST).hasSize(2).containsExactly(firstBatch, secondBatch);
-	}
-
-	@Test
-	void toUserBatchesPage2Limit2() {
-		final var firstBatch = Batch.builder().build();
-		final var secondBatch = Batch.builder().build();
-		final var batches = List.of(firstBatch, secondBatch);
-
-		final var page = PagingUtil.toPage(2, 2, batches);
-
-		final var bean = HistoryMapper.toUserBatches(page, 2);
-
-		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
-		assertThat(bean.metaData().getCount()).isZero();
-		assertThat(bean.metaData().getLimit()).isEqualTo(2);
-		assertThat(bean.metaData().getPage()).isEqualTo(2);
-		assertThat(bean.metaData().getTotalPages()).isEqualTo(1);
-		assertThat(bean.metaData().getTotalRecords()).isEqualTo(2);
-
-		assertThat(bean.batches()).asInstanceOf(LIST).isEmpty();
+	void toHistoryExportEntry() {
+		final var createdAt = LocalDateTime.now();
+		final var projection = mock(HistoryExportProjection.class);
+		when(projection.getBatchId()).thenReturn("batchId");
+		when(projection.getMessageId()).thenReturn("messageId");
+		when(projection.getDeliveryId()).thenReturn("deliveryId");
+		when(projection.getPartyId()).thenReturn("partyId");
+		when(projection.getMessageType()).thenReturn(SNAIL_MAIL);
+		when(projection.getOriginalMessageType()).thenReturn(DIGITAL_MAIL);
+		when(projection.getStatus()).thenReturn(FAILED);
+		when(projection.getOrigin()).thenReturn("origin");
+		when(projection.getIssuer()).thenReturn("issuer");
+		when(projection.getDepartment()).thenReturn("department");
+		when(projection.getCreatedAt()).thenReturn(createdAt);
+		when(projection.getOrganizationNumber()).thenReturn("organizationNumber");
+		when(projection.getSubject()).thenReturn("subject");
+		when(projection.getDestination()).thenReturn("destination");
+		when(projection.getAttachmentCount()).thenReturn(2);
+
+		final var bean = HistoryMapper.toHistoryExportEntry(projection);
+
+		assertThat(bean).isNotNull().hasNoNullFieldsOrPropertiesExcept("content");
+		assertThat(bean.batchId()).isEqualTo("batchId");
+		assertThat(bean.messageId()).isEqualTo("messageId");
+		assertThat(bean.deliveryId()).isEqualTo("deliveryId");
+		assertThat(bean.partyId()).isEqualTo("partyId");
+		assertThat(bean.messageType()).isEqualTo(SNAIL_MAIL);
+		assertThat(bean.originalMessageType()).isEqualTo(DIGITAL_MAIL);
+		assertThat(bean.status()).isEqualTo(FAILED);
+		assertThat(bean.origin()).isEqualTo("origin");
+		assertThat(bean.issuer()).isEqualTo("issuer");
+		assertThat(bean.department()).isEqualTo("department");
+		assertThat(bean.createdAt()).isEqualTo(createdAt);
+		assertThat(bean.organizationNumber()).isEqualTo("organizationNumber");
+		assertThat(bean.subject()).isEqualTo("subject");
+		assertThat(bean.destination()).isEqualTo("destination");
+		assertThat(bean.attachmentCount()).isEqualTo(2);
+		verify(projection, never()).getContent();
 	}
 }
@@ -0,0 +1,329 @@
+package se.sundsvall.messaging.integration.db.mapper;
+
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import se.sundsvall.messaging.integration.db.projection.UserMessageHistoryProjection;
+import se.sundsvall.messaging.model.HistoryMetadata;
+import se.sundsvall.messaging.model.MessageType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.when;
+import static se.sundsvall.messaging.model.MessageType.DIGITAL_INVOICE;
+import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
+import static se.sundsvall.messaging.model.MessageType.EMAIL;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.MESSAGE;
+import static se.sundsvall.messaging.model.MessageType.SLACK;
+import static se.sundsvall.messaging.model.MessageType.SMS;
+import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
+import static se.sundsvall.messaging.model.MessageType.WEB_MESSAGE;
+
+class HistoryMetadataMapperTest {
+
+	private static final String EMPTY_ATTACHMENT = """
+		{
+		  "attachments": []
+		}
+		""";
+
+	private static final String NO_ATTACHMENT = """
+		{
+		}
+		""";
+
+	@Test
+	void toHistoryMetadata() {
+		final var content = """
+			{
+			  "mobileNumber": "+46701234567",
+			  "attachments": [
+			    {
+			      "content": "aGVsbG8gd29ybGQK",
+			      "metadata": { "pages": [1, 2] },
+			      "filename": "someFileName",
+			      "contentType": "application/pdf"
+			    },
+			    {
+			      "filename": "otherFileName",
+			      "contentType": "text/plain",
+			      "content": "sha256:someHash"
+			    }
+			  ],
+			  "sender": { "subject": "notTheSubject" },
+			  "subject": "someSubject",
+			  "message": "someMessage",
+			  "department": "someDepartment"
+			}
+			""";
+
+		final var result = HistoryMetadataMapper.toHistoryMetadata(DIGITAL_MAIL, content, reference -> 42L);
+
+		assertThat(result.subject()).isEqualTo("someSubject");
+		assertThat(result.body()).isEqualTo("someMessage");
+		assertThat(result.destination()).isEqualTo("+46701234567");
+		assertThat(result.department()).isEqualTo("someDepartment");
+		assertThat(result.attachmentCount()).isEqualTo(2);
+		assertThat(result.attachments()).extracting(HistoryMetadata.Attachment::name, HistoryMetadata.Attachment::contentType, HistoryMetadata.Attachment::size)
+			.containsExactly(tuple("someFileName", "application/pdf", 12L), tuple("otherFileName", "text/plain", 42L));
+	}
+
+	@Test
+	void toHistoryMetadataForEmail() {
+		final var content = """
+			{"emailAddress":"someone@example.com","subject":"%s"}
+			""".formatted("x".repeat(1100));
+
+		final var result = HistoryMetadataMapper.toHistoryMetadata(EMAIL, content);
+
+		assertThat(result.destination()).isEqualTo("someone@example.com");
+		assertThat(result.subject()).hasSize(1000);
+	}
+
+	@Test
+	void toHistoryMetadataWhenSizeOfReferenceIsUnknown() {
+		final var content = """
+			{"attachments":[{"filename":"a.pdf","content":"sha256:someHash"},{"filename":"b.pdf","content":"sha256:otherHash"}]}
+			""";
+
+		final var withoutReferenceSize = HistoryMetadataMapper.toHistoryMetadata(LETTER, content);
+		final var withFailingReferenceSize = HistoryMetadataMapper.toHistoryMetadata(LETTER, content, reference -> {
+			throw new IllegalStateException("Not found");
+		});
+
+		assertThat(withoutReferenceSize.attachments()).extracting(HistoryMetadata.Attachment::name, HistoryMetadata.Attachment::size)
+			.containsExactly(tuple("a.pdf", null), tuple("b.pdf", null));
+		assertThat(withFailingReferenceSize).isEqualTo(withoutReferenceSize);
+	}
+
+	@ParameterizedTest
+	@NullAndEmptySource
+	@ValueSource(strings = {
+		" ", "not json", "[]"
+	})
+	void toHistoryMetadataWhenContentIsMissingOrNotJson(final String content) {
+		final var result = HistoryMetadataMapper.toHistoryMetadata(SMS, content);
+
+		assertThat(result).isEqualTo(HistoryMetadata.builder().build());
+		assertThat(result.attachmentCount()).isZero();
+	}
+
+	@Test
+	void toHistoryMetadataFromProjection() {
+		final var projection = Mockito.mock(UserMessageHistoryProjection.class);
+		when(projection.getMetadataExtracted()).thenReturn(true);
+		when(projection.getSubject()).thenReturn("someSubject");
+		when(projection.getBody()).thenReturn("someBody");
+		when(projection.getDestination()).thenReturn("someDestination");
+		when(projection.getAttachmentsJson()).thenReturn("[{\"name\":\"a.pdf\",\"contentType\":\"application/pdf\",\"size\":11}]");
+
+		final var result = HistoryMetadataMapper.toHistoryMetadata(projection);
+
+		assertThat(result).isEqualTo(HistoryMetadata.builder()
+			.withSubject("someSubject")
+			.withBody("someBody")
+			.withDestination("someDestination")
+			.withAttachments(List.of(new HistoryMetadata.Attachment("a.pdf", "application/pdf", 11L)))
+			.build());
+	}
+
+	@Test
+	void toHistoryMetadataFromProjectionWhenNotExtracted() {
+		final var projection = Mockito.mock(UserMessageHistoryProjection.class);
+		when(projection.getMetadataExtracted()).thenReturn(false);
+
+		assertThat(HistoryMetadataMapper.toHistoryMetadata(projection)).isNull();
+	}
+
+	@Test
+	void testGetAttachmentForEmail() {
+		final var content = """
+			{
+			  "attachments": [
+			    {
+			      "name": "test.pdf",
+			      "contentType": "application/pdf",
+			      "content": "aGVsbG8gd29ybGQK"
+			    }
+			  ]
+			}
+			""";
+
+		final var attachments = HistoryMetadataMapper.toHistoryMetadata(EMAIL, content).attachments();
+		assertThat(attachments).isNotNull().hasSize(1);
+		assertThat(attachments.getFirst().name()).isEqualTo("test.pdf");
+		assertThat(attachments.getFirst().contentType()).isEqualTo("application/pdf");
+	}
+
+	@Test
+	void testGetAttachmentForWebMessage() {
+		final var content = """
+			{
+			  "attachments": [
+			    {
+			      "fileName": "test.pdf",
+			      "mimeType": "application/pdf",
+			      "base64Data": "aGVsbG8gd29ybGQK"
+			    }
+			  ]
+			}
+			""";
+
+		final var attachments = HistoryMetadataMapper.toHistoryMetadata(WEB_MESSAGE, content).attachments();
+		assertThat(attachments).isNotNull().hasSize(1);
+		assertThat(attachments.getFirst().name()).isEqualTo("test.pdf");
+		assertThat(attachments.getFirst().contentType()).isEqualTo("application/pdf");
+		assertThat(attachments.getFirst().size()).isEqualTo(12L);
+	}
+
+	@Test
+	void testGetAttachmentForDigitalMail() {
+		final var content = """
+			{
+			  "attachments": [
+			    {
+			      "filename": "test.pdf",
+			      "contentType": "application/pdf",
+			      "content": "aGVsbG8gd29ybGQK"
+			    }
+			  ]
+			}
+			""";
+
+		final var attachments = HistoryMetadataMapper.toHistoryMetadata(DIGITAL_MAIL, content).attachments();
+		assertThat(attachments).isNotNull().hasSize(1);
+		assertThat(attachments.getFirst().name()).isEqualTo("test.pdf");
+		assertThat(attachments.getFirst().contentType()).isEqualTo("application/pdf");
+	}
+
+	@Test
+	void testGetAttachmentForDigitalInvoice() {
+		final var content = """
+			{
+			  "files": [
+			       {
+			         "filename": "test.pdf",
+			         "contentType": "application/pdf",
+			         "content": "aGVsbG8gd29ybGQK"
+			       }
+			     ]
+			}
+			""";
+
+		final var attachments = HistoryMetadataMapper.toHistoryMetadata(DIGITAL_INVOICE, content).attachments();
+		assertThat(attachments).isNotNull().hasSize(1);
+		assertThat(attachments.getFirst().name()).isEqualTo("test.pdf");
+		assertThat(attachments.getFirst().contentType()).isEqualTo("application/pdf");
+	}
+
+	@Test
+	void testGetAttachmentForLetter() {
+		final var content = """
+			{
+			  "attachments": [
+			       {
+			         "filename": "test.pdf",
+			         "contentType": "application/pdf",
+			         "content": "aGVsbG8gd29ybGQK",
+			         "deliveryMode": "ANY"
+			       }
+			     ]
+			}
+			""";
+
+		final var attachments = HistoryMetadataMapper.toHistoryMetadata(LETTER, content).attachments();
+		assertThat(attachments).isNotNull().hasSize(1);
+		assertThat(attachments.getFirst().name()).isEqualTo("test.pdf");
+		assertThat(attachments.getFirst().contentType()).isEqualTo("application/pdf");
+	}
+
+	@ParameterizedTest
+	@MethodSource("attachmentSource")
+	void testGetMissingOrEmptyAttachments_shouldReturnEmptyAttachments(final MessageType messageType, final String content) {
+		assertThat(HistoryMetadataMapper.toHistoryMetadata(messageType, content).attachments()).isEmpty();
+	}
+
+	@ParameterizedTest
+	@MethodSource("attachmentFieldProvider")
+	void testGetAttachmentField(final MessageType messageType, final String attachmentFieldName) {
+		assertThat(HistoryMetadataMapper.getAttachmentsField(messageType)).isEqualTo(attachmentFieldName);
+	}
+
+	@ParameterizedTest
+	@MethodSource("fileNameFieldProvider")
+	void testGetFileNameField(final MessageType messageType, final String attachmentFieldName) {
+		assertThat(HistoryMetadataMapper.getFileNameField(messageType)).isEqualTo(attachmentFieldName);
+	}
+
+	@ParameterizedTest
+	@MethodSource("contentTypeFieldProvider")
+	void testGetContentTypeField(final MessageType messageType, final String attachmentFieldName) {
+		assertThat(HistoryMetadataMapper.getContentTypeField(messageType)).isEqualTo(attachmentFieldName);
+	}
+
+	private static Stream<Arguments> attachmentSource() {
+		return Stream.of(
+			Arguments.of(EMAIL, EMPTY_ATTACHMENT),
+			Arguments.of(EMAIL, NO_ATTACHMENT),
+			Arguments.of(EMAIL, null),
+			Arguments.of(WEB_MESSAGE, EMPTY_ATTACHMENT),
+			Arguments.of(WEB_MESSAGE, NO_ATTACHMENT),
+			Arguments.of(WEB_MESSAGE, null),
+			Arguments.of(DIGITAL_MAIL, EMPTY_ATTACHMENT),
+			Arguments.of(DIGITAL_MAIL, NO_ATTACHMENT),
+			Arguments.of(DIGITAL_MAIL, null),
+			Arguments.of(DIGITAL_INVOICE, EMPTY_ATTACHMENT),
+			Arguments.of(DIGITAL_INVOICE, NO_ATTACHMENT),
+			Arguments.of(DIGITAL_INVOICE, null),
+			// These cannot have attachments
+			Arguments.of(MESSAGE, null),
+			Arguments.of(SMS, EMPTY_ATTACHMENT),
+			Arguments.of(SLACK, null));
+	}
+
+	private static Stream<Arguments> attachmentFieldProvider() {
+		return Stream.of(
+			Arguments.of(MESSAGE, null),
+			Arguments.of(EMAIL, "attachments"),
+			Arguments.of(SMS, null),
+			Arguments.of(WEB_MESSAGE, "attachments"),
+			Arguments.of(DIGITAL_MAIL, "attachments"),
+			Arguments.of(DIGITAL_INVOICE, "files"),
+			Arguments.of(SNAIL_MAIL, "attachments"),
+			Arguments.of(LETTER, "attachments"),
+			Arguments.of(SLACK, null));
+	}
+
+	private static Stream<Arguments> fileNameFieldProvider() {
+		return Stream.of(
+			Arguments.of(MESSAGE, null),
+			Arguments.of(EMAIL, "name"),
+			Arguments.of(SMS, null),
+			Arguments.of(WEB_MESSAGE, "fileName"),
+			Arguments.of(DIGITAL_MAIL, "filename"),
+			Arguments.of(DIGITAL_INVOICE, "filename"),
+			Arguments.of(SNAIL_MAIL, "filename"),
+			Arguments.of(LETTER, "filename"),
+			Arguments.of(SLACK, null));
+	}
+
+	private static Stream<Arguments> contentTypeFieldProvider() {
+		return Stream.of(
+			Arguments.of(MESSAGE, null),
+			Arguments.of(EMAIL, "contentType"),
+			Arguments.of(SMS, null),
+			Arguments.of(WEB_MESSAGE, "mimeType"),
+			Arguments.of(DIGITAL_MAIL, "contentType"),
+			Arguments.of(DIGITAL_INVOICE, "contentType"),
+			Arguments.of(SNAIL_MAIL, "contentType"),
+			Arguments.of(LETTER, "contentType"),
+			Arguments.of(SLACK, null));
+	}
+}
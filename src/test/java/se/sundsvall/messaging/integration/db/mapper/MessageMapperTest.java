@@ -1,6 +1,7 @@
 package se.sundsvall.messaging.integration.db.mapper;
 
 import org.junit.jupiter.api.Test;
+import se.sundsvall.messaging.integration.db.entity.MessageContentEntity;
 import se.sundsvall.messaging.integration.db.entity.MessageEntity;
 import se.sundsvall.messaging.model.Address;
 import se.sundsvall.messaging.model.Message;
@@ -22,10 +23,12 @@ class MessageMapperTest {
 	private static final MessageType ORIGINAL_TYPE = DIGITAL_MAIL;
 	private static final MessageStatus STATUS = FAILED;
 	private static final String CONTENT = "someContent";
+	private static final Long CONTENT_ID = 123L;
 	private static final String ORIGIN = "someOrigin";
 	private static final String ISSUER = "someIssuer";
 	private static final String MUNICIPALITY_ID = "someMunicipalityId";
 	private static final String ORGANIZATION_NUMBER = "2120002411";
+	private static final String DIGITAL_MAIL_TRANSACTION_ID = "someTransactionId";
 
 	@Test
 	void mapToMessageWhenMessageEntityIsNull() {
@@ -42,16 +45,17 @@ class MessageMapperTest {
 			.withType(TYPE)
 			.withOriginalMessageType(ORIGINAL_TYPE)
 			.withStatus(STATUS)
-			.withContent(CONTENT)
+			.withContent(MessageContentEntity.builder().withId(CONTENT_ID).withContent(CONTENT).build())
 			.withOrigin(ORIGIN)
 			.withIssuer(ISSUER)
 			.withMunicipalityId(MUNICIPALITY_ID)
 			.withOrganizationNumber(ORGANIZATION_NUMBER)
+			.withDigitalMailTransactionId(DIGITAL_MAIL_TRANSACTION_ID)
 			.build();
 
 		var message = MessageMapper.mapToMessage(messageEntity);
 
-		assertThat(message).isNotNull().hasNoNullFieldsOrPropertiesExcept("address", "digitalMailTransactionId");
+		assertThat(message).isNotNull().hasNoNullFieldsOrPropertiesExcept("address");
 		assertThat(message.batchId()).isEqualTo(BATCH_ID);
 		assertThat(message.messageId()).isEqualTo(MESSAGE_ID);
 		assertThat(message.deliveryId()).isEqualTo(DELIVERY_ID);
@@ -60,10 +64,24 @@ class MessageMapperTest {
 		assertThat(message.originalType()).isEqualTo(ORIGINAL_TYPE);
 		assertThat(message.status()).isEqualTo(STATUS);
 		assertThat(message.content()).isEqualTo(CONTENT);
+		assertThat(message.contentId()).isEqualTo(CONTENT_ID);
 		assertThat(message.origin()).isEqualTo(ORIGIN);
 		assertThat(message.issuer()).isEqualTo(ISSUER);
 		assertThat(message.municipalityId()).isEqualTo(MUNICIPALITY_ID);
 		assertThat(message.organizationNumber()).isEqualTo(ORGANIZATION_NUMBER);
+		assertThat(message.digitalMailTransactionId()).isEqualTo(DIGITAL_MAIL_TRANSACTION_ID);
+	}
+
+	@Test
+	void mapToMessageWithoutContent() {
+		var messageEntity = MessageEntity.builder()
+			.withBatchId(BATCH_ID)
+			.build();
+
+		var message = MessageMapper.mapToMessage(messageEntity);
+
+		assertThat(message.content()).isNull();
+		assertThat(message.contentId()).isNull();
 	}
 
 	@Test
@@ -92,7 +110,8 @@ class MessageMapperTest {
 
 		var messageEntity = MessageMapper.mapToMessageEntity(message);
 
-		assertThat(messageEntity).isNotNull().hasNoNullFieldsOrPropertiesExcept("id", "createdAt", "destinationAddressJson");
+		assertThat(messageEntity).isNotNull().hasNoNullFieldsOrPropertiesExcept("id", "content", "contentId", "createdAt", "destinationAddressJson", "claimedBy", "claimExpiresAt", "statusDetail",
+			"digitalMailTransactionId");
 		assertThat(messageEntity.getBatchId()).isEqualTo(BATCH_ID);
 		assertThat(messageEntity.getMessageId()).isEqualTo(MESSAGE_ID);
 		assertThat(messageEntity.getDeliveryId()).isEqualTo(DELIVERY_ID);
@@ -100,7 +119,8 @@ class MessageMapperTest {
 		assertThat(messageEntity.getType()).isEqualTo(TYPE);
 		assertThat(messageEntity.getOriginalMessageType()).isEqualTo(ORIGINAL_TYPE);
 		assertThat(messageEntity.getStatus()).isEqualTo(STATUS);
-		assertThat(messageEntity.getContent()).isEqualTo(CONTENT);
+		// The content is stored apart from the message, by the caller
+		assertThat(messageEntity.getContent()).isNull();
 		assertThat(messageEntity.getOrigin()).isEqualTo(ORIGIN);
 		assertThat(messageEntity.getIssuer()).isEqualTo(ISSUER);
 		assertThat(messageEntity.getMunicipalityId()).isEqualTo(MUNICIPALITY_ID);
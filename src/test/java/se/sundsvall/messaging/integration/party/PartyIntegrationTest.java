@@ -1,28 +1,49 @@
 package se.sundsvall.messaging.integration.party;
 
 import generated.se.sundsvall.party.PartyType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import se.sundsvall.messaging.configuration.PartyCacheProperties;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static se.sundsvall.messaging.integration.party.PartyIntegration.CACHE_NAME;
 
 @ExtendWith(MockitoExtension.class)
 class PartyIntegrationTest {
 
+	private static final PartyCacheProperties CACHE_PROPERTIES = new PartyCacheProperties(100, Duration.ofHours(1), Duration.ofHours(24));
+
 	@Mock
 	private PartyClient partyClientMock;
 
-	@InjectMocks
+	private SimpleMeterRegistry meterRegistry;
+
 	private PartyIntegration partyIntegration;
 
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		partyIntegration = new PartyIntegration(partyClientMock, CACHE_PROPERTIES, meterRegistry);
+	}
+
+	@AfterEach
+	void verifyNoMoreMockInteractions() {
+		verifyNoMoreInteractions(partyClientMock);
+	}
+
 	@Test
 	void getLegalIdByPartyIdTest_1() {
 		var municipalityId = "2281";
@@ -33,7 +54,6 @@ class PartyIntegrationTest {
 
 		assertThat(result).isNotNull().isEqualTo("1234567890");
 		verify(partyClientMock).getLegalIdByPartyId(municipalityId, PartyType.PRIVATE, partyId);
-		verifyNoMoreInteractions(partyClientMock);
 	}
 
 	@Test
@@ -48,7 +68,66 @@ class PartyIntegrationTest {
 		assertThat(result).isNotNull().isEqualTo("1234567890");
 		verify(partyClientMock).getLegalIdByPartyId(municipalityId, PartyType.PRIVATE, partyId);
 		verify(partyClientMock).getLegalIdByPartyId(municipalityId, PartyType.ENTERPRISE, partyId);
-		verifyNoMoreInteractions(partyClientMock);
 	}
 
+	@Test
+	void getLegalIdByPartyIdIsCached() {
+		var municipalityId = "2281";
+		var partyId = UUID.randomUUID().toString();
+		when(partyClientMock.getLegalIdByPartyId(municipalityId, PartyType.PRIVATE, partyId)).thenReturn(Optional.of("1234567890"));
+
+		var result1 = partyIntegration.getLegalIdByPartyId(municipalityId, partyId);
+		var result2 = partyIntegration.getLegalIdByPartyId(municipalityId, partyId);
+
+		assertThat(result1).isEqualTo("1234567890");
+		assertThat(result2).isEqualTo("1234567890");
+		assertThat(meterRegistry.get("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").functionCounter().count()).isOne();
+		assertThat(meterRegistry.get("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").functionCounter().count()).isOne();
+		verify(partyClientMock).getLegalIdByPartyId(municipalityId, PartyType.PRIVATE, partyId);
+	}
+
+	@Test
+	void getLegalIdByPartyIdIsCachedPerMunicipality() {
+		var partyId = UUID.randomUUID().toString();
+		when(partyClientMock.getLegalIdByPartyId("2281", PartyType.PRIVATE, partyId)).thenReturn(Optional.of("1234567890"));
+		when(partyClientMock.getLegalIdByPartyId("2260", PartyType.PRIVATE, partyId)).thenReturn(Optional.of("1234567890"));
+
+		partyIntegration.getLegalIdByPartyId("2281", partyId);
+		partyIntegration.getLegalIdByPartyId("2260", partyId);
+
+		verify(partyClientMock).getLegalIdByPartyId("2281", PartyType.PRIVATE, partyId);
+		verify(partyClientMock).getLegalIdByPartyId("2260", PartyType.PRIVATE, partyId);
+	}
+
+	@Test
+	void getLegalIdByPartyIdWhenNotFoundIsNotCached() {
+		var municipalityId = "2281";
+		var partyId = UUID.randomUUID().toString();
+		when(partyClientMock.getLegalIdByPartyId(municipalityId, PartyType.PRIVATE, partyId)).thenReturn(Optional.empty());
+		when(partyClientMock.getLegalIdByPartyId(municipalityId, PartyType.ENTERPRISE, partyId)).thenReturn(Optional.empty());
+
+		assertThat(partyIntegration.getLegalIdByPartyId(municipalityId, partyId)).isNull();
+		assertThat(partyIntegration.getLegalIdByPartyId(municipalityId, partyId)).isNull();
+
+		verify(partyClientMock, times(2)).getLegalIdByPartyId(municipalityId, PartyType.PRIVATE, partyId);
+		verify(partyClientMock, times(2)).getLegalIdByPartyId(municipalityId, PartyType.ENTERPRISE, partyId);
+	}
+
+	@Test
+	void getLegalIdByPartyIdRefreshTriesKnownPartyTypeFirst() {
+		var municipalityId = "2281";
+		var partyId = UUID.randomUUID().toString();
+		partyIntegration = new PartyIntegration(partyClientMock, new PartyCacheProperties(100, Duration.ofNanos(1), Duration.ofHours(24)), meterRegistry);
+		when(partyClientMock.getLegalIdByPartyId(municipalityId, PartyType.PRIVATE, partyId)).thenReturn(Optional.empty());
+		when(partyClientMock.getLegalIdByPartyId(municipalityId, PartyType.ENTERPRISE, partyId)).thenReturn(Optional.of("1234567890"));
+
+		var result1 = partyIntegration.getLegalIdByPartyId(municipalityId, partyId);
+		var result2 = partyIntegration.getLegalIdByPartyId(municipalityId, partyId);
+
+		assertThat(result1).isEqualTo("1234567890");
+		assertThat(result2).isEqualTo("1234567890");
+		var inOrder = inOrder(partyClientMock);
+		inOrder.verify(partyClientMock).getLegalIdByPartyId(municipalityId, PartyType.PRIVATE, partyId);
+		inOrder.verify(partyClientMock, times(2)).getLegalIdByPartyId(municipalityId, PartyType.ENTERPRISE, partyId);
+	}
 }
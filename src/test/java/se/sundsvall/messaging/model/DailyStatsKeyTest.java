@@ -0,0 +1,69 @@
+package se.sundsvall.messaging.model;
+
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.sundsvall.messaging.model.MessageStatus.FAILED;
+import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
+
+class DailyStatsKeyTest {
+
+	private static final String MUNICIPALITY_ID = "2281";
+	private static final LocalDate DAY = LocalDate.of(2024, 5, 17);
+	private static final String ORIGIN = "origin";
+	private static final String DEPARTMENT = "department";
+
+	@Test
+	void testConstructor() {
+		final var bean = new DailyStatsKey(MUNICIPALITY_ID, DAY, ORIGIN, DEPARTMENT, LETTER, SNAIL_MAIL, SENT);
+
+		assertBean(bean);
+	}
+
+	@Test
+	void testBuilder() {
+		final var bean = DailyStatsKey.builder()
+			.withMunicipalityId(MUNICIPALITY_ID)
+			.withDay(DAY)
+			.withOrigin(ORIGIN)
+			.withDepartment(DEPARTMENT)
+			.withOriginalMessageType(LETTER)
+			.withMessageType(SNAIL_MAIL)
+			.withStatus(SENT)
+			.build();
+
+		assertBean(bean);
+	}
+
+	private void assertBean(final DailyStatsKey bean) {
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.municipalityId()).isEqualTo(MUNICIPALITY_ID);
+		assertThat(bean.day()).isEqualTo(DAY);
+		assertThat(bean.origin()).isEqualTo(ORIGIN);
+		assertThat(bean.department()).isEqualTo(DEPARTMENT);
+		assertThat(bean.originalMessageType()).isEqualTo(LETTER);
+		assertThat(bean.messageType()).isEqualTo(SNAIL_MAIL);
+		assertThat(bean.status()).isEqualTo(SENT);
+	}
+
+	@Test
+	void testNoDirtOnCreatedBean() {
+		// A missing origin or department is an empty string, as stored
+		assertThat(DailyStatsKey.builder().build()).hasAllNullFieldsOrPropertiesExcept("origin", "department");
+		assertThat(DailyStatsKey.builder().build()).isEqualTo(DailyStatsKey.builder().withOrigin("").withDepartment("").build());
+	}
+
+	@Test
+	void testOrder() {
+		final var key = new DailyStatsKey(MUNICIPALITY_ID, DAY, ORIGIN, DEPARTMENT, LETTER, SNAIL_MAIL, SENT);
+
+		assertThat(key).isEqualByComparingTo(new DailyStatsKey(MUNICIPALITY_ID, DAY, ORIGIN, DEPARTMENT, LETTER, SNAIL_MAIL, SENT))
+			.isLessThan(new DailyStatsKey(MUNICIPALITY_ID, DAY.plusDays(1), ORIGIN, DEPARTMENT, LETTER, SNAIL_MAIL, SENT))
+			.isLessThan(new DailyStatsKey(MUNICIPALITY_ID, DAY, ORIGIN, DEPARTMENT, LETTER, SNAIL_MAIL, FAILED))
+			.isGreaterThan(new DailyStatsKey(MUNICIPALITY_ID, DAY, null, DEPARTMENT, LETTER, SNAIL_MAIL, SENT))
+			.isGreaterThan(new DailyStatsKey(MUNICIPALITY_ID, DAY, ORIGIN, DEPARTMENT, null, SNAIL_MAIL, SENT));
+	}
+}
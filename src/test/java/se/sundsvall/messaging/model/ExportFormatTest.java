@@ -0,0 +1,23 @@
+package se.sundsvall.messaging.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.sundsvall.messaging.model.ExportFormat.CSV;
+import static se.sundsvall.messaging.model.ExportFormat.NDJSON;
+
+class ExportFormatTest {
+
+	@Test
+	void testEnumValues() {
+		assertThat(ExportFormat.values()).containsExactlyInAnyOrder(NDJSON, CSV);
+	}
+
+	@Test
+	void testMediaTypesAndFileExtensions() {
+		assertThat(NDJSON.getMediaType()).isEqualTo("application/x-ndjson");
+		assertThat(NDJSON.getFileExtension()).isEqualTo("ndjson");
+		assertThat(CSV.getMediaType()).isEqualTo("text/csv");
+		assertThat(CSV.getFileExtension()).isEqualTo("csv");
+	}
+}
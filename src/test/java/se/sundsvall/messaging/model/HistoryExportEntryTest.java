@@ -0,0 +1,83 @@
+package se.sundsvall.messaging.model;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
+
+class HistoryExportEntryTest {
+
+	private static final String BATCH_ID = "batchId";
+	private static final String MESSAGE_ID = "messageId";
+	private static final String DELIVERY_ID = "deliveryId";
+	private static final String PARTY_ID = "partyId";
+	private static final String ORIGIN = "origin";
+	private static final String ISSUER = "issuer";
+	private static final String DEPARTMENT = "department";
+	private static final LocalDateTime CREATED_AT = LocalDateTime.now();
+	private static final String ORGANIZATION_NUMBER = "organizationNumber";
+	private static final String SUBJECT = "subject";
+	private static final String DESTINATION = "destination";
+	private static final Integer ATTACHMENT_COUNT = 2;
+	private static final String CONTENT = "content";
+
+	@Test
+	void testConstructor() {
+		final var bean = new HistoryExportEntry(BATCH_ID, MESSAGE_ID, DELIVERY_ID, PARTY_ID, SNAIL_MAIL, LETTER, SENT, ORIGIN, ISSUER, DEPARTMENT, CREATED_AT,
+			ORGANIZATION_NUMBER, SUBJECT, DESTINATION, ATTACHMENT_COUNT, CONTENT);
+
+		assertBean(bean);
+	}
+
+	@Test
+	void testBuilder() {
+		final var bean = HistoryExportEntry.builder()
+			.withBatchId(BATCH_ID)
+			.withMessageId(MESSAGE_ID)
+			.withDeliveryId(DELIVERY_ID)
+			.withPartyId(PARTY_ID)
+			.withMessageType(SNAIL_MAIL)
+			.withOriginalMessageType(LETTER)
+			.withStatus(SENT)
+			.withOrigin(ORIGIN)
+			.withIssuer(ISSUER)
+			.withDepartment(DEPARTMENT)
+			.withCreatedAt(CREATED_AT)
+			.withOrganizationNumber(ORGANIZATION_NUMBER)
+			.withSubject(SUBJECT)
+			.withDestination(DESTINATION)
+			.withAttachmentCount(ATTACHMENT_COUNT)
+			.withContent(CONTENT)
+			.build();
+
+		assertBean(bean);
+	}
+
+	private void assertBean(final HistoryExportEntry bean) {
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.batchId()).isEqualTo(BATCH_ID);
+		assertThat(bean.messageId()).isEqualTo(MESSAGE_ID);
+		assertThat(bean.deliveryId()).isEqualTo(DELIVERY_ID);
+		assertThat(bean.partyId()).isEqualTo(PARTY_ID);
+		assertThat(bean.messageType()).isEqualTo(SNAIL_MAIL);
+		assertThat(bean.originalMessageType()).isEqualTo(LETTER);
+		assertThat(bean.status()).isEqualTo(SENT);
+		assertThat(bean.origin()).isEqualTo(ORIGIN);
+		assertThat(bean.issuer()).isEqualTo(ISSUER);
+		assertThat(bean.department()).isEqualTo(DEPARTMENT);
+		assertThat(bean.createdAt()).isEqualTo(CREATED_AT);
+		assertThat(bean.organizationNumber()).isEqualTo(ORGANIZATION_NUMBER);
+		assertThat(bean.subject()).isEqualTo(SUBJECT);
+		assertThat(bean.destination()).isEqualTo(DESTINATION);
+		assertThat(bean.attachmentCount()).isEqualTo(ATTACHMENT_COUNT);
+		assertThat(bean.content()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void testNoDirtOnCreatedBean() {
+		assertThat(HistoryExportEntry.builder().build()).hasAllNullFieldsOrProperties();
+	}
+}
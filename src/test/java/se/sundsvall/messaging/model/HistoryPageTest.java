@@ -0,0 +1,40 @@
+package se.sundsvall.messaging.model;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryPageTest {
+
+	private static final List<History> HISTORY = List.of(History.builder().build());
+	private static final String CONTINUATION_TOKEN = "continuationToken";
+
+	@Test
+	void testConstructor() {
+		final var bean = new HistoryPage(HISTORY, CONTINUATION_TOKEN);
+
+		assertBean(bean);
+	}
+
+	@Test
+	void testBuilder() {
+		final var bean = HistoryPage.builder()
+			.withHistory(HISTORY)
+			.withContinuationToken(CONTINUATION_TOKEN)
+			.build();
+
+		assertBean(bean);
+	}
+
+	private void assertBean(final HistoryPage bean) {
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.history()).isEqualTo(HISTORY);
+		assertThat(bean.continuationToken()).isEqualTo(CONTINUATION_TOKEN);
+	}
+
+	@Test
+	void testNoDirtOnCreatedBean() {
+		assertThat(HistoryPage.builder().build()).hasAllNullFieldsOrProperties();
+	}
+}
@@ -15,6 +15,7 @@ class MessageTest {
 	private static final MessageType ORIGINAL_TYPE = MessageType.SMS;
 	private static final MessageStatus STATUS = MessageStatus.NO_CONTACT_SETTINGS_FOUND;
 	private static final String CONTENT = "content";
+	private static final Long CONTENT_ID = 123L;
 	private static final String ORIGIN = "origin";
 	private static final String ISSUER = "issuer";
 	private static final String MUNICIPALITY_ID = "municipalityId";
@@ -24,7 +25,7 @@ class MessageTest {
 
 	@Test
 	void testConstructor() {
-		final var bean = new Message(BATCH_ID, MESSAGE_ID, DELIVERY_ID, PARTY_ID, TYPE, ORIGINAL_TYPE, STATUS, ADDRESS, CONTENT, ORIGIN, ISSUER, MUNICIPALITY_ID, ORGANIZATION_NUMBER, DIGITAL_MAIL_TRANSACTION_ID);
+		final var bean = new Message(BATCH_ID, MESSAGE_ID, DELIVERY_ID, PARTY_ID, TYPE, ORIGINAL_TYPE, STATUS, ADDRESS, CONTENT, CONTENT_ID, ORIGIN, ISSUER, MUNICIPALITY_ID, ORGANIZATION_NUMBER, DIGITAL_MAIL_TRANSACTION_ID);
 
 		assertBean(bean);
 	}
@@ -34,6 +35,7 @@ class MessageTest {
 		final var bean = Message.builder()
 			.withBatchId(BATCH_ID)
 			.withContent(CONTENT)
+			.withContentId(CONTENT_ID)
 			.withDeliveryId(DELIVERY_ID)
 			.withIssuer(ISSUER)
 			.withMessageId(MESSAGE_ID)
@@ -55,6 +57,7 @@ class MessageTest {
 		assertThat(bean.batchId()).isEqualTo(BATCH_ID);
 		assertThat(bean.address()).isEqualTo(ADDRESS);
 		assertThat(bean.content()).isEqualTo(CONTENT);
+		assertThat(bean.contentId()).isEqualTo(CONTENT_ID);
 		assertThat(bean.deliveryId()).isEqualTo(DELIVERY_ID);
 		assertThat(bean.issuer()).isEqualTo(ISSUER);
 		assertThat(bean.messageId()).isEqualTo(MESSAGE_ID);
@@ -68,6 +71,21 @@ class MessageTest {
 		assertThat(bean.digitalMailTransactionId()).isEqualTo(DIGITAL_MAIL_TRANSACTION_ID);
 	}
 
+	@Test
+	void withContentClearsContentId() {
+		final var bean = Message.builder()
+			.withBatchId(BATCH_ID)
+			.withContent(CONTENT)
+			.withContentId(CONTENT_ID)
+			.build();
+
+		final var result = bean.withContent("otherContent");
+
+		assertThat(result.batchId()).isEqualTo(BATCH_ID);
+		assertThat(result.content()).isEqualTo("otherContent");
+		assertThat(result.contentId()).isNull();
+	}
+
 	@Test
 	void testNoDirtOnCreatedBean() {
 		assertThat(Message.builder().build()).hasAllNullFieldsOrProperties();
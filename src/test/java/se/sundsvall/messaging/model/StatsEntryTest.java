@@ -0,0 +1,51 @@
+package se.sundsvall.messaging.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
+
+class StatsEntryTest {
+
+	private static final String ORIGIN = "origin";
+	private static final String DEPARTMENT = "department";
+	private static final long COUNT = 12L;
+
+	@Test
+	void testConstructor() {
+		final var bean = new StatsEntry(LETTER, SNAIL_MAIL, SENT, ORIGIN, DEPARTMENT, COUNT);
+
+		assertBean(bean);
+	}
+
+	@Test
+	void testBuilder() {
+		final var bean = StatsEntry.builder()
+			.withOriginalMessageType(LETTER)
+			.withMessageType(SNAIL_MAIL)
+			.withStatus(SENT)
+			.withOrigin(ORIGIN)
+			.withDepartment(DEPARTMENT)
+			.withCount(COUNT)
+			.build();
+
+		assertBean(bean);
+	}
+
+	private void assertBean(final StatsEntry bean) {
+		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		assertThat(bean.originalMessageType()).isEqualTo(LETTER);
+		assertThat(bean.messageType()).isEqualTo(SNAIL_MAIL);
+		assertThat(bean.status()).isEqualTo(SENT);
+		assertThat(bean.origin()).isEqualTo(ORIGIN);
+		assertThat(bean.department()).isEqualTo(DEPARTMENT);
+		assertThat(bean.count()).isEqualTo(COUNT);
+	}
+
+	@Test
+	void testNoDirtOnCreatedBean() {
+		assertThat(StatsEntry.builder().build()).hasAllNullFieldsOrPropertiesExcept("count");
+	}
+}
@@ -0,0 +1,55 @@
+package se.sundsvall.messaging.service;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.sundsvall.messaging.configuration.AttachmentCleanupProperties;
+import se.sundsvall.messaging.integration.attachmentstore.AttachmentStore;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AttachmentCleanupSchedulerTest {
+
+	private static final Duration MIN_AGE = Duration.ofDays(1);
+
+	@Mock
+	private AttachmentStore mockAttachmentStore;
+
+	@Test
+	void cleanupUntilNoneLeft() {
+		final var scheduler = new AttachmentCleanupScheduler(mockAttachmentStore, new AttachmentCleanupProperties(true, 10, MIN_AGE));
+		when(mockAttachmentStore.deleteUnreferenced(MIN_AGE, 10)).thenReturn(10, 10, 3);
+
+		scheduler.cleanup();
+
+		verify(mockAttachmentStore, times(3)).deleteUnreferenced(MIN_AGE, 10);
+		verifyNoMoreInteractions(mockAttachmentStore);
+	}
+
+	@Test
+	void cleanupWhenNothingToDelete() {
+		final var scheduler = new AttachmentCleanupScheduler(mockAttachmentStore, new AttachmentCleanupProperties(true, 10, MIN_AGE));
+		when(mockAttachmentStore.deleteUnreferenced(MIN_AGE, 10)).thenReturn(0);
+
+		scheduler.cleanup();
+
+		verify(mockAttachmentStore).deleteUnreferenced(MIN_AGE, 10);
+		verifyNoMoreInteractions(mockAttachmentStore);
+	}
+
+	@Test
+	void cleanupWhenDisabled() {
+		final var scheduler = new AttachmentCleanupScheduler(mockAttachmentStore, new AttachmentCleanupProperties(false, 10, MIN_AGE));
+
+		scheduler.cleanup();
+
+		verifyNoInteractions(mockAttachmentStore);
+	}
+}
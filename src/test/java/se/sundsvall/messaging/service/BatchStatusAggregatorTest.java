@@ -0,0 +1,206 @@
+package se.sundsvall.messaging.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.ObjectUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import se.sundsvall.messaging.integration.db.projection.BatchHistoryProjection;
+import se.sundsvall.messaging.model.MessageStatus;
+import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.service.BatchStatusAggregator.BatchStatus;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static se.sundsvall.messaging.model.MessageStatus.FAILED;
+import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
+import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
+
+class BatchStatusAggregatorTest {
+
+	private final BatchStatusAggregator aggregator = new BatchStatusAggregator();
+
+	@ParameterizedTest
+	@MethodSource("recipientCountArgumentProvider")
+	void recipientCount(List<BatchHistoryProjection> projections, int expected) {
+		assertThat(aggregator.aggregate(projections).recipientCount()).isEqualTo(expected);
+	}
+
+	private static Stream<Arguments> recipientCountArgumentProvider() {
+		return Stream.of(
+			Arguments.of(null, 0),
+			Arguments.of(emptyList(), 0),
+			Arguments.of(List.of(createBatchHistoryProjection("1")), 1),
+			Arguments.of(List.of(createBatchHistoryProjection("1"), createBatchHistoryProjection("1")), 1),
+			Arguments.of(List.of(createBatchHistoryProjection("1"), createBatchHistoryProjection("2")), 2));
+	}
+
+	@ParameterizedTest
+	@MethodSource("successfulCountArgumentProvider")
+	void successfulCount(List<BatchHistoryProjection> projections, int expected) {
+		assertThat(aggregator.aggregate(projections).successfulCount()).isEqualTo(expected);
+	}
+
+	private static Stream<Arguments> successfulCountArgumentProvider() {
+		final Map<List<BatchHistoryProjection>, Integer> scenarios = new HashMap<>(
+			List.of(MessageStatus.values()).stream()
+				.filter(status -> ObjectUtils.notEqual(SENT, status))
+				.map(status -> createBatchHistoryProjection("1", status))
+				.map(List::of)
+				.map(list -> Map.entry(list, 0))
+				.collect(Collectors.toMap(Entry::getKey, Entry::getValue)));
+
+		scenarios.put(null, 0);
+		scenarios.put(emptyList(), 0);
+		scenarios.put(List.of(createBatchHistoryProjection("1", SENT)), 1);
+		scenarios.put(List.of(createBatchHistoryProjection("1", SENT), createBatchHistoryProjection("1", FAILED)), 1);
+		scenarios.put(List.of(createBatchHistoryProjection("1", SENT), createBatchHistoryProjection("2", FAILED)), 1);
+		scenarios.put(List.of(createBatchHistoryProjection("1", SENT), createBatchHistoryProjection("2", SENT)), 2);
+
+		return scenarios.entrySet().stream()
+			.map(entry -> Arguments.of(entry.getKey(), entry.getValue()))
+			.toList().stream();
+	}
+
+	@ParameterizedTest
+	@MethodSource("unsuccessfulCountArgumentProvider")
+	void unsuccessfulCount(List<BatchHistoryProjection> projections, int expected) {
+		assertThat(aggregator.aggregate(projections).unsuccessfulCount()).isEqualTo(expected);
+	}
+
+	private static Stream<Arguments> unsuccessfulCountArgumentProvider() {
+		final Map<List<BatchHistoryProjection>, Integer> scenarios = new HashMap<>(
+			List.of(MessageStatus.values()).stream()
+				.filter(status -> ObjectUtils.notEqual(SENT, status))
+				.map(status -> createBatchHistoryProjection("1", status))
+				.map(List::of)
+				.map(list -> Map.entry(list, 1))
+				.collect(Collectors.toMap(Entry::getKey, Entry::getValue)));
+
+		scenarios.put(null, 0);
+		scenarios.put(emptyList(), 0);
+		scenarios.put(List.of(createBatchHistoryProjection("1", SENT)), 0);
+		scenarios.put(List.of(createBatchHistoryProjection("1", SENT), createBatchHistoryProjection("1", FAILED)), 0);
+		scenarios.put(List.of(createBatchHistoryProjection("1", SENT), createBatchHistoryProjection("2", FAILED)), 1);
+		scenarios.put(List.of(createBatchHistoryProjection("1", FAILED), createBatchHistoryProjection("2", FAILED)), 2);
+
+		return scenarios.entrySet().stream()
+			.map(entry -> Arguments.of(entry.getKey(), entry.getValue()))
+			.toList().stream();
+	}
+
+	@ParameterizedTest
+	@MethodSource("originalMessageTypeArgumentProvider")
+	void originalMessageType(List<BatchHistoryProjection> projections, String expected) {
+		assertThat(aggregator.aggregate(projections).originalMessageType()).isEqualTo(expected);
+	}
+
+	private static Stream<Arguments> originalMessageTypeArgumentProvider() {
+		return Stream.of(
+			Arguments.of(null, null),
+			Arguments.of(emptyList(), null),
+			Arguments.of(List.of(createBatchHistoryProjection(null)), null),
+			Arguments.of(List.of(createBatchHistoryProjection(null, null, null, SNAIL_MAIL)), SNAIL_MAIL.name()),
+			Arguments.of(List.of(createBatchHistoryProjection(null, null, SNAIL_MAIL, DIGITAL_MAIL)), DIGITAL_MAIL.name()));
+	}
+
+	@ParameterizedTest
+	@MethodSource("sentArgumentProvider")
+	void sent(List<BatchHistoryProjection> projections, LocalDateTime expected) {
+		assertThat(aggregator.aggregate(projections).sent()).isEqualTo(expected);
+	}
+
+	private static Stream<Arguments> sentArgumentProvider() {
+		final var timeStamp = LocalDateTime.now();
+
+		return Stream.of(
+			Arguments.of(null, null),
+			Arguments.of(emptyList(), null),
+			Arguments.of(List.of(createBatchHistoryProjection(null)), null),
+			Arguments.of(List.of(createBatchHistoryProjection(SENT, timeStamp)), timeStamp),
+			Arguments.of(List.of(createBatchHistoryProjection(null, timeStamp)), timeStamp),
+			Arguments.of(List.of(createBatchHistoryProjection(SENT, null), createBatchHistoryProjection(null, timeStamp)), timeStamp));
+	}
+
+	@Test
+	@Timeout(10)
+	void aggregateLargeBatch() {
+		final var timeStamp = LocalDateTime.now();
+
+		// Every recipient has a failed digital mail, and every other recipient a successful snail mail as well
+		final var projections = IntStream.range(0, 100_000)
+			.mapToObj(String::valueOf)
+			.flatMap(messageId -> Integer.parseInt(messageId) % 2 == 0
+				? Stream.of(createBatchHistoryProjection(messageId, FAILED, DIGITAL_MAIL, LETTER, timeStamp), createBatchHistoryProjection(messageId, SENT, SNAIL_MAIL, LETTER, timeStamp))
+				: Stream.of(createBatchHistoryProjection(messageId, FAILED, DIGITAL_MAIL, LETTER, timeStamp)))
+			.toList();
+
+		assertThat(aggregator.aggregate(projections)).isEqualTo(new BatchStatus(100_000, 50_000, 50_000, timeStamp, LETTER.name()));
+	}
+
+	private static BatchHistoryProjection createBatchHistoryProjection(String messageId) {
+		return createBatchHistoryProjection(messageId, (MessageStatus) null);
+	}
+
+	private static BatchHistoryProjection createBatchHistoryProjection(String messageId, MessageStatus status) {
+		return createBatchHistoryProjection(messageId, status, null);
+	}
+
+	private static BatchHistoryProjection createBatchHistoryProjection(String messageId, MessageStatus status, MessageType messageType, MessageType originalMessageType) {
+		return createBatchHistoryProjection(messageId, status, messageType, originalMessageType, null);
+	}
+
+	private static BatchHistoryProjection createBatchHistoryProjection(String messageId, MessageStatus status, MessageType messageType) {
+		return createBatchHistoryProjection(messageId, status, messageType, null, null);
+	}
+
+	private static BatchHistoryProjection createBatchHistoryProjection(MessageStatus messageStatus, LocalDateTime createdAt) {
+		return createBatchHistoryProjection(null, messageStatus, null, null, createdAt);
+	}
+
+	private static BatchHistoryProjection createBatchHistoryProjection(String messageId, MessageStatus status, MessageType messageType, MessageType originalMessageType, LocalDateTime createdAt) {
+		return new BatchHistoryProjection() {
+
+			@Override
+			public MessageStatus getStatus() {
+				return status;
+			}
+
+			@Override
+			public MessageType getOriginalMessageType() {
+				return originalMessageType;
+			}
+
+			@Override
+			public MessageType getMessageType() {
+				return messageType;
+			}
+
+			@Override
+			public String getMessageId() {
+				return messageId;
+			}
+
+			@Override
+			public LocalDateTime getCreatedAt() {
+				return createdAt;
+			}
+
+			@Override
+			public String getBatchId() {
+				return null;
+			}
+		};
+	}
+}
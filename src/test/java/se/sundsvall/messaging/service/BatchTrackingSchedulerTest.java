@@ -0,0 +1,99 @@
+package se.sundsvall.messaging.service;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.sundsvall.messaging.configuration.BatchTrackingProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+import se.sundsvall.messaging.integration.db.entity.BatchTrackingEntity;
+import se.sundsvall.messaging.integration.snailmailsender.SnailMailSenderIntegration;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchTrackingSchedulerTest {
+
+	private static final Duration STALE_AFTER = Duration.ofHours(1);
+
+	private static final Duration RETENTION = Duration.ofDays(7);
+
+	@Mock
+	private DbIntegration mockDbIntegration;
+
+	@Mock
+	private SnailMailSenderIntegration mockSnailMailSenderIntegration;
+
+	@Test
+	void triggerStaleBatches() {
+		final var scheduler = createScheduler(true);
+		when(mockDbIntegration.getStaleBatches(STALE_AFTER, 10)).thenReturn(List.of(
+			createBatch("batchId", "2281", 2),
+			createBatch("unsentBatchId", "2281", 0),
+			createBatch("undeliveredBatchId", "2281", 2),
+			createBatch("triggeredBatchId", "2281", 2)));
+		when(mockDbIntegration.existsByBatchId("undeliveredBatchId")).thenReturn(true);
+		when(mockDbIntegration.markStaleBatchTriggered("batchId")).thenReturn(true);
+		when(mockDbIntegration.markStaleBatchTriggered("unsentBatchId")).thenReturn(true);
+		when(mockDbIntegration.markStaleBatchTriggered("triggeredBatchId")).thenReturn(false);
+		when(mockDbIntegration.deleteBatchTracking(RETENTION)).thenReturn(4);
+
+		scheduler.triggerStaleBatches();
+
+		verify(mockDbIntegration).getStaleBatches(STALE_AFTER, 10);
+		verify(mockDbIntegration).existsByBatchId("batchId");
+		verify(mockDbIntegration).existsByBatchId("unsentBatchId");
+		verify(mockDbIntegration).existsByBatchId("undeliveredBatchId");
+		verify(mockDbIntegration).existsByBatchId("triggeredBatchId");
+		verify(mockDbIntegration).markStaleBatchTriggered("batchId");
+		verify(mockDbIntegration).markStaleBatchTriggered("unsentBatchId");
+		verify(mockDbIntegration).markStaleBatchTriggered("triggeredBatchId");
+		verify(mockDbIntegration).deleteBatchTracking(RETENTION);
+		verify(mockSnailMailSenderIntegration).sendBatch("2281", "batchId");
+		verifyNoMoreInteractions(mockDbIntegration, mockSnailMailSenderIntegration);
+	}
+
+	@Test
+	void triggerStaleBatchesWhenSendBatchFails() {
+		final var scheduler = createScheduler(true);
+		when(mockDbIntegration.getStaleBatches(STALE_AFTER, 10)).thenReturn(List.of(
+			createBatch("batchId", "2281", 1),
+			createBatch("otherBatchId", "2281", 1)));
+		when(mockDbIntegration.markStaleBatchTriggered("batchId")).thenReturn(true);
+		when(mockDbIntegration.markStaleBatchTriggered("otherBatchId")).thenReturn(true);
+		doThrow(new IllegalStateException("Unavailable")).when(mockSnailMailSenderIntegration).sendBatch("2281", "batchId");
+
+		scheduler.triggerStaleBatches();
+
+		verify(mockSnailMailSenderIntegration).sendBatch("2281", "batchId");
+		verify(mockSnailMailSenderIntegration).sendBatch("2281", "otherBatchId");
+		verify(mockDbIntegration).deleteBatchTracking(RETENTION);
+	}
+
+	@Test
+	void triggerStaleBatchesWhenDisabled() {
+		final var scheduler = createScheduler(false);
+
+		scheduler.triggerStaleBatches();
+
+		verifyNoInteractions(mockDbIntegration, mockSnailMailSenderIntegration);
+	}
+
+	private BatchTrackingScheduler createScheduler(final boolean enabled) {
+		return new BatchTrackingScheduler(mockDbIntegration, mockSnailMailSenderIntegration, new BatchTrackingProperties(enabled, 10, STALE_AFTER, RETENTION));
+	}
+
+	private static BatchTrackingEntity createBatch(final String batchId, final String municipalityId, final int sentSnailMailCount) {
+		return BatchTrackingEntity.builder()
+			.withBatchId(batchId)
+			.withMunicipalityId(municipalityId)
+			.withSentSnailMailCount(sentSnailMailCount)
+			.build();
+	}
+}
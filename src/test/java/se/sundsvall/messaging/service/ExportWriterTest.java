@@ -0,0 +1,85 @@
+package se.sundsvall.messaging.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static se.sundsvall.messaging.model.ExportFormat.CSV;
+import static se.sundsvall.messaging.model.ExportFormat.NDJSON;
+
+class ExportWriterTest {
+
+	private static final List<ExportWriter.Column<Row>> COLUMNS = List.of(
+		new ExportWriter.Column<>("name", Row::name),
+		new ExportWriter.Column<>("day", Row::day),
+		new ExportWriter.Column<>("count", Row::count));
+
+	@Test
+	void writeNdjson() throws IOException {
+		final var response = new MockHttpServletResponse();
+
+		try (final var writer = ExportWriter.create(NDJSON, response, "someFile", COLUMNS)) {
+			writer.write(new Row("someName", LocalDate.of(2024, 5, 17), 3));
+			writer.write(new Row(null, null, 0));
+		}
+
+		assertThat(response.getContentType()).isEqualTo("application/x-ndjson;charset=UTF-8");
+		assertThat(response.getHeader(CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"someFile.ndjson\"");
+		assertThat(response.getContentAsString()).isEqualTo("""
+			{"name":"someName","day":"2024-05-17","count":3}
+			{"count":0}
+			""");
+	}
+
+	@Test
+	void writeCsv() throws IOException {
+		final var response = new MockHttpServletResponse();
+
+		try (final var writer = ExportWriter.create(CSV, response, "someFile", COLUMNS)) {
+			writer.write(new Row("someName", LocalDate.of(2024, 5, 17), 3));
+			writer.write(new Row("Åsa, \"Kalle\"", null, 0));
+		}
+
+		assertThat(response.getContentType()).isEqualTo("text/csv;charset=UTF-8");
+		assertThat(response.getHeader(CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"someFile.csv\"");
+		assertThat(response.getContentAsString()).isEqualTo("name,day,count\r\nsomeName,2024-05-17,3\r\n\"Åsa, \"\"Kalle\"\"\",,0\r\n");
+	}
+
+	@Test
+	void writeCsvWithoutRows() throws IOException {
+		final var response = new MockHttpServletResponse();
+
+		try (final var ignored = ExportWriter.create(CSV, response, "someFile", COLUMNS)) {
+			// No rows
+		}
+
+		assertThat(response.getContentAsString()).isEqualTo("name,day,count\r\n");
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', quoteCharacter = '\'', value = {
+		"plain|plain",
+		"with space|with space",
+		"a,b|'\"a,b\"'",
+		"'say \"hi\"'|'\"say \"\"hi\"\"\"'"
+	})
+	void toCsvField(final String value, final String expected) {
+		assertThat(ExportWriter.toCsvField(value)).isEqualTo(expected);
+	}
+
+	@Test
+	void toCsvFieldWithLineBreakAndNull() {
+		assertThat(ExportWriter.toCsvField("first\nsecond")).isEqualTo("\"first\nsecond\"");
+		assertThat(ExportWriter.toCsvField(null)).isEmpty();
+		assertThat(ExportWriter.toCsvField(42)).isEqualTo("42");
+	}
+
+	private record Row(String name, LocalDate day, long count) {
+	}
+}
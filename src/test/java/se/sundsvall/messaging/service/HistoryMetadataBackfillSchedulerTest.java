@@ -0,0 +1,52 @@
+package se.sundsvall.messaging.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.sundsvall.messaging.configuration.HistoryMetadataBackfillProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryMetadataBackfillSchedulerTest {
+
+	@Mock
+	private DbIntegration mockDbIntegration;
+
+	@Test
+	void backfillUntilNoneLeft() {
+		final var scheduler = new HistoryMetadataBackfillScheduler(mockDbIntegration, new HistoryMetadataBackfillProperties(true, 10));
+		when(mockDbIntegration.backfillHistoryMetadata(10)).thenReturn(10, 10, 3);
+
+		scheduler.backfill();
+
+		verify(mockDbIntegration, times(3)).backfillHistoryMetadata(10);
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
+
+	@Test
+	void backfillWhenNothingToExtract() {
+		final var scheduler = new HistoryMetadataBackfillScheduler(mockDbIntegration, new HistoryMetadataBackfillProperties(true, 10));
+		when(mockDbIntegration.backfillHistoryMetadata(10)).thenReturn(0);
+
+		scheduler.backfill();
+
+		verify(mockDbIntegration).backfillHistoryMetadata(10);
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
+
+	@Test
+	void backfillWhenDisabled() {
+		final var scheduler = new HistoryMetadataBackfillScheduler(mockDbIntegration, new HistoryMetadataBackfillProperties(false, 10));
+
+		scheduler.backfill();
+
+		verifyNoInteractions(mockDbIntegration);
+	}
+}
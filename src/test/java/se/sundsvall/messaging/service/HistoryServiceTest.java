@@ -1,77 +1,91 @@
 package se.sundsvall.messaging.service;
 
 import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
-import org.apache.hc.client5.http.utils.Base64;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.util.StreamUtils;
 import se.sundsvall.dept44.problem.Problem;
 import se.sundsvall.messaging.api.model.response.UserMessage;
+import se.sundsvall.messaging.integration.attachmentstore.AttachmentExtractor;
 import se.sundsvall.messaging.integration.db.DbIntegration;
-import se.sundsvall.messaging.integration.db.entity.HistoryEntity;
+import se.sundsvall.messaging.integration.db.entity.BatchSummaryEntity;
 import se.sundsvall.messaging.integration.db.projection.BatchHistoryProjection;
+import se.sundsvall.messaging.integration.db.projection.HistoryIdProjection;
 import se.sundsvall.messaging.integration.db.projection.MessageIdProjection;
-import se.sundsvall.messaging.integration.party.PartyIntegration;
+import se.sundsvall.messaging.model.ExportFormat;
 import se.sundsvall.messaging.model.History;
+import se.sundsvall.messaging.model.HistoryExportEntry;
+import se.sundsvall.messaging.model.HistoryMetadata;
+import se.sundsvall.messaging.model.HistoryPage;
 import se.sundsvall.messaging.model.MessageStatus;
 import se.sundsvall.messaging.model.MessageType;
-import tools.jackson.core.JacksonException;
-import tools.jackson.databind.JsonNode;
+import se.sundsvall.messaging.model.UserMessageHistory;
+import se.sundsvall.messaging.service.BatchStatusAggregator.BatchStatus;
+import se.sundsvall.messaging.util.ContinuationToken;
 import tools.jackson.databind.ObjectMapper;
 
+import static jakarta.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static jakarta.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpHeaders.ACCEPT_RANGES;
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
-import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 import static se.sundsvall.messaging.TestDataFactory.createAttachment;
 import static se.sundsvall.messaging.TestDataFactory.createHistoryEntity;
 import static se.sundsvall.messaging.TestDataFactory.createUserMessage;
-import static se.sundsvall.messaging.model.MessageType.DIGITAL_INVOICE;
+import static se.sundsvall.messaging.TestDataFactory.createUserMessageHistory;
 import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
 import static se.sundsvall.messaging.model.MessageType.EMAIL;
 import static se.sundsvall.messaging.model.MessageType.LETTER;
-import static se.sundsvall.messaging.model.MessageType.MESSAGE;
-import static se.sundsvall.messaging.model.MessageType.SLACK;
 import static se.sundsvall.messaging.model.MessageType.SMS;
 import static se.sundsvall.messaging.model.MessageType.SNAIL_MAIL;
-import static se.sundsvall.messaging.model.MessageType.WEB_MESSAGE;
 
 @ExtendWith(MockitoExtension.class)
 class HistoryServiceTest {
@@ -80,7 +94,7 @@ class HistoryServiceTest {
 	private DbIntegration dbIntegrationMock;
 
 	@Mock
-	private PartyIntegration partyIntegrationMock;
+	private LegalIdResolver legalIdResolverMock;
 
 	@Mock
 	private HttpServletResponse httpServletResponseMock;
@@ -89,7 +103,10 @@ class HistoryServiceTest {
 	private ObjectMapper objectMapperMock;
 
 	@Mock
-	private BatchExtractor batchExtractorMock;
+	private BatchStatusAggregator batchStatusAggregatorMock;
+
+	@Mock
+	private AttachmentExtractor attachmentExtractorMock;
 
 	@Captor
 	private ArgumentCaptor<PageRequest> pageRequestCaptor;
@@ -97,9 +114,11 @@ class HistoryServiceTest {
 	@InjectMocks
 	private HistoryService historyService;
 
+	private static final HistoryMetadata EMPTY_METADATA = HistoryMetadata.builder().build();
+
 	@AfterEach
 	void verifyNoMoreMockInteractions() {
-		verifyNoMoreInteractions(dbIntegrationMock, partyIntegrationMock, httpServletResponseMock, objectMapperMock, batchExtractorMock);
+		verifyNoMoreInteractions(dbIntegrationMock, legalIdResolverMock, httpServletResponseMock, objectMapperMock, batchStatusAggregatorMock, attachmentExtractorMock);
 	}
 
 	@Test
@@ -164,37 +183,343 @@ class HistoryServiceTest {
 
 	@Test
 	void test_getConversationHistory() {
-		when(dbIntegrationMock.getHistory(anyString(), anyString(), nullable(LocalDate.class), nullable(LocalDate.class)))
-			.thenReturn(List.of(History.builder().build()));
+		final var historyPage = HistoryPage.builder().withHistory(List.of(History.builder().build())).build();
+		when(dbIntegrationMock.getHistory(anyString(), anyString(), nullable(LocalDate.class), nullable(LocalDate.class), nullable(ContinuationToken.class), nullable(Integer.class)))
+			.thenReturn(historyPage);
 
-		final var result = historyService.getConversationHistory("2281", "somePartyId", null, null);
+		final var result = historyService.getConversationHistory("2281", "somePartyId", null, null, null, null);
 
-		assertThat(result).hasSize(1);
+		assertThat(result).isSameAs(historyPage);
+
+		verify(dbIntegrationMock).getHistory("2281", "somePartyId", null, null, null, null);
+	}
+
+	@Test
+	void getConversationHistoryWithLimitAndContinuationToken() {
+		final var createdAt = LocalDateTime.now();
+		final var historyPage = HistoryPage.builder().withHistory(List.of(History.builder().build())).withContinuationToken("nextToken").build();
+		when(dbIntegrationMock.getHistory("2281", "somePartyId", null, null, new ContinuationToken(createdAt, 123L), 1)).thenReturn(historyPage);
 
-		verify(dbIntegrationMock).getHistory(anyString(), anyString(), nullable(LocalDate.class), nullable(LocalDate.class));
+		final var result = historyService.getConversationHistory("2281", "somePartyId", null, null, 1, ContinuationToken.encode(createdAt, 123L));
+
+		assertThat(result).isSameAs(historyPage);
+
+		verify(dbIntegrationMock).getHistory("2281", "somePartyId", null, null, new ContinuationToken(createdAt, 123L), 1);
+	}
+
+	@Test
+	void getConversationHistoryWithInvalidContinuationToken() {
+		assertThatThrownBy(() -> historyService.getConversationHistory("2281", "somePartyId", null, null, 1, "invalid"))
+			.isInstanceOf(Problem.class)
+			.hasMessage("Bad Request: Invalid continuation token");
+
+		verifyNoInteractions(dbIntegrationMock);
+	}
+
+	@Test
+	void exportHistory() throws IOException {
+		final var outputStream = new CapturingServletOutputStream();
+		final var createdAt = LocalDateTime.of(2024, 5, 17, 13, 37, 42);
+		final var from = LocalDate.of(2024, 1, 1);
+		final var to = LocalDate.of(2024, 12, 31);
+		when(httpServletResponseMock.getOutputStream()).thenReturn(outputStream);
+		doAnswer(invocation -> {
+			final Consumer<HistoryExportEntry> consumer = invocation.getArgument(5);
+			consumer.accept(HistoryExportEntry.builder().withMessageId("someMessageId").withMessageType(SMS).withCreatedAt(createdAt).withAttachmentCount(0).build());
+			consumer.accept(HistoryExportEntry.builder().withMessageId("otherMessageId").withSubject("someSubject").build());
+			return null;
+		}).when(dbIntegrationMock).exportHistory(eq("2281"), eq("somePartyId"), eq(from), eq(to), eq(false), any());
+
+		historyService.exportHistory("2281", "somePartyId", from, to, ExportFormat.NDJSON, false, httpServletResponseMock);
+
+		assertThat(outputStream.toByteArray()).asString(UTF_8).isEqualTo("""
+			{"messageId":"someMessageId","messageType":"SMS","createdAt":"2024-05-17T13:37:42","attachmentCount":0}
+			{"messageId":"otherMessageId","subject":"someSubject"}
+			""");
+		verify(httpServletResponseMock).setContentType("application/x-ndjson");
+		verify(httpServletResponseMock).setCharacterEncoding("UTF-8");
+		verify(httpServletResponseMock).addHeader(CONTENT_DISPOSITION, "attachment; filename=\"history.ndjson\"");
+		verify(httpServletResponseMock).getOutputStream();
+		verify(dbIntegrationMock).exportHistory(eq("2281"), eq("somePartyId"), eq(from), eq(to), eq(false), any());
+	}
+
+	@Test
+	void exportHistoryWithContentAsCsv() throws IOException {
+		final var outputStream = new CapturingServletOutputStream();
+		when(httpServletResponseMock.getOutputStream()).thenReturn(outputStream);
+		doAnswer(invocation -> {
+			final Consumer<HistoryExportEntry> consumer = invocation.getArgument(5);
+			consumer.accept(HistoryExportEntry.builder().withMessageId("someMessageId").withStatus(MessageStatus.SENT).withContent("{\"message\":\"Hello\"}").build());
+			return null;
+		}).when(dbIntegrationMock).exportHistory(eq("2281"), isNull(), isNull(), isNull(), eq(true), any());
+
+		historyService.exportHistory("2281", null, null, null, ExportFormat.CSV, true, httpServletResponseMock);
+
+		assertThat(outputStream.toByteArray()).asString(UTF_8).isEqualTo(
+			"batchId,messageId,deliveryId,partyId,messageType,originalMessageType,status,origin,issuer,department,createdAt,organizationNumber,subject,destination,attachmentCount,content\r\n"
+				+ ",someMessageId,,,,,SENT,,,,,,,,,\"{\"\"message\"\":\"\"Hello\"\"}\"\r\n");
+		verify(httpServletResponseMock).setContentType("text/csv");
+		verify(httpServletResponseMock).setCharacterEncoding("UTF-8");
+		verify(httpServletResponseMock).addHeader(CONTENT_DISPOSITION, "attachment; filename=\"history.csv\"");
+		verify(httpServletResponseMock).getOutputStream();
+		verify(dbIntegrationMock).exportHistory(eq("2281"), isNull(), isNull(), isNull(), eq(true), any());
 	}
 
 	@Test
 	void streamAttachmentTest() throws IOException {
 		final var municipalityId = "2281";
 		final var messageId = "someMessageId";
-		final var historyEntity = createHistoryEntity();
+		final var historyId = createHistoryId();
+		final var content = "someContent".getBytes();
 		final var attachment = createAttachment();
+		attachment.setContent(Base64.getEncoder().encodeToString(content));
+		final var outputStream = new CapturingServletOutputStream();
 		final var spy = Mockito.spy(historyService);
-		when(httpServletResponseMock.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
-		when(dbIntegrationMock.getFirstHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(historyEntity);
-		doReturn(attachment).when(spy).findAttachmentByName(any(), any(), any());
-
-		try (final MockedStatic<StreamUtils> streamMock = Mockito.mockStatic(StreamUtils.class)) {
-			spy.streamAttachment(municipalityId, messageId, "someFileName", httpServletResponseMock);
-
-			verify(httpServletResponseMock).addHeader(CONTENT_TYPE, attachment.getContentType());
-			verify(httpServletResponseMock).addHeader(CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.getName() + "\"");
-			verify(httpServletResponseMock).addHeader(CONTENT_LENGTH, String.valueOf(Base64.decodeBase64(attachment.getContent()).length));
-			verify(httpServletResponseMock).setContentLength(Base64.decodeBase64(attachment.getContent()).length);
-			verify(objectMapperMock).readTree(historyEntity.getContent());
-			streamMock.verify(() -> StreamUtils.copy(any(InputStream.class), any(OutputStream.class)));
-		}
+		when(httpServletResponseMock.getOutputStream()).thenReturn(outputStream);
+		when(dbIntegrationMock.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(historyId);
+		when(dbIntegrationMock.openHistoryContent(1L)).thenReturn(new StringReader(createHistoryEntity().getContent()));
+		doReturn(attachment).when(spy).findAttachmentByName(any(Reader.class), eq("filename"), eq("someFileName"));
+		doNothing().when(spy).readContent(1L, attachment, null);
+
+		spy.streamAttachment(municipalityId, messageId, "someFileName", null, httpServletResponseMock);
+
+		verify(httpServletResponseMock).addHeader(ACCEPT_RANGES, "bytes");
+		verify(httpServletResponseMock).addHeader(CONTENT_TYPE, attachment.getContentType());
+		verify(httpServletResponseMock).addHeader(CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.getName() + "\"");
+		verify(httpServletResponseMock).setContentLengthLong(content.length);
+		verify(httpServletResponseMock).getOutputStream();
+		assertThat(outputStream.toByteArray()).isEqualTo(content);
+	}
+
+	@Test
+	void streamAttachmentFromAttachmentStore() throws IOException {
+		final var municipalityId = "2281";
+		final var messageId = "someMessageId";
+		final var historyId = createHistoryId();
+		final var reference = AttachmentExtractor.REFERENCE_PREFIX + "someHash";
+		final var content = "someContent".getBytes();
+		final var attachment = createAttachment();
+		attachment.setContent(reference);
+		final var outputStream = new CapturingServletOutputStream();
+		final var spy = Mockito.spy(historyService);
+		when(httpServletResponseMock.getOutputStream()).thenReturn(outputStream);
+		when(dbIntegrationMock.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(historyId);
+		when(attachmentExtractorMock.size(reference)).thenReturn((long) content.length);
+		when(attachmentExtractorMock.open(reference, 0)).thenReturn(new ByteArrayInputStream(content));
+		when(dbIntegrationMock.openHistoryContent(1L)).thenReturn(new StringReader(createHistoryEntity().getContent()));
+		doReturn(attachment).when(spy).findAttachmentByName(any(Reader.class), eq("filename"), eq("someFileName"));
+		doNothing().when(spy).readContent(1L, attachment, null);
+
+		spy.streamAttachment(municipalityId, messageId, "someFileName", null, httpServletResponseMock);
+
+		verify(httpServletResponseMock).addHeader(ACCEPT_RANGES, "bytes");
+		verify(httpServletResponseMock).addHeader(CONTENT_TYPE, attachment.getContentType());
+		verify(httpServletResponseMock).addHeader(CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.getName() + "\"");
+		verify(httpServletResponseMock).setContentLengthLong(content.length);
+		verify(httpServletResponseMock).getOutputStream();
+		verify(attachmentExtractorMock).size(reference);
+		verify(attachmentExtractorMock).open(reference, 0);
+		assertThat(outputStream.toByteArray()).isEqualTo(content);
+	}
+
+	@Test
+	void streamAttachmentRangeFromAttachmentStore() throws IOException {
+		final var municipalityId = "2281";
+		final var messageId = "someMessageId";
+		final var historyId = createHistoryId();
+		final var reference = AttachmentExtractor.REFERENCE_PREFIX + "someHash";
+		final var attachment = createAttachment();
+		attachment.setContent(reference);
+		final var outputStream = new CapturingServletOutputStream();
+		final var spy = Mockito.spy(historyService);
+		when(httpServletResponseMock.getOutputStream()).thenReturn(outputStream);
+		when(dbIntegrationMock.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(historyId);
+		when(attachmentExtractorMock.size(reference)).thenReturn(11L);
+		when(attachmentExtractorMock.open(reference, 4)).thenReturn(new ByteArrayInputStream("Content".getBytes()));
+		when(dbIntegrationMock.openHistoryContent(1L)).thenReturn(new StringReader(createHistoryEntity().getContent()));
+		doReturn(attachment).when(spy).findAttachmentByName(any(Reader.class), eq("filename"), eq("someFileName"));
+		doNothing().when(spy).readContent(1L, attachment, null);
+
+		spy.streamAttachment(municipalityId, messageId, "someFileName", "bytes=4-", httpServletResponseMock);
+
+		verify(httpServletResponseMock).addHeader(ACCEPT_RANGES, "bytes");
+		verify(httpServletResponseMock).setStatus(SC_PARTIAL_CONTENT);
+		verify(httpServletResponseMock).addHeader(CONTENT_RANGE, "bytes 4-10/11");
+		verify(httpServletResponseMock).addHeader(CONTENT_TYPE, attachment.getContentType());
+		verify(httpServletResponseMock).addHeader(CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.getName() + "\"");
+		verify(httpServletResponseMock).setContentLengthLong(7);
+		verify(httpServletResponseMock).getOutputStream();
+		verify(attachmentExtractorMock).size(reference);
+		verify(attachmentExtractorMock).open(reference, 4);
+		assertThat(outputStream.toByteArray()).isEqualTo("Content".getBytes());
+	}
+
+	@Test
+	void streamAttachmentRangeOfInlineContent() throws IOException {
+		final var municipalityId = "2281";
+		final var messageId = "someMessageId";
+		final var historyId = createHistoryId();
+		final var attachment = createAttachment();
+		attachment.setContent(Base64.getEncoder().encodeToString("someContent".getBytes()));
+		final var outputStream = new CapturingServletOutputStream();
+		final var spy = Mockito.spy(historyService);
+		when(httpServletResponseMock.getOutputStream()).thenReturn(outputStream);
+		when(dbIntegrationMock.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(historyId);
+		when(dbIntegrationMock.openHistoryContent(1L)).thenReturn(new StringReader(createHistoryEntity().getContent()));
+		doReturn(attachment).when(spy).findAttachmentByName(any(Reader.class), eq("filename"), eq("someFileName"));
+		doNothing().when(spy).readContent(1L, attachment, null);
+
+		spy.streamAttachment(municipalityId, messageId, "someFileName", "bytes=-7", httpServletResponseMock);
+
+		verify(httpServletResponseMock).addHeader(ACCEPT_RANGES, "bytes");
+		verify(httpServletResponseMock).setStatus(SC_PARTIAL_CONTENT);
+		verify(httpServletResponseMock).addHeader(CONTENT_RANGE, "bytes 4-10/11");
+		verify(httpServletResponseMock).addHeader(CONTENT_TYPE, attachment.getContentType());
+		verify(httpServletResponseMock).addHeader(CONTENT_DISPOSITION, "attachment; filename=\"" + attachment.getName() + "\"");
+		verify(httpServletResponseMock).setContentLengthLong(7);
+		verify(httpServletResponseMock).getOutputStream();
+		assertThat(outputStream.toByteArray()).isEqualTo("Content".getBytes());
+	}
+
+	@Test
+	void streamAttachmentRangeNotSatisfiable() throws IOException {
+		final var municipalityId = "2281";
+		final var messageId = "someMessageId";
+		final var historyId = createHistoryId();
+		final var reference = AttachmentExtractor.REFERENCE_PREFIX + "someHash";
+		final var attachment = createAttachment();
+		attachment.setContent(reference);
+		final var spy = Mockito.spy(historyService);
+		when(dbIntegrationMock.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(historyId);
+		when(attachmentExtractorMock.size(reference)).thenReturn(11L);
+		when(dbIntegrationMock.openHistoryContent(1L)).thenReturn(new StringReader(createHistoryEntity().getContent()));
+		doReturn(attachment).when(spy).findAttachmentByName(any(Reader.class), eq("filename"), eq("someFileName"));
+		doNothing().when(spy).readContent(1L, attachment, null);
+
+		spy.streamAttachment(municipalityId, messageId, "someFileName", "bytes=20-", httpServletResponseMock);
+
+		verify(httpServletResponseMock).addHeader(ACCEPT_RANGES, "bytes");
+		verify(httpServletResponseMock).setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+		verify(httpServletResponseMock).addHeader(CONTENT_RANGE, "bytes */11");
+		verify(attachmentExtractorMock).size(reference);
+	}
+
+	@Test
+	void streamAttachmentRangeOfLongInlineContent() throws IOException {
+		final var municipalityId = "2281";
+		final var messageId = "someMessageId";
+		final var data = "someLongContent".repeat(500).getBytes();
+		final var content = """
+			{"attachments":[{"filename":"otherFileName","content":"c29tZUNvbnRlbnQ="},{"content":"%s","filename":"someFileName","contentType":"application/pdf"}]}
+			""".formatted(Base64.getMimeEncoder().encodeToString(data).replace("\r\n", "\\r\\n")).strip();
+		final var historyId = createHistoryId();
+		final var outputStream = new CapturingServletOutputStream();
+		when(httpServletResponseMock.getOutputStream()).thenReturn(outputStream);
+		when(dbIntegrationMock.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(historyId);
+		when(dbIntegrationMock.openHistoryContent(1L)).thenAnswer(invocation -> new StringReader(content));
+		when(objectMapperMock.createParser(any(Reader.class))).thenAnswer(invocation -> new ObjectMapper().createParser(invocation.<Reader>getArgument(0)));
+
+		historyService.streamAttachment(municipalityId, messageId, "someFileName", "bytes=100-199", httpServletResponseMock);
+
+		verify(httpServletResponseMock).addHeader(ACCEPT_RANGES, "bytes");
+		verify(httpServletResponseMock).setStatus(SC_PARTIAL_CONTENT);
+		verify(httpServletResponseMock).addHeader(CONTENT_RANGE, "bytes 100-199/" + data.length);
+		verify(httpServletResponseMock).addHeader(CONTENT_TYPE, "application/pdf");
+		verify(httpServletResponseMock).addHeader(CONTENT_DISPOSITION, "attachment; filename=\"someFileName\"");
+		verify(httpServletResponseMock).setContentLengthLong(100);
+		verify(httpServletResponseMock).getOutputStream();
+		// Found, read up to the content, measured and streamed
+		verify(dbIntegrationMock, times(4)).openHistoryContent(1L);
+		verify(objectMapperMock, times(3)).createParser(any(Reader.class));
+		assertThat(outputStream.toByteArray()).isEqualTo(Arrays.copyOfRange(data, 100, 200));
+	}
+
+	@Test
+	void streamAttachmentWithStoredSize() throws IOException {
+		final var municipalityId = "2281";
+		final var messageId = "someMessageId";
+		final var historyId = createHistoryId();
+		final var reference = AttachmentExtractor.REFERENCE_PREFIX + "someHash";
+		final var content = "someContent".getBytes();
+		final var attachment = createAttachment();
+		attachment.setContent(reference);
+		final var outputStream = new CapturingServletOutputStream();
+		final var spy = Mockito.spy(historyService);
+		when(historyId.getAttachmentsJson()).thenReturn("""
+			[{"name":"otherFileName","contentType":"application/pdf","size":3},{"name":"someFileName","contentType":"application/pdf","size":%d}]
+			""".formatted(content.length));
+		when(httpServletResponseMock.getOutputStream()).thenReturn(outputStream);
+		when(dbIntegrationMock.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(historyId);
+		when(attachmentExtractorMock.open(reference, 0)).thenReturn(new ByteArrayInputStream(content));
+		when(dbIntegrationMock.openHistoryContent(1L)).thenReturn(new StringReader(createHistoryEntity().getContent()));
+		doReturn(attachment).when(spy).findAttachmentByName(any(Reader.class), eq("filename"), eq("someFileName"));
+		doNothing().when(spy).readContent(1L, attachment, (long) content.length);
+
+		spy.streamAttachment(municipalityId, messageId, "someFileName", null, httpServletResponseMock);
+
+		// The size stored with the metadata is used, rather than looked up in the attachment store
+		verify(httpServletResponseMock).setContentLengthLong(content.length);
+		verify(attachmentExtractorMock, never()).size(reference);
+		verify(attachmentExtractorMock).open(reference, 0);
+		assertThat(outputStream.toByteArray()).isEqualTo(content);
+	}
+
+	@Test
+	void streamAttachmentRangeOfLongInlineContentStopsDecodingAfterRange() throws IOException {
+		final var municipalityId = "2281";
+		final var messageId = "someMessageId";
+		final var data = "someLongContent".repeat(5000).getBytes();
+		// Content that can't be decoded past the requested range, which hence must be left undecoded
+		final var content = """
+			{"attachments":[{"content":"%s%%%%%%%%","filename":"someFileName","contentType":"application/pdf"}]}
+			""".formatted(Base64.getEncoder().encodeToString(data)).strip();
+		final var historyId = createHistoryId();
+		final var outputStream = new CapturingServletOutputStream();
+		when(historyId.getAttachmentsJson()).thenReturn("""
+			[{"name":"someFileName","contentType":"application/pdf","size":%d}]
+			""".formatted(data.length));
+		when(httpServletResponseMock.getOutputStream()).thenReturn(outputStream);
+		when(dbIntegrationMock.getFirstHistoryIdByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(historyId);
+		when(dbIntegrationMock.openHistoryContent(1L)).thenAnswer(invocation -> new StringReader(content));
+		when(objectMapperMock.createParser(any(Reader.class))).thenAnswer(invocation -> new ObjectMapper().createParser(invocation.<Reader>getArgument(0)));
+
+		historyService.streamAttachment(municipalityId, messageId, "someFileName", "bytes=100-199", httpServletResponseMock);
+
+		verify(httpServletResponseMock).setStatus(SC_PARTIAL_CONTENT);
+		verify(httpServletResponseMock).addHeader(CONTENT_RANGE, "bytes 100-199/" + data.length);
+		verify(httpServletResponseMock).setContentLengthLong(100);
+		assertThat(outputStream.toByteArray()).isEqualTo(Arrays.copyOfRange(data, 100, 200));
+	}
+
+	@ParameterizedTest
+	@MethodSource("byteRangeProvider")
+	void toByteRange(final String range, final long[] expectedByteRange) {
+		assertThat(HistoryService.toByteRange(range, 11)).isEqualTo(expectedByteRange);
+	}
+
+	private static Stream<Arguments> byteRangeProvider() {
+		return Stream.of(
+			Arguments.of(null, new long[] {
+				0, 10
+			}),
+			Arguments.of("bytes=2-3", new long[] {
+				2, 3
+			}),
+			Arguments.of("bytes=2-100", new long[] {
+				2, 10
+			}),
+			Arguments.of("bytes=-3", new long[] {
+				8, 10
+			}),
+			// Multiple ranges and invalid headers are ignored
+			Arguments.of("bytes=0-1,3-4", new long[] {
+				0, 10
+			}),
+			Arguments.of("invalid", new long[] {
+				0, 10
+			}),
+			Arguments.of("bytes=11-", null),
+			Arguments.of("bytes=-0", null));
 	}
 
 	@Test
@@ -206,21 +531,24 @@ class HistoryServiceTest {
 		final var userMessageList = List.of(createUserMessage(), createUserMessage());
 		final var spy = Mockito.spy(historyService);
 		final var messageIdProjectionMock = Mockito.mock(MessageIdProjection.class);
-		final Page<MessageIdProjection> messageIdPage = new PageImpl<>(List.of(messageIdProjectionMock, messageIdProjectionMock, messageIdProjectionMock));
-		when(dbIntegrationMock.getUniqueMessageIds(eq(municipalityId), eq(userId), any(LocalDateTime.class), any(PageRequest.class))).thenReturn(messageIdPage);
-		doReturn(userMessageList).when(spy).createUserMessages(municipalityId, messageIdPage.getContent());
+		final var messageIds = List.of(messageIdProjectionMock, messageIdProjectionMock, messageIdProjectionMock);
+		when(dbIntegrationMock.getUniqueMessageIds(eq(municipalityId), isNull(), eq(userId), any(LocalDateTime.class), isNull(), any(PageRequest.class))).thenReturn(messageIds);
+		when(dbIntegrationMock.countUniqueMessageIds(eq(municipalityId), isNull(), eq(userId), any(LocalDateTime.class))).thenReturn(3L);
+		doReturn(userMessageList).when(spy).createUserMessages(municipalityId, messageIds);
 
-		final var result = spy.getUserMessages(municipalityId, userId, null, page, limit);
+		final var result = spy.getUserMessages(municipalityId, userId, null, page, limit, null, true);
 
 		assertThat(result).isNotNull().satisfies(userMessages -> {
 			assertThat(userMessages.messages()).isEqualTo(userMessageList);
 			assertThat(userMessages.metaData().getPage()).isEqualTo(1);
-			assertThat(userMessages.metaData().getLimit()).isEqualTo(3);
+			assertThat(userMessages.metaData().getLimit()).isEqualTo(limit);
 			assertThat(userMessages.metaData().getCount()).isEqualTo(3);
 			assertThat(userMessages.metaData().getTotalRecords()).isEqualTo(3);
 			assertThat(userMessages.metaData().getTotalPages()).isEqualTo(1);
+			assertThat(userMessages.continuationToken()).isNull();
 		});
-		verify(dbIntegrationMock).getUniqueMessageIds(eq(municipalityId), eq(userId), any(LocalDateTime.class), pageRequestCaptor.capture());
+		verify(dbIntegrationMock).getUniqueMessageIds(eq(municipalityId), isNull(), eq(userId), any(LocalDateTime.class), isNull(), pageRequestCaptor.capture());
+		verify(dbIntegrationMock).countUniqueMessageIds(eq(municipalityId), isNull(), eq(userId), any(LocalDateTime.class));
 		final var pageRequest = pageRequestCaptor.getValue();
 		assertThat(pageRequest.getPageNumber()).isZero();
 		assertThat(pageRequest.getPageSize()).isEqualTo(limit);
@@ -231,237 +559,290 @@ class HistoryServiceTest {
 		final var municipalityId = "2281";
 		final var batchId = "someBatchId";
 		final var userId = "someUserId";
-		final var limit = 10;
-		final var page = 1;
+		final var limit = 2;
+		final var page = 3;
+		final var createdAt = LocalDateTime.now();
 		final var userMessageList = List.of(createUserMessage());
 		final var spy = Mockito.spy(historyService);
 		final var messageIdProjectionMock = Mockito.mock(MessageIdProjection.class);
-		final Page<MessageIdProjection> messageIdPage = new PageImpl<>(List.of(messageIdProjectionMock, messageIdProjectionMock));
-		when(dbIntegrationMock.getUniqueMessageIds(eq(municipalityId), eq(batchId), eq(userId), any(LocalDateTime.class), any(PageRequest.class))).thenReturn(messageIdPage);
-		doReturn(userMessageList).when(spy).createUserMessages(municipalityId, messageIdPage.getContent());
+		final var lastMessageIdProjectionMock = Mockito.mock(MessageIdProjection.class);
+		final var messageIds = List.of(messageIdProjectionMock, lastMessageIdProjectionMock);
+		when(lastMessageIdProjectionMock.getCreatedAt()).thenReturn(createdAt);
+		when(lastMessageIdProjectionMock.getId()).thenReturn(123L);
+		when(dbIntegrationMock.getUniqueMessageIds(eq(municipalityId), eq(batchId), eq(userId), any(LocalDateTime.class), isNull(), any(PageRequest.class))).thenReturn(messageIds);
+		when(dbIntegrationMock.countUniqueMessageIds(eq(municipalityId), eq(batchId), eq(userId), any(LocalDateTime.class))).thenReturn(7L);
+		doReturn(userMessageList).when(spy).createUserMessages(municipalityId, messageIds);
 
-		final var result = spy.getUserMessages(municipalityId, userId, batchId, page, limit);
+		final var result = spy.getUserMessages(municipalityId, userId, batchId, page, limit, null, true);
 
 		assertThat(result).isNotNull().satisfies(userMessages -> {
 			assertThat(userMessages.messages()).isEqualTo(userMessageList);
-			assertThat(userMessages.metaData().getPage()).isEqualTo(1);
+			assertThat(userMessages.metaData().getPage()).isEqualTo(3);
 			assertThat(userMessages.metaData().getLimit()).isEqualTo(2);
 			assertThat(userMessages.metaData().getCount()).isEqualTo(2);
-			assertThat(userMessages.metaData().getTotalRecords()).isEqualTo(2);
-			assertThat(userMessages.metaData().getTotalPages()).isEqualTo(1);
+			assertThat(userMessages.metaData().getTotalRecords()).isEqualTo(7);
+			assertThat(userMessages.metaData().getTotalPages()).isEqualTo(4);
+			assertThat(ContinuationToken.decode(userMessages.continuationToken())).isEqualTo(new ContinuationToken(createdAt, 123L));
 		});
-		verify(dbIntegrationMock).getUniqueMessageIds(eq(municipalityId), eq(batchId), eq(userId), any(LocalDateTime.class), pageRequestCaptor.capture());
+		verify(dbIntegrationMock).getUniqueMessageIds(eq(municipalityId), eq(batchId), eq(userId), any(LocalDateTime.class), isNull(), pageRequestCaptor.capture());
+		verify(dbIntegrationMock).countUniqueMessageIds(eq(municipalityId), eq(batchId), eq(userId), any(LocalDateTime.class));
 		final var pageRequest = pageRequestCaptor.getValue();
-		assertThat(pageRequest.getPageNumber()).isZero();
+		assertThat(pageRequest.getPageNumber()).isEqualTo(2);
 		assertThat(pageRequest.getPageSize()).isEqualTo(limit);
 	}
 
 	@Test
-	void createUserMessagesTest() {
+	void getUserMessagesWithContinuationTokenAndWithoutCount() {
 		final var municipalityId = "2281";
-		final var messageIdProjectionMock = Mockito.mock(MessageIdProjection.class);
+		final var userId = "someUserId";
+		final var limit = 10;
+		final var cursor = new ContinuationToken(LocalDateTime.now(), 123L);
+		final var userMessageList = List.of(createUserMessage());
 		final var spy = Mockito.spy(historyService);
-		when(messageIdProjectionMock.getMessageId()).thenReturn("1");
-		doReturn(createUserMessage()).when(spy).createUserMessage(eq(municipalityId), any());
+		final var messageIds = List.of(Mockito.mock(MessageIdProjection.class));
+		when(dbIntegrationMock.getUniqueMessageIds(eq(municipalityId), isNull(), eq(userId), any(LocalDateTime.class), eq(cursor), any(PageRequest.class))).thenReturn(messageIds);
+		doReturn(userMessageList).when(spy).createUserMessages(municipalityId, messageIds);
 
-		final var result = spy.createUserMessages(municipalityId, List.of(messageIdProjectionMock, messageIdProjectionMock, messageIdProjectionMock));
+		final var result = spy.getUserMessages(municipalityId, userId, null, 5, limit, ContinuationToken.encode(cursor.createdAt(), cursor.id()), false);
+
+		assertThat(result).isNotNull().satisfies(userMessages -> {
+			assertThat(userMessages.messages()).isEqualTo(userMessageList);
+			assertThat(userMessages.metaData().getLimit()).isEqualTo(limit);
+			assertThat(userMessages.metaData().getCount()).isEqualTo(1);
+			assertThat(userMessages.continuationToken()).isNull();
+		});
+		verify(dbIntegrationMock).getUniqueMessageIds(eq(municipalityId), isNull(), eq(userId), any(LocalDateTime.class), eq(cursor), pageRequestCaptor.capture());
+		verify(dbIntegrationMock, never()).countUniqueMessageIds(any(), any(), any(), any());
+		// The page to fetch is given by the token, hence the page number is ignored
+		final var pageRequest = pageRequestCaptor.getValue();
+		assertThat(pageRequest.getPageNumber()).isZero();
+		assertThat(pageRequest.getPageSize()).isEqualTo(limit);
+	}
 
-		assertThat(result).isNotNull().hasSize(3);
+	@Test
+	void createUserMessagesTest() {
+		final var municipalityId = "2281";
+		final var messageIdProjection1 = Mockito.mock(MessageIdProjection.class);
+		final var messageIdProjection2 = Mockito.mock(MessageIdProjection.class);
+		final var history1 = UserMessageHistory.builder().withPartyId("partyId1").withMessageType(SNAIL_MAIL).withStatus(MessageStatus.SENT).withMetadata(EMPTY_METADATA).build();
+		final var history2 = UserMessageHistory.builder().withPartyId("partyId2").withMessageType(SNAIL_MAIL).withStatus(MessageStatus.SENT).withMetadata(EMPTY_METADATA).build();
+		final var history3 = UserMessageHistory.builder().withPartyId("partyId1").withMessageType(SNAIL_MAIL).withStatus(MessageStatus.SENT).withMetadata(EMPTY_METADATA).build();
+		when(messageIdProjection1.getMessageId()).thenReturn("1");
+		when(messageIdProjection2.getMessageId()).thenReturn("2");
+		when(dbIntegrationMock.getUserMessageHistory(municipalityId, "1")).thenReturn(List.of(history1, history2));
+		when(dbIntegrationMock.getUserMessageHistory(municipalityId, "2")).thenReturn(List.of(history3));
+		when(legalIdResolverMock.resolve(municipalityId, List.of("partyId1", "partyId2", "partyId1"))).thenReturn(Map.of("partyId1", "legalId1", "partyId2", "legalId2"));
+
+		final var result = historyService.createUserMessages(municipalityId, List.of(messageIdProjection1, messageIdProjection2));
+
+		assertThat(result).isNotNull().hasSize(2);
+		assertThat(result.getFirst().messageId()).isEqualTo("1");
+		assertThat(result.getFirst().recipients()).extracting(UserMessage.Recipient::personId).containsExactly("legalId1", "legalId2");
+		assertThat(result.getLast().messageId()).isEqualTo("2");
+		assertThat(result.getLast().recipients()).extracting(UserMessage.Recipient::personId).containsExactly("legalId1");
+
+		// The legal ids of all recipients on the page are resolved at once
+		verify(legalIdResolverMock).resolve(municipalityId, List.of("partyId1", "partyId2", "partyId1"));
+		verify(dbIntegrationMock).getUserMessageHistory(municipalityId, "1");
+		verify(dbIntegrationMock).getUserMessageHistory(municipalityId, "2");
 	}
 
 	@Test
-	void createUserMessageTest() throws JacksonException {
+	void createUserMessageTest() {
 		final var municipalityId = "2281";
 		final var messageId = "someMessageId";
-		final var history = createHistoryEntity();
-		final var histories = List.of(history);
-		final var spy = Mockito.spy(historyService);
-		when(dbIntegrationMock.getHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(histories);
-		final var recipients = List.of(UserMessage.Recipient.builder().withMessageType("SNAIL_MAIL").withPersonId("123456-7890").build());
-		doReturn(recipients).when(spy).createRecipients(municipalityId, histories);
-		final var attachments = List.of(UserMessage.MessageAttachment.builder().withContentType("application/pdf").withFileName("someFileName").build());
-		doReturn(attachments).when(spy).extractAttachment(histories.getFirst());
-
-		final var expectedSubject = "someSubject";
-		final var expectedMessage = "someMessage";
-		final var jsonNodeMock = mock(JsonNode.class);
-		when(objectMapperMock.readTree(history.getContent())).thenReturn(jsonNodeMock);
-		when(jsonNodeMock.get("message")).thenReturn(mock(JsonNode.class));
-		when(jsonNodeMock.get("message").asText()).thenReturn(expectedMessage);
-		when(jsonNodeMock.get("subject")).thenReturn(mock(JsonNode.class));
-		when(jsonNodeMock.get("subject").asText()).thenReturn(expectedSubject);
-
-		final var result = spy.createUserMessage(municipalityId, messageId);
+		final var metadata = HistoryMetadata.builder()
+			.withSubject("someSubject")
+			.withBody("someMessage")
+			.withAttachments(List.of(new HistoryMetadata.Attachment("someFileName", "application/pdf", 8L)))
+			.build();
+		final var snailMail = UserMessageHistory.builder().withPartyId("partyId").withMessageType(SNAIL_MAIL).withStatus(MessageStatus.SENT).withMetadata(EMPTY_METADATA).build();
+		final var digitalMail = UserMessageHistory.builder().withPartyId("partyId").withMessageType(DIGITAL_MAIL).withStatus(MessageStatus.SENT).withIssuer("someIssuer")
+			.withOrigin("someOrigin").withCreatedAt(LocalDateTime.now()).withMetadata(metadata).build();
+		final var histories = List.of(snailMail, digitalMail);
+		when(dbIntegrationMock.getUserMessageHistory(municipalityId, messageId)).thenReturn(histories);
+		when(legalIdResolverMock.resolve(municipalityId, List.of("partyId", "partyId"))).thenReturn(Map.of("partyId", "123456-7890"));
+
+		final var result = historyService.createUserMessage(municipalityId, messageId);
 
 		assertThat(result).isNotNull().satisfies(userMessage -> {
 			assertThat(userMessage.messageId()).isEqualTo(messageId);
-			assertThat(userMessage.recipients()).isEqualTo(recipients);
-			assertThat(userMessage.attachments()).isEqualTo(attachments);
-			assertThat(userMessage.issuer()).isEqualTo(histories.getFirst().getIssuer());
-			assertThat(userMessage.origin()).isEqualTo(histories.getFirst().getOrigin());
-			assertThat(userMessage.sent()).isEqualTo(histories.getFirst().getCreatedAt());
-			assertThat(userMessage.subject()).isEqualTo(expectedSubject);
-			assertThat(userMessage.body()).isEqualTo(expectedMessage);
+			assertThat(userMessage.recipients()).extracting(UserMessage.Recipient::messageType, UserMessage.Recipient::personId)
+				.containsExactly(tuple("SNAIL_MAIL", "123456-7890"), tuple("DIGITAL_MAIL", "123456-7890"));
+			assertThat(userMessage.attachments()).containsExactly(UserMessage.MessageAttachment.builder().withFileName("someFileName").withContentType("application/pdf").build());
+			assertThat(userMessage.issuer()).isEqualTo(digitalMail.issuer());
+			assertThat(userMessage.origin()).isEqualTo(digitalMail.origin());
+			assertThat(userMessage.sent()).isEqualTo(digitalMail.createdAt());
+			assertThat(userMessage.subject()).isEqualTo("someSubject");
+			assertThat(userMessage.body()).isEqualTo("someMessage");
 		});
 
-		verify(dbIntegrationMock).getHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId);
-		verify(spy).createRecipients(municipalityId, histories);
-		verify(spy).extractAttachment(histories.getFirst());
-		verify(spy).createUserMessage(municipalityId, messageId);
-		verify(spy).extractSubject(histories.getFirst());
-		verify(objectMapperMock, times(2)).readTree(history.getContent());
-		verifyNoMoreInteractions(spy);
+		verify(dbIntegrationMock).getUserMessageHistory(municipalityId, messageId);
+		verify(legalIdResolverMock).resolve(municipalityId, List.of("partyId", "partyId"));
 	}
 
 	@Test
 	void findAttachmentByNameTest() {
-		final var contentInputNode = mock(JsonNode.class);
-		final var attachmentArrayNode = mock(JsonNode.class);
-		final var attachmentNode = mock(JsonNode.class);
-
-		final var fileNameNode = mock(JsonNode.class);
-		final var contentTypeNode = mock(JsonNode.class);
-		final var contentNode = mock(JsonNode.class);
-
-		when(contentInputNode.get("attachments")).thenReturn(attachmentArrayNode);
-		when(attachmentArrayNode.isArray()).thenReturn(true);
-		when(attachmentArrayNode.iterator()).thenReturn(List.of(attachmentNode).iterator());
-		when(attachmentNode.get("name")).thenReturn(fileNameNode);
-		when(attachmentNode.get("content")).thenReturn(contentNode);
-		when(attachmentNode.get("contentType")).thenReturn(contentTypeNode);
-		when(fileNameNode.asText()).thenReturn("someFileName");
-		when(contentTypeNode.asText()).thenReturn("application/pdf");
-		when(contentNode.asText()).thenReturn("someContent");
-
-		final var result = historyService.findAttachmentByName(contentInputNode, "name", "someFileName");
+		final var content = """
+			{
+			  "subject": "someSubject",
+			  "attachments": [
+			    {
+			      "name": "otherFileName",
+			      "contentType": "text/plain",
+			      "content": "otherContent"
+			    },
+			    {
+			      "content": "someContent",
+			      "metadata": { "pages": [1, 2] },
+			      "name": "someFileName",
+			      "contentType": "application/pdf"
+			    }
+			  ]
+			}
+			""";
+		final var reader = new StringReader(content);
+		when(objectMapperMock.createParser(reader)).thenReturn(new ObjectMapper().createParser(reader));
+
+		final var result = historyService.findAttachmentByName(reader, "name", "someFileName");
 
 		assertThat(result).isNotNull().satisfies(attachment -> {
 			assertThat(attachment.getName()).isEqualTo("someFileName");
 			assertThat(attachment.getContentType()).isEqualTo("application/pdf");
-			assertThat(attachment.getContent()).isEqualTo("someContent");
+			assertThat(attachment.getIndex()).isEqualTo(1);
+			// The content is left to be read once the attachment is found
+			assertThat(attachment.getContent()).isNull();
 		});
+		verify(objectMapperMock).createParser(reader);
 	}
 
 	@Test
-	void findAttachmentByNameTest_2() {
-		final var contentInputNode = mock(JsonNode.class);
-		final var attachmentArrayNode = mock(JsonNode.class);
+	void readContentOfReference() throws IOException {
+		final var reference = AttachmentExtractor.REFERENCE_PREFIX + "a".repeat(64);
+		final var attachment = createAttachment();
+		attachment.setContent(null);
+		attachment.setIndex(1);
+		when(dbIntegrationMock.openHistoryContent(1L)).thenReturn(new StringReader("""
+			{"attachments":[{"name":"otherFileName","content":"%s"},{"content":"%s","name":"someFileName"}]}
+			""".formatted("b".repeat(10000), reference)));
 
-		when(contentInputNode.get("attachments")).thenReturn(attachmentArrayNode);
-		when(attachmentArrayNode.isArray()).thenReturn(false);
+		historyService.readContent(1L, attachment, null);
 
-		assertThatThrownBy(() -> historyService.findAttachmentByName(contentInputNode, "name", "someFileName"))
-			.isInstanceOf(Problem.class)
-			.hasMessage("Not Found: Attachment with name someFileName not found");
+		assertThat(attachment.getContent()).isEqualTo(reference);
+		assertThat(attachment.getSize()).isNull();
+		verify(dbIntegrationMock).openHistoryContent(1L);
 	}
 
 	@Test
-	void extractAttachmentTest() throws JacksonException {
-		final var history = createHistoryEntity();
-
-		final var jsonNodeMock = mock(JsonNode.class);
-		final var attachmentArrayNode = mock(JsonNode.class);
-		final var attachmentNode = mock(JsonNode.class);
-		final var fileNameNode = mock(JsonNode.class);
-		final var contentTypeNode = mock(JsonNode.class);
-
-		when(objectMapperMock.readTree(history.getContent())).thenReturn(jsonNodeMock);
-		when(jsonNodeMock.get("attachments")).thenReturn(attachmentArrayNode);
-		when(attachmentArrayNode.isArray()).thenReturn(true);
-		when(attachmentArrayNode.iterator()).thenReturn(List.of(attachmentNode).iterator());
-		when(attachmentNode.get("contentType")).thenReturn(contentTypeNode);
-		when(contentTypeNode.asText()).thenReturn("application/pdf");
-		when(attachmentNode.get("filename")).thenReturn(fileNameNode);
-		when(fileNameNode.asText()).thenReturn("someFileName");
-
-		final var result = historyService.extractAttachment(history);
+	void readContentOfLongInlineContentWithStoredSize() throws IOException {
+		final var attachment = createAttachment();
+		attachment.setContent(null);
+		attachment.setIndex(0);
+		when(dbIntegrationMock.openHistoryContent(1L)).thenReturn(new StringReader("""
+			{"attachments":[{"content":"%s","name":"someFileName"}]}
+			""".formatted(Base64.getEncoder().encodeToString("someContent".repeat(1000).getBytes()))));
+
+		historyService.readContent(1L, attachment, 11000L);
+
+		// The content is neither read nor measured
+		assertThat(attachment.getContent()).isNull();
+		assertThat(attachment.getSize()).isEqualTo(11000L);
+		verify(dbIntegrationMock).openHistoryContent(1L);
+	}
 
-		assertThat(result).isNotNull().satisfies(attachments -> {
-			assertThat(attachments).hasSize(1);
-			assertThat(attachments.getFirst().contentType()).isEqualTo("application/pdf");
-			assertThat(attachments.getFirst().fileName()).isEqualTo("someFileName");
-		});
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"{\"attachments\": {}}", "{\"attachments\": [{\"name\": \"otherFileName\"}]}", "{}", "[]", "not json"
+	})
+	void findAttachmentByNameTest_2(final String content) {
+		final var reader = new StringReader(content);
+		when(objectMapperMock.createParser(reader)).thenReturn(new ObjectMapper().createParser(reader));
+
+		assertThatThrownBy(() -> historyService.findAttachmentByName(reader, "name", "someFileName"))
+			.isInstanceOf(Problem.class)
+			.hasMessage("Not Found: Attachment with name someFileName not found");
+		verify(objectMapperMock).createParser(reader);
 	}
 
 	@Test
-	void createRecipientTest() throws JacksonException {
-		final var municipalityId = "2281";
-		final var history = HistoryEntity.builder()
+	void createRecipientTest() {
+		final var expectedMobileNumber = "+461234567890";
+		final var history = UserMessageHistory.builder()
 			.withPartyId("partyId")
-			.withMessageType(MessageType.MESSAGE)
+			.withMessageType(SMS)
 			.withStatus(MessageStatus.SENT)
+			.withMetadata(HistoryMetadata.builder().withDestination(expectedMobileNumber).build())
 			.build();
 		final var histories = List.of(history);
-		final var expectedMobileNumber = "+461234567890";
 		final var expectedLegalId = "123456-7890";
 
-		final var jsonNodeMock = mock(JsonNode.class);
-		when(objectMapperMock.readTree(history.getContent())).thenReturn(jsonNodeMock);
-		when(jsonNodeMock.get("mobileNumber")).thenReturn(mock(JsonNode.class));
-		when(jsonNodeMock.get("mobileNumber").asText()).thenReturn(expectedMobileNumber);
-
-		when(partyIntegrationMock.getLegalIdByPartyId(municipalityId, histories.getFirst().getPartyId())).thenReturn(expectedLegalId);
-
-		final var result = historyService.createRecipients(municipalityId, histories);
+		final var result = historyService.createRecipients(histories, Map.of(history.partyId(), expectedLegalId));
 
 		assertThat(result).isNotNull().satisfies(recipients -> {
 			assertThat(recipients).hasSize(1);
 			assertThat(recipients.getFirst().personId()).isEqualTo(expectedLegalId);
-			assertThat(recipients.getFirst().messageType()).isEqualTo(histories.getFirst().getMessageType().name());
+			assertThat(recipients.getFirst().messageType()).isEqualTo(histories.getFirst().messageType().name());
 			assertThat(recipients.getFirst().mobileNumber()).isEqualTo(expectedMobileNumber);
 		});
-
-		verify(partyIntegrationMock).getLegalIdByPartyId(municipalityId, histories.getFirst().getPartyId());
 	}
 
 	@Test
-	void createRecipientTest_nullPartyId() throws JacksonException {
-		final var municipalityId = "2281";
-		final var history = HistoryEntity.builder()
-			.withMessageType(MESSAGE)
+	void createRecipientTest_nullPartyId() {
+		final var expectedMobileNumber = "+461234567890";
+		final var history = UserMessageHistory.builder()
+			.withMessageType(SMS)
 			.withStatus(MessageStatus.SENT)
+			.withMetadata(HistoryMetadata.builder().withDestination(expectedMobileNumber).build())
 			.build();
 		final var histories = List.of(history);
-		final var expectedMobileNumber = "+461234567890";
-		final var jsonNodeMock = mock(JsonNode.class);
-		when(objectMapperMock.readTree(history.getContent())).thenReturn(jsonNodeMock);
-		when(jsonNodeMock.get("mobileNumber")).thenReturn(mock(JsonNode.class));
-		when(jsonNodeMock.get("mobileNumber").asText()).thenReturn(expectedMobileNumber);
 
-		final var result = historyService.createRecipients(municipalityId, histories);
+		final var result = historyService.createRecipients(histories, Map.of("partyId", "123456-7890"));
 
 		assertThat(result).isNotNull().satisfies(recipients -> {
 			assertThat(recipients).hasSize(1);
 			assertThat(recipients.getFirst().personId()).isNull();
-			assertThat(recipients.getFirst().messageType()).isEqualTo(histories.getFirst().getMessageType().name());
+			assertThat(recipients.getFirst().messageType()).isEqualTo(histories.getFirst().messageType().name());
 			assertThat(recipients.getFirst().mobileNumber()).isEqualTo(expectedMobileNumber);
 		});
+	}
 
-		verify(partyIntegrationMock, never()).getLegalIdByPartyId(eq(municipalityId), any());
+	@Test
+	void createRecipientWhenNotSms() {
+		final var history = UserMessageHistory.builder()
+			.withPartyId("partyId")
+			.withMessageType(EMAIL)
+			.withStatus(MessageStatus.SENT)
+			.withMetadata(HistoryMetadata.builder().withDestination("someone@example.com").build())
+			.build();
+
+		final var result = historyService.createRecipient(history, Map.of());
+
+		assertThat(result.mobileNumber()).isNull();
+		assertThat(result.personId()).isNull();
 	}
 
 	@Test
-	void getUserMessageTest() throws JacksonException {
+	void getUserMessageTest() {
 		final var municipalityId = "2281";
-		final var history = createHistoryEntity();
-		final var messageId = history.getMessageId();
-		final var issuer = history.getIssuer();
-		final var jsonNodeMock = mock(JsonNode.class);
+		final var history = createUserMessageHistory();
+		final var messageId = history.messageId();
+		final var issuer = history.issuer();
 
-		when(objectMapperMock.readTree(history.getContent())).thenReturn(jsonNodeMock);
 		when(dbIntegrationMock.existsByMunicipalityIdAndMessageIdAndIssuer(municipalityId, messageId, issuer)).thenReturn(true);
-		when(dbIntegrationMock.getHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId)).thenReturn(List.of(history));
+		when(dbIntegrationMock.getUserMessageHistory(municipalityId, messageId)).thenReturn(List.of(history));
+		when(legalIdResolverMock.resolve(municipalityId, List.of(history.partyId()))).thenReturn(Map.of(history.partyId(), "123456-7890"));
 
 		final var result = historyService.getUserMessage(municipalityId, issuer, messageId);
 
 		assertThat(result).isNotNull();
 		assertThat(result.messageId()).isEqualTo(messageId);
 		assertThat(result.issuer()).isEqualTo(issuer);
-		assertThat(result.attachments()).isEmpty();
+		assertThat(result.subject()).isEqualTo("someSubject");
+		assertThat(result.attachments()).extracting(UserMessage.MessageAttachment::contentType).containsExactly("application/pdf");
 		assertThat(result.recipients()).satisfies(recipients -> {
 			assertThat(recipients).hasSize(1);
-			assertThat(recipients.getFirst().messageType()).isEqualTo(history.getMessageType().name());
-			assertThat(recipients.getFirst().status()).isEqualTo(history.getStatus().name());
+			assertThat(recipients.getFirst().messageType()).isEqualTo(history.messageType().name());
+			assertThat(recipients.getFirst().status()).isEqualTo(history.status().name());
 			assertThat(recipients.getFirst().address().address()).isEqualTo("someAddress");
 			assertThat(recipients.getFirst().address().city()).isEqualTo("someCity");
 			assertThat(recipients.getFirst().address().country()).isEqualTo("someCountry");
@@ -471,10 +852,9 @@ class HistoryServiceTest {
 			assertThat(recipients.getFirst().address().zipCode()).isEqualTo("12345");
 		});
 
-		verify(objectMapperMock, times(4)).readTree(history.getContent());
 		verify(dbIntegrationMock).existsByMunicipalityIdAndMessageIdAndIssuer(municipalityId, messageId, issuer);
-		verify(dbIntegrationMock).getHistoryEntityByMunicipalityIdAndMessageId(municipalityId, messageId);
-		verify(partyIntegrationMock).getLegalIdByPartyId(municipalityId, history.getPartyId());
+		verify(dbIntegrationMock).getUserMessageHistory(municipalityId, messageId);
+		verify(legalIdResolverMock).resolve(municipalityId, List.of(history.partyId()));
 	}
 
 	@Test
@@ -499,44 +879,68 @@ class HistoryServiceTest {
 		final var page = 1;
 		final var limit = 1;
 		final var date = LocalDate.now().minusDays(30).atStartOfDay();
+		final var pageRequest = PageRequest.of(0, limit);
+		final var summary = createBatchSummaryEntity("batchId1");
 		final var message1batch1 = createBatchHistoryProjection("messageId1", "batchId1");
 		final var message2batch1 = createBatchHistoryProjection("messageId2", "batchId1");
-		final var message1batch2 = createBatchHistoryProjection("messageId3", "batchId2");
-		final var message2batch2 = createBatchHistoryProjection("messageId4", "batchId2");
-
-		final var projections = List.of(
-			message1batch1,
-			message2batch1,
-			message1batch2,
-			message2batch2);
-
-		when(dbIntegrationMock.getBatchHistoryMessagesForUser(municipalityId, issuer, date)).thenReturn(projections);
-
-		final var bean = historyService.getUserBatches(municipalityId, issuer, page, limit);
-
-		verify(dbIntegrationMock).getBatchHistoryMessagesForUser(municipalityId, issuer, date);
-		verify(batchExtractorMock).extractAttachmentCount(municipalityId, List.of(message1batch1, message2batch1));
-		verify(batchExtractorMock).extractAttachmentCount(municipalityId, List.of(message1batch2, message2batch2));
-		verify(batchExtractorMock).extractOriginalMesageType(List.of(message1batch1, message2batch1));
-		verify(batchExtractorMock).extractOriginalMesageType(List.of(message1batch2, message2batch2));
-		verify(batchExtractorMock).extractRecipientCount(List.of(message1batch1, message2batch1));
-		verify(batchExtractorMock).extractRecipientCount(List.of(message1batch2, message2batch2));
-		verify(batchExtractorMock).extractSent(List.of(message1batch1, message2batch1));
-		verify(batchExtractorMock).extractSent(List.of(message1batch2, message2batch2));
-		verify(batchExtractorMock).extractSubject(municipalityId, List.of(message1batch1, message2batch1));
-		verify(batchExtractorMock).extractSubject(municipalityId, List.of(message1batch2, message2batch2));
-		verify(batchExtractorMock).extractSuccessfulCount(List.of(message1batch1, message2batch1));
-		verify(batchExtractorMock).extractSuccessfulCount(List.of(message1batch2, message2batch2));
-		verify(batchExtractorMock).extractUnsuccessfulCount(List.of(message1batch1, message2batch1));
-		verify(batchExtractorMock).extractUnsuccessfulCount(List.of(message1batch2, message2batch2));
+		final var projections = List.of(message1batch1, message2batch1);
+
+		when(dbIntegrationMock.getBatchSummaries(municipalityId, issuer, date, null, pageRequest)).thenReturn(List.of(summary));
+		when(dbIntegrationMock.countBatchSummaries(municipalityId, issuer, date)).thenReturn(2L);
+		when(dbIntegrationMock.getBatchHistoryMessages(municipalityId, issuer, List.of("batchId1"), date)).thenReturn(projections);
+		when(batchStatusAggregatorMock.aggregate(projections)).thenReturn(new BatchStatus(2, 1, 1, LocalDateTime.now(), "SNAIL_MAIL"));
+
+		final var bean = historyService.getUserBatches(municipalityId, issuer, page, limit, null, true);
+
+		verify(dbIntegrationMock).getBatchSummaries(municipalityId, issuer, date, null, pageRequest);
+		verify(dbIntegrationMock).countBatchSummaries(municipalityId, issuer, date);
+		verify(dbIntegrationMock).getBatchHistoryMessages(municipalityId, issuer, List.of("batchId1"), date);
+		verify(batchStatusAggregatorMock).aggregate(projections);
 
 		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
-		assertThat(bean.batches()).hasSize(1);
+		assertThat(bean.batches()).hasSize(1).first().satisfies(batch -> {
+			assertThat(batch.batchId()).isEqualTo("batchId1");
+			assertThat(batch.subject()).isEqualTo("subject");
+			assertThat(batch.attachmentCount()).isEqualTo(2);
+			assertThat(batch.messageType()).isEqualTo("LETTER");
+			assertThat(batch.recipientCount()).isEqualTo(2);
+			assertThat(batch.status().successful()).isEqualTo(1);
+			assertThat(batch.status().unsuccessful()).isEqualTo(1);
+		});
 		assertThat(bean.metaData().getCount()).isEqualTo(page);
 		assertThat(bean.metaData().getLimit()).isEqualTo(limit);
 		assertThat(bean.metaData().getPage()).isEqualTo(page);
 		assertThat(bean.metaData().getTotalPages()).isEqualTo(2);
 		assertThat(bean.metaData().getTotalRecords()).isEqualTo(2);
+		// The page is full, hence there might be a next page to continue with after the summary
+		assertThat(ContinuationToken.decode(bean.continuationToken())).isEqualTo(new ContinuationToken(summary.getCreatedAt(), summary.getId()));
+	}
+
+	@Test
+	void getUserBatchesWithContinuationTokenAndWithoutCount() {
+		final var municipalityId = "municipalityId";
+		final var issuer = "issuer";
+		final var limit = 2;
+		final var date = LocalDate.now().minusDays(30).atStartOfDay();
+		final var cursor = new ContinuationToken(LocalDateTime.now(), 123L);
+		final var pageRequest = PageRequest.of(0, limit);
+		final var summary = createBatchSummaryEntity("batchId1");
+		final var projections = List.of(createBatchHistoryProjection("messageId1", "batchId1"));
+
+		when(dbIntegrationMock.getBatchSummaries(municipalityId, issuer, date, cursor, pageRequest)).thenReturn(List.of(summary));
+		when(dbIntegrationMock.getBatchHistoryMessages(municipalityId, issuer, List.of("batchId1"), date)).thenReturn(projections);
+		when(batchStatusAggregatorMock.aggregate(projections)).thenReturn(new BatchStatus(1, 1, 0, LocalDateTime.now(), "SNAIL_MAIL"));
+
+		final var bean = historyService.getUserBatches(municipalityId, issuer, 5, limit, ContinuationToken.encode(cursor.createdAt(), cursor.id()), false);
+
+		verify(dbIntegrationMock).getBatchSummaries(municipalityId, issuer, date, cursor, pageRequest);
+		verify(dbIntegrationMock, never()).countBatchSummaries(any(), any(), any());
+		verify(dbIntegrationMock).getBatchHistoryMessages(municipalityId, issuer, List.of("batchId1"), date);
+		verify(batchStatusAggregatorMock).aggregate(projections);
+		assertThat(bean.batches()).hasSize(1);
+		assertThat(bean.metaData().getCount()).isEqualTo(1);
+		assertThat(bean.metaData().getLimit()).isEqualTo(limit);
+		assertThat(bean.continuationToken()).isNull();
 	}
 
 	@Test
@@ -546,13 +950,18 @@ class HistoryServiceTest {
 		final var page = 123;
 		final var limit = 321;
 		final var date = LocalDate.now().minusDays(30).atStartOfDay();
+		final var pageRequest = PageRequest.of(page - 1, limit);
 
-		when(dbIntegrationMock.getBatchHistoryMessagesForUser(municipalityId, issuer, date)).thenReturn(emptyList());
+		when(dbIntegrationMock.getBatchSummaries(municipalityId, issuer, date, null, pageRequest)).thenReturn(emptyList());
+		when(dbIntegrationMock.countBatchSummaries(municipalityId, issuer, date)).thenReturn(0L);
+		when(dbIntegrationMock.getBatchHistoryMessages(municipalityId, issuer, emptyList(), date)).thenReturn(emptyList());
 
-		final var bean = historyService.getUserBatches(municipalityId, issuer, page, limit);
+		final var bean = historyService.getUserBatches(municipalityId, issuer, page, limit, null, true);
 
-		verify(dbIntegrationMock).getBatchHistoryMessagesForUser(municipalityId, issuer, date);
-		assertThat(bean).isNotNull().hasNoNullFieldsOrProperties();
+		verify(dbIntegrationMock).getBatchSummaries(municipalityId, issuer, date, null, pageRequest);
+		verify(dbIntegrationMock).countBatchSummaries(municipalityId, issuer, date);
+		verify(dbIntegrationMock).getBatchHistoryMessages(municipalityId, issuer, emptyList(), date);
+		assertThat(bean).isNotNull().hasNoNullFieldsOrPropertiesExcept("continuationToken");
 		assertThat(bean.batches()).isEmpty();
 		assertThat(bean.metaData().getCount()).isZero();
 		assertThat(bean.metaData().getLimit()).isEqualTo(limit);
@@ -563,92 +972,39 @@ class HistoryServiceTest {
 
 	@Test
 	void createBatch() {
-		final var municipalityId = "municipalityId";
 		final var batchId = "batchId";
 		final var messageId1 = "messageId1";
 		final var messageId2 = "messageId2";
 		final var projections = List.of(createBatchHistoryProjection(messageId1), createBatchHistoryProjection(messageId2));
-		final var entry = Map.entry(batchId, projections);
+		final var summary = BatchSummaryEntity.builder().withBatchId(batchId).build();
+
+		when(batchStatusAggregatorMock.aggregate(projections)).thenReturn(new BatchStatus(0, 0, 0, null, "SMS"));
 
-		final var bean = historyService.createBatch(municipalityId, entry);
+		final var bean = historyService.createBatch(summary, projections);
 
-		assertThat(bean).isNotNull().hasAllNullFieldsOrPropertiesExcept("batchId", "attachmentCount", "recipientCount", "status");
+		assertThat(bean).isNotNull().hasAllNullFieldsOrPropertiesExcept("batchId", "messageType", "subject", "attachmentCount", "recipientCount", "status");
 		assertThat(bean.batchId()).isEqualTo(batchId);
+		assertThat(bean.messageType()).isEqualTo("SMS");
+		assertThat(bean.subject()).isEmpty();
 		assertThat(bean.attachmentCount()).isZero();
 		assertThat(bean.recipientCount()).isZero();
 		assertThat(bean.status().successful()).isZero();
 		assertThat(bean.status().unsuccessful()).isZero();
 
-		verify(batchExtractorMock).extractAttachmentCount(municipalityId, projections);
-		verify(batchExtractorMock).extractOriginalMesageType(projections);
-		verify(batchExtractorMock).extractRecipientCount(projections);
-		verify(batchExtractorMock).extractSent(projections);
-		verify(batchExtractorMock).extractSubject(municipalityId, projections);
-		verify(batchExtractorMock).extractSuccessfulCount(projections);
-		verify(batchExtractorMock).extractUnsuccessfulCount(projections);
-
-	}
-
-	@Test
-	void createBatch_fromNull() {
-		assertThat(historyService.createBatch(null, null)).isNull();
-	}
-
-	@ParameterizedTest
-	@MethodSource("attachmentFieldProvider")
-	void testGetAttachmentField(MessageType messageType, String attachmentFieldName) {
-		assertThat(historyService.getAttachmentsField(messageType)).isEqualTo(attachmentFieldName);
-	}
-
-	@ParameterizedTest
-	@MethodSource("fileNameFieldProvider")
-	void testGetFileNameField(MessageType messageType, String attachmentFieldName) {
-		assertThat(historyService.getFileNameField(messageType)).isEqualTo(attachmentFieldName);
-	}
-
-	@ParameterizedTest
-	@MethodSource("contentTypeFieldProvider")
-	void testGetContentTypeField(MessageType messageType, String attachmentFieldName) {
-		assertThat(historyService.getContentTypeField(messageType)).isEqualTo(attachmentFieldName);
+		verify(batchStatusAggregatorMock).aggregate(projections);
 	}
 
-	public static Stream<Arguments> attachmentFieldProvider() {
-		return Stream.of(
-			Arguments.of(MESSAGE, null),
-			Arguments.of(EMAIL, "attachments"),
-			Arguments.of(SMS, null),
-			Arguments.of(WEB_MESSAGE, "attachments"),
-			Arguments.of(DIGITAL_MAIL, "attachments"),
-			Arguments.of(DIGITAL_INVOICE, "files"),
-			Arguments.of(SNAIL_MAIL, "attachments"),
-			Arguments.of(LETTER, "attachments"),
-			Arguments.of(SLACK, null));
-	}
-
-	public static Stream<Arguments> fileNameFieldProvider() {
-		return Stream.of(
-			Arguments.of(MESSAGE, null),
-			Arguments.of(EMAIL, "name"),
-			Arguments.of(SMS, null),
-			Arguments.of(WEB_MESSAGE, "fileName"),
-			Arguments.of(DIGITAL_MAIL, "filename"),
-			Arguments.of(DIGITAL_INVOICE, "filename"),
-			Arguments.of(SNAIL_MAIL, "filename"),
-			Arguments.of(LETTER, "filename"),
-			Arguments.of(SLACK, null));
-	}
-
-	public static Stream<Arguments> contentTypeFieldProvider() {
-		return Stream.of(
-			Arguments.of(MESSAGE, null),
-			Arguments.of(EMAIL, "contentType"),
-			Arguments.of(SMS, null),
-			Arguments.of(WEB_MESSAGE, "mimeType"),
-			Arguments.of(DIGITAL_MAIL, "contentType"),
-			Arguments.of(DIGITAL_INVOICE, "contentType"),
-			Arguments.of(SNAIL_MAIL, "contentType"),
-			Arguments.of(LETTER, "contentType"),
-			Arguments.of(SLACK, null));
+	private static BatchSummaryEntity createBatchSummaryEntity(String batchId) {
+		return BatchSummaryEntity.builder()
+			.withMunicipalityId("municipalityId")
+			.withBatchId(batchId)
+			.withIssuer("issuer")
+			.withOriginalMessageType(LETTER)
+			.withSubject("subject")
+			.withAttachmentCount(2)
+			.withCreatedAt(LocalDateTime.now())
+			.withId(456L)
+			.build();
 	}
 
 	private static BatchHistoryProjection createBatchHistoryProjection(String messageId) {
@@ -689,4 +1045,35 @@ class HistoryServiceTest {
 			}
 		};
 	}
+
+	private static HistoryIdProjection createHistoryId() {
+		final var historyId = mock(HistoryIdProjection.class);
+		when(historyId.getId()).thenReturn(1L);
+		when(historyId.getMessageType()).thenReturn(SNAIL_MAIL);
+		return historyId;
+	}
+
+	private static class CapturingServletOutputStream extends ServletOutputStream {
+
+		private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		@Override
+		public void write(final int b) {
+			outputStream.write(b);
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setWriteListener(final WriteListener writeListener) {
+			// Not used
+		}
+
+		byte[] toByteArray() {
+			return outputStream.toByteArray();
+		}
+	}
 }
@@ -0,0 +1,83 @@
+package se.sundsvall.messaging.service;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.sundsvall.messaging.configuration.FanOutProperties;
+import se.sundsvall.messaging.integration.party.PartyIntegration;
+import se.sundsvall.messaging.service.delivery.FanOutExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LegalIdResolverTest {
+
+	private static final String MUNICIPALITY_ID = "2281";
+
+	@Mock
+	private PartyIntegration partyIntegrationMock;
+
+	private LegalIdResolver legalIdResolver;
+
+	@BeforeEach
+	void setUp() {
+		legalIdResolver = new LegalIdResolver(partyIntegrationMock, new FanOutExecutor(new FanOutProperties(3)));
+	}
+
+	@AfterEach
+	void verifyNoMoreMockInteractions() {
+		verifyNoMoreInteractions(partyIntegrationMock);
+	}
+
+	@Test
+	void resolveResolvesEachPartyIdOnce() {
+		when(partyIntegrationMock.getLegalIdByPartyId(MUNICIPALITY_ID, "partyId1")).thenReturn("legalId1");
+		when(partyIntegrationMock.getLegalIdByPartyId(MUNICIPALITY_ID, "partyId2")).thenReturn("legalId2");
+
+		final var result = legalIdResolver.resolve(MUNICIPALITY_ID, Arrays.asList("partyId1", null, "partyId2", "partyId1", null));
+
+		assertThat(result).containsOnly(entry("partyId1", "legalId1"), entry("partyId2", "legalId2"));
+		verify(partyIntegrationMock).getLegalIdByPartyId(MUNICIPALITY_ID, "partyId1");
+		verify(partyIntegrationMock).getLegalIdByPartyId(MUNICIPALITY_ID, "partyId2");
+	}
+
+	@Test
+	void resolveLeavesOutUnresolvedPartyIds() {
+		when(partyIntegrationMock.getLegalIdByPartyId(MUNICIPALITY_ID, "partyId1")).thenReturn("legalId1");
+		when(partyIntegrationMock.getLegalIdByPartyId(MUNICIPALITY_ID, "partyId2")).thenReturn(null);
+		when(partyIntegrationMock.getLegalIdByPartyId(MUNICIPALITY_ID, "partyId3")).thenThrow(new IllegalStateException("Party unavailable"));
+
+		final var result = legalIdResolver.resolve(MUNICIPALITY_ID, List.of("partyId1", "partyId2", "partyId3"));
+
+		assertThat(result).containsOnly(entry("partyId1", "legalId1"));
+		verify(partyIntegrationMock).getLegalIdByPartyId(MUNICIPALITY_ID, "partyId1");
+		verify(partyIntegrationMock).getLegalIdByPartyId(MUNICIPALITY_ID, "partyId2");
+		verify(partyIntegrationMock).getLegalIdByPartyId(MUNICIPALITY_ID, "partyId3");
+	}
+
+	@Test
+	void resolveWhenAllFail() {
+		when(partyIntegrationMock.getLegalIdByPartyId(MUNICIPALITY_ID, "partyId1")).thenThrow(new IllegalStateException("Party unavailable"));
+
+		assertThatIllegalStateException()
+			.isThrownBy(() -> legalIdResolver.resolve(MUNICIPALITY_ID, List.of("partyId1", "partyId1")))
+			.withMessage("Party unavailable");
+
+		verify(partyIntegrationMock).getLegalIdByPartyId(MUNICIPALITY_ID, "partyId1");
+	}
+
+	@Test
+	void resolveWithoutPartyIds() {
+		assertThat(legalIdResolver.resolve(MUNICIPALITY_ID, Arrays.asList(null, null))).isEmpty();
+	}
+}
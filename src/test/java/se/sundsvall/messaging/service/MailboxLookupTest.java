@@ -0,0 +1,125 @@
+package se.sundsvall.messaging.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.sundsvall.messaging.api.model.response.Mailbox;
+import se.sundsvall.messaging.configuration.FanOutProperties;
+import se.sundsvall.messaging.configuration.MailboxLookupProperties;
+import se.sundsvall.messaging.integration.digitalmailsender.DigitalMailSenderIntegration;
+import se.sundsvall.messaging.service.delivery.FanOutExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MailboxLookupTest {
+
+	private static final String MUNICIPALITY_ID = "2281";
+	private static final String ORGANIZATION_NUMBER = "2120002411";
+
+	@Mock
+	private DigitalMailSenderIntegration digitalMailSenderIntegrationMock;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private MailboxLookup mailboxLookup;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		mailboxLookup = new MailboxLookup(digitalMailSenderIntegrationMock, new FanOutExecutor(new FanOutProperties(3)),
+			new MailboxLookupProperties(2, 2, 100, Duration.ofMinutes(5)), meterRegistry);
+	}
+
+	@AfterEach
+	void verifyNoMoreMockInteractions() {
+		verifyNoMoreInteractions(digitalMailSenderIntegrationMock);
+	}
+
+	@Test
+	void getMailboxesInChunksAndInPartyIdOrder() {
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1", "partyId2")))
+			.thenReturn(List.of(mailbox("partyId2", false), mailbox("partyId1", true)));
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId3", "partyId4")))
+			.thenReturn(List.of(mailbox("partyId3", true)));
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId5")))
+			.thenReturn(List.of(mailbox("partyId5", true)));
+
+		final var result = mailboxLookup.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1", "partyId2", "partyId3", "partyId4", "partyId5"));
+
+		assertThat(result).containsExactly(mailbox("partyId1", true), mailbox("partyId2", false), mailbox("partyId3", true), mailbox("partyId5", true));
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1", "partyId2"));
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId3", "partyId4"));
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId5"));
+	}
+
+	@Test
+	void getMailboxesLooksUpOnlyPartyIdsNotCached() {
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1")))
+			.thenReturn(List.of(mailbox("partyId1", true)));
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId2")))
+			.thenReturn(List.of(mailbox("partyId2", false)));
+
+		mailboxLookup.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1"));
+		final var result = mailboxLookup.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1", "partyId2"));
+
+		assertThat(result).containsExactly(mailbox("partyId1", true), mailbox("partyId2", false));
+		assertThat(meterRegistry.get("cache.gets").tag("cache", MailboxLookup.CACHE_NAME).tag("result", "hit").functionCounter().count()).isEqualTo(1);
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1"));
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId2"));
+	}
+
+	@Test
+	void getMailboxesCachesPerMunicipalityAndOrganizationNumber() {
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1")))
+			.thenReturn(List.of(mailbox("partyId1", true)));
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, "5560000000", List.of("partyId1")))
+			.thenReturn(List.of(mailbox("partyId1", false)));
+
+		assertThat(mailboxLookup.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1"))).containsExactly(mailbox("partyId1", true));
+		assertThat(mailboxLookup.getMailboxes(MUNICIPALITY_ID, "5560000000", List.of("partyId1"))).containsExactly(mailbox("partyId1", false));
+
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1"));
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, "5560000000", List.of("partyId1"));
+	}
+
+	@Test
+	void getMailboxesWhenAllCached() {
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1")))
+			.thenReturn(List.of(mailbox("partyId1", true)));
+
+		mailboxLookup.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1"));
+
+		assertThat(mailboxLookup.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1"))).containsExactly(mailbox("partyId1", true));
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1"));
+	}
+
+	@Test
+	void getMailboxesWhenChunkFails() {
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1", "partyId2")))
+			.thenReturn(List.of(mailbox("partyId1", true), mailbox("partyId2", true)));
+		when(digitalMailSenderIntegrationMock.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId3")))
+			.thenThrow(new IllegalStateException("DigitalMailSender unavailable"));
+
+		assertThatIllegalStateException()
+			.isThrownBy(() -> mailboxLookup.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1", "partyId2", "partyId3")))
+			.withMessage("DigitalMailSender unavailable");
+
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId1", "partyId2"));
+		verify(digitalMailSenderIntegrationMock).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, List.of("partyId3"));
+	}
+
+	private static Mailbox mailbox(final String partyId, final boolean reachable) {
+		return new Mailbox(partyId, reachable ? null : "No mailbox", reachable ? "Kivra" : null, reachable);
+	}
+}
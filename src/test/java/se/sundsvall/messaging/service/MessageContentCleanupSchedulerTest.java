@@ -0,0 +1,55 @@
+package se.sundsvall.messaging.service;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.sundsvall.messaging.configuration.MessageContentCleanupProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageContentCleanupSchedulerTest {
+
+	private static final Duration MIN_AGE = Duration.ofDays(1);
+
+	@Mock
+	private DbIntegration mockDbIntegration;
+
+	@Test
+	void cleanupUntilNoneLeft() {
+		final var scheduler = new MessageContentCleanupScheduler(mockDbIntegration, new MessageContentCleanupProperties(true, 10, MIN_AGE));
+		when(mockDbIntegration.deleteUnreferencedMessageContent(MIN_AGE, 10)).thenReturn(10, 10, 3);
+
+		scheduler.cleanup();
+
+		verify(mockDbIntegration, times(3)).deleteUnreferencedMessageContent(MIN_AGE, 10);
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
+
+	@Test
+	void cleanupWhenNothingToDelete() {
+		final var scheduler = new MessageContentCleanupScheduler(mockDbIntegration, new MessageContentCleanupProperties(true, 10, MIN_AGE));
+		when(mockDbIntegration.deleteUnreferencedMessageContent(MIN_AGE, 10)).thenReturn(0);
+
+		scheduler.cleanup();
+
+		verify(mockDbIntegration).deleteUnreferencedMessageContent(MIN_AGE, 10);
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
+
+	@Test
+	void cleanupWhenDisabled() {
+		final var scheduler = new MessageContentCleanupScheduler(mockDbIntegration, new MessageContentCleanupProperties(false, 10, MIN_AGE));
+
+		scheduler.cleanup();
+
+		verifyNoInteractions(mockDbIntegration);
+	}
+}
@@ -73,6 +73,7 @@ class MessageEventDispatcherTest {
 
 		verify(mockMessageMapper).toMessage(anyString(), anyString(), anyString(), anyString(), any(MessageRequest.Message.class));
 		verify(mockDbIntegration).saveMessage(any(Message.class));
+		verify(mockDbIntegration).registerBatch(anyList());
 		verify(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 	}
 
@@ -85,6 +86,7 @@ class MessageEventDispatcherTest {
 
 		verify(mockMessageMapper).toMessage(any(EmailRequest.class), anyString());
 		verify(mockDbIntegration).saveMessage(any(Message.class));
+		verify(mockDbIntegration).registerBatch(anyList());
 		verify(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 	}
 
@@ -97,6 +99,7 @@ class MessageEventDispatcherTest {
 
 		verify(mockMessageMapper).toMessage(any(SmsRequest.class), anyString());
 		verify(mockDbIntegration).saveMessage(any(Message.class));
+		verify(mockDbIntegration).registerBatch(anyList());
 		verify(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 	}
 
@@ -109,13 +112,14 @@ class MessageEventDispatcherTest {
 
 		when(mockRequestMapper.toSmsRequest(any(SmsBatchRequest.class), any(SmsBatchRequest.Party.class))).thenReturn(smsRequest);
 		when(mockMessageMapper.toMessage(any(SmsRequest.class), anyString())).thenReturn(message);
-		when(mockDbIntegration.saveMessage(any(Message.class))).thenReturn(message);
+		when(mockDbIntegration.saveMessages(anyList())).thenReturn(List.of(message));
 
 		assertThat(messageEventDispatcher.handleSmsBatchRequest(smsBatchRequest).batchId()).isNotEmpty();
 
 		verify(mockRequestMapper).toSmsRequest(smsBatchRequest, party);
 		verify(mockMessageMapper).toMessage(eq(smsRequest), anyString());
-		verify(mockDbIntegration).saveMessage(message);
+		verify(mockDbIntegration).saveMessages(List.of(message));
+		verify(mockDbIntegration).registerBatch(List.of(message));
 		verify(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 
 		verifyNoMoreInteractions(mockRequestMapper, mockMessageMapper, mockDbIntegration, mockEventPublisher);
@@ -130,6 +134,7 @@ class MessageEventDispatcherTest {
 
 		verify(mockMessageMapper).toMessage(any(WebMessageRequest.class), anyString());
 		verify(mockDbIntegration).saveMessage(any(Message.class));
+		verify(mockDbIntegration).registerBatch(anyList());
 		verify(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 	}
 
@@ -145,6 +150,7 @@ class MessageEventDispatcherTest {
 
 		verify(mockMessageMapper).toMessages(any(DigitalMailRequest.class), anyString(), anyString());
 		verify(mockDbIntegration).saveMessages(anyList());
+		verify(mockDbIntegration).registerBatch(anyList());
 		verify(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 	}
 
@@ -157,6 +163,7 @@ class MessageEventDispatcherTest {
 
 		verify(mockMessageMapper).toMessage(any(DigitalInvoiceRequest.class), anyString());
 		verify(mockDbIntegration).saveMessage(any(Message.class));
+		verify(mockDbIntegration).registerBatch(anyList());
 		verify(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 	}
 
@@ -173,7 +180,9 @@ class MessageEventDispatcherTest {
 			.build(), ORGANIZATION_NUMBER);
 
 		verify(mockMessageMapper).toMessages(any(LetterRequest.class), anyString(), eq(ORGANIZATION_NUMBER));
+		verify(mockDbIntegration).trackBatch(anyString(), any(), eq(1));
 		verify(mockDbIntegration).saveMessages(anyList());
+		verify(mockDbIntegration).registerBatch(anyList());
 		verify(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 	}
 
@@ -187,6 +196,7 @@ class MessageEventDispatcherTest {
 
 		verify(mockMessageMapper).toMessage(any(SlackRequest.class), anyString());
 		verify(mockDbIntegration).saveMessage(any(Message.class));
+		verify(mockDbIntegration).registerBatch(anyList());
 		verify(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 	}
 
@@ -200,13 +210,15 @@ class MessageEventDispatcherTest {
 		final var message = TestDataFactory.createMessage(MessageType.EMAIL, "someContent");
 
 		when(mockMessageMapper.toMessage(any(EmailRequest.class), anyString())).thenReturn(message);
-		when(mockDbIntegration.saveMessage(any(Message.class))).thenReturn(message);
+		when(mockDbIntegration.saveMessages(anyList())).thenReturn(List.of(message, message));
 		doNothing().when(mockEventPublisher).publishEvent(any(IncomingMessageEvent.class));
 
 		messageEventDispatcher.handleEmailBatchRequest(validEmailBatchRequest);
 
 		verify(mockRequestMapper, times(2)).toEmailRequest(any(EmailBatchRequest.class), any(EmailBatchRequest.Party.class));
 		verify(mockMessageMapper, times(2)).toMessage(any(EmailRequest.class), anyString());
+		verify(mockDbIntegration).saveMessages(List.of(message, message));
+		verify(mockDbIntegration).registerBatch(List.of(message, message));
 		verify(mockEventPublisher, times(2)).publishEvent(any(IncomingMessageEvent.class));
 
 		verifyNoMoreInteractions(mockDbIntegration, mockRequestMapper, mockMessageMapper, mockEventPublisher);
@@ -1,6 +1,9 @@
 package se.sundsvall.messaging.service;
 
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -9,14 +12,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import se.sundsvall.dept44.problem.ThrowableProblem;
+import se.sundsvall.dept44.requestid.RequestId;
 import se.sundsvall.messaging.integration.db.DbIntegration;
 import se.sundsvall.messaging.model.Message;
 import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.service.delivery.DeliveryExecutor;
 import se.sundsvall.messaging.service.event.IncomingMessageEvent;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -36,17 +46,31 @@ class MessageEventHandlerTest {
 	@Mock
 	private DbIntegration mockDbIntegration;
 
+	@Mock
+	private DeliveryExecutor mockDeliveryExecutor;
+
 	@InjectMocks
 	private MessageEventHandler messageEventHandler;
 
+	@BeforeEach
+	void setUp() {
+		// Run the submitted delivery task in the calling thread
+		lenient().doAnswer(invocation -> {
+			invocation.<Runnable>getArgument(2).run();
+			return null;
+		}).when(mockDeliveryExecutor).execute(any(MessageType.class), anyString(), any(Runnable.class));
+	}
+
 	@ParameterizedTest
 	@EnumSource(MessageType.class)
 	void test_handleIncomingMessageEvent(final MessageType messageType) {
+		when(mockDbIntegration.claimMessage(anyString())).thenReturn(true);
 		when(mockDbIntegration.getMessageByDeliveryId(anyString()))
 			.thenReturn(Optional.of(Message.builder().withType(messageType).build()));
 
 		messageEventHandler.handleIncomingMessageEvent(event);
 
+		verify(mockDeliveryExecutor).execute(eq(EMAIL), eq("someDeliveryId"), any(Runnable.class));
 		verify(mockDbIntegration).getMessageByDeliveryId(anyString());
 
 		if (messageType == MESSAGE) {
@@ -61,6 +85,7 @@ class MessageEventHandlerTest {
 
 	@Test
 	void test_handleIncomingMessageEventWhenMessageIsNotFound() {
+		when(mockDbIntegration.claimMessage(anyString())).thenReturn(true);
 		when(mockDbIntegration.getMessageByDeliveryId(anyString())).thenReturn(Optional.empty());
 
 		assertThatExceptionOfType(ThrowableProblem.class)
@@ -71,4 +96,59 @@ class MessageEventHandlerTest {
 		verifyNoInteractions(mockMessageService);
 	}
 
+	@Test
+	void test_handleIncomingMessageEventWhenRejected() {
+		doThrow(new RejectedExecutionException("rejected")).when(mockDeliveryExecutor).execute(any(MessageType.class), anyString(), any(Runnable.class));
+
+		messageEventHandler.handleIncomingMessageEvent(event);
+
+		// The claim is left to expire
+		verify(mockDeliveryExecutor).execute(eq(EMAIL), eq("someDeliveryId"), any(Runnable.class));
+		verifyNoInteractions(mockDbIntegration, mockMessageService);
+	}
+
+	@Test
+	void test_handleIncomingMessageEventRestoresRequestIdOfCaller() {
+		when(mockDbIntegration.claimMessage(anyString())).thenReturn(true);
+		when(mockDbIntegration.getMessageByDeliveryId(anyString()))
+			.thenReturn(Optional.of(Message.builder().withType(EMAIL).build()));
+		final var deliveryRequestId = new AtomicReference<String>();
+		doAnswer(invocation -> {
+			deliveryRequestId.set(RequestId.get());
+			return null;
+		}).when(mockMessageService).deliver(any(Message.class));
+
+		try {
+			RequestId.init("callerRequestId");
+
+			// Run on the calling thread, as with the CALLER_RUNS rejection policy
+			messageEventHandler.handleIncomingMessageEvent(event);
+
+			assertThat(deliveryRequestId.get()).isNotNull().isNotEqualTo("callerRequestId");
+			assertThat(RequestId.get()).isEqualTo("callerRequestId");
+		} finally {
+			RequestId.reset();
+		}
+	}
+
+	@Test
+	void test_handleIncomingMessageEventResetsRequestIdWhenCallerHasNone() {
+		when(mockDbIntegration.claimMessage(anyString())).thenReturn(false);
+
+		messageEventHandler.handleIncomingMessageEvent(event);
+
+		assertThat(RequestId.get()).isNullOrEmpty();
+	}
+
+	@Test
+	void test_handleIncomingMessageEventWhenClaimedByAnotherInstance() {
+		when(mockDbIntegration.claimMessage(anyString())).thenReturn(false);
+
+		messageEventHandler.handleIncomingMessageEvent(event);
+
+		verify(mockDbIntegration).claimMessage("someDeliveryId");
+		verifyNoMoreInteractions(mockDbIntegration);
+		verifyNoInteractions(mockMessageService);
+	}
+
 }
@@ -9,10 +9,13 @@ import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.transaction.support.SimpleTransactionStatus;
-import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionTemplate;
+import se.sundsvall.dept44.problem.Problem;
+import se.sundsvall.dept44.problem.ThrowableProblem;
 import se.sundsvall.messaging.api.model.request.DigitalInvoiceRequest;
 import se.sundsvall.messaging.api.model.request.DigitalMailRequest;
 import se.sundsvall.messaging.api.model.request.EmailRequest;
@@ -22,6 +25,9 @@ import se.sundsvall.messaging.api.model.request.SlackRequest;
 import se.sundsvall.messaging.api.model.request.SmsRequest;
 import se.sundsvall.messaging.api.model.request.SnailMailRequest;
 import se.sundsvall.messaging.api.model.request.WebMessageRequest;
+import se.sundsvall.messaging.api.model.response.Mailbox;
+import se.sundsvall.messaging.configuration.FanOutProperties;
+import se.sundsvall.messaging.configuration.MailboxPreCheckProperties;
 import se.sundsvall.messaging.integration.citizen.CitizenIntegration;
 import se.sundsvall.messaging.integration.contactsettings.ContactDto;
 import se.sundsvall.messaging.integration.contactsettings.ContactSettingsIntegration;
@@ -46,22 +52,30 @@ import se.sundsvall.messaging.model.Message;
 import se.sundsvall.messaging.model.MessageOutcome;
 import se.sundsvall.messaging.model.MessageStatus;
 import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.service.delivery.DeliveryExecutor;
+import se.sundsvall.messaging.service.delivery.FanOutExecutor;
+import se.sundsvall.messaging.service.delivery.HistoryArchiver;
 import se.sundsvall.messaging.service.mapper.DtoMapper;
 import se.sundsvall.messaging.service.mapper.MessageMapper;
 import se.sundsvall.messaging.service.mapper.RequestMapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.BAD_GATEWAY;
 import static se.sundsvall.messaging.TestDataFactory.MUNICIPALITY_ID;
 import static se.sundsvall.messaging.TestDataFactory.createExternalReference;
 import static se.sundsvall.messaging.TestDataFactory.createValidDigitalInvoiceRequest;
@@ -132,6 +146,21 @@ class MessageServiceTest {
 	@Mock(answer = Answers.CALLS_REAL_METHODS)
 	private DtoMapper mockDtoMapper;
 
+	@Spy
+	private FanOutExecutor fanOutExecutor = new FanOutExecutor(new FanOutProperties(2));
+
+	@Mock
+	private DeliveryExecutor mockDeliveryExecutor;
+
+	@Mock
+	private MailboxLookup mockMailboxLookup;
+
+	@Mock
+	private HistoryArchiver mockHistoryArchiver;
+
+	@Spy
+	private MailboxPreCheckProperties mailboxPreCheckProperties = new MailboxPreCheckProperties(true);
+
 	private List<Object> integrations;
 
 	@InjectMocks
@@ -148,10 +177,10 @@ class MessageServiceTest {
 			mockSnailMailSenderIntegration,
 			mockSlackIntegration);
 
-		Mockito.lenient().when(mockTransactionTemplate.execute(any(TransactionCallbackWithoutResult.class)))
+		Mockito.lenient().when(mockTransactionTemplate.execute(any(TransactionCallback.class)))
 			.then(invocationOnMock -> {
 				final var args = invocationOnMock.getArguments();
-				final var arg = (TransactionCallbackWithoutResult) args[0];
+				final var arg = (TransactionCallback<?>) args[0];
 
 				return arg.doInTransaction(new SimpleTransactionStatus());
 			});
@@ -175,6 +204,7 @@ class MessageServiceTest {
 		assertThat(result).isNotNull().isEqualTo(deliveryResult);
 		verify(mockMessageMapper, times(2)).toMessage(snailmailRequest, batchId);
 		verify(mockDbIntegration).saveMessage(any());
+		verify(mockDbIntegration).registerBatch(List.of(message));
 	}
 
 	@Test
@@ -192,6 +222,9 @@ class MessageServiceTest {
 		assertThat(result.messageType()).isEqualTo(SMS);
 		assertThat(result.status()).isEqualTo(SENT);
 
+		// Verify that the delivery was kept in flight while delivered
+		verify(mockDeliveryExecutor).started(List.of(message.deliveryId()));
+		verify(mockDeliveryExecutor).completed(List.of(message.deliveryId()));
 		// Verify external integration interactions
 		verify(mockSmsSenderIntegration).sendSms(eq(request.municipalityId()), any(SmsDto.class));
 		verifyNoMoreInteractions(mockSmsSenderIntegration);
@@ -331,7 +364,48 @@ class MessageServiceTest {
 		verifyNoMoreInteractions(mockDtoMapper);
 		verifyNoInteractions(mockRequestMapper);
 		// Verify transaction template interaction
-		verify(mockTransactionTemplate).execute(any(TransactionCallbackWithoutResult.class));
+		verify(mockTransactionTemplate).execute(any(TransactionCallback.class));
+	}
+
+	@Test
+	void sendDigitalMailToMultipleRecipientsWhenSomeDeliveriesFail() {
+		final var partyIds = List.of("partyId1", "partyId2", "partyId3");
+		final var request = createValidDigitalMailRequest().withParty(DigitalMailRequest.Party.builder().withPartyIds(partyIds).build());
+		final var messages = mockMessageMapper.toMessages(request, BATCH_ID, ORGANIZATION_NUMBER);
+
+		when(mockDbIntegration.saveMessages(anyList())).thenReturn(messages);
+		when(mockDigitalMailSenderIntegration.sendDigitalMail(eq(request.municipalityId()), anyString(), argThat(dto -> dto != null && !"partyId2".equals(dto.partyId())))).thenReturn(new MessageOutcome(SENT));
+		when(mockDigitalMailSenderIntegration.sendDigitalMail(eq(request.municipalityId()), anyString(), argThat(dto -> dto != null && "partyId2".equals(dto.partyId())))).thenThrow(Problem.valueOf(BAD_GATEWAY, "someError"));
+
+		final var result = messageService.sendDigitalMail(request, ORGANIZATION_NUMBER);
+
+		// Results are kept in recipient order, with the failing delivery collected as FAILED
+		assertThat(result.deliveries()).hasSize(3)
+			.extracting(InternalDeliveryResult::deliveryId, InternalDeliveryResult::status)
+			.containsExactly(
+				tuple(messages.get(0).deliveryId(), SENT),
+				tuple(messages.get(1).deliveryId(), FAILED),
+				tuple(messages.get(2).deliveryId(), SENT));
+
+		verify(mockDigitalMailSenderIntegration, times(3)).sendDigitalMail(eq(request.municipalityId()), eq(ORGANIZATION_NUMBER), any(DigitalMailDto.class));
+		verify(mockDbIntegration, times(3)).archiveMessage(any(Message.class), nullable(String.class));
+		verify(mockDbIntegration, never()).deleteMessageByDeliveryId(anyString());
+	}
+
+	@Test
+	void sendDigitalMailToMultipleRecipientsWhenAllDeliveriesFail() {
+		final var request = createValidDigitalMailRequest().withParty(DigitalMailRequest.Party.builder().withPartyIds(List.of("partyId1", "partyId2")).build());
+		final var messages = mockMessageMapper.toMessages(request, BATCH_ID, ORGANIZATION_NUMBER);
+
+		when(mockDbIntegration.saveMessages(anyList())).thenReturn(messages);
+		when(mockDigitalMailSenderIntegration.sendDigitalMail(eq(request.municipalityId()), anyString(), any(DigitalMailDto.class))).thenThrow(Problem.valueOf(BAD_GATEWAY, "someError"));
+
+		assertThatExceptionOfType(ThrowableProblem.class)
+			.isThrownBy(() -> messageService.sendDigitalMail(request, ORGANIZATION_NUMBER))
+			.satisfies(problem -> assertThat(problem.getStatus()).isEqualTo(BAD_GATEWAY));
+
+		verify(mockDigitalMailSenderIntegration, times(2)).sendDigitalMail(eq(request.municipalityId()), eq(ORGANIZATION_NUMBER), any(DigitalMailDto.class));
+		verify(mockDbIntegration, times(2)).archiveMessage(any(Message.class), nullable(String.class));
 	}
 
 	@Test
@@ -362,7 +436,7 @@ class MessageServiceTest {
 		verifyNoMoreInteractions(mockDtoMapper);
 		verifyNoInteractions(mockRequestMapper);
 		// Verify transaction template interaction
-		verify(mockTransactionTemplate).execute(any(TransactionCallbackWithoutResult.class));
+		verify(mockTransactionTemplate).execute(any(TransactionCallback.class));
 	}
 
 	@Test
@@ -389,13 +463,15 @@ class MessageServiceTest {
 		assertThat(result.deliveries().getLast().status()).isEqualTo(SENT);
 
 		// Verify external integration interactions
+		verify(mockMailboxLookup).getMailboxes(request.municipalityId(), ORGANIZATION_NUMBER, request.party().partyIds());
 		verify(mockDigitalMailSenderIntegration).sendDigitalMail(eq(request.municipalityId()), eq(ORGANIZATION_NUMBER), any(DigitalMailDto.class));
 		verify(mockSnailMailSenderIntegration).sendSnailMail(eq(request.municipalityId()), any(SnailMailDto.class));
 		verify(mockSnailMailSenderIntegration).sendBatch(eq(request.municipalityId()), anyString());
 
 		// Verify db integration interactions
-		verify(mockDbIntegration, times(2)).saveHistory(any(Message.class), nullable(String.class));
-		verify(mockDbIntegration, times(2)).deleteMessageByDeliveryId(anyString());
+		verify(mockDbIntegration).registerBatch(anyList());
+		verify(mockDbIntegration, times(2)).archiveMessage(any(Message.class), nullable(String.class));
+		verify(mockDbIntegration).deleteLetters(anyString());
 
 		// Verify mapper interactions (1 + 1 on mockMessageMapper since one is in the actual test)
 		verify(mockMessageMapper, times(1 + 1)).toMessages(any(LetterRequest.class), anyString(), eq(ORGANIZATION_NUMBER));
@@ -436,12 +512,13 @@ class MessageServiceTest {
 
 		// Verify external integration interactions
 		verify(mockCitizenIntegration).getCitizenAddress(request.party().partyIds().getFirst(), request.municipalityId());
+		verify(mockMailboxLookup).getMailboxes(request.municipalityId(), ORGANIZATION_NUMBER, request.party().partyIds());
 		verify(mockDigitalMailSenderIntegration).sendDigitalMail(eq(request.municipalityId()), eq(ORGANIZATION_NUMBER), any(DigitalMailDto.class));
 		verify(mockSnailMailSenderIntegration, times(2)).sendSnailMail(eq(request.municipalityId()), any(SnailMailDto.class));
 		verify(mockSnailMailSenderIntegration).sendBatch(eq(request.municipalityId()), anyString());
 		// Verify db integration interactions
-		verify(mockDbIntegration, times(3)).saveHistory(any(Message.class), nullable(String.class));
-		verify(mockDbIntegration, times(4)).deleteMessageByDeliveryId(anyString());
+		verify(mockDbIntegration, times(3)).archiveMessage(any(Message.class), nullable(String.class));
+		verify(mockDbIntegration).deleteLetters(anyString());
 		// Verify mapper interactions (1 + 1 on mockMessageMapper since one is in the actual test)
 		verify(mockMessageMapper, times(1 + 1)).toMessages(any(LetterRequest.class), anyString(), eq(ORGANIZATION_NUMBER));
 		verify(mockMessageMapper).mapAddressesToMessages(any(LetterRequest.class), anyString());
@@ -479,12 +556,13 @@ class MessageServiceTest {
 		assertThat(result.deliveries().getLast().status()).isEqualTo(SENT);
 
 		// Verify external integration interactions
+		verify(mockMailboxLookup).getMailboxes(request.municipalityId(), ORGANIZATION_NUMBER, request.party().partyIds());
 		verify(mockDigitalMailSenderIntegration).sendDigitalMail(eq(request.municipalityId()), eq(ORGANIZATION_NUMBER), any(DigitalMailDto.class));
 		verify(mockSnailMailSenderIntegration, times(2)).sendSnailMail(eq(request.municipalityId()), any(SnailMailDto.class));
 		verify(mockSnailMailSenderIntegration).sendBatch(eq(request.municipalityId()), anyString());
 		// Verify db integration interactions
-		verify(mockDbIntegration, times(3)).saveHistory(any(Message.class), nullable(String.class));
-		verify(mockDbIntegration, times(4)).deleteMessageByDeliveryId(anyString());
+		verify(mockDbIntegration, times(3)).archiveMessage(any(Message.class), nullable(String.class));
+		verify(mockDbIntegration).deleteLetters(anyString());
 		// Verify mapper interactions (1 + 1 on mockMessageMapper since one is in the actual test)
 		verify(mockMessageMapper, times(1 + 1)).toMessages(any(LetterRequest.class), anyString(), eq(ORGANIZATION_NUMBER));
 		verify(mockMessageMapper).mapAddressesToMessages(any(LetterRequest.class), anyString());
@@ -524,8 +602,8 @@ class MessageServiceTest {
 		// Verify external integration interactions
 		verify(mockSnailMailSenderIntegration, times(2)).sendSnailMail(eq(request.municipalityId()), any(SnailMailDto.class));
 		// Verify db integration interactions
-		verify(mockDbIntegration, times(2)).saveHistory(any(Message.class), nullable(String.class));
-		verify(mockDbIntegration, times(3)).deleteMessageByDeliveryId(anyString());
+		verify(mockDbIntegration, times(2)).archiveMessage(any(Message.class), nullable(String.class));
+		verify(mockDbIntegration).deleteLetters(anyString());
 		// Verify mapper interactions (1 + 1 on mockMessageMapper since one is in the actual test)
 		verify(mockMessageMapper, times(1 + 1)).toMessages(any(LetterRequest.class), anyString(), eq(ORGANIZATION_NUMBER));
 		verify(mockMessageMapper).mapAddressesToMessages(any(LetterRequest.class), anyString());
@@ -538,12 +616,135 @@ class MessageServiceTest {
 		verifyTransactionTemplateInteractions(2);
 	}
 
+	@Test
+	void getMailboxes() {
+		final var partyIds = List.of("partyId1", "partyId2");
+		final var mailboxes = List.of(new Mailbox("partyId1", null, "Kivra", true), new Mailbox("partyId2", "No mailbox", null, false));
+
+		when(mockMailboxLookup.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, partyIds)).thenReturn(mailboxes);
+
+		assertThat(messageService.getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, partyIds)).isSameAs(mailboxes);
+
+		verify(mockMailboxLookup).getMailboxes(MUNICIPALITY_ID, ORGANIZATION_NUMBER, partyIds);
+		verifyNoInteractions(mockDigitalMailSenderIntegration);
+	}
+
+	@Test
+	void sendLetterSnailMailWhenNoReachableMailbox() {
+		final var request = createValidLetterRequest();
+		final var partyId = request.party().partyIds().getFirst();
+		final var messages = mockMessageMapper.toMessages(request, BATCH_ID, ORGANIZATION_NUMBER);
+
+		when(mockDbIntegration.saveMessages(anyList())).thenReturn(messages);
+		when(mockDbIntegration.saveMessage(any(Message.class))).thenAnswer(i -> i.getArgument(0, Message.class));
+		when(mockMailboxLookup.getMailboxes(request.municipalityId(), ORGANIZATION_NUMBER, List.of(partyId)))
+			.thenReturn(List.of(new Mailbox(partyId, "No mailbox", null, false)));
+		when(mockCitizenIntegration.getCitizenAddress(partyId, request.municipalityId())).thenReturn(request.party().addresses().getFirst());
+		when(mockSnailMailSenderIntegration.sendSnailMail(eq(request.municipalityId()), any())).thenReturn(new MessageOutcome(SENT));
+
+		final var result = messageService.sendLetter(request, ORGANIZATION_NUMBER);
+
+		assertThat(result.deliveries())
+			.extracting(InternalDeliveryResult::messageType, InternalDeliveryResult::status)
+			.containsExactly(tuple(SNAIL_MAIL, SENT), tuple(SNAIL_MAIL, SENT));
+
+		// Verify that no attempt to deliver as digital mail was made
+		verify(mockMailboxLookup).getMailboxes(request.municipalityId(), ORGANIZATION_NUMBER, List.of(partyId));
+		verify(mockCitizenIntegration).getCitizenAddress(partyId, request.municipalityId());
+		verify(mockSnailMailSenderIntegration, times(2)).sendSnailMail(eq(request.municipalityId()), any(SnailMailDto.class));
+		verify(mockSnailMailSenderIntegration).sendBatch(eq(request.municipalityId()), anyString());
+		verify(mockDbIntegration, times(2)).archiveMessage(any(Message.class), nullable(String.class));
+		verify(mockDbIntegration).deleteLetters(anyString());
+		verify(mockDtoMapper, times(2)).toSnailMailDto(any(SnailMailRequest.class), anyString(), any(Address.class));
+		verifyNoMoreInteractions(mockCitizenIntegration, mockMailboxLookup, mockSnailMailSenderIntegration, mockDtoMapper);
+		verifyNoInteractions(mockDigitalMailSenderIntegration);
+		verifyTransactionTemplateInteractions(2);
+	}
+
+	@Test
+	void sendLetterDigitalOnlyFailsWhenNoReachableMailbox() {
+		final var request = createValidLetterRequest()
+			.withParty(LetterRequest.Party.builder()
+				.withPartyIds(List.of("partyId1", "partyId2", "partyId3"))
+				.build())
+			.withAttachments(List.of(LetterRequest.Attachment.builder()
+				.withDeliveryMode(LetterRequest.Attachment.DeliveryMode.DIGITAL_MAIL)
+				.withContentType(ContentType.APPLICATION_PDF.getValue())
+				.withFilename("someFilename")
+				.withContent("someContent")
+				.build()));
+		final var messages = mockMessageMapper.toMessages(request, BATCH_ID, ORGANIZATION_NUMBER);
+
+		when(mockDbIntegration.saveMessages(anyList())).thenReturn(messages);
+		when(mockDbIntegration.saveMessage(any(Message.class))).thenAnswer(i -> i.getArgument(0, Message.class));
+		when(mockMailboxLookup.getMailboxes(request.municipalityId(), ORGANIZATION_NUMBER, List.of("partyId1", "partyId2", "partyId3")))
+			.thenReturn(List.of(new Mailbox("partyId1", null, "Kivra", true), new Mailbox("partyId2", "No mailbox", null, false), new Mailbox("partyId3", "No mailbox", null, false)));
+		when(mockDigitalMailSenderIntegration.sendDigitalMail(eq(request.municipalityId()), anyString(), any(DigitalMailDto.class))).thenReturn(new MessageOutcome(SENT));
+
+		final var result = messageService.sendLetter(request, ORGANIZATION_NUMBER);
+
+		assertThat(result.deliveries())
+			.extracting(InternalDeliveryResult::messageType, InternalDeliveryResult::status)
+			.containsExactly(tuple(DIGITAL_MAIL, SENT), tuple(DIGITAL_MAIL, FAILED), tuple(DIGITAL_MAIL, FAILED));
+
+		// Verify that digital mail was only attempted for the reachable mailbox
+		verify(mockMailboxLookup).getMailboxes(request.municipalityId(), ORGANIZATION_NUMBER, List.of("partyId1", "partyId2", "partyId3"));
+		verify(mockDigitalMailSenderIntegration).sendDigitalMail(eq(request.municipalityId()), eq(ORGANIZATION_NUMBER), any(DigitalMailDto.class));
+		verify(mockDbIntegration, times(2)).archiveMessage(any(Message.class), eq("Only DIGITAL_MAIL delivery allowed and no reachable digital mailbox"));
+		verifyNoMoreInteractions(mockMailboxLookup, mockDigitalMailSenderIntegration);
+		verifyNoInteractions(mockCitizenIntegration, mockSnailMailSenderIntegration);
+	}
+
+	@Test
+	void sendLetterDigitalWhenMailboxCheckFails() {
+		final var request = createValidLetterRequest();
+		final var messages = mockMessageMapper.toMessages(request, BATCH_ID, ORGANIZATION_NUMBER);
+
+		when(mockDbIntegration.saveMessages(anyList())).thenReturn(messages);
+		when(mockDbIntegration.saveMessage(any(Message.class))).thenAnswer(i -> i.getArgument(0, Message.class));
+		when(mockMailboxLookup.getMailboxes(eq(request.municipalityId()), eq(ORGANIZATION_NUMBER), anyList())).thenThrow(new RuntimeException());
+		when(mockDigitalMailSenderIntegration.sendDigitalMail(eq(request.municipalityId()), anyString(), any(DigitalMailDto.class))).thenReturn(new MessageOutcome(SENT));
+		when(mockSnailMailSenderIntegration.sendSnailMail(eq(request.municipalityId()), any(SnailMailDto.class))).thenReturn(new MessageOutcome(SENT));
+
+		final var result = messageService.sendLetter(request, ORGANIZATION_NUMBER);
+
+		assertThat(result.deliveries())
+			.extracting(InternalDeliveryResult::messageType, InternalDeliveryResult::status)
+			.containsExactly(tuple(DIGITAL_MAIL, SENT), tuple(SNAIL_MAIL, SENT));
+
+		verify(mockMailboxLookup).getMailboxes(request.municipalityId(), ORGANIZATION_NUMBER, request.party().partyIds());
+		verify(mockDigitalMailSenderIntegration).sendDigitalMail(eq(request.municipalityId()), eq(ORGANIZATION_NUMBER), any(DigitalMailDto.class));
+		verifyNoMoreInteractions(mockMailboxLookup, mockDigitalMailSenderIntegration);
+	}
+
+	@Test
+	void sendLetterWithoutMailboxCheckWhenDisabled() {
+		final var request = createValidLetterRequest();
+		final var messages = mockMessageMapper.toMessages(request, BATCH_ID, ORGANIZATION_NUMBER);
+
+		when(mailboxPreCheckProperties.enabled()).thenReturn(false);
+		when(mockDbIntegration.saveMessages(anyList())).thenReturn(messages);
+		when(mockDbIntegration.saveMessage(any(Message.class))).thenAnswer(i -> i.getArgument(0, Message.class));
+		when(mockDigitalMailSenderIntegration.sendDigitalMail(eq(request.municipalityId()), anyString(), any(DigitalMailDto.class))).thenReturn(new MessageOutcome(SENT));
+		when(mockSnailMailSenderIntegration.sendSnailMail(eq(request.municipalityId()), any(SnailMailDto.class))).thenReturn(new MessageOutcome(SENT));
+
+		final var result = messageService.sendLetter(request, ORGANIZATION_NUMBER);
+
+		assertThat(result.deliveries())
+			.extracting(InternalDeliveryResult::messageType, InternalDeliveryResult::status)
+			.containsExactly(tuple(DIGITAL_MAIL, SENT), tuple(SNAIL_MAIL, SENT));
+
+		verify(mockDigitalMailSenderIntegration).sendDigitalMail(eq(request.municipalityId()), eq(ORGANIZATION_NUMBER), any(DigitalMailDto.class));
+		verifyNoMoreInteractions(mockDigitalMailSenderIntegration);
+		verifyNoInteractions(mockMailboxLookup);
+	}
+
 	@Test
 	void sendMessages() {
 		final var request = createMessageRequest(List.of("partyId1", "partyId2", "partyId3", "partyId4"));
 
 		when(mockDbIntegration.saveMessage(any(Message.class))).thenAnswer(i -> i.getArgument(0, Message.class));
-		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), eq("partyId1"), any()))
+		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), any(), eq("partyId1"), any()))
 			.thenReturn(List.of(
 				ContactDto.builder()
 					.withContactMethod(ContactDto.ContactMethod.SMS)
@@ -555,16 +756,16 @@ class MessageServiceTest {
 					.withDestination("partyId1@something.com")
 					.withDisabled(true)
 					.build()));
-		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), eq("partyId2"), any()))
+		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), any(), eq("partyId2"), any()))
 			.thenReturn(List.of(ContactDto.builder().build()));
-		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), eq("partyId3"), any()))
+		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), any(), eq("partyId3"), any()))
 			.thenReturn(List.of(
 				ContactDto.builder()
 					.withContactMethod(ContactDto.ContactMethod.EMAIL)
 					.withDestination("partyId3@something.com")
 					.withDisabled(false)
 					.build()));
-		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), eq("partyId4"), any()))
+		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), any(), eq("partyId4"), any()))
 			.thenReturn(List.of());
 
 		when(mockSmsSenderIntegration.sendSms(anyString(), any(SmsDto.class))).thenReturn(new MessageOutcome(SENT));
@@ -584,14 +785,14 @@ class MessageServiceTest {
 		});
 
 		// Verify external integration interactions
-		verify(mockContactSettingsIntegration, times(4)).getContactSettings(anyString(), anyString(), any());
+		verify(mockContactSettingsIntegration, times(4)).getContactSettings(anyString(), any(), anyString(), any());
 		verifyNoMoreInteractions(mockContactSettingsIntegration);
 		verify(mockSmsSenderIntegration).sendSms(anyString(), any(SmsDto.class));
 		verifyNoMoreInteractions(mockSmsSenderIntegration);
 		verify(mockEmailSenderIntegration).sendEmail(anyString(), any(EmailDto.class));
 		verifyNoMoreInteractions(mockEmailSenderIntegration);
-		verify(mockDbIntegration, times(5)).saveHistory(any(Message.class), nullable(String.class));
-		verify(mockDbIntegration, times(7)).deleteMessageByDeliveryId(anyString());
+		verify(mockDbIntegration, times(5)).archiveMessage(any(Message.class), nullable(String.class));
+		verify(mockDbIntegration, times(2)).deleteMessageByDeliveryId(anyString());
 		// Verify mapper interactions (4 instead of 3 on mockMessageMapper since one is in the actual test)
 		verify(mockMessageMapper, times(4)).toMessage(anyString(), anyString(), anyString(), anyString(), any(MessageRequest.Message.class));
 		verifyNoMoreInteractions(mockMessageMapper);
@@ -605,6 +806,26 @@ class MessageServiceTest {
 		verifyTransactionTemplateInteractions(5);
 	}
 
+	@Test
+	void sendMessagesWhenHandlingOfMessageFails() {
+		final var request = createMessageRequest(List.of("partyId1", "partyId2"));
+		final var problem = Problem.valueOf(BAD_GATEWAY, "Unable to get contact settings");
+
+		when(mockDbIntegration.saveMessage(any(Message.class))).thenAnswer(i -> i.getArgument(0, Message.class));
+		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), any(), eq("partyId1"), any())).thenReturn(List.of());
+		when(mockContactSettingsIntegration.getContactSettings(eq("2281"), any(), eq("partyId2"), any())).thenThrow(problem);
+
+		// The failure is passed on, rather than replacing the results of the message with a FAILED result of its own
+		assertThatExceptionOfType(ThrowableProblem.class)
+			.isThrownBy(() -> messageService.sendMessages(request))
+			.isSameAs(problem);
+
+		verify(mockDbIntegration, times(2)).saveMessage(any(Message.class));
+		verify(mockDbIntegration).registerBatch(anyList());
+		verify(mockDbIntegration).archiveAndCountMessage(argThat(message -> message.status() == NO_CONTACT_SETTINGS_FOUND), isNull());
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
+
 	private void verifyNoExternalIntegrationInteractionsExcept(final Object skipIntegration) {
 		integrations.stream()
 			.filter(integration -> !integration.equals(skipIntegration))
@@ -612,17 +833,127 @@ class MessageServiceTest {
 	}
 
 	private void verifyDbIntegrationInteractions() {
-		verify(mockDbIntegration).saveHistory(any(Message.class), nullable(String.class));
-		verify(mockDbIntegration).deleteMessageByDeliveryId(anyString());
+		// The batch, of one or more messages, is registered once as it is received
+		verify(mockDbIntegration).registerBatch(anyList());
+		verify(mockDbIntegration).archiveAndCountMessage(any(Message.class), nullable(String.class));
 		verifyNoMoreInteractions(mockDbIntegration);
 	}
 
+	@Test
+	void sendLetterAsyncTriggersBatchWhenLastDelivered() {
+		final var spy = Mockito.spy(messageService);
+		final var message = Message.builder().withBatchId("someBatchId").withDeliveryId("someDeliveryId").withMunicipalityId(MUNICIPALITY_ID).withType(MessageType.LETTER).build();
+		final var deliveryResult = new InternalDeliveryResult("messageId", "deliveryId", MessageType.SNAIL_MAIL, MessageStatus.SENT, MUNICIPALITY_ID, null);
+
+		Mockito.doReturn(List.of(deliveryResult)).when(spy).routeAndSendLetter(message);
+		when(mockDbIntegration.completeLetter("someBatchId", "someDeliveryId", 1)).thenReturn(true);
+		when(mockDbIntegration.markBatchTriggered("someBatchId")).thenReturn(true);
+		when(mockDbIntegration.getSentSnailMailCount("someBatchId")).thenReturn(3);
+
+		spy.sendLetter(message);
+
+		verify(mockDbIntegration).completeLetter("someBatchId", "someDeliveryId", 1);
+		verify(mockDbIntegration).markBatchTriggered("someBatchId");
+		verify(mockDbIntegration).getSentSnailMailCount("someBatchId");
+		verify(mockSnailMailSenderIntegration).sendBatch(MUNICIPALITY_ID, "someBatchId");
+		verifyNoMoreInteractions(mockDbIntegration, mockSnailMailSenderIntegration);
+	}
+
+	@Test
+	void sendLetterAsyncDoesNotTriggerBatchWhenMessagesLeft() {
+		final var spy = Mockito.spy(messageService);
+		final var message = Message.builder().withBatchId("someBatchId").withDeliveryId("someDeliveryId").withMunicipalityId(MUNICIPALITY_ID).withType(MessageType.LETTER).build();
+		final var deliveryResult = new InternalDeliveryResult("messageId", "deliveryId", MessageType.DIGITAL_MAIL, MessageStatus.SENT, MUNICIPALITY_ID, null);
+
+		Mockito.doReturn(List.of(deliveryResult)).when(spy).routeAndSendLetter(message);
+		when(mockDbIntegration.completeLetter("someBatchId", "someDeliveryId", 0)).thenReturn(true);
+		when(mockDbIntegration.markBatchTriggered("someBatchId")).thenReturn(false);
+
+		spy.sendLetter(message);
+
+		verify(mockDbIntegration).completeLetter("someBatchId", "someDeliveryId", 0);
+		verify(mockDbIntegration).markBatchTriggered("someBatchId");
+		verifyNoMoreInteractions(mockDbIntegration);
+		verifyNoInteractions(mockSnailMailSenderIntegration);
+	}
+
+	@Test
+	void sendLetterAsyncDoesNotTriggerBatchWithoutSentSnailMail() {
+		final var spy = Mockito.spy(messageService);
+		final var message = Message.builder().withBatchId("someBatchId").withDeliveryId("someDeliveryId").withMunicipalityId(MUNICIPALITY_ID).withType(MessageType.LETTER).build();
+		final var deliveryResult = new InternalDeliveryResult("messageId", "deliveryId", MessageType.SNAIL_MAIL, FAILED, MUNICIPALITY_ID, null);
+
+		Mockito.doReturn(List.of(deliveryResult)).when(spy).routeAndSendLetter(message);
+		when(mockDbIntegration.completeLetter("someBatchId", "someDeliveryId", 0)).thenReturn(true);
+		when(mockDbIntegration.markBatchTriggered("someBatchId")).thenReturn(true);
+		when(mockDbIntegration.getSentSnailMailCount("someBatchId")).thenReturn(0);
+
+		spy.sendLetter(message);
+
+		verify(mockDbIntegration).completeLetter("someBatchId", "someDeliveryId", 0);
+		verify(mockDbIntegration).markBatchTriggered("someBatchId");
+		verify(mockDbIntegration).getSentSnailMailCount("someBatchId");
+		verifyNoMoreInteractions(mockDbIntegration);
+		verifyNoInteractions(mockSnailMailSenderIntegration);
+	}
+
+	@Test
+	void sendLetterAsyncTriggersUntrackedBatchWhenNoMessagesLeft() {
+		final var spy = Mockito.spy(messageService);
+		final var message = Message.builder().withBatchId("someBatchId").withDeliveryId("someDeliveryId").withMunicipalityId(MUNICIPALITY_ID).withType(MessageType.LETTER).build();
+		final var deliveryResult = new InternalDeliveryResult("messageId", "deliveryId", MessageType.SNAIL_MAIL, MessageStatus.SENT, MUNICIPALITY_ID, null);
+
+		Mockito.doReturn(List.of(deliveryResult)).when(spy).routeAndSendLetter(message);
+		when(mockDbIntegration.completeLetter("someBatchId", "someDeliveryId", 1)).thenReturn(false);
+		when(mockDbIntegration.existsByBatchId("someBatchId")).thenReturn(false);
+
+		spy.sendLetter(message);
+
+		verify(mockDbIntegration).completeLetter("someBatchId", "someDeliveryId", 1);
+		verify(mockDbIntegration).existsByBatchId("someBatchId");
+		verify(mockSnailMailSenderIntegration).sendBatch(MUNICIPALITY_ID, "someBatchId");
+		verifyNoMoreInteractions(mockDbIntegration, mockSnailMailSenderIntegration);
+	}
+
+	@Test
+	void archiveMessage() {
+		final var message = Message.builder().withDeliveryId("someDeliveryId").withType(MessageType.SMS).withStatus(MessageStatus.SENT).build();
+
+		messageService.archiveMessage(message, "someStatusDetail");
+
+		verify(mockHistoryArchiver).archive(message, "someStatusDetail");
+		verify(mockDbIntegration).archiveAndCountMessage(message, "someStatusDetail");
+		verifyNoMoreInteractions(mockHistoryArchiver, mockDbIntegration);
+		verifyTransactionTemplateInteractions();
+	}
+
+	@Test
+	void archiveMessageWithHistoryArchiver() {
+		final var message = Message.builder().withDeliveryId("someDeliveryId").withType(MessageType.SMS).withStatus(MessageStatus.SENT).build();
+
+		when(mockHistoryArchiver.archive(message, "someStatusDetail")).thenReturn(true);
+
+		messageService.archiveMessage(message, "someStatusDetail");
+
+		verify(mockHistoryArchiver).archive(message, "someStatusDetail");
+		verifyNoMoreInteractions(mockHistoryArchiver);
+		verifyNoInteractions(mockDbIntegration, mockTransactionTemplate);
+	}
+
+	@Test
+	void invalidateContactSettings() {
+		messageService.invalidateContactSettings(MUNICIPALITY_ID, "somePartyId");
+
+		verify(mockContactSettingsIntegration).invalidateContactSettings(MUNICIPALITY_ID, "somePartyId");
+		verifyNoMoreInteractions(mockContactSettingsIntegration);
+	}
+
 	private void verifyTransactionTemplateInteractions() {
 		verifyTransactionTemplateInteractions(1);
 	}
 
 	private void verifyTransactionTemplateInteractions(final int times) {
-		verify(mockTransactionTemplate, times(times)).execute(any(TransactionCallbackWithoutResult.class));
+		verify(mockTransactionTemplate, times(times)).execute(any(TransactionCallback.class));
 		verifyNoMoreInteractions(mockTransactionTemplate);
 	}
 
@@ -1,16 +1,21 @@
 package se.sundsvall.messaging.service;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
 import se.sundsvall.messaging.integration.db.DbIntegration;
 import se.sundsvall.messaging.model.Count;
+import se.sundsvall.messaging.model.DailyStatsEntry;
 import se.sundsvall.messaging.model.DepartmentLetter;
 import se.sundsvall.messaging.model.DepartmentStatistics;
+import se.sundsvall.messaging.model.ExportFormat;
 import se.sundsvall.messaging.model.MessageType;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -18,10 +23,13 @@ import static org.assertj.core.groups.Tuple.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
-import static se.sundsvall.messaging.TestDataFactory.createStatisticsEntity;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static se.sundsvall.messaging.TestDataFactory.createStatsEntry;
 import static se.sundsvall.messaging.model.MessageStatus.FAILED;
 import static se.sundsvall.messaging.model.MessageStatus.SENT;
 import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
@@ -43,7 +51,7 @@ class StatisticsServiceTest {
 		final var messageType = SMS;
 		final var now = LocalDate.now();
 		final var municipalityId = "2281";
-		final var statsProjection = createStatisticsEntity(SMS, SMS, SENT, null, null, municipalityId);
+		final var statsProjection = createStatsEntry(SMS, SMS, SENT, null, null);
 
 		when(mockDbIntegration.getStatsByParameters(municipalityId, null, null, List.of(messageType), now, now.plusMonths(1)))
 			.thenReturn(List.of(statsProjection));
@@ -63,7 +71,7 @@ class StatisticsServiceTest {
 		final var fromDate = LocalDate.now();
 		final var toDate = LocalDate.now().plusMonths(1);
 		final var municipalityId = "2281";
-		final var statsProjection = createStatisticsEntity(SNAIL_MAIL, LETTER, SENT, origin, department, municipalityId);
+		final var statsProjection = createStatsEntry(SNAIL_MAIL, LETTER, SENT, origin, department);
 
 		when(mockDbIntegration.getStatsByParameters(anyString(), anyString(), anyString(), anyList(), any(LocalDate.class), any(LocalDate.class)))
 			.thenReturn(List.of(statsProjection));
@@ -89,12 +97,12 @@ class StatisticsServiceTest {
 		final var toDate = LocalDate.now().plusMonths(1);
 		final var messageTypes = List.of(LETTER, SMS);
 		final var statProjections = List.of(
-			createStatisticsEntity(SMS, SMS, SENT, origin, department, municipalityId),
-			createStatisticsEntity(SMS, SMS, FAILED, origin, department, municipalityId),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, SENT, origin, department, municipalityId),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, FAILED, origin, department, municipalityId),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, SENT, origin, department, municipalityId),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, FAILED, origin, department, municipalityId));
+			createStatsEntry(SMS, SMS, SENT, origin, department),
+			createStatsEntry(SMS, SMS, FAILED, origin, department),
+			createStatsEntry(SNAIL_MAIL, LETTER, SENT, origin, department),
+			createStatsEntry(SNAIL_MAIL, LETTER, FAILED, origin, department),
+			createStatsEntry(DIGITAL_MAIL, LETTER, SENT, origin, department),
+			createStatsEntry(DIGITAL_MAIL, LETTER, FAILED, origin, department));
 
 		when(mockDbIntegration.getStatsByParameters(municipalityId, origin, department, messageTypes, fromDate, toDate)).thenReturn(statProjections);
 
@@ -117,7 +125,7 @@ class StatisticsServiceTest {
 		final List<MessageType> messageTypes = List.of();
 		final var now = LocalDate.now();
 		final var municipalityId = "2281";
-		final var statsProjection = createStatisticsEntity(SMS, SMS, SENT, null, null, municipalityId);
+		final var statsProjection = createStatsEntry(SMS, SMS, SENT, null, null);
 
 		when(mockDbIntegration.getStatsByParameters(municipalityId, null, null, messageTypes, now, now.plusMonths(1)))
 			.thenReturn(List.of(statsProjection));
@@ -129,4 +137,28 @@ class StatisticsServiceTest {
 
 		verify(mockDbIntegration).getStatsByParameters(municipalityId, null, null, messageTypes, now, now.plusMonths(1));
 	}
+	@Test
+	void exportStatistics() throws IOException {
+		final var municipalityId = "2281";
+		final var from = LocalDate.of(2024, 1, 1);
+		final var to = LocalDate.of(2024, 12, 31);
+		final var response = new MockHttpServletResponse();
+		doAnswer(invocation -> {
+			final Consumer<DailyStatsEntry> consumer = invocation.getArgument(3);
+			consumer.accept(new DailyStatsEntry(LocalDate.of(2024, 5, 17), LETTER, SNAIL_MAIL, SENT, "someOrigin", "someDepartment", 3));
+			consumer.accept(new DailyStatsEntry(LocalDate.of(2024, 5, 18), SMS, SMS, FAILED, null, null, 1));
+			return null;
+		}).when(mockDbIntegration).exportDailyStats(eq(municipalityId), eq(from), eq(to), any());
+
+		statisticsService.exportStatistics(municipalityId, from, to, ExportFormat.CSV, response);
+
+		assertThat(response.getContentType()).startsWith("text/csv");
+		assertThat(response.getHeader(CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"statistics.csv\"");
+		assertThat(response.getContentAsString()).isEqualTo("day,originalMessageType,messageType,status,origin,department,count\r\n"
+			+ "2024-05-17,LETTER,SNAIL_MAIL,SENT,someOrigin,someDepartment,3\r\n"
+			+ "2024-05-18,SMS,SMS,FAILED,,,1\r\n");
+
+		verify(mockDbIntegration).exportDailyStats(eq(municipalityId), eq(from), eq(to), any());
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
 }
@@ -0,0 +1,200 @@
+package se.sundsvall.messaging.service.delivery;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import se.sundsvall.messaging.configuration.DeliveryExecutorProperties;
+import se.sundsvall.messaging.configuration.DeliveryExecutorProperties.Pool;
+import se.sundsvall.messaging.model.MessageType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static se.sundsvall.messaging.configuration.DeliveryExecutorProperties.RejectionPolicy.ABORT;
+import static se.sundsvall.messaging.configuration.DeliveryExecutorProperties.RejectionPolicy.BLOCK;
+import static se.sundsvall.messaging.configuration.DeliveryExecutorProperties.RejectionPolicy.CALLER_RUNS;
+import static se.sundsvall.messaging.model.MessageType.EMAIL;
+import static se.sundsvall.messaging.model.MessageType.SMS;
+
+class DeliveryExecutorTest {
+
+	private static final Duration BLOCK_TIMEOUT = Duration.ofSeconds(5);
+
+	@Test
+	void executeRunsTaskOnPoolForMessageType() throws Exception {
+		final var properties = new DeliveryExecutorProperties(new Pool(2, 10, BLOCK, BLOCK_TIMEOUT), Map.of(SMS, new Pool(1, 1, ABORT, BLOCK_TIMEOUT)));
+		final var meterRegistry = new SimpleMeterRegistry();
+		final var deliveryExecutor = new DeliveryExecutor(properties, meterRegistry);
+
+		final var threadName = new AtomicReference<String>();
+		final var latch = new CountDownLatch(1);
+
+		deliveryExecutor.execute(SMS, "someDeliveryId", () -> {
+			threadName.set(Thread.currentThread().getName());
+			latch.countDown();
+		});
+
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(threadName.get()).startsWith("delivery-sms-");
+		assertThat(meterRegistry.find("executor.pool.max").tags("type", SMS.name()).gauge().value()).isEqualTo(1);
+		assertThat(meterRegistry.find("executor.pool.max").tags("type", EMAIL.name()).gauge().value()).isEqualTo(2);
+		assertThat(meterRegistry.find("executor.pool.max").gauges()).hasSize(MessageType.values().length);
+
+		deliveryExecutor.destroy();
+	}
+
+	@Test
+	void executeWhenFullAndRejectionPolicyIsAbort() throws Exception {
+		final var properties = new DeliveryExecutorProperties(new Pool(1, 1, ABORT, BLOCK_TIMEOUT), null);
+		final var deliveryExecutor = new DeliveryExecutor(properties, new SimpleMeterRegistry());
+		final var release = new CountDownLatch(1);
+
+		// Occupy the single worker and the single queue slot
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+
+		assertThatExceptionOfType(RejectedExecutionException.class)
+			.isThrownBy(() -> deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> {}));
+
+		release.countDown();
+		deliveryExecutor.destroy();
+	}
+
+	@Test
+	void remainingCapacity() throws Exception {
+		final var properties = new DeliveryExecutorProperties(new Pool(1, 3, ABORT, BLOCK_TIMEOUT), null);
+		final var deliveryExecutor = new DeliveryExecutor(properties, new SimpleMeterRegistry());
+		final var release = new CountDownLatch(1);
+
+		// Occupy the single worker and one of the queue slots
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+
+		assertThat(deliveryExecutor.getRemainingCapacity(EMAIL)).isEqualTo(2);
+		assertThat(deliveryExecutor.getRemainingCapacity(SMS)).isEqualTo(3);
+
+		release.countDown();
+		deliveryExecutor.destroy();
+	}
+
+	@Test
+	void executeWhenFullAndRejectionPolicyIsCallerRuns() throws Exception {
+		final var properties = new DeliveryExecutorProperties(new Pool(1, 1, CALLER_RUNS, BLOCK_TIMEOUT), null);
+		final var deliveryExecutor = new DeliveryExecutor(properties, new SimpleMeterRegistry());
+		final var release = new CountDownLatch(1);
+		final var threadName = new AtomicReference<String>();
+
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> threadName.set(Thread.currentThread().getName()));
+
+		assertThat(threadName.get()).isEqualTo(Thread.currentThread().getName());
+
+		release.countDown();
+		deliveryExecutor.destroy();
+	}
+
+	@Test
+	void executeWhenFullAndRejectionPolicyIsBlock() throws Exception {
+		final var properties = new DeliveryExecutorProperties(new Pool(1, 1, BLOCK, BLOCK_TIMEOUT), null);
+		final var deliveryExecutor = new DeliveryExecutor(properties, new SimpleMeterRegistry());
+		final var release = new CountDownLatch(1);
+		final var done = new CountDownLatch(1);
+
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+
+		final var producer = Thread.ofPlatform().start(() -> deliveryExecutor.execute(EMAIL, "someDeliveryId", done::countDown));
+
+		// The producer must wait for room in the queue
+		assertThat(done.await(200, TimeUnit.MILLISECONDS)).isFalse();
+		assertThat(producer.isAlive()).isTrue();
+
+		release.countDown();
+
+		assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+		producer.join();
+		deliveryExecutor.destroy();
+	}
+
+	@Test
+	void executeWhenFullAndBlockTimesOut() throws Exception {
+		final var properties = new DeliveryExecutorProperties(new Pool(1, 1, BLOCK, Duration.ofMillis(50)), null);
+		final var deliveryExecutor = new DeliveryExecutor(properties, new SimpleMeterRegistry());
+		final var release = new CountDownLatch(1);
+
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> awaitQuietly(release));
+
+		assertThatExceptionOfType(RejectedExecutionException.class)
+			.isThrownBy(() -> deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> {}))
+			.withMessage("Timed out waiting for room in the delivery queue");
+
+		release.countDown();
+		deliveryExecutor.destroy();
+	}
+
+	@Test
+	void inFlightDeliveryIds() throws Exception {
+		final var deliveryExecutor = new DeliveryExecutor(new DeliveryExecutorProperties(new Pool(1, 1, ABORT, BLOCK_TIMEOUT), null), new SimpleMeterRegistry());
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+
+		deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> {
+			started.countDown();
+			awaitQuietly(release);
+		});
+		deliveryExecutor.execute(EMAIL, "someOtherDeliveryId", () -> {});
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThatExceptionOfType(RejectedExecutionException.class)
+			.isThrownBy(() -> deliveryExecutor.execute(EMAIL, "someRejectedDeliveryId", () -> {}));
+		assertThat(deliveryExecutor.getInFlightDeliveryIds()).containsExactlyInAnyOrder("someDeliveryId", "someOtherDeliveryId");
+
+		release.countDown();
+		deliveryExecutor.destroy();
+
+		assertThat(deliveryExecutor.getInFlightDeliveryIds()).isEmpty();
+	}
+
+	@Test
+	void inFlightDeliveryIdsOfSynchronousDeliveries() throws Exception {
+		final var deliveryExecutor = new DeliveryExecutor(new DeliveryExecutorProperties(new Pool(1, 1, ABORT, BLOCK_TIMEOUT), null), new SimpleMeterRegistry());
+
+		deliveryExecutor.started(List.of("someDeliveryId", "someOtherDeliveryId"));
+		deliveryExecutor.started(List.of("someDeliveryId"));
+		assertThat(deliveryExecutor.getInFlightDeliveryIds()).containsExactlyInAnyOrder("someDeliveryId", "someOtherDeliveryId");
+
+		deliveryExecutor.completed(List.of("someDeliveryId", "someOtherDeliveryId"));
+		assertThat(deliveryExecutor.getInFlightDeliveryIds()).containsExactly("someDeliveryId");
+
+		deliveryExecutor.completed(List.of("someDeliveryId"));
+		assertThat(deliveryExecutor.getInFlightDeliveryIds()).isEmpty();
+
+		deliveryExecutor.destroy();
+	}
+
+	@Test
+	void executeAfterDestroyWhenRejectionPolicyIsBlock() throws Exception {
+		final var deliveryExecutor = new DeliveryExecutor(new DeliveryExecutorProperties(new Pool(1, 1, BLOCK, BLOCK_TIMEOUT), null), new SimpleMeterRegistry());
+
+		deliveryExecutor.destroy();
+
+		assertThatExceptionOfType(RejectedExecutionException.class)
+			.isThrownBy(() -> deliveryExecutor.execute(EMAIL, "someDeliveryId", () -> {}))
+			.withMessage("Delivery executor has been shut down");
+	}
+
+	private static void awaitQuietly(final CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
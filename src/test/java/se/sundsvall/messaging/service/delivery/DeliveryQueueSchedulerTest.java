@@ -0,0 +1,172 @@
+package se.sundsvall.messaging.service.delivery;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import se.sundsvall.messaging.configuration.DeliveryQueueProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+import se.sundsvall.messaging.integration.db.projection.PendingMessageProjection;
+import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.service.event.IncomingMessageEvent;
+
+import static java.util.Collections.nCopies;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static se.sundsvall.messaging.model.MessageType.SMS;
+
+@ExtendWith(MockitoExtension.class)
+class DeliveryQueueSchedulerTest {
+
+	@Mock
+	private ApplicationEventPublisher mockEventPublisher;
+
+	@Mock
+	private DbIntegration mockDbIntegration;
+
+	@Mock
+	private DeliveryExecutor mockDeliveryExecutor;
+
+	@Mock
+	private HistoryArchiver mockHistoryArchiver;
+
+	@Test
+	void renewClaims() {
+		final var scheduler = createScheduler(true);
+		when(mockDeliveryExecutor.getInFlightDeliveryIds()).thenReturn(Set.of("someDeliveryId"));
+		when(mockHistoryArchiver.getQueuedDeliveryIds()).thenReturn(Set.of("someOtherDeliveryId"));
+
+		scheduler.renewClaims();
+
+		verify(mockDbIntegration).renewClaims(Set.of("someDeliveryId", "someOtherDeliveryId"));
+		verifyNoMoreInteractions(mockDbIntegration);
+		verifyNoInteractions(mockEventPublisher);
+	}
+
+	@Test
+	void renewClaimsWhenNothingInFlight() {
+		final var scheduler = createScheduler(true);
+		when(mockDeliveryExecutor.getInFlightDeliveryIds()).thenReturn(Set.of());
+		when(mockHistoryArchiver.getQueuedDeliveryIds()).thenReturn(Set.of());
+
+		scheduler.renewClaims();
+
+		verifyNoInteractions(mockDbIntegration, mockEventPublisher);
+	}
+
+	@Test
+	void pollPendingMessages() {
+		final var scheduler = createScheduler(true);
+		final var pendingMessage = mock(PendingMessageProjection.class);
+		when(pendingMessage.getMunicipalityId()).thenReturn("2281");
+		when(pendingMessage.getType()).thenReturn(SMS);
+		when(pendingMessage.getDeliveryId()).thenReturn("someDeliveryId");
+		when(pendingMessage.getOrigin()).thenReturn("someOrigin");
+		when(mockDeliveryExecutor.getRemainingCapacity(any(MessageType.class))).thenReturn(10);
+		when(mockDbIntegration.claimPendingMessages(SMS, 10)).thenReturn(List.of(pendingMessage));
+
+		scheduler.pollPendingMessages();
+
+		final var captor = ArgumentCaptor.forClass(IncomingMessageEvent.class);
+		// No more is claimed than there is room for in the delivery executor
+		Arrays.stream(MessageType.values()).forEach(messageType -> verify(mockDbIntegration).claimPendingMessages(messageType, 10));
+		verify(mockEventPublisher).publishEvent(captor.capture());
+		assertThat(captor.getValue()).satisfies(event -> {
+			assertThat(event.getMunicipalityId()).isEqualTo("2281");
+			assertThat(event.getMessageType()).isEqualTo(SMS);
+			assertThat(event.getDeliveryId()).isEqualTo("someDeliveryId");
+			assertThat(event.getOrigin()).isEqualTo("someOrigin");
+		});
+		verifyNoMoreInteractions(mockDbIntegration, mockEventPublisher);
+	}
+
+	@Test
+	void pollPendingMessagesAgainWhileFullPageIsClaimed() {
+		final var scheduler = createScheduler(true);
+		final var pendingMessage = mock(PendingMessageProjection.class);
+		when(mockDeliveryExecutor.getRemainingCapacity(any(MessageType.class))).thenReturn(0);
+		when(mockDeliveryExecutor.getRemainingCapacity(SMS)).thenReturn(100, 75);
+		when(mockDbIntegration.claimPendingMessages(SMS, 25)).thenReturn(nCopies(25, pendingMessage), nCopies(24, pendingMessage));
+
+		scheduler.pollPendingMessages();
+
+		verify(mockDbIntegration, times(2)).claimPendingMessages(SMS, 25);
+		verify(mockEventPublisher, times(49)).publishEvent(any(IncomingMessageEvent.class));
+		verifyNoMoreInteractions(mockDbIntegration, mockEventPublisher);
+	}
+
+	@Test
+	void pollPendingMessagesWhenNothingToClaim() {
+		final var scheduler = createScheduler(true);
+		when(mockDeliveryExecutor.getRemainingCapacity(any(MessageType.class))).thenReturn(1000);
+
+		scheduler.pollPendingMessages();
+
+		Arrays.stream(MessageType.values()).forEach(messageType -> verify(mockDbIntegration).claimPendingMessages(messageType, 25));
+		verifyNoMoreInteractions(mockDbIntegration);
+		verifyNoInteractions(mockEventPublisher);
+	}
+
+	@Test
+	void pollPendingMessagesWhenDeliveryExecutorIsFull() {
+		final var scheduler = createScheduler(true);
+		when(mockDeliveryExecutor.getRemainingCapacity(any(MessageType.class))).thenReturn(0);
+
+		scheduler.pollPendingMessages();
+
+		verifyNoInteractions(mockDbIntegration, mockEventPublisher);
+	}
+
+	@Test
+	void pollPendingMessagesWhenPollingIsDisabled() {
+		final var scheduler = createScheduler(false);
+
+		scheduler.pollPendingMessages();
+
+		verifyNoInteractions(mockDbIntegration, mockEventPublisher);
+	}
+
+	@Test
+	void archiveCompletedMessages() {
+		final var scheduler = createScheduler(true);
+		when(mockDbIntegration.claimCompletedMessages(25)).thenReturn(List.of(1L, 2L, 3L));
+		when(mockDbIntegration.archiveCompletedMessage(1L)).thenThrow(new IllegalStateException("Deadlock"));
+		when(mockDbIntegration.archiveCompletedMessage(2L)).thenReturn(true);
+		when(mockDbIntegration.archiveCompletedMessage(3L)).thenReturn(false);
+
+		scheduler.archiveCompletedMessages();
+
+		verify(mockDbIntegration).claimCompletedMessages(25);
+		verify(mockDbIntegration).archiveCompletedMessage(1L);
+		verify(mockDbIntegration).archiveCompletedMessage(2L);
+		verify(mockDbIntegration).archiveCompletedMessage(3L);
+		verifyNoMoreInteractions(mockDbIntegration);
+		verifyNoInteractions(mockEventPublisher);
+	}
+
+	@Test
+	void archiveCompletedMessagesWhenPollingIsDisabled() {
+		final var scheduler = createScheduler(false);
+
+		scheduler.archiveCompletedMessages();
+
+		verifyNoInteractions(mockDbIntegration, mockEventPublisher);
+	}
+
+	private DeliveryQueueScheduler createScheduler(final boolean pollingEnabled) {
+		return new DeliveryQueueScheduler(mockEventPublisher, mockDbIntegration, mockDeliveryExecutor, mockHistoryArchiver,
+			new DeliveryQueueProperties("instanceId", Duration.ofMinutes(5), pollingEnabled, 25, null));
+	}
+}
@@ -0,0 +1,122 @@
+package se.sundsvall.messaging.service.delivery;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import se.sundsvall.dept44.requestid.RequestId;
+import se.sundsvall.messaging.configuration.FanOutProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class FanOutExecutorTest {
+
+	private final FanOutExecutor fanOutExecutor = new FanOutExecutor(new FanOutProperties(3));
+
+	@Test
+	void mapKeepsItemOrder() {
+		final var items = IntStream.range(0, 20).boxed().toList();
+
+		final var results = fanOutExecutor.map(items, item -> {
+			sleep(20 - item);
+			return "result" + item;
+		}, (item, e) -> "failed" + item);
+
+		assertThat(results).containsExactlyElementsOf(items.stream().map(item -> "result" + item).toList());
+	}
+
+	@Test
+	void mapRespectsParallelism() {
+		final var running = new AtomicInteger();
+		final var maxRunning = new AtomicInteger();
+
+		fanOutExecutor.map(IntStream.range(0, 20).boxed().toList(), item -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			sleep(10);
+			running.decrementAndGet();
+			return item;
+		}, (item, e) -> item);
+
+		assertThat(maxRunning.get()).isBetween(1, 3);
+	}
+
+	@Test
+	void mapRespectsGivenParallelism() {
+		final var running = new AtomicInteger();
+		final var maxRunning = new AtomicInteger();
+
+		fanOutExecutor.map(IntStream.range(0, 20).boxed().toList(), 2, item -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			sleep(10);
+			running.decrementAndGet();
+			return item;
+		}, (item, e) -> item);
+
+		assertThat(maxRunning.get()).isBetween(1, 2);
+	}
+
+	@Test
+	void mapPropagatesRequestId() {
+		try {
+			RequestId.init();
+			final var requestId = RequestId.get();
+
+			final var results = fanOutExecutor.map(List.of(1, 2, 3), item -> RequestId.get(), (item, e) -> null);
+
+			assertThat(results).containsOnly(requestId);
+		} finally {
+			RequestId.reset();
+		}
+	}
+
+	@Test
+	void mapWhenSomeTasksFail() {
+		final var results = fanOutExecutor.map(List.of(1, 2, 3), item -> {
+			if (item == 2) {
+				throw new IllegalArgumentException("failure" + item);
+			}
+			return "result" + item;
+		}, (item, e) -> e.getMessage());
+
+		assertThat(results).containsExactly("result1", "failure2", "result3");
+	}
+
+	@Test
+	void mapWhenAllTasksFail() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+			.isThrownBy(() -> fanOutExecutor.map(List.of(1, 2, 3), item -> {
+				throw new IllegalArgumentException("failure" + item);
+			}, (item, e) -> e.getMessage()))
+			.withMessage("failure1");
+	}
+
+	@Test
+	void mapSingleItemInCallingThread() {
+		final var callingThread = Thread.currentThread();
+
+		assertThat(fanOutExecutor.map(List.of(1), item -> Thread.currentThread(), (item, e) -> null)).containsExactly(callingThread);
+	}
+
+	@Test
+	void mapSingleItemWhenTaskFails() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+			.isThrownBy(() -> fanOutExecutor.map(List.of(1), item -> {
+				throw new IllegalArgumentException("failure");
+			}, (item, e) -> e.getMessage()))
+			.withMessage("failure");
+	}
+
+	@Test
+	void mapNoItems() {
+		assertThat(fanOutExecutor.map(List.<Integer>of(), item -> item, (item, e) -> item)).isEmpty();
+	}
+
+	private static void sleep(final long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
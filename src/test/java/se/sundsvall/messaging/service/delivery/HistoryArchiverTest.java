@@ -0,0 +1,196 @@
+package se.sundsvall.messaging.service.delivery;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.sundsvall.messaging.configuration.HistoryArchiverProperties;
+import se.sundsvall.messaging.integration.db.DbIntegration;
+import se.sundsvall.messaging.model.DailyStatsKey;
+import se.sundsvall.messaging.model.Message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static se.sundsvall.messaging.model.MessageStatus.FAILED;
+import static se.sundsvall.messaging.model.MessageStatus.SENT;
+import static se.sundsvall.messaging.model.MessageType.SMS;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryArchiverTest {
+
+	private static final DailyStatsKey KEY = DailyStatsKey.builder().withMunicipalityId("2281").withDay(LocalDate.now()).withMessageType(SMS).withStatus(SENT).build();
+
+	private static final DailyStatsKey OTHER_KEY = DailyStatsKey.builder().withMunicipalityId("2281").withDay(LocalDate.now()).withMessageType(SMS).withStatus(FAILED).build();
+
+	@Mock
+	private DbIntegration mockDbIntegration;
+
+	private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private HistoryArchiver historyArchiver;
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		historyArchiver.destroy();
+	}
+
+	@Test
+	void archiveWhenDisabled() {
+		historyArchiver = createHistoryArchiver(false, 2, Duration.ofMillis(50));
+
+		assertThat(historyArchiver.archive(createMessage("someDeliveryId"), null)).isFalse();
+
+		verifyNoInteractions(mockDbIntegration);
+	}
+
+	@Test
+	void archiveFlushesOnInterval() {
+		historyArchiver = createHistoryArchiver(true, 200, Duration.ofMillis(50));
+		final var message = createMessage("someDeliveryId");
+
+		when(mockDbIntegration.archiveMessage(message, "someStatusDetail")).thenReturn(KEY);
+
+		assertThat(historyArchiver.archive(message, "someStatusDetail")).isTrue();
+
+		verify(mockDbIntegration, timeout(5000)).incrementDailyStats(Map.of(KEY, 1));
+		verify(mockDbIntegration).archiveMessage(message, "someStatusDetail");
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
+
+	@Test
+	void archiveCountsBatchPerKey() {
+		historyArchiver = createHistoryArchiver(true, 3, Duration.ofSeconds(1));
+		final var message1 = createMessage("someDeliveryId");
+		final var message2 = createMessage("someOtherDeliveryId");
+		final var message3 = createMessage("yetAnotherDeliveryId");
+
+		when(mockDbIntegration.archiveMessage(message1, null)).thenReturn(KEY);
+		when(mockDbIntegration.archiveMessage(message2, null)).thenReturn(OTHER_KEY);
+		when(mockDbIntegration.archiveMessage(message3, null)).thenReturn(KEY);
+
+		assertThat(historyArchiver.archive(message1, null)).isTrue();
+		assertThat(historyArchiver.archive(message2, null)).isTrue();
+		assertThat(historyArchiver.archive(message3, null)).isTrue();
+
+		// One upsert per key, in the transaction of the batch, rather than one per delivery
+		verify(mockDbIntegration, timeout(5000)).incrementDailyStats(Map.of(KEY, 2, OTHER_KEY, 1));
+		verify(mockDbIntegration).archiveMessage(message1, null);
+		verify(mockDbIntegration).archiveMessage(message2, null);
+		verify(mockDbIntegration).archiveMessage(message3, null);
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
+
+	@Test
+	void archiveRetriesFailedBatchOneByOne() {
+		historyArchiver = createHistoryArchiver(true, 2, Duration.ofSeconds(1));
+		final var message1 = createMessage("someDeliveryId");
+		final var message2 = createMessage("someOtherDeliveryId");
+
+		doThrow(new IllegalStateException("Deadlock")).doReturn(KEY).when(mockDbIntegration).archiveMessage(message1, null);
+		doReturn(OTHER_KEY).when(mockDbIntegration).archiveMessage(message2, null);
+
+		assertThat(historyArchiver.archive(message1, null)).isTrue();
+		assertThat(historyArchiver.archive(message2, null)).isTrue();
+
+		verify(mockDbIntegration, timeout(5000).times(2)).archiveMessage(message1, null);
+		verify(mockDbIntegration, timeout(5000)).archiveMessage(message2, null);
+		verify(mockDbIntegration, timeout(5000)).incrementDailyStats(Map.of(KEY, 1));
+		verify(mockDbIntegration, timeout(5000)).incrementDailyStats(Map.of(OTHER_KEY, 1));
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
+
+	@Test
+	void archiveRecordsOutcomeWhenAttemptsAreExhausted() {
+		historyArchiver = createHistoryArchiver(true, 200, Duration.ofMillis(50));
+		final var message = createMessage("someDeliveryId");
+
+		doThrow(new IllegalStateException("Deadlock")).when(mockDbIntegration).archiveMessage(message, "someStatusDetail");
+		when(mockDbIntegration.recordOutcome(message, "someStatusDetail")).thenReturn(true);
+
+		assertThat(historyArchiver.archive(message, "someStatusDetail")).isTrue();
+
+		// The delivery is already made, hence its claim is kept, so that it is archived rather than delivered again
+		verify(mockDbIntegration, timeout(5000)).recordOutcome(message, "someStatusDetail");
+		verify(mockDbIntegration, times(2)).archiveMessage(message, "someStatusDetail");
+		verifyNoMoreInteractions(mockDbIntegration);
+		assertThat(historyArchiver.getQueuedDeliveryIds()).isEmpty();
+	}
+
+	@Test
+	void getQueuedDeliveryIds() {
+		historyArchiver = createHistoryArchiver(true, 200, Duration.ofSeconds(1));
+
+		assertThat(historyArchiver.archive(createMessage("someDeliveryId"), null)).isTrue();
+
+		assertThat(historyArchiver.getQueuedDeliveryIds()).containsExactly("someDeliveryId");
+	}
+
+	@Test
+	void destroyArchivesQueuedDeliveries() throws InterruptedException {
+		historyArchiver = createHistoryArchiver(true, 200, Duration.ofMillis(200));
+		final var message = createMessage("someDeliveryId");
+
+		when(mockDbIntegration.archiveMessage(message, null)).thenReturn(KEY);
+
+		assertThat(historyArchiver.archive(message, null)).isTrue();
+
+		historyArchiver.destroy();
+
+		verify(mockDbIntegration).archiveMessage(message, null);
+		verify(mockDbIntegration).incrementDailyStats(Map.of(KEY, 1));
+		assertThat(historyArchiver.archive(createMessage("someOtherDeliveryId"), null)).isFalse();
+		verifyNoMoreInteractions(mockDbIntegration);
+	}
+
+	@Test
+	void gaugesAreRegistered() {
+		historyArchiver = createHistoryArchiver(false, 200, Duration.ofSeconds(1));
+
+		assertThat(meterRegistry.get("history.archiver.queue.size").gauge().value()).isZero();
+		assertThat(meterRegistry.get("history.archiver.lag").timeGauge().value()).isZero();
+	}
+
+	@Test
+	void lagIncludesRetries() throws InterruptedException {
+		historyArchiver = createHistoryArchiver(true, 1, Duration.ofSeconds(2));
+		final var message = createMessage("someDeliveryId");
+
+		doThrow(new IllegalStateException("Deadlock")).doReturn(KEY).when(mockDbIntegration).archiveMessage(message, null);
+
+		assertThat(historyArchiver.archive(message, null)).isTrue();
+		verify(mockDbIntegration, timeout(5000)).archiveMessage(message, null);
+		Thread.sleep(100);
+
+		// The failed delivery is no longer queued, but waits for the next batch to be retried
+		assertThat(meterRegistry.get("history.archiver.queue.size").gauge().value()).isZero();
+		assertThat(meterRegistry.get("history.archiver.lag").timeGauge().value()).isPositive();
+
+		verify(mockDbIntegration, timeout(5000).times(2)).archiveMessage(message, null);
+		verify(mockDbIntegration, timeout(5000)).incrementDailyStats(Map.of(KEY, 1));
+	}
+
+	private HistoryArchiver createHistoryArchiver(final boolean enabled, final int batchSize, final Duration flushInterval) {
+		return new HistoryArchiver(mockDbIntegration, transactionTemplate, new HistoryArchiverProperties(enabled, 100, batchSize, flushInterval, 2), meterRegistry);
+	}
+
+	private static Message createMessage(final String deliveryId) {
+		return Message.builder().withDeliveryId(deliveryId).withStatus(SENT).build();
+	}
+}
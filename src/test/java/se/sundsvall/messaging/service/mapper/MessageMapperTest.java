@@ -1,11 +1,15 @@
 package se.sundsvall.messaging.service.mapper;
 
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
+import se.sundsvall.messaging.model.Message;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static se.sundsvall.messaging.TestDataFactory.createAddress;
 import static se.sundsvall.messaging.TestDataFactory.createValidDigitalMailRequest;
 import static se.sundsvall.messaging.TestDataFactory.createValidEmailRequest;
+import static se.sundsvall.messaging.TestDataFactory.createValidLetterRequest;
 import static se.sundsvall.messaging.TestDataFactory.createValidMessageRequestMessage;
 import static se.sundsvall.messaging.TestDataFactory.createValidSlackRequest;
 import static se.sundsvall.messaging.TestDataFactory.createValidSmsRequest;
@@ -14,6 +18,7 @@ import static se.sundsvall.messaging.TestDataFactory.createValidWebMessageReques
 import static se.sundsvall.messaging.model.MessageStatus.PENDING;
 import static se.sundsvall.messaging.model.MessageType.DIGITAL_MAIL;
 import static se.sundsvall.messaging.model.MessageType.EMAIL;
+import static se.sundsvall.messaging.model.MessageType.LETTER;
 import static se.sundsvall.messaging.model.MessageType.MESSAGE;
 import static se.sundsvall.messaging.model.MessageType.SLACK;
 import static se.sundsvall.messaging.model.MessageType.SMS;
@@ -121,6 +126,37 @@ class MessageMapperTest {
 		assertThat(message.organizationNumber()).isEqualTo(organizationNumber);
 	}
 
+	@Test
+	void test_toMessages_withDigitalMailRequestAndMultipleRecipients() {
+		final var request = createValidDigitalMailRequest();
+		final var multiRecipientRequest = request.withParty(request.party().withPartyIds(List.of("partyId1", "partyId2")));
+
+		final var messages = messageMapper.toMessages(multiRecipientRequest, UUID.randomUUID().toString(), null);
+
+		assertThat(messages).extracting(Message::partyId).containsExactly("partyId1", "partyId2");
+		// The request is serialized once and shared by all recipients
+		assertThat(messages.getFirst().content()).isEqualTo(toJson(multiRecipientRequest))
+			.isSameAs(messages.getLast().content());
+	}
+
+	@Test
+	void test_toMessages_withLetterRequestAndMultipleRecipients() {
+		final var request = createValidLetterRequest();
+		final var multiRecipientRequest = request.withParty(request.party()
+			.withPartyIds(List.of("partyId1", "partyId2"))
+			.withAddresses(List.of(createAddress(), createAddress())));
+
+		final var messages = messageMapper.toMessages(multiRecipientRequest, UUID.randomUUID().toString(), null);
+		final var addressMessages = messageMapper.mapAddressesToMessages(multiRecipientRequest, UUID.randomUUID().toString());
+
+		assertThat(messages).hasSize(2).extracting(Message::type).containsOnly(LETTER);
+		assertThat(messages.getFirst().content()).isEqualTo(toJson(multiRecipientRequest))
+			.isSameAs(messages.getLast().content());
+		assertThat(addressMessages).hasSize(2).extracting(Message::type).containsOnly(SNAIL_MAIL);
+		assertThat(addressMessages.getFirst().content()).isEqualTo(toJson(multiRecipientRequest))
+			.isSameAs(addressMessages.getLast().content());
+	}
+
 	@Test
 	void test_toMessage_withBatchIdAndMessageRequest() {
 		final var batchId = UUID.randomUUID().toString();
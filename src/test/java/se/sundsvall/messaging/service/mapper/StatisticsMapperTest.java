@@ -3,19 +3,16 @@ package se.sundsvall.messaging.service.mapper;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
-import se.sundsvall.messaging.integration.db.entity.StatisticEntity;
 import se.sundsvall.messaging.model.Count;
 import se.sundsvall.messaging.model.DepartmentLetter;
 import se.sundsvall.messaging.model.DepartmentStatistics;
 import se.sundsvall.messaging.model.MessageStatus;
 import se.sundsvall.messaging.model.MessageType;
+import se.sundsvall.messaging.model.StatsEntry;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.groups.Tuple.tuple;
-import static org.mockito.Mockito.when;
-import static se.sundsvall.messaging.TestDataFactory.MUNICIPALITY_ID;
-import static se.sundsvall.messaging.TestDataFactory.createStatisticsEntity;
+import static se.sundsvall.messaging.TestDataFactory.createStatsEntry;
 import static se.sundsvall.messaging.model.MessageStatus.FAILED;
 import static se.sundsvall.messaging.model.MessageStatus.NO_CONTACT_WANTED;
 import static se.sundsvall.messaging.model.MessageStatus.SENT;
@@ -39,12 +36,12 @@ class StatisticsMapperTest {
 		final var department = "department";
 		final var origin = "origin";
 		final var statsProjections = List.of(
-			createStatisticsEntity(SMS, SMS, SENT, null, null, MUNICIPALITY_ID),
-			createStatisticsEntity(SMS, SMS, FAILED, null, null, MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, SENT, null, null, MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, FAILED, null, null, MUNICIPALITY_ID),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, SENT, null, null, MUNICIPALITY_ID),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, FAILED, null, null, MUNICIPALITY_ID));
+			createStatsEntry(SMS, SMS, SENT, null, null),
+			createStatsEntry(SMS, SMS, FAILED, null, null),
+			createStatsEntry(SNAIL_MAIL, LETTER, SENT, null, null),
+			createStatsEntry(SNAIL_MAIL, LETTER, FAILED, null, null),
+			createStatsEntry(DIGITAL_MAIL, LETTER, SENT, null, null),
+			createStatsEntry(DIGITAL_MAIL, LETTER, FAILED, null, null));
 
 		final var result = toDepartmentStats(statsProjections, department, origin);
 
@@ -60,12 +57,12 @@ class StatisticsMapperTest {
 	@Test
 	void test_mapToCount() {
 		final var statsProjections = List.of(
-			createStatisticsEntity(SMS, SMS, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SMS, SMS, FAILED, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, FAILED, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, FAILED, "origin", "department", MUNICIPALITY_ID));
+			createStatsEntry(SMS, SMS, SENT, "origin", "department"),
+			createStatsEntry(SMS, SMS, FAILED, "origin", "department"),
+			createStatsEntry(SNAIL_MAIL, LETTER, SENT, "origin", "department"),
+			createStatsEntry(SNAIL_MAIL, LETTER, FAILED, "origin", "department"),
+			createStatsEntry(DIGITAL_MAIL, LETTER, SENT, "origin", "department"),
+			createStatsEntry(DIGITAL_MAIL, LETTER, FAILED, "origin", "department"));
 
 		final var smsResult = mapToCount(statsProjections, SMS);
 		final var snailMailResult = mapToCount(statsProjections, SNAIL_MAIL);
@@ -93,32 +90,32 @@ class StatisticsMapperTest {
 	@Test
 	void test_toStatistics() {
 		final var input = List.of(
-			createStatisticsEntity(DIGITAL_MAIL, DIGITAL_MAIL, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(DIGITAL_MAIL, DIGITAL_MAIL, FAILED, "origin", "department", MUNICIPALITY_ID),
+			createStatsEntry(DIGITAL_MAIL, DIGITAL_MAIL, SENT, "origin", "department"),
+			createStatsEntry(DIGITAL_MAIL, DIGITAL_MAIL, FAILED, "origin", "department"),
 
-			createStatisticsEntity(SNAIL_MAIL, SNAIL_MAIL, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, SNAIL_MAIL, FAILED, "origin", "department", MUNICIPALITY_ID),
+			createStatsEntry(SNAIL_MAIL, SNAIL_MAIL, SENT, "origin", "department"),
+			createStatsEntry(SNAIL_MAIL, SNAIL_MAIL, FAILED, "origin", "department"),
 
-			createStatisticsEntity(SMS, SMS, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SMS, SMS, FAILED, "origin", "department", MUNICIPALITY_ID),
+			createStatsEntry(SMS, SMS, SENT, "origin", "department"),
+			createStatsEntry(SMS, SMS, FAILED, "origin", "department"),
 
-			createStatisticsEntity(EMAIL, EMAIL, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(EMAIL, EMAIL, FAILED, "origin", "department", MUNICIPALITY_ID),
+			createStatsEntry(EMAIL, EMAIL, SENT, "origin", "department"),
+			createStatsEntry(EMAIL, EMAIL, FAILED, "origin", "department"),
 
-			createStatisticsEntity(WEB_MESSAGE, WEB_MESSAGE, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(WEB_MESSAGE, WEB_MESSAGE, FAILED, "origin", "department", MUNICIPALITY_ID),
+			createStatsEntry(WEB_MESSAGE, WEB_MESSAGE, SENT, "origin", "department"),
+			createStatsEntry(WEB_MESSAGE, WEB_MESSAGE, FAILED, "origin", "department"),
 
-			createStatisticsEntity(EMAIL, MESSAGE, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(EMAIL, MESSAGE, FAILED, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SMS, MESSAGE, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SMS, MESSAGE, FAILED, "origin", "department", MUNICIPALITY_ID),
+			createStatsEntry(EMAIL, MESSAGE, SENT, "origin", "department"),
+			createStatsEntry(EMAIL, MESSAGE, FAILED, "origin", "department"),
+			createStatsEntry(SMS, MESSAGE, SENT, "origin", "department"),
+			createStatsEntry(SMS, MESSAGE, FAILED, "origin", "department"),
 
-			createStatisticsEntity(MESSAGE, MESSAGE, NO_CONTACT_WANTED, "origin", "department", MUNICIPALITY_ID),
+			createStatsEntry(MESSAGE, MESSAGE, NO_CONTACT_WANTED, "origin", "department"),
 
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, FAILED, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, FAILED, "origin", "department", MUNICIPALITY_ID));
+			createStatsEntry(DIGITAL_MAIL, LETTER, FAILED, "origin", "department"),
+			createStatsEntry(DIGITAL_MAIL, LETTER, SENT, "origin", "department"),
+			createStatsEntry(SNAIL_MAIL, LETTER, SENT, "origin", "department"),
+			createStatsEntry(SNAIL_MAIL, LETTER, FAILED, "origin", "department"));
 
 		final var result = toStatistics(input);
 
@@ -143,16 +140,16 @@ class StatisticsMapperTest {
 	@Test
 	void test_toDepartmentStatistics() {
 		final var input = List.of(
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, FAILED, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, SENT, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, FAILED, "origin", "department", MUNICIPALITY_ID),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, SENT, null, null, MUNICIPALITY_ID),
-			createStatisticsEntity(DIGITAL_MAIL, LETTER, FAILED, null, null, MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, SENT, null, null, MUNICIPALITY_ID),
-			createStatisticsEntity(SNAIL_MAIL, LETTER, FAILED, null, null, MUNICIPALITY_ID));
+			createStatsEntry(DIGITAL_MAIL, LETTER, SENT, "origin", "department"),
+			createStatsEntry(DIGITAL_MAIL, LETTER, FAILED, "origin", "department"),
+			createStatsEntry(SNAIL_MAIL, LETTER, SENT, "origin", "department"),
+			createStatsEntry(SNAIL_MAIL, LETTER, FAILED, "origin", "department"),
+			createStatsEntry(DIGITAL_MAIL, LETTER, SENT, null, null),
+			createStatsEntry(DIGITAL_MAIL, LETTER, FAILED, null, null),
+			createStatsEntry(SNAIL_MAIL, LETTER, SENT, null, null),
+			createStatsEntry(SNAIL_MAIL, LETTER, FAILED, null, null));
 
-		final var result = toDepartmentStatisticsList(input, MUNICIPALITY_ID);
+		final var result = toDepartmentStatisticsList(input);
 
 		assertThat(result).isNotNull().hasSize(2)
 			.extracting(DepartmentStatistics::origin, DepartmentStatistics::departmentLetters).containsExactly(
@@ -210,19 +207,54 @@ class StatisticsMapperTest {
 
 	@Test
 	void overrideEntryValues() {
-		final var projectionMock = Mockito.mock(StatisticEntity.class);
-		when(projectionMock.getStatus()).thenReturn(MessageStatus.SENT);
-		when(projectionMock.getOriginalMessageType()).thenReturn(MessageType.SMS);
-		when(projectionMock.getMessageType()).thenReturn(MessageType.SNAIL_MAIL);
-
-		final var result = StatisticsMapper.overrideEntryValues(projectionMock, "origin", "department", "municipalityId");
+		final var entry = StatsEntry.builder()
+			.withStatus(MessageStatus.SENT)
+			.withOriginalMessageType(MessageType.SMS)
+			.withMessageType(MessageType.SNAIL_MAIL)
+			.withCount(3)
+			.build();
+
+		final var result = StatisticsMapper.overrideEntryValues(entry, "origin", "department");
+
+		assertThat(result.status()).isEqualTo(MessageStatus.SENT);
+		assertThat(result.originalMessageType()).isEqualTo(MessageType.SMS);
+		assertThat(result.messageType()).isEqualTo(MessageType.SNAIL_MAIL);
+		assertThat(result.origin()).isEqualTo("origin");
+		assertThat(result.department()).isEqualTo("department");
+		assertThat(result.count()).isEqualTo(3);
+	}
 
-		assertThat(result.getStatus()).isEqualTo(MessageStatus.SENT);
-		assertThat(result.getOriginalMessageType()).isEqualTo(MessageType.SMS);
-		assertThat(result.getMessageType()).isEqualTo(MessageType.SNAIL_MAIL);
-		assertThat(result.getOrigin()).isEqualTo("origin");
-		assertThat(result.getDepartment()).isEqualTo("department");
-		assertThat(result.getMunicipalityId()).isEqualTo("municipalityId");
+	@Test
+	void countsAreSummed() {
+		final var input = List.of(
+			createStatsEntryWithCount(SMS, MESSAGE, SENT, "origin", "department", 5),
+			createStatsEntryWithCount(SMS, MESSAGE, FAILED, "origin", "department", 2),
+			createStatsEntryWithCount(MESSAGE, MESSAGE, NO_CONTACT_WANTED, "origin", "department", 4),
+			createStatsEntryWithCount(SNAIL_MAIL, LETTER, SENT, "origin", "department", 7),
+			createStatsEntryWithCount(SNAIL_MAIL, LETTER, SENT, null, "department", 3));
+
+		final var statistics = toStatistics(input);
+		final var departmentStatistics = toDepartmentStatisticsList(input);
+
+		assertThat(statistics.message()).satisfies(message -> {
+			assertCount(message.sms(), 5, 2);
+			assertThat(message.undeliverable()).isEqualTo(4);
+		});
+		assertThat(statistics.letter().snailMail()).satisfies(snailMail -> assertCount(snailMail, 10, 0));
+		assertThat(departmentStatistics).extracting(DepartmentStatistics::origin, departmentStatistic -> departmentStatistic.departmentLetters().getFirst().snailMail())
+			.containsExactlyInAnyOrder(
+				tuple("origin", new Count(7, 0)),
+				tuple("Other", new Count(3, 0)));
+	}
 
+	private static StatsEntry createStatsEntryWithCount(final MessageType messageType, final MessageType originalMessageType, final MessageStatus status, final String origin, final String department, final long count) {
+		return StatsEntry.builder()
+			.withMessageType(messageType)
+			.withOriginalMessageType(originalMessageType)
+			.withStatus(status)
+			.withOrigin(origin)
+			.withDepartment(department)
+			.withCount(count)
+			.build();
 	}
 }
@@ -0,0 +1,40 @@
+package se.sundsvall.messaging.util;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import se.sundsvall.dept44.problem.ThrowableProblem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+class ContinuationTokenTest {
+
+	@Test
+	void encodeAndDecode() {
+		final var createdAt = LocalDateTime.of(2024, 5, 17, 13, 37, 42, 123456000);
+
+		final var token = ContinuationToken.encode(createdAt, 4711L);
+
+		assertThat(token).doesNotContain("2024", "4711", "=", "+", "/");
+		assertThat(ContinuationToken.decode(token)).isEqualTo(new ContinuationToken(createdAt, 4711L));
+	}
+
+	@Test
+	void decodeNull() {
+		assertThat(ContinuationToken.decode(null)).isNull();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"", "not a token", "bm8tc2VwYXJhdG9y", "bm90LWEtZGF0ZXwx", "MjAyNC0wNS0xN1QxMzozNzo0Mnxub3QtYW4taWQ"
+	})
+	void decodeInvalid(final String token) {
+		final var e = assertThrows(ThrowableProblem.class, () -> ContinuationToken.decode(token));
+
+		assertThat(e.getStatus()).isEqualTo(BAD_REQUEST);
+		assertThat(e.getMessage()).isEqualTo("Bad Request: Invalid continuation token");
+	}
+}
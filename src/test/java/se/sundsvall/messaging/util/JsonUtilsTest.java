@@ -6,6 +6,7 @@ import tools.jackson.core.type.TypeReference;
 
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static se.sundsvall.messaging.test.assertj.Assertions.assertThat;
+import static tools.jackson.core.JsonToken.START_OBJECT;
 
 class JsonUtilsTest {
 
@@ -81,6 +82,15 @@ class JsonUtilsTest {
 			.isThrownBy(() -> JsonUtils.fromJson("{", typeReference));
 	}
 
+	@Test
+	void createParser() {
+		try (final var parser = JsonUtils.createParser("{\"name\":\"someName\"}")) {
+			assertThat(parser.nextToken()).isEqualTo(START_OBJECT);
+			assertThat(parser.nextName()).isEqualTo("name");
+			assertThat(parser.nextStringValue()).isEqualTo("someName");
+		}
+	}
+
 	record Person(String name, String emailAddress) {
 	}
 }
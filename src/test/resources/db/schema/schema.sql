@@ -1,5 +1,56 @@
+create table attachment (
+                            created_at datetime(6),
+                            hash varchar(64) not null,
+                            content LONGBLOB NOT NULL,
+                            primary key (hash)
+) engine=InnoDB;
+
+create table attachment_reference (
+                                      content_id bigint not null,
+                                      id bigint not null auto_increment,
+                                      hash varchar(64) not null,
+                                      primary key (id)
+) engine=InnoDB;
+
+create table batch_summary (
+                               attachment_count integer not null,
+                               created_at datetime(6) not null,
+                               id bigint not null auto_increment,
+                               municipality_id varchar(12) not null,
+                               batch_id varchar(36) not null,
+                               issuer varchar(255),
+                               subject varchar(1000),
+                               original_message_type enum ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE'),
+                               primary key (id)
+) engine=InnoDB;
+
+create table batch_tracking (
+                                remaining integer not null,
+                                sent_snail_mail_count integer not null,
+                                triggered bit not null,
+                                created_at datetime(6) not null,
+                                municipality_id varchar(12) not null,
+                                batch_id varchar(36) not null,
+                                primary key (batch_id)
+) engine=InnoDB;
+
+create table daily_statistics (
+                                  day date not null,
+                                  id bigint not null auto_increment,
+                                  message_count bigint not null,
+                                  municipality_id varchar(12) not null,
+                                  department varchar(255) not null,
+                                  origin varchar(255) not null,
+                                  message_type enum ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE'),
+                                  original_message_type enum ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE'),
+                                  status enum ('AWAITING_FEEDBACK','FAILED','NOT_SENT','NO_CONTACT_SETTINGS_FOUND','NO_CONTACT_WANTED','PENDING','SENT'),
+                                  primary key (id)
+) engine=InnoDB;
 
 create table history (
+                         attachment_count integer,
+                         metadata_extracted bit default 0 not null,
+                         content_id bigint,
                          created_at datetime(6),
                          id bigint not null auto_increment,
                          organization_number varchar(12),
@@ -8,25 +59,39 @@ create table history (
                          digital_mail_transaction_id varchar(36),
                          message_id varchar(36) not null,
                          party_id varchar(36),
+                         attachments TEXT,
+                         body MEDIUMTEXT,
                          content LONGTEXT,
                          department varchar(255),
+                         destination varchar(255),
                          destination_address varchar(255),
                          issuer varchar(255),
                          municipality_id varchar(255),
                          origin varchar(255),
                          status_detail LONGTEXT,
+                         subject varchar(1000),
                          message_type enum ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE'),
                          original_message_type enum ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE'),
                          status enum ('AWAITING_FEEDBACK','FAILED','NOT_SENT','NO_CONTACT_SETTINGS_FOUND','NO_CONTACT_WANTED','PENDING','SENT'),
                          primary key (id)
 ) engine=InnoDB;
 
+create table message_content (
+                                 created_at datetime(6),
+                                 id bigint not null auto_increment,
+                                 content LONGTEXT NOT NULL,
+                                 primary key (id)
+) engine=InnoDB;
+
 create table messages (
+                          claim_expires_at datetime(6),
+                          content_id bigint,
                           created_at datetime(6),
                           id bigint not null auto_increment,
                           organization_number varchar(12),
+                          digital_mail_transaction_id varchar(36),
                           batch_id varchar(255),
-                          content LONGTEXT NOT NULL,
+                          claimed_by varchar(255),
                           delivery_id varchar(255),
                           destination_address varchar(255),
                           issuer varchar(255),
@@ -34,12 +99,25 @@ create table messages (
                           municipality_id varchar(255),
                           origin varchar(255),
                           party_id varchar(255),
+                          status_detail LONGTEXT,
                           message_type enum ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE'),
                           original_message_type enum ('DIGITAL_INVOICE','DIGITAL_MAIL','EMAIL','LETTER','MESSAGE','SLACK','SMS','SNAIL_MAIL','WEB_MESSAGE'),
                           status enum ('AWAITING_FEEDBACK','FAILED','NOT_SENT','NO_CONTACT_SETTINGS_FOUND','NO_CONTACT_WANTED','PENDING','SENT'),
                           primary key (id)
 ) engine=InnoDB;
 
+create index idx_attachment_reference_content_id
+    on attachment_reference (content_id);
+
+create index idx_attachment_reference_hash
+    on attachment_reference (hash);
+
+create index idx_batch_summary_municipality_issuer_created
+    on batch_summary (municipality_id, issuer, created_at);
+
+create index idx_batch_tracking_created_at
+    on batch_tracking (created_at);
+
 create index idx_history_municipality_issuer_created
     on history (municipality_id, issuer, created_at);
 
@@ -75,3 +153,33 @@ create index idx_history_department
 
 create index idx_history_organization_number
     on history (organization_number);
+
+create index idx_history_metadata_extracted
+    on history (metadata_extracted, id);
+
+create index idx_history_content_id
+    on history (content_id);
+
+create index idx_messages_status_claim_expires_at
+    on messages (status, claim_expires_at);
+
+create index idx_messages_claimed_by
+    on messages (claimed_by);
+
+create index idx_messages_delivery_id
+    on messages (delivery_id);
+
+create index idx_messages_batch_id
+    on messages (batch_id);
+
+create index idx_messages_status_id
+    on messages (status, id);
+
+create index idx_messages_content_id
+    on messages (content_id);
+
+alter table if exists batch_summary
+    add constraint uq_batch_summary_municipality_batch unique (municipality_id, batch_id);
+
+alter table if exists daily_statistics
+    add constraint uq_daily_statistics_dimensions unique (municipality_id, day, origin, department, original_message_type, message_type, status);
@@ -216,3 +216,19 @@ VALUES ('2281', 'cb1af665-835f-45b8-8755-9aa2ed284292', 'd5161acb-2462-4065-a679
         'fc69b2b6-aa8c-4eb8-a16b-c7692d403812',
         '{"party":{},"sender":"Svallkommun","mobileNumber":"+4612345678","message":"Testar","priority":"HIGH"}',
         'origin', 'issuer4', 'SBK(Gatuavdelningen, Trafiksektionen)', '2050-02-25 15:54:39.254123', NULL, '2120002411');
+
+INSERT INTO daily_statistics (municipality_id, day, origin, department, original_message_type, message_type, status, message_count)
+SELECT municipality_id, DATE(created_at), COALESCE(origin, ''), COALESCE(department, ''), original_message_type, message_type, status, COUNT(*)
+FROM history
+WHERE municipality_id IS NOT NULL AND created_at IS NOT NULL
+GROUP BY municipality_id, DATE(created_at), COALESCE(origin, ''), COALESCE(department, ''), original_message_type, message_type, status;
+
+INSERT INTO batch_summary (municipality_id, batch_id, issuer, original_message_type, subject, attachment_count, created_at)
+SELECT h.municipality_id, h.batch_id, MAX(h.issuer), MAX(h.original_message_type),
+       LEFT(MAX(CASE WHEN h.original_message_type IN ('DIGITAL_MAIL', 'EMAIL', 'LETTER') THEN JSON_VALUE(COALESCE(h.content, c.content), '$.subject') END), 1000),
+       COALESCE(MAX(CASE WHEN h.message_type IN ('DIGITAL_MAIL', 'SNAIL_MAIL', 'WEB_MESSAGE', 'EMAIL') THEN JSON_LENGTH(COALESCE(h.content, c.content), '$.attachments') END), 0),
+       MIN(h.created_at)
+FROM history h
+LEFT JOIN message_content c ON c.id = h.content_id
+WHERE h.municipality_id IS NOT NULL AND h.batch_id IS NOT NULL AND h.created_at >= CURRENT_DATE - INTERVAL 30 DAY
+GROUP BY h.municipality_id, h.batch_id;
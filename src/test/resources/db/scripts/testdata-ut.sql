@@ -1,16 +1,21 @@
-INSERT INTO messages (id, message_id, batch_id, delivery_id, message_type, original_message_type, status, content,
+INSERT INTO message_content (id, content, created_at)
+VALUES (1, '{"party":{"partyId":"66eda45f-3dff-4e08-ae6b-620cf038e608"},"department":"BOU Förskola"}', '2024-01-16 14:44:17.538371'),
+       (2, '{"party":{"partyId":"66eda45f-3dff-4e08-ae6b-620cf038e608"},"department":"Kultur och fritid"}', '2024-01-18 12:51:22.514621'),
+       (3, '{"party":{"partyId":"66eda45f-3dff-4e08-ae6b-620cf038e608"},"department":"Stadsbyggnadskontoret"}', '2024-01-24 10:26:17.986038');
+
+INSERT INTO messages (id, message_id, batch_id, delivery_id, message_type, original_message_type, status, content_id,
                       origin, issuer, municipality_id, created_at, organization_number)
 VALUES (1, 'cb1af665-835f-45b8-8755-9aa2ed284292', 'd5161acb-2462-4065-a679-53b1cd77be92',
         'ea6b0684-69d5-4f70-8b2d-6255303ead0e', 'SNAIL_MAIL', 'LETTER', 'PENDING',
-        '{"party":{"partyId":"66eda45f-3dff-4e08-ae6b-620cf038e608"},"department":"BOU Förskola"}', 'origin1',
+        1, 'origin1',
         'issuer1', '2281', '2024-01-16 14:44:17.538371', NULL),
        (2, 'b3c4bd07-8e88-4fc4-b429-d6d42b5a1a6f', 'd003421e-45ea-49b4-9230-244142daa634',
         '0cc1cd5b-1196-49e9-9dad-11cc0da77e3d', 'SNAIL_MAIL', 'LETTER', 'SENT',
-        '{"party":{"partyId":"66eda45f-3dff-4e08-ae6b-620cf038e608"},"department":"Kultur och fritid"}', 'origin1',
+        2, 'origin1',
         'issuer2', '2281', '2024-01-18 12:51:22.514621', NULL),
        (3, '47a249ea-0308-4b93-a482-a023d708a788', 'b93b11b2-4d6f-4cc1-914d-7a4d00d408b2',
         'abd1c62e-8242-4a08-b6ab-edffb3a51235', 'SNAIL_MAIL', 'LETTER', 'PENDING',
-        '{"party":{"partyId":"66eda45f-3dff-4e08-ae6b-620cf038e608"},"department":"Stadsbyggnadskontoret"}', 'origin1',
+        3, 'origin1',
         'issuer1', '2281', '2024-01-24 10:26:17.986038', NULL);
 
 INSERT INTO history (municipality_id, batch_id, message_id, delivery_id, message_type, original_message_type, status,
@@ -95,3 +100,9 @@ VALUES ('2281', 'cb1af665-835f-45b8-8755-9aa2ed284292', 'd5161acb-2462-4065-a679
         '152252cf-4c81-4591-832c-8fdc6d5d2eb2', 'SMS', 'SMS', 'FAILED', NULL, 'd1d87cda-0dc5-41bb-9dd9-fa6ed2fd52ee',
         '{"party":{"partyId":"d1d87cda-0dc5-41bb-9dd9-fa6ed2fd52ee"}}', NULL, NULL,
         'SBK(Gatuavdelningen, Trafiksektionen)', '2024-06-25 15:54:39.254123', NULL);
+
+INSERT INTO daily_statistics (municipality_id, day, origin, department, original_message_type, message_type, status, message_count)
+SELECT municipality_id, DATE(created_at), COALESCE(origin, ''), COALESCE(department, ''), original_message_type, message_type, status, COUNT(*)
+FROM history
+WHERE municipality_id IS NOT NULL AND created_at IS NOT NULL
+GROUP BY municipality_id, DATE(created_at), COALESCE(origin, ''), COALESCE(department, ''), original_message_type, message_type, status;
@@ -1,3 +1,6 @@
 SET FOREIGN_KEY_CHECKS = 0;
 TRUNCATE table history;
+TRUNCATE table daily_statistics;
+TRUNCATE table batch_summary;
+TRUNCATE table attachment_reference;
 SET FOREIGN_KEY_CHECKS = 1;